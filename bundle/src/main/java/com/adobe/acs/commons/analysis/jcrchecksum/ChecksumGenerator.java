@@ -26,6 +26,7 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import java.io.IOException;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Utility that generates checksums for JCR paths.  The checksum is calculated using a depth first traversal
@@ -60,4 +61,20 @@ public interface ChecksumGenerator {
      */
     Map<String, String> generateChecksums(Session session, String path, ChecksumGeneratorOptions options)
             throws RepositoryException, IOException;
+
+    /**
+     * Traverses the content tree whose root is defined by the path param, respecting the {@link
+     * ChecksumGeneratorOptions}.
+     * Passes every [ ABSOLUTE PATH ] : [ CHECKSUM OF NODE SYSTEM ] pair to the consumer as soon as it is available,
+     * in the same order as {@link #generateChecksums(Session, String, ChecksumGeneratorOptions)}.
+     *
+     * @param session  the session
+     * @param path     the root path to generate checksums for
+     * @param options  the {@link ChecksumGeneratorOptions} that define the checksum generation
+     * @param consumer the consumer of the abs path ~> checksum pairs
+     * @throws RepositoryException
+     * @throws IOException
+     */
+    void generateChecksums(Session session, String path, ChecksumGeneratorOptions options,
+                           BiConsumer<String, String> consumer) throws RepositoryException, IOException;
 }
\ No newline at end of file
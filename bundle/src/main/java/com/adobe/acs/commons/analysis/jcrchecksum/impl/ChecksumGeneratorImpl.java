@@ -23,13 +23,23 @@ package com.adobe.acs.commons.analysis.jcrchecksum.impl;
 import com.adobe.acs.commons.analysis.jcrchecksum.ChecksumGenerator;
 import com.adobe.acs.commons.analysis.jcrchecksum.ChecksumGeneratorOptions;
 import com.adobe.acs.commons.analysis.jcrchecksum.impl.options.DefaultChecksumGeneratorOptions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.jackrabbit.api.ReferenceBinary;
 import org.apache.jackrabbit.vault.util.Text;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jcr.Binary;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.Property;
@@ -37,28 +47,100 @@ import javax.jcr.PropertyIterator;
 import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
 import javax.jcr.Value;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
 
 /**
  * Utility that generates checksums for JCR paths.  The checksum is calculated using a depth first traversal
  * and calculates an aggregate checksum on the nodes with the specified node types
  * (via {@link ChecksumGeneratorOptions}).
+ * The node systems found by the traversal are checksummed in parallel, each worker reading through its own
+ * impersonated session, and the checksums of binaries are cached in memory by the binaries' content identity, so
+ * unchanged binaries are only hashed once.
  */
 @Component
+@Designate(ocd = ChecksumGeneratorImpl.Config.class)
 public class ChecksumGeneratorImpl implements ChecksumGenerator {
     private static final Logger log = LoggerFactory.getLogger(ChecksumGeneratorImpl.class);
 
+    private static final int DEFAULT_PARALLELISM = 0;
+
+    private static final int DEFAULT_BINARY_CACHE_SIZE = 10000;
+
+    /**
+     * Max number of node systems being checksummed ahead of the one that is emitted next, per thread.
+     */
+    private static final int PENDING_PER_THREAD = 4;
+
+    private static final byte[] EQUALS = {'='};
+
+    @ObjectClassDefinition(name = "ACS AEM Commons - JCR Checksum Generator")
+    public @interface Config {
+        @AttributeDefinition(name = "Parallelism",
+                description = "Number of threads checksumming node systems in parallel. 0 uses the number of available processors, "
+                        + "1 disables parallel processing. [ Default: 0 ]",
+                defaultValue = "" + DEFAULT_PARALLELISM)
+        int parallelism() default DEFAULT_PARALLELISM;
+
+        @AttributeDefinition(name = "Binary checksum cache size",
+                description = "Max number of binary checksums cached by the binaries' content identity. 0 disables the cache. "
+                        + "[ Default: 10000 ]",
+                defaultValue = "" + DEFAULT_BINARY_CACHE_SIZE)
+        int binary_cache_size() default DEFAULT_BINARY_CACHE_SIZE;
+    }
+
+    private ForkJoinPool pool;
+
+    private Cache<String, String> binaryChecksums;
+
+    @Activate
+    protected void activate(Config config) {
+        int parallelism = config.parallelism();
+        if (parallelism <= 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+
+        if (parallelism > 1) {
+            this.pool = new ForkJoinPool(parallelism);
+        }
+
+        if (config.binary_cache_size() > 0) {
+            this.binaryChecksums = CacheBuilder.newBuilder().maximumSize(config.binary_cache_size()).build();
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        if (this.pool != null) {
+            this.pool.shutdownNow();
+            this.pool = null;
+        }
+
+        this.binaryChecksums = null;
+    }
+
     /**
      * Convenience method for  generateChecksums(session, path, new DefaultChecksumGeneratorOptions()).
      *
@@ -88,39 +170,98 @@ public class ChecksumGeneratorImpl implements ChecksumGenerator {
     public Map<String, String> generateChecksums(Session session, String path, ChecksumGeneratorOptions options)
             throws RepositoryException, IOException {
 
+        final Map<String, String> checksums = new LinkedHashMap<>();
+
+        generateChecksums(session, path, options, checksums::put);
+
+        return checksums;
+    }
+
+    /**
+     * Traverses the content tree whose root is defined by the path param, respecting the {@link
+     * ChecksumGeneratorOptions}, and passes every [ ABSOLUTE PATH ] : [ CHECKSUM OF NODE SYSTEM ] pair to the consumer
+     * as soon as it is available, in traversal order.
+     *
+     * @param session the session
+     * @param path the root path to generate checksums for
+     * @param options the {@link ChecksumGeneratorOptions} that define the checksum generation
+     * @param consumer the consumer of the abs path ~> checksum pairs
+     * @throws RepositoryException
+     * @throws IOException
+     */
+    public void generateChecksums(Session session, String path, ChecksumGeneratorOptions options,
+                                  BiConsumer<String, String> consumer) throws RepositoryException, IOException {
+
         Node node = session.getNode(path);
 
         if (node == null) {
             log.warn("Path [ {} ] not found while generating checksums", path);
-            return new LinkedHashMap<>();
+            return;
         }
 
-        return traverseTree(node, options);
+        // Sessions are not thread-safe, so every worker reads the node systems through a session of its own
+        final List<Session> workerSessions = openWorkerSessions(session);
+        final OrderedChecksums checksums = new OrderedChecksums(options, consumer,
+                workerSessions.isEmpty() ? null : this.pool, workerSessions);
+
+        try {
+            traverseTree(node, options, checksums);
+            checksums.finish();
+        } finally {
+            checksums.cancel();
+            for (Session workerSession : workerSessions) {
+                workerSession.logout();
+            }
+        }
+    }
+
+    /**
+     * Opens a session per pool thread for the user of the provided session.
+     *
+     * @param session the session checksums are generated for
+     * @return the worker sessions, or an empty list if the checksums have to be generated sequentially
+     */
+    private List<Session> openWorkerSessions(Session session) {
+        final ForkJoinPool workerPool = this.pool;
+        final List<Session> workerSessions = new ArrayList<>();
+
+        if (workerPool == null) {
+            return workerSessions;
+        }
+
+        try {
+            for (int i = 0; i < workerPool.getParallelism(); i++) {
+                workerSessions.add(session.impersonate(new SimpleCredentials(session.getUserID(), new char[0])));
+            }
+        } catch (RepositoryException | UnsupportedOperationException e) {
+            log.info("Could not open worker sessions for [ {} ]; generating checksums sequentially",
+                    session.getUserID(), e);
+            for (Session workerSession : workerSessions) {
+                workerSession.logout();
+            }
+            workerSessions.clear();
+        }
+
+        return workerSessions;
     }
 
     /**
      * Traverse the tree for candidate aggregate nodes.
      * @param node the current node being traversed
      * @param options the checksum generator options
-     * @return a map of paths and checksums
+     * @param checksums collects the checksums of the candidate aggregate nodes
      * @throws RepositoryException
      * @throws IOException
      */
-    private Map<String, String> traverseTree(Node node, ChecksumGeneratorOptions options) throws
+    private void traverseTree(Node node, ChecksumGeneratorOptions options, OrderedChecksums checksums) throws
             RepositoryException,
             IOException {
 
-        final Map<String, String> checksums = new LinkedHashMap<>();
-
         if (isExcludedSubTree(node, options)) {
-            return checksums;
+            return;
         } else if (isChecksumable(node, options) && !isExcludedNodeName(node, options)) {
             // Tree-traversal has found a node to checksum (checksum will include all valid sub-tree nodes)
-            final String checksum = generatedNodeChecksum(node.getPath(), node, options);
-            if (checksum != null) {
-                checksums.put(node.getPath(), checksum);
-                log.debug("Top Level Node: {} ~> {}", node.getPath(), checksum);
-            }
+            checksums.add(node);
         } else {
             // Traverse the tree for checksum-able node systems
             NodeIterator children = node.getNodes();
@@ -128,11 +269,9 @@ public class ChecksumGeneratorImpl implements ChecksumGenerator {
             while (children.hasNext()) {
                 // Check each child with recursive logic; if child is checksum-able the call into traverseTree will
                 // handle this case
-                checksums.putAll(traverseTree(children.nextNode(), options));
+                traverseTree(children.nextNode(), options, checksums);
             }
         }
-
-        return checksums;
     }
 
 
@@ -327,15 +466,32 @@ public class ChecksumGeneratorImpl implements ChecksumGenerator {
      * @throws IOException
      */
     protected String getBinaryChecksum(final Value value) throws RepositoryException, IOException {
-        InputStream stream = null;
+        final Binary binary = value.getBinary();
 
         try {
-            stream = value.getBinary().getStream();
-            return DigestUtils.sha1Hex(stream);
-        } finally {
-            if (stream != null) {
-                stream.close();
+            final Cache<String, String> cache = this.binaryChecksums;
+            final String reference = binary instanceof ReferenceBinary ? ((ReferenceBinary) binary).getReference() : null;
+
+            if (cache == null || reference == null) {
+                return getBinaryChecksum(binary);
             }
+
+            // The reference identifies the binary's content, so a cached checksum is valid wherever the binary is used
+            String checksum = cache.getIfPresent(reference);
+            if (checksum == null) {
+                checksum = getBinaryChecksum(binary);
+                cache.put(reference, checksum);
+            }
+
+            return checksum;
+        } finally {
+            binary.dispose();
+        }
+    }
+
+    private String getBinaryChecksum(final Binary binary) throws RepositoryException, IOException {
+        try (InputStream stream = binary.getStream()) {
+            return DigestUtils.sha1Hex(stream);
         }
     }
 
@@ -377,13 +533,16 @@ public class ChecksumGeneratorImpl implements ChecksumGenerator {
     protected String aggregateChecksums(final Map<String, String> checksums) {
         if (checksums.isEmpty()) { return null; }
 
-        StringBuilder data = new StringBuilder();
+        // Digests the same bytes as hashing the concatenation of all entries, without building that string
+        final MessageDigest digest = DigestUtils.getSha1Digest();
 
         for (Map.Entry<String, String> entry : checksums.entrySet()) {
-            data.append(entry.getKey() + "=" + entry.getValue());
+            digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update(EQUALS);
+            digest.update(String.valueOf(entry.getValue()).getBytes(StandardCharsets.UTF_8));
         }
 
-        return DigestUtils.sha1Hex(data.toString());
+        return Hex.encodeHexString(digest.digest());
     }
 
     protected boolean isExcludedSubTree(final Node node, final ChecksumGeneratorOptions options) throws RepositoryException {
@@ -440,4 +599,94 @@ public class ChecksumGeneratorImpl implements ChecksumGenerator {
 
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Hands the checksums of the candidate aggregate nodes to the consumer in traversal order. With a pool, the node
+     * systems are checksummed in parallel, with a bounded number of them running ahead of the next one to emit.
+     * Parallel workers re-resolve the node systems by path in one of the worker sessions, so the traversing
+     * session is only used by the calling thread.
+     */
+    private final class OrderedChecksums {
+        private final ChecksumGeneratorOptions options;
+        private final BiConsumer<String, String> consumer;
+        private final ForkJoinPool pool;
+        private final int maxPending;
+        private final BlockingQueue<Session> workerSessions;
+        private final Deque<Map.Entry<String, Future<String>>> pending = new ArrayDeque<>();
+
+        OrderedChecksums(ChecksumGeneratorOptions options, BiConsumer<String, String> consumer, ForkJoinPool pool,
+                         List<Session> workerSessions) {
+            this.options = options;
+            this.consumer = consumer;
+            this.pool = pool;
+            this.maxPending = pool == null ? 0 : pool.getParallelism() * PENDING_PER_THREAD;
+            this.workerSessions = new LinkedBlockingQueue<>(workerSessions);
+        }
+
+        void add(final Node node) throws RepositoryException, IOException {
+            final String path = node.getPath();
+
+            if (pool == null) {
+                emit(path, generatedNodeChecksum(path, node, options));
+                return;
+            }
+
+            pending.add(new AbstractMap.SimpleImmutableEntry<>(path, pool.submit(() -> generateChecksum(path))));
+
+            while (pending.size() > maxPending) {
+                emitNext();
+            }
+        }
+
+        private String generateChecksum(final String path) throws RepositoryException, IOException,
+                InterruptedException {
+            final Session workerSession = workerSessions.take();
+            try {
+                return generatedNodeChecksum(path, workerSession.getNode(path), options);
+            } finally {
+                workerSessions.add(workerSession);
+            }
+        }
+
+        void finish() throws RepositoryException, IOException {
+            while (!pending.isEmpty()) {
+                emitNext();
+            }
+        }
+
+        void cancel() {
+            for (Map.Entry<String, Future<String>> entry : pending) {
+                entry.getValue().cancel(true);
+            }
+            pending.clear();
+        }
+
+        private void emitNext() throws RepositoryException, IOException {
+            final Map.Entry<String, Future<String>> entry = pending.poll();
+
+            try {
+                emit(entry.getKey(), entry.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RepositoryException("Interrupted while generating the checksum of " + entry.getKey(), e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RepositoryException) {
+                    throw (RepositoryException) cause;
+                } else if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new RepositoryException("Unable to generate the checksum of " + entry.getKey(), cause);
+            }
+        }
+
+        private void emit(final String path, final String checksum) {
+            if (checksum != null) {
+                consumer.accept(path, checksum);
+                log.debug("Top Level Node: {} ~> {}", path, checksum);
+            }
+        }
+    }
+}
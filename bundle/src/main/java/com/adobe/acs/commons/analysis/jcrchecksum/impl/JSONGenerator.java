@@ -79,6 +79,7 @@ public final class JSONGenerator {
         }
 
         for (String path : paths) {
+            final long start = System.currentTimeMillis();
             out.beginObject();
             try {
                 if (session.itemExists(path)) {
@@ -96,6 +97,7 @@ public final class JSONGenerator {
                 out.value("Unable to read path: " + e.getMessage());
             } finally {
                 out.endObject();
+                log.debug("Generated JSON for [ {} ] in [ {} ] ms", path, System.currentTimeMillis() - start);
             }
         }
 
@@ -144,6 +146,9 @@ public final class JSONGenerator {
         outputChildNodes(node, opts, out);
 
         out.endObject();
+
+        // Hand each completed node to the underlying writer, so large dumps are streamed rather than buffered
+        out.flush();
     }
 
     private static void generateSubnodeJSON(Node node,
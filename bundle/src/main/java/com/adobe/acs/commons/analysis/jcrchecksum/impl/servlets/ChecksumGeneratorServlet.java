@@ -38,8 +38,9 @@ import javax.servlet.Servlet;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Map;
+import java.io.PrintWriter;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings("serial")
 @Component(service=Servlet.class, property= {
@@ -96,21 +97,25 @@ public class ChecksumGeneratorServlet extends BaseChecksumServlet {
         if (CollectionUtils.isEmpty(paths)) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             response.getWriter().print("ERROR: At least one path must be specified");
+            return;
         }
 
         final Session session = request.getResourceResolver().adaptTo(Session.class);
+        final PrintWriter writer = response.getWriter();
 
         for (final String path : paths) {
             log.debug("Generating checksum for path [ {} ]", path);
 
-            Map<String, String> checksums = checksumGenerator.generateChecksums(session, path, options);
+            final AtomicInteger count = new AtomicInteger();
 
-            log.debug("Collected [ {} ] checksum entries under [ {} ]", checksums.size(), path);
+            // Write each checksum as soon as it is generated rather than collecting all of them first
+            checksumGenerator.generateChecksums(session, path, options, (checksumPath, checksum) -> {
+                log.trace("Checksum [ {} ~> {} ]", checksumPath, checksum);
+                writer.println(checksumPath + "\t" + checksum);
+                count.incrementAndGet();
+            });
 
-            for(final Map.Entry<String, String> entry : checksums.entrySet()) {
-                log.trace("Checksum [ {} ~> {} ]", entry.getKey(), entry.getValue());
-                response.getWriter().println(entry.getKey() + "\t" + entry.getValue());
-            }
+            log.debug("Collected [ {} ] checksum entries under [ {} ]", count.get(), path);
         }
     }
 }
\ No newline at end of file
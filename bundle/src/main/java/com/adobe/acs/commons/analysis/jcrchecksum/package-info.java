@@ -18,7 +18,7 @@
  * #L%
  */
 
-@Version("2.1.2")
+@Version("2.2.0")
 package com.adobe.acs.commons.analysis.jcrchecksum;
 
 import aQute.bnd.annotation.Version;
\ No newline at end of file
@@ -20,9 +20,13 @@
 package com.adobe.acs.commons.data;
 
 import aQute.bnd.annotation.ProviderType;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Array;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -32,6 +36,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -47,6 +52,11 @@ import org.apache.sling.api.request.RequestParameter;
  * Simple abstraction of reading a single spreadsheet of values. Expects a
  * header row of named columns (case-sensitive) If provided, will also filter
  * data rows missing required columns to prevent processing errors.
+ * <p>
+ * Spreadsheets opened with one of the {@code stream} methods only read the
+ * header row up front; data rows are parsed one at a time as they are
+ * requested from {@link #getDataRowIterator()}, so memory use does not grow
+ * with the number of rows.
  */
 @ProviderType
 public class Spreadsheet {
@@ -61,6 +71,9 @@ public class Spreadsheet {
     private List<String> headerRow;
     private final Map<String, String> delimiters;
     private boolean enableHeaderNameConversion = true;
+    private transient XlsxRowReader rowReader;
+    private transient Iterator<Map<String, CompositeVariant>> streamingIterator;
+    private transient File spooledFile;
 
     /**
      * Simple constructor used for unit testing purposes
@@ -101,6 +114,73 @@ public class Spreadsheet {
         this(true, file, required);
     }
 
+    private Spreadsheet(boolean convertHeaderNames, XlsxRowReader rowReader, String... required) throws IOException {
+        delimiters = new HashMap<>();
+        this.enableHeaderNameConversion = convertHeaderNames;
+        if (required == null || required.length == 0) {
+            requiredColumns = Collections.EMPTY_LIST;
+        } else {
+            requiredColumns = Arrays.stream(required).map(this::convertHeaderName).collect(Collectors.toList());
+        }
+        this.rowReader = rowReader;
+        dataRows = new ArrayList<>();
+        List<Variant> firstRow = rowReader.readRow();
+        if (firstRow == null) {
+            throw new IOException("Spreadsheet has no header row");
+        }
+        readHeaderRow(firstRow);
+    }
+
+    /**
+     * Open an xlsx file for streaming. Only the header row is read, data rows
+     * are read as they are requested from {@link #getDataRowIterator()}. The
+     * spreadsheet must be closed once it is no longer needed.
+     *
+     * @param convertHeaderNames If true, header names are converted
+     * @param file the xlsx file, it must not be modified while it is streamed
+     * @param required required columns
+     * @return the streaming spreadsheet
+     * @throws IOException if the file couldn't be read
+     */
+    public static Spreadsheet stream(boolean convertHeaderNames, File file, String... required) throws IOException {
+        XlsxRowReader reader = new XlsxRowReader(file);
+        try {
+            Spreadsheet spreadsheet = new Spreadsheet(convertHeaderNames, reader, required);
+            spreadsheet.fileName = file.getName();
+            return spreadsheet;
+        } catch (IOException | RuntimeException ex) {
+            reader.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Open an uploaded xlsx file for streaming. The upload is copied to a
+     * temporary file, which is removed when the spreadsheet is closed.
+     *
+     * @param convertHeaderNames If true, header names are converted
+     * @param file the uploaded xlsx file
+     * @param required required columns
+     * @return the streaming spreadsheet
+     * @throws IOException if the file couldn't be read
+     * @see #stream(boolean, File, String...)
+     */
+    public static Spreadsheet stream(boolean convertHeaderNames, RequestParameter file, String... required) throws IOException {
+        File spooled = File.createTempFile("acs-commons-spreadsheet", ".xlsx");
+        try {
+            try (InputStream in = file.getInputStream()) {
+                Files.copy(in, spooled.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Spreadsheet spreadsheet = stream(convertHeaderNames, spooled, required);
+            spreadsheet.fileName = file.getFileName();
+            spreadsheet.spooledFile = spooled;
+            return spreadsheet;
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(spooled.toPath());
+            throw ex;
+        }
+    }
+
     /**
      * Parse out the input file synchronously for easier unit test validation
      *
@@ -116,23 +196,27 @@ public class Spreadsheet {
         final Iterator<Row> rows = sheet.rowIterator();
 
         Row firstRow = rows.next();
-        headerRow = readRow(firstRow).stream()
+        readHeaderRow(readRow(firstRow));
+
+        Iterable<Row> remainingRows = () -> rows;
+        dataRows = StreamSupport.stream(remainingRows.spliterator(), false)
+                .map(row -> buildRow(row.getRowNum(), readRow(row)))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+    }
+
+    private void readHeaderRow(List<Variant> firstRow) {
+        headerRow = firstRow.stream()
                 .map(v -> v != null ? convertHeaderName(v.toString()) : null)
                 .collect(Collectors.toList());
-        headerTypes = readRow(firstRow).stream()
+        headerTypes = firstRow.stream()
                 .map(Variant::toString)
                 .collect(Collectors.toMap(
                         this::convertHeaderName,
                         this::detectTypeFromName,
                         this::upgradeToArray
                 ));
-
-        Iterable<Row> remainingRows = () -> rows;
-        dataRows = StreamSupport.stream(remainingRows.spliterator(), false)
-                .map(this::buildRow)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
     }
 
     private List<Variant> readRow(Row row) {
@@ -150,10 +234,9 @@ public class Spreadsheet {
     }
 
     @SuppressWarnings("squid:S3776")
-    private Optional<Map<String, CompositeVariant>> buildRow(Row row) {
+    private Optional<Map<String, CompositeVariant>> buildRow(int rowNum, List<Variant> data) {
         Map<String, CompositeVariant> out = new LinkedHashMap<>();
-        out.put(ROW_NUMBER, new CompositeVariant(row.getRowNum()));
-        List<Variant> data = readRow(row);
+        out.put(ROW_NUMBER, new CompositeVariant(rowNum));
         boolean empty = true;
         for (int i = 0; i < data.size() && i < getHeaderRow().size(); i++) {
             String colName = getHeaderRow().get(i);
@@ -189,7 +272,8 @@ public class Spreadsheet {
     }
 
     /**
-     * @return the rowCount
+     * @return the rowCount; for a streamed spreadsheet the number of the last
+     * row read so far
      */
     public int getRowCount() {
         return rowCount;
@@ -203,12 +287,72 @@ public class Spreadsheet {
     }
 
     /**
-     * @return the dataRows
+     * @return the dataRows, always empty for a streamed spreadsheet
      */
     public List<Map<String, CompositeVariant>> getDataRowsAsCompositeVariants() {
         return dataRows;
     }
 
+    /**
+     * Iterate over the data rows. For a streamed spreadsheet the rows are
+     * parsed as the iterator advances and can only be iterated once; every
+     * call returns the same iterator. Read errors surface as
+     * {@link UncheckedIOException}.
+     *
+     * @return iterator over the data rows
+     */
+    public Iterator<Map<String, CompositeVariant>> getDataRowIterator() {
+        if (rowReader == null) {
+            return dataRows.iterator();
+        }
+        if (streamingIterator == null) {
+            streamingIterator = new Iterator<Map<String, CompositeVariant>>() {
+                private Map<String, CompositeVariant> next;
+
+                @Override
+                public boolean hasNext() {
+                    try {
+                        List<Variant> row;
+                        while (next == null && (row = rowReader.readRow()) != null) {
+                            rowCount = rowReader.getRowNum();
+                            next = buildRow(rowCount, row).orElse(null);
+                        }
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public Map<String, CompositeVariant> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Map<String, CompositeVariant> row = next;
+                    next = null;
+                    return row;
+                }
+            };
+        }
+        return streamingIterator;
+    }
+
+    /**
+     * Release the file of a streamed spreadsheet, including the temporary copy
+     * of an upload. Does nothing for a spreadsheet which was read up front.
+     *
+     * @throws IOException if the temporary copy could not be removed
+     */
+    public void close() throws IOException {
+        if (rowReader != null) {
+            rowReader.close();
+        }
+        if (spooledFile != null) {
+            Files.deleteIfExists(spooledFile.toPath());
+            spooledFile = null;
+        }
+    }
+
     public Long getRowNum(Map<String, CompositeVariant> row) {
         if (row.containsKey(ROW_NUMBER)) {
             return (Long) row.get(ROW_NUMBER).getValueAs(Long.class);
@@ -0,0 +1,293 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.data;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.SAXException;
+
+/**
+ * Pull parser for the first sheet of an xlsx file. Rows are read one at a time
+ * from the sheet xml, so neither the workbook nor the rows are held in memory;
+ * only the shared strings and the cell styles are loaded. Cell values are
+ * converted the same way {@link Variant#Variant(org.apache.poi.ss.usermodel.Cell)}
+ * converts the cells of a fully loaded workbook.
+ */
+class XlsxRowReader implements Closeable {
+
+    private static final String ROW = "row";
+    private static final String CELL = "c";
+
+    private final OPCPackage pkg;
+    private final InputStream sheetData;
+    private final XMLStreamReader reader;
+    private final List<String> sharedStrings;
+    private final StylesTable styles;
+    private final DataFormatter dataFormatter = new DataFormatter();
+    private int rowNum = -1;
+    private boolean finished = false;
+
+    XlsxRowReader(File file) throws IOException {
+        OPCPackage opened = null;
+        InputStream sheet = null;
+        try {
+            opened = OPCPackage.open(file, PackageAccess.READ);
+            XSSFReader xssfReader = new XSSFReader(opened);
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            sharedStrings = readSharedStrings(opened, factory);
+            styles = xssfReader.getStylesTable();
+            Iterator<InputStream> sheets = xssfReader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IOException("Spreadsheet " + file.getName() + " has no sheets");
+            }
+            sheet = sheets.next();
+            reader = factory.createXMLStreamReader(sheet);
+        } catch (OpenXML4JException | SAXException | XMLStreamException | IOException | RuntimeException ex) {
+            closeQuietly(sheet);
+            if (opened != null) {
+                opened.revert();
+            }
+            if (ex instanceof IOException) {
+                throw (IOException) ex;
+            }
+            throw new IOException("Unable to open spreadsheet " + file.getName(), ex);
+        }
+        pkg = opened;
+        sheetData = sheet;
+    }
+
+    /**
+     * Read the shared strings of the workbook with the same pull parser as the
+     * sheet, since the POI accessors of the shared strings table differ across
+     * the supported POI versions. Like a fully loaded workbook, the text of
+     * phonetic runs is left out.
+     */
+    private static List<String> readSharedStrings(OPCPackage pkg, XMLInputFactory factory)
+            throws IOException, XMLStreamException {
+        List<String> strings = new ArrayList<>();
+        for (PackagePart part : pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType())) {
+            try (InputStream in = part.getInputStream()) {
+                XMLStreamReader stringsReader = factory.createXMLStreamReader(in);
+                StringBuilder text = null;
+                boolean phonetic = false;
+                while (stringsReader.hasNext()) {
+                    int event = stringsReader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = stringsReader.getLocalName();
+                        if ("si".equals(name)) {
+                            text = new StringBuilder();
+                        } else if ("rPh".equals(name)) {
+                            phonetic = true;
+                        } else if ("t".equals(name) && text != null && !phonetic) {
+                            text.append(stringsReader.getElementText());
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        String name = stringsReader.getLocalName();
+                        if ("si".equals(name) && text != null) {
+                            strings.add(text.toString());
+                            text = null;
+                        } else if ("rPh".equals(name)) {
+                            phonetic = false;
+                        }
+                    }
+                }
+                stringsReader.close();
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * @return the zero based number of the row last read, -1 if no row was read yet
+     */
+    int getRowNum() {
+        return rowNum;
+    }
+
+    /**
+     * Read the next row of the sheet. Missing cells within the row are returned
+     * as null, as are empty cells.
+     *
+     * @return the cell values of the row, or null if there are no more rows
+     * @throws IOException if the sheet could not be read
+     */
+    List<Variant> readRow() throws IOException {
+        if (finished) {
+            return null;
+        }
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && ROW.equals(reader.getLocalName())) {
+                    String ref = reader.getAttributeValue(null, "r");
+                    rowNum = ref == null ? rowNum + 1 : Integer.parseInt(ref) - 1;
+                    return readCells();
+                }
+            }
+        } catch (XMLStreamException | RuntimeException ex) {
+            throw new IOException("Unable to read row " + (rowNum + 1) + " of the spreadsheet", ex);
+        }
+        finished = true;
+        return null;
+    }
+
+    private List<Variant> readCells() throws XMLStreamException {
+        List<Variant> row = new ArrayList<>();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT && CELL.equals(reader.getLocalName())) {
+                String ref = reader.getAttributeValue(null, "r");
+                int column = ref == null ? row.size() : new CellReference(ref).getCol();
+                Variant val = readCell(reader.getAttributeValue(null, "t"), reader.getAttributeValue(null, "s"));
+                while (column > row.size()) {
+                    row.add(null);
+                }
+                row.add(val.isEmpty() ? null : val);
+            } else if (event == XMLStreamConstants.END_ELEMENT && ROW.equals(reader.getLocalName())) {
+                break;
+            }
+        }
+        return row;
+    }
+
+    @SuppressWarnings("squid:S3776")
+    private Variant readCell(String type, String style) throws XMLStreamException {
+        String value = null;
+        String formula = null;
+        StringBuilder inlineString = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "v":
+                        value = reader.getElementText();
+                        break;
+                    case "f":
+                        formula = reader.getElementText();
+                        break;
+                    case "t":
+                        if (inlineString == null) {
+                            inlineString = new StringBuilder();
+                        }
+                        inlineString.append(reader.getElementText());
+                        break;
+                    default:
+                        break;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && CELL.equals(reader.getLocalName())) {
+                break;
+            }
+        }
+
+        Variant variant = new Variant();
+        if ("inlineStr".equals(type)) {
+            if (inlineString != null) {
+                variant.setValue(inlineString.toString().trim());
+            }
+        } else if (value != null) {
+            switch (type == null ? "n" : type) {
+                case "s":
+                    variant.setValue(sharedStrings.get(Integer.parseInt(value)).trim());
+                    break;
+                case "str":
+                    variant.setValue(value.trim());
+                    break;
+                case "b":
+                    variant.setValue("1".equals(value));
+                    break;
+                case "e":
+                    // errors are treated like blank cells
+                    break;
+                case "n":
+                default:
+                    setNumericValue(variant, Double.parseDouble(value), style, formula);
+                    break;
+            }
+        }
+        return variant;
+    }
+
+    private void setNumericValue(Variant variant, double number, String style, String formula) {
+        if (Math.floor(number) == number) {
+            variant.setValue((long) number);
+        } else {
+            variant.setValue(number);
+        }
+        short formatIndex = 0;
+        String formatString = "General";
+        if (styles != null && styles.getNumCellStyles() > 0) {
+            XSSFCellStyle cellStyle = styles.getStyleAt(style == null ? 0 : Integer.parseInt(style));
+            formatIndex = cellStyle.getDataFormat();
+            formatString = cellStyle.getDataFormatString();
+        }
+        if (DateUtil.isValidExcelDate(number) && DateUtil.isADateFormat(formatIndex, formatString)) {
+            variant.setValue(DateUtil.getJavaDate(number));
+        }
+        if (formula != null && !formula.isEmpty()) {
+            // without a formula evaluator the formatted value of a formula cell is the formula itself
+            variant.setValue(formula);
+        } else {
+            variant.setValue(dataFormatter.formatRawCellContents(number, formatIndex, formatString));
+        }
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(sheetData);
+        try {
+            reader.close();
+        } catch (XMLStreamException ex) {
+            // nothing left to do
+        }
+        // the package was opened read-only, revert closes it without attempting to save
+        pkg.revert();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ex) {
+                // nothing left to do
+            }
+        }
+    }
+}
@@ -23,22 +23,32 @@ package com.adobe.acs.commons.errorpagehandler.cache.impl;
 import java.nio.charset.Charset;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 class CacheEntry {
-    private String data;
+    private volatile String data;
+
+    private volatile int bytes;
 
     private final AtomicInteger hits;
 
     private final AtomicInteger misses;
 
-    private Date expiresAt;
+    private volatile Date expiresAt;
+
+    private volatile long lastAccessed;
+
+    private final AtomicBoolean refreshing;
 
     public CacheEntry() {
         this.hits = new AtomicInteger();
         this.misses = new AtomicInteger();
+        this.refreshing = new AtomicBoolean();
         this.data = "";
         this.expiresAt = new Date(0);
+        this.lastAccessed = System.currentTimeMillis();
     }
 
     public final String getData() {
@@ -55,6 +65,7 @@ class CacheEntry {
         } else {
             this.data = data;
         }
+        this.bytes = this.data.getBytes(Charset.forName("UTF-8")).length;
     }
 
     public final int getHits() {
@@ -77,6 +88,37 @@ class CacheEntry {
         return expiresAt.before(date);
     }
 
+    /**
+     * @param date                         the date to check against
+     * @param staleWhileRevalidateInSeconds how long an expired entry may still be served while it is refreshed
+     * @return true if the entry is expired, but may still be served while it is refreshed
+     */
+    public final boolean isStaleServable(final Date date, final int staleWhileRevalidateInSeconds) {
+        return isExpired(date)
+                && expiresAt.getTime() + TimeUnit.SECONDS.toMillis(staleWhileRevalidateInSeconds) >= date.getTime();
+    }
+
+    /**
+     * Claim the refresh of this expired entry.
+     *
+     * @return true if the caller is to refresh the entry, false if another request already does.
+     */
+    final boolean startRefresh() {
+        return refreshing.compareAndSet(false, true);
+    }
+
+    final void endRefresh() {
+        refreshing.set(false);
+    }
+
+    final long getLastAccessed() {
+        return lastAccessed;
+    }
+
+    final void touch() {
+        this.lastAccessed = System.currentTimeMillis();
+    }
+
     public final void setExpiresIn(final int expiresInSeconds) {
         final Calendar calendar = Calendar.getInstance();
         calendar.add(Calendar.SECOND, expiresInSeconds);
@@ -106,6 +148,6 @@ class CacheEntry {
     }
 
     final int getBytes() {
-        return getData().getBytes(Charset.forName("UTF-8")).length;
+        return bytes;
     }
 }
@@ -39,32 +39,97 @@ import javax.management.openmbean.TabularData;
 import javax.management.openmbean.TabularDataSupport;
 import javax.management.openmbean.TabularType;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of rendered error pages, bounded by number of entries and size.
+ * <p>
+ * Misses are rendered single-flight: concurrent requests for the same error page wait for one render instead of each
+ * including the error page. Optionally, an expired entry keeps being served for a grace period while one request
+ * refreshes it (stale-while-revalidate).
+ */
 public final class ErrorPageCacheImpl extends AnnotatedStandardMBean implements ErrorPageCache, ErrorPageCacheMBean {
     private static final Logger log = LoggerFactory.getLogger(ErrorPageCacheImpl.class);
 
     private static final int KB_IN_BYTES = 1000;
 
+    static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    static final int DEFAULT_MAX_SIZE_IN_KB = 10000;
+
+    static final int DEFAULT_RENDER_TIMEOUT_IN_MS = 10000;
+
     private final ConcurrentMap<String, CacheEntry> cache = new ConcurrentHashMap<String, CacheEntry>();
 
+    /** Error pages being rendered right now, shared with concurrent requests for the same error page. */
+    private final ConcurrentMap<String, CompletableFuture<String>> renders = new ConcurrentHashMap<>();
+
+    /** Guards changes to the cache entries, so the running size total stays exact. */
+    private final Object writeLock = new Object();
+
+    private final AtomicLong cacheSizeInBytes = new AtomicLong();
+
     private final int ttl;
 
     private final boolean serveAuthenticatedFromCache;
 
+    private final int maxEntries;
+
+    private final long maxSizeInBytes;
+
+    private final int staleWhileRevalidate;
+
+    private final int renderTimeout;
 
     public ErrorPageCacheImpl(int ttl, boolean serveAuthenticatedFromCache) throws NotCompliantMBeanException {
+        this(ttl, serveAuthenticatedFromCache, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_SIZE_IN_KB, 0);
+    }
+
+    public ErrorPageCacheImpl(int ttl, boolean serveAuthenticatedFromCache, int maxEntries, int maxSizeInKB,
+                              int staleWhileRevalidate) throws NotCompliantMBeanException {
+        this(ttl, serveAuthenticatedFromCache, maxEntries, maxSizeInKB, staleWhileRevalidate,
+                DEFAULT_RENDER_TIMEOUT_IN_MS);
+    }
+
+    /**
+     * @param ttl                         TTL of each entry in seconds
+     * @param serveAuthenticatedFromCache serve authenticated requests from the cache
+     * @param maxEntries                  maximum number of entries, 0 or less for no limit
+     * @param maxSizeInKB                 maximum size of all entries in KB, 0 or less for no limit
+     * @param staleWhileRevalidate        seconds an expired entry is still served while being refreshed
+     * @param renderTimeout               milliseconds a request waits for a concurrent render of the same error
+     *                                    page before rendering it itself
+     * @throws NotCompliantMBeanException
+     */
+    public ErrorPageCacheImpl(int ttl, boolean serveAuthenticatedFromCache, int maxEntries, int maxSizeInKB,
+                              int staleWhileRevalidate, int renderTimeout) throws NotCompliantMBeanException {
         super(ErrorPageCacheMBean.class);
         this.ttl = ttl;
         this.serveAuthenticatedFromCache = serveAuthenticatedFromCache;
+        this.maxEntries = maxEntries;
+        this.maxSizeInBytes = (long) maxSizeInKB * KB_IN_BYTES;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.renderTimeout = renderTimeout;
 
         log.info("Starting ACS AEM Commons Error Page Handler Cache");
         log.info(" > TTL (in seconds): {}", ttl);
         log.info(" > Serve authenticated requests from cache: {}", serveAuthenticatedFromCache);
+        log.info(" > Max entries: {}", maxEntries);
+        log.info(" > Max size (in KB): {}", maxSizeInKB);
+        log.info(" > Stale while revalidate (in seconds): {}", staleWhileRevalidate);
+        log.info(" > Render timeout (in ms): {}", renderTimeout);
     }
 
 
@@ -80,31 +145,66 @@ public final class ErrorPageCacheImpl extends AnnotatedStandardMBean implements
         }
 
         final long start = System.currentTimeMillis();
-        CacheEntry cacheEntry = cache.get(path);
-        final boolean newEntry = cacheEntry == null;
+        final Date now = new Date();
+        final CacheEntry cacheEntry = cache.get(path);
 
-        if (newEntry || cacheEntry.isExpired(new Date())) {
+        if (cacheEntry != null && !cacheEntry.isExpired(now)) {
+            // Cache Hit
+            return serveHit(path, cacheEntry, start);
+        }
 
-            // Cache Miss
-            String data = ResourceDataUtil.getIncludeAsString(path, request, response);
+        final boolean revalidate = cacheEntry != null && cacheEntry.isStaleServable(now, staleWhileRevalidate);
+        if (revalidate && !cacheEntry.startRefresh()) {
+            // Another request is refreshing the entry; serve the stale representation meanwhile.
+            return serveHit(path, cacheEntry, start);
+        }
 
-            if (data == null) {
-                log.debug("Error page representation to cache is null. Setting to empty string.");
-                data = "";
+        try {
+            // Cache Miss
+            return serveMiss(path, request, response, start);
+        } finally {
+            if (revalidate) {
+                cacheEntry.endRefresh();
             }
+        }
+    }
 
-            if (newEntry) {
-                cacheEntry = new CacheEntry();
-            }
+    private String serveHit(final String path, final CacheEntry cacheEntry, final long start) {
+        final String data = cacheEntry.getData();
 
-            cacheEntry.setData(data);
-            cacheEntry.setExpiresIn(ttl);
-            cacheEntry.incrementMisses();
+        cacheEntry.incrementHits();
+        cacheEntry.touch();
 
-            if (newEntry) {
-                // Add entry to cache
-                cache.put(path, cacheEntry);
+        if (log.isDebugEnabled()) {
+            final long time = System.currentTimeMillis() - start;
+            log.debug("Served cache HIT for [ {} ] in [ {} ] ms", path, time);
+        }
+
+        return data;
+    }
+
+    private String serveMiss(final String path,
+                             final SlingHttpServletRequest request,
+                             final SlingHttpServletResponse response,
+                             final long start) {
+        final CompletableFuture<String> render = new CompletableFuture<>();
+        final CompletableFuture<String> inFlight = renders.putIfAbsent(path, render);
+
+        if (inFlight != null) {
+            // Another request renders this error page right now; use its result rather than rendering it again.
+            final String data = awaitRender(path, inFlight, request, response);
+            final CacheEntry cacheEntry = cache.get(path);
+            if (cacheEntry != null) {
+                cacheEntry.incrementHits();
+                cacheEntry.touch();
             }
+            return data;
+        }
+
+        try {
+            final String data = render(path, request, response);
+            store(path, data);
+            render.complete(data);
 
             if (log.isDebugEnabled()) {
                 final long time = System.currentTimeMillis() - start;
@@ -112,21 +212,120 @@ public final class ErrorPageCacheImpl extends AnnotatedStandardMBean implements
             }
 
             return data;
-        } else {
-            // Cache Hit
+        } finally {
+            renders.remove(path, render);
+            if (!render.isDone()) {
+                render.completeExceptionally(new IllegalStateException("Rendering of error page failed: " + path));
+            }
+        }
+    }
 
-            final String data = cacheEntry.getData();
+    private String awaitRender(final String path,
+                               final CompletableFuture<String> inFlight,
+                               final SlingHttpServletRequest request,
+                               final SlingHttpServletResponse response) {
+        try {
+            return inFlight.get(renderTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.debug("Shared render of error page [ {} ] failed, rendering it for this request.", path, e);
+        } catch (TimeoutException e) {
+            log.debug("Shared render of error page [ {} ] timed out, rendering it for this request.", path);
+        }
+        return render(path, request, response);
+    }
 
-            cacheEntry.incrementHits();
-            cache.put(path, cacheEntry);
+    private String render(final String path,
+                          final SlingHttpServletRequest request,
+                          final SlingHttpServletResponse response) {
+        final String data = ResourceDataUtil.getIncludeAsString(path, request, response);
 
-            if (log.isDebugEnabled()) {
-                final long time = System.currentTimeMillis() - start;
-                log.debug("Served cache HIT for [ {} ] in [ {} ] ms", path, time);
+        if (data == null) {
+            log.debug("Error page representation to cache is null. Setting to empty string.");
+            return "";
+        }
+
+        return data;
+    }
+
+    private void store(final String path, final String data) {
+        synchronized (writeLock) {
+            CacheEntry cacheEntry = cache.get(path);
+            if (cacheEntry == null) {
+                cacheEntry = new CacheEntry();
+                cache.put(path, cacheEntry);
             }
 
-            return data;
+            final int previousBytes = cacheEntry.getBytes();
+            cacheEntry.setData(data);
+            cacheSizeInBytes.addAndGet((long) cacheEntry.getBytes() - previousBytes);
+            cacheEntry.setExpiresIn(ttl);
+            cacheEntry.incrementMisses();
+            cacheEntry.touch();
         }
+
+        evictIfNeeded();
+    }
+
+    /**
+     * Remove entries which can no longer be served, then the least recently used entries, until the cache is within
+     * its bounds.
+     */
+    private void evictIfNeeded() {
+        if (!isOverBounds()) {
+            return;
+        }
+
+        synchronized (writeLock) {
+            final Date now = new Date();
+            final List<Map.Entry<String, CacheEntry>> entries = new ArrayList<>(cache.entrySet());
+            for (final Map.Entry<String, CacheEntry> entry : entries) {
+                final CacheEntry cacheEntry = entry.getValue();
+                if (cacheEntry.isExpired(now) && !cacheEntry.isStaleServable(now, staleWhileRevalidate)) {
+                    remove(entry.getKey(), cacheEntry);
+                }
+            }
+
+            if (!isOverBounds()) {
+                return;
+            }
+
+            // Snapshot the access times, they keep changing while sorting.
+            final Map<String, Long> lastAccessed = new HashMap<>();
+            for (final Map.Entry<String, CacheEntry> entry : entries) {
+                lastAccessed.put(entry.getKey(), entry.getValue().getLastAccessed());
+            }
+            entries.sort(Comparator.comparing(entry -> lastAccessed.get(entry.getKey())));
+
+            for (final Map.Entry<String, CacheEntry> entry : entries) {
+                if (!isOverBounds()) {
+                    break;
+                }
+                if (remove(entry.getKey(), entry.getValue())) {
+                    log.debug("Evicted error page [ {} ] from the cache", entry.getKey());
+                }
+            }
+        }
+    }
+
+    private boolean remove(final String path, final CacheEntry cacheEntry) {
+        if (cache.remove(path, cacheEntry)) {
+            cacheSizeInBytes.addAndGet(-cacheEntry.getBytes());
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isOverBounds() {
+        if (maxEntries > 0 && cache.size() > maxEntries) {
+            return true;
+        }
+        return maxSizeInBytes > 0 && getCacheSizeInBytes() > maxSizeInBytes;
+    }
+
+    private long getCacheSizeInBytes() {
+        return cacheSizeInBytes.get();
     }
 
     private boolean isAnonymousRequest(final SlingHttpServletRequest request) {
@@ -174,13 +373,7 @@ public final class ErrorPageCacheImpl extends AnnotatedStandardMBean implements
 
     @Override
     public final long getCacheSizeInKB() {
-        long bytes = 0;
-
-        for (final CacheEntry entry : this.cache.values()) {
-            bytes = bytes + entry.getBytes();
-        }
-
-        return bytes / KB_IN_BYTES;
+        return getCacheSizeInBytes() / KB_IN_BYTES;
     }
 
 
@@ -224,7 +417,10 @@ public final class ErrorPageCacheImpl extends AnnotatedStandardMBean implements
 
     @Override
     public final void clearCache() {
-        this.cache.clear();
+        synchronized (writeLock) {
+            this.cache.clear();
+            this.cacheSizeInBytes.set(0);
+        }
     }
 
     @Override
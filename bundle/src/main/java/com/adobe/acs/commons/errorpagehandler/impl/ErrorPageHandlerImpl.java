@@ -164,6 +164,30 @@ public final class ErrorPageHandlerImpl implements ErrorPageHandlerService {
                 defaultValue = "" + DEFAULT_TTL)
         int cache_ttl() default DEFAULT_TTL;
 
+        @AttributeDefinition(name = "Max entries",
+                description = "Maximum number of error pages held in the cache; least recently used entries are "
+                        + "evicted beyond this. [ Default: 1000 ]",
+                defaultValue = "" + DEFAULT_CACHE_MAX_ENTRIES)
+        int cache_maxentries() default DEFAULT_CACHE_MAX_ENTRIES;
+
+        @AttributeDefinition(name = "Max size (in KB)",
+                description = "Maximum size of all cached error pages in KB; least recently used entries are "
+                        + "evicted beyond this. [ Default: 10000 ]",
+                defaultValue = "" + DEFAULT_CACHE_MAX_SIZE_IN_KB)
+        int cache_maxsize() default DEFAULT_CACHE_MAX_SIZE_IN_KB;
+
+        @AttributeDefinition(name = "Stale while revalidate (in seconds)",
+                description = "How long an expired error page is still served while one request renders it again. "
+                        + "[ Default: 0 ]",
+                defaultValue = "" + DEFAULT_CACHE_STALE_WHILE_REVALIDATE)
+        int cache_stalewhilerevalidate() default DEFAULT_CACHE_STALE_WHILE_REVALIDATE;
+
+        @AttributeDefinition(name = "Render timeout (in ms)",
+                description = "How long a request waits for a concurrent request rendering the same error page before "
+                        + "rendering it itself. [ Default: 10000 ]",
+                defaultValue = "" + DEFAULT_CACHE_RENDER_TIMEOUT)
+        int cache_rendertimeout() default DEFAULT_CACHE_RENDER_TIMEOUT;
+
         @AttributeDefinition(name = "Enable placeholder images", description = "Enable image error handling  [ Default: false ]",
                 defaultValue = "" + DEFAULT_ERROR_IMAGES_ENABLED)
         boolean errorimages_enabled() default DEFAULT_ERROR_IMAGES_ENABLED;
@@ -227,6 +251,14 @@ public final class ErrorPageHandlerImpl implements ErrorPageHandlerService {
 
     private static final int DEFAULT_TTL = 60 * 5; // 5 minutes
 
+    private static final int DEFAULT_CACHE_MAX_ENTRIES = 1000;
+
+    private static final int DEFAULT_CACHE_MAX_SIZE_IN_KB = 10000;
+
+    private static final int DEFAULT_CACHE_STALE_WHILE_REVALIDATE = 0;
+
+    private static final int DEFAULT_CACHE_RENDER_TIMEOUT = 10000;
+
     private static final boolean DEFAULT_SERVE_AUTHENTICATED_FROM_CACHE = false;
 
     /* Enable/Disables error images */
@@ -869,7 +901,8 @@ public final class ErrorPageHandlerImpl implements ErrorPageHandlerService {
 
         boolean serveAuthenticatedFromCache = config.cache_serveauthenticated();
         try {
-            cache = new ErrorPageCacheImpl(ttl, serveAuthenticatedFromCache);
+            cache = new ErrorPageCacheImpl(ttl, serveAuthenticatedFromCache, config.cache_maxentries(),
+                    config.cache_maxsize(), config.cache_stalewhilerevalidate(), config.cache_rendertimeout());
 
             Dictionary<String, Object> serviceProps = new Hashtable<String, Object>();
             serviceProps.put("jmx.objectname", "com.adobe.acs.commons:type=ErrorPageHandlerCache");
@@ -927,6 +960,10 @@ public final class ErrorPageHandlerImpl implements ErrorPageHandlerService {
 
         pw.printf("Cache - TTL: %s", ttl).println();
         pw.printf("Cache - Serve Authenticated: %s", serveAuthenticatedFromCache).println();
+        pw.printf("Cache - Max Entries: %s", config.cache_maxentries()).println();
+        pw.printf("Cache - Max Size (in KB): %s", config.cache_maxsize()).println();
+        pw.printf("Cache - Stale While Revalidate: %s", config.cache_stalewhilerevalidate()).println();
+        pw.printf("Cache - Render Timeout: %s", config.cache_rendertimeout()).println();
 
         pw.printf("Error Images - Enabled: %s", this.errorImagesEnabled).println();
         pw.printf("Error Images - Path: %s", this.errorImagePath).println();
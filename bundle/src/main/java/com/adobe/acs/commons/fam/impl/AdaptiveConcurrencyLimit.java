@@ -0,0 +1,167 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.fam.impl;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD (additive increase, multiplicative decrease) controller for the number of tasks executed at the same time.
+ * <p>
+ * The limit grows by one per "limit" completed tasks while work is queueing and every permit is in use, and shrinks
+ * by a quarter when the system reports overload or the recent task latency rises well above its long term average.
+ * Only tasks started after a decrease can cause another one, so a burst of slow completions counts once.
+ * Workers wait for a permit instead of sleeping, so concurrency is reduced smoothly rather than stalling every worker.
+ */
+class AdaptiveConcurrencyLimit {
+    static final double DECREASE_FACTOR = 0.75;
+    static final double LATENCY_TOLERANCE = 2.0;
+    private static final double SHORT_SMOOTHING = 0.2;
+    private static final double LONG_SMOOTHING = 0.01;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+
+    private int floor;
+    private int ceiling;
+    private double limit;
+    private int inFlight;
+    private double shortLatency = -1;
+    private double longLatency = -1;
+    private long lastDecrease = -1;
+
+    /**
+     * @param floor   the limit never drops below this; at least 1
+     * @param ceiling the limit never exceeds this, e.g. the size of the thread pool; the initial limit
+     */
+    AdaptiveConcurrencyLimit(int floor, int ceiling) {
+        resize(floor, ceiling);
+        this.limit = this.ceiling;
+    }
+
+    /**
+     * Change the bounds, keeping the current limit within them.
+     *
+     * @param floor   the new floor
+     * @param ceiling the new ceiling
+     */
+    final void resize(int floor, int ceiling) {
+        lock.lock();
+        try {
+            this.ceiling = Math.max(1, ceiling);
+            this.floor = Math.max(1, Math.min(floor, this.ceiling));
+            this.limit = Math.max(this.floor, Math.min(this.ceiling, limit));
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the number of running tasks is below the current limit and claim a permit.
+     *
+     * @throws InterruptedException if interrupted while waiting; no permit is claimed
+     */
+    void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                permitReleased.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return a permit claimed with {@link #acquire()}.
+     */
+    void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitReleased.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adjust the limit with the measurements of a completed task. Call before releasing its permit.
+     *
+     * @param executed       the time the task started executing, in epoch milliseconds
+     * @param processingTime the time the task took to execute, in milliseconds
+     * @param queueing       true if tasks are waiting for a permit or a worker
+     * @param overloaded     true if the system reports CPU or heap usage above the configured maximum
+     */
+    void onCompletion(long executed, long processingTime, boolean queueing, boolean overloaded) {
+        lock.lock();
+        try {
+            if (shortLatency < 0) {
+                shortLatency = processingTime;
+                longLatency = processingTime;
+            } else {
+                shortLatency += SHORT_SMOOTHING * (processingTime - shortLatency);
+                longLatency += LONG_SMOOTHING * (processingTime - longLatency);
+            }
+
+            final boolean congested = overloaded || shortLatency > LATENCY_TOLERANCE * Math.max(1, longLatency);
+            if (congested) {
+                if (executed >= lastDecrease) {
+                    limit = Math.max(floor, limit * DECREASE_FACTOR);
+                    lastDecrease = System.currentTimeMillis();
+                }
+            } else if (queueing && inFlight >= (int) limit && limit < ceiling) {
+                final int before = (int) limit;
+                limit = Math.min(ceiling, limit + 1.0 / limit);
+                if ((int) limit > before) {
+                    permitReleased.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if the limit cannot be decreased any further
+     */
+    boolean isAtFloor() {
+        lock.lock();
+        try {
+            return (int) limit <= floor;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of tasks currently allowed to execute at the same time
+     */
+    int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
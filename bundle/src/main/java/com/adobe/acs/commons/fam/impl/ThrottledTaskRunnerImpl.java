@@ -67,12 +67,20 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
         double DEFAULT_MAX_CPU = 0.75;
         double DEFAULT_MAX_HEAP = 0.85;
         int DEFAULT_MAX_THREADS = 4;
+        int DEFAULT_MIN_THREADS = 1;
+        boolean DEFAULT_ADAPTIVE_CONCURRENCY = true;
         int DEFAULT_COOLDOWN_TIME = 100;
         int DEFAULT_TASK_TIMEOUT = 3600000;
 
         @AttributeDefinition(name = "Max threads", description = "Default is 4, recommended not to exceed the number of CPU cores", defaultValue = "" + DEFAULT_MAX_THREADS)
         int max_threads() default DEFAULT_MAX_THREADS;
 
+        @AttributeDefinition(name = "Adaptive concurrency", description = "Adjust the number of tasks executed at the same time between 'Min threads' and 'Max threads', based on task latency, queueing and cpu/heap load", defaultValue = "" + DEFAULT_ADAPTIVE_CONCURRENCY)
+        boolean adaptive_concurrency() default DEFAULT_ADAPTIVE_CONCURRENCY;
+
+        @AttributeDefinition(name = "Min threads", description = "Lowest number of tasks executed at the same time when adaptive concurrency is enabled. Default is 1", defaultValue = "" + DEFAULT_MIN_THREADS)
+        int min_threads() default DEFAULT_MIN_THREADS;
+
         @AttributeDefinition(name = "Max cpu %", description = "Range is 0..1; -1 means disable this check", defaultValue = ""+DEFAULT_MAX_CPU)
         double max_cpu() default DEFAULT_MAX_CPU;
 
@@ -90,6 +98,9 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
     private int taskTimeout;
     private int cooldownWaitTime;
     private int maxThreads;
+    private int minThreads;
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+    private final ThreadLocal<Boolean> permitHeld = new ThreadLocal<>();
     private double maxCpu;
     private double maxHeap;
     private boolean isPaused;
@@ -135,6 +146,13 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
         waitTime.log(started - created);
         throttleTime.log(executed - started);
         processingTime.log(finished - executed);
+
+        final AdaptiveConcurrencyLimit limit = concurrencyLimit;
+        if (limit != null && executed >= 0) {
+            // Tasks waited for a worker, or still do: more concurrency could be used if the system keeps up
+            final boolean queueing = started - created > 0 || (workQueue != null && !workQueue.isEmpty());
+            limit.onCompletion(executed, finished - executed, queueing, wasRecentlyBusy);
+        }
     }
 
     @Override
@@ -214,9 +232,15 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
         return maxThreads;
     }
 
+    @Override
+    public int getConcurrencyLimit() {
+        final AdaptiveConcurrencyLimit limit = concurrencyLimit;
+        return limit == null ? maxThreads : limit.getLimit();
+    }
+
     private final Semaphore pollingLock = new Semaphore(1);
     private long lastCheck = -1;
-    private boolean wasRecentlyBusy = false;
+    private volatile boolean wasRecentlyBusy = false;
 
     @SuppressWarnings("squid:S3776")
     private boolean isTooBusy() throws InterruptedException {
@@ -252,6 +276,11 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
     @Override
     public void waitForLowCpuAndLowMemory() throws InterruptedException {
         while (isTooBusy()) {
+            final AdaptiveConcurrencyLimit limit = concurrencyLimit;
+            if (limit != null && !limit.isAtFloor()) {
+                // The adaptive limit still shrinks on overload; only cool down once it cannot go lower
+                return;
+            }
             Thread.sleep(cooldownWaitTime);
         }
     }
@@ -297,6 +326,9 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
     @Override
     public void setThreadPoolSize(int newSize) {
         maxThreads = newSize;
+        if (concurrencyLimit != null) {
+            concurrencyLimit.resize(minThreads, maxThreads);
+        }
         initThreadPool();
     }
 
@@ -316,15 +348,47 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
             workerPool = null;
         }
         if (!isRunning()) {
-            workerPool = new PriorityThreadPoolExecutor(maxThreads, maxThreads, taskTimeout, TimeUnit.MILLISECONDS, workQueue);
+            workerPool = createWorkerPool();
         }
     }
 
+    private PriorityThreadPoolExecutor createWorkerPool() {
+        if (concurrencyLimit == null) {
+            return new PriorityThreadPoolExecutor(maxThreads, maxThreads, taskTimeout, TimeUnit.MILLISECONDS, workQueue);
+        }
+
+        // Max threads workers, of which only as many as the adaptive limit allows execute at the same time
+        return new PriorityThreadPoolExecutor(maxThreads, maxThreads, taskTimeout, TimeUnit.MILLISECONDS, workQueue) {
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                super.beforeExecute(t, r);
+                try {
+                    concurrencyLimit.acquire();
+                    permitHeld.set(Boolean.TRUE);
+                } catch (InterruptedException ex) {
+                    // Pool is being stopped; the task sees the interrupt and ends
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            protected void afterExecute(Runnable r, Throwable t) {
+                if (Boolean.TRUE.equals(permitHeld.get())) {
+                    permitHeld.remove();
+                    concurrencyLimit.release();
+                }
+                super.afterExecute(r, t);
+            }
+        };
+    }
+
     @Activate
     protected void activate(Config config) {
         maxCpu = config.max_cpu();
         maxHeap = config.max_heap();
         maxThreads = config.max_threads();
+        minThreads = config.min_threads();
+        concurrencyLimit = config.adaptive_concurrency() ? new AdaptiveConcurrencyLimit(minThreads, maxThreads) : null;
         cooldownWaitTime = config.cooldown_wait_time();
         taskTimeout = config.task_timeout();
 
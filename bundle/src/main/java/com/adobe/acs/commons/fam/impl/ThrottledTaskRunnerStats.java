@@ -54,4 +54,10 @@ public interface ThrottledTaskRunnerStats {
      * @return the max number of threads ThrottledTaskRunner will use to execute the work.
      */
     int getMaxThreads();
+
+    /**
+     * @return the number of tasks currently allowed to execute at the same time; between the configured min and max
+     * threads if adaptive concurrency is enabled, otherwise the max threads.
+     */
+    int getConcurrencyLimit();
 }
\ No newline at end of file
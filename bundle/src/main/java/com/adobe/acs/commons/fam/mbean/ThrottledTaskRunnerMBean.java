@@ -58,6 +58,9 @@ public interface ThrottledTaskRunnerMBean {
     @Description("Reset job processing statistics")
     public void clearProcessingStatistics();
     
+    @Description("Number of processes currently allowed to run at the same time")
+    public int getConcurrencyLimit();
+
     @Description("Change thread pool size (preserves running queue)")
     public void setThreadPoolSize(@Name("New size") @Description("4 is the suggested default.") int size);
     
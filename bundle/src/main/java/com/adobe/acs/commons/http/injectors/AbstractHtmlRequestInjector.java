@@ -21,6 +21,7 @@
 package com.adobe.acs.commons.http.injectors;
 
 import com.adobe.acs.commons.util.BufferingResponse;
+import com.adobe.acs.commons.util.InjectingResponse;
 import org.apache.commons.lang.StringUtils;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.ComponentContext;
@@ -65,6 +66,26 @@ public abstract class AbstractHtmlRequestInjector implements Filter {
         final HttpServletRequest request = (HttpServletRequest) servletRequest;
         final HttpServletResponse response = (HttpServletResponse) servletResponse;
 
+        final String injectMarker = getInjectMarker();
+        if (injectMarker == null) {
+            doFilterBuffered(request, response, filterChain);
+            return;
+        }
+
+        // Stream the original response, injecting right before the marker as it passes through
+        final InjectingResponse injectingResponse = new InjectingResponse(response, injectMarker,
+                printWriter -> inject(request, response, printWriter));
+
+        try {
+            filterChain.doFilter(request, injectingResponse);
+        } finally {
+            // Write out what was held back, also if the rendering failed half way
+            injectingResponse.finish();
+        }
+    }
+
+    private void doFilterBuffered(final HttpServletRequest request, final HttpServletResponse response,
+                                  final FilterChain filterChain) throws IOException, ServletException {
         // Prepare to capture the original response
         final BufferingResponse originalResponse = new BufferingResponse(response);
 
@@ -101,7 +122,29 @@ public abstract class AbstractHtmlRequestInjector implements Filter {
 
     protected abstract void inject(HttpServletRequest request, HttpServletResponse response, PrintWriter printWriter);
 
-    protected abstract int getInjectIndex(String originalContents);
+    /**
+     * Determine where to inject into the captured response. Only used if {@link #getInjectMarker()} returns null,
+     * in which case the complete response is buffered before anything is sent to the client.
+     *
+     * @param originalContents the complete response
+     * @return the index to inject at, or -1 to not inject
+     * @deprecated override {@link #getInjectMarker()} instead, so the response can be streamed
+     */
+    @Deprecated
+    protected int getInjectIndex(String originalContents) {
+        return -1;
+    }
+
+    /**
+     * The response is streamed to the client and the content is injected immediately before the first occurrence of
+     * the returned marker.
+     *
+     * @return the marker to inject before, e.g. {@code </body>}, or null to buffer the response and use
+     * {@link #getInjectIndex(String)}
+     */
+    protected String getInjectMarker() {
+        return null;
+    }
 
     @Override
     public void destroy() {
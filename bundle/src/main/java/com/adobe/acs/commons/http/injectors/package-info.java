@@ -20,5 +20,5 @@
 /**
  * Http Injectors.
  */
-@aQute.bnd.annotation.Version("2.1.3")
+@aQute.bnd.annotation.Version("2.2.0")
 package com.adobe.acs.commons.http.injectors;
\ No newline at end of file
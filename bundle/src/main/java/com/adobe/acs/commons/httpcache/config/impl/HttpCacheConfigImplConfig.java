@@ -120,7 +120,11 @@ public @interface HttpCacheConfigImplConfig {
                     @Option(value = HttpCacheStore.VALUE_MEM_CACHE_STORE_TYPE,
                             label = HttpCacheStore.VALUE_MEM_CACHE_STORE_TYPE),
                     @Option(value = HttpCacheStore.VALUE_JCR_CACHE_STORE_TYPE,
-                            label = HttpCacheStore.VALUE_JCR_CACHE_STORE_TYPE)
+                            label = HttpCacheStore.VALUE_JCR_CACHE_STORE_TYPE),
+                    @Option(value = HttpCacheStore.VALUE_DISK_CACHE_STORE_TYPE,
+                            label = HttpCacheStore.VALUE_DISK_CACHE_STORE_TYPE),
+                    @Option(value = HttpCacheStore.VALUE_TIERED_CACHE_STORE_TYPE,
+                            label = HttpCacheStore.VALUE_TIERED_CACHE_STORE_TYPE)
             },
             defaultValue = HttpCacheStore.VALUE_MEM_CACHE_STORE_TYPE)
     String httpcache_config_cachestore() default HttpCacheStore.VALUE_MEM_CACHE_STORE_TYPE;
@@ -28,6 +28,8 @@ import com.adobe.acs.commons.httpcache.exception.HttpCacheRepositoryAccessExcept
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
 
+import java.util.Collection;
+
 /**
  * Access gateway and controlling module for http cache sub-system. Coordinates with cache store, cache handling rules,
  * cache configs and cache invalidators.
@@ -71,6 +73,38 @@ public interface HttpCacheEngine {
             HttpCacheRepositoryAccessException;
 
 
+    /**
+     * Coordinate concurrent cache misses for the same cache key. If another request is currently rendering the
+     * response for the cache key of the given request, wait (up to a bounded timeout) for it to complete so that this
+     * request can be served from the freshly cached content. Otherwise this request is registered as the one
+     * rendering the response and must call {@link #completeInFlightRender(SlingHttpServletRequest, HttpCacheConfig)}
+     * once done.
+     *
+     * @param request
+     * @param cacheConfig
+     * @return True if this request waited for another request rendering the same response, false if this request
+     * has to render the response itself.
+     * @throws HttpCacheKeyCreationException
+     */
+    default boolean joinInFlightRender(SlingHttpServletRequest request, HttpCacheConfig cacheConfig) throws
+            HttpCacheKeyCreationException {
+        return false;
+    }
+
+    /**
+     * Signal that the request registered by {@link #joinInFlightRender(SlingHttpServletRequest, HttpCacheConfig)}
+     * finished rendering, releasing the concurrent requests waiting for it. Does nothing if the request was not
+     * registered as rendering.
+     *
+     * @param request
+     * @param cacheConfig
+     * @throws HttpCacheKeyCreationException
+     */
+    default void completeInFlightRender(SlingHttpServletRequest request, HttpCacheConfig cacheConfig) throws
+            HttpCacheKeyCreationException {
+        // no-op
+    }
+
     /**
      * Check if the given request can be served from available cache.
      *
@@ -117,6 +151,8 @@ public interface HttpCacheEngine {
     /**
      * Cache the given response. Custom cache handling rule hook {@link com.adobe.acs.commons.httpcache.rule
      * .HttpCacheHandlingRule#onResponseCache(SlingHttpServletRequest, SlingHttpServletResponse)} exposed.
+     * The engine takes over the temp sink of the response and releases it once it is no longer needed, which may be
+     * after this method returned.
      *
      * @param request
      * @param response
@@ -147,4 +183,18 @@ public interface HttpCacheEngine {
      * @throws HttpCachePersistenceException
      */
     void invalidateCache(String path) throws HttpCachePersistenceException, HttpCacheKeyCreationException;
+
+    /**
+     * Invalidate the cache for all the given paths, as {@link #invalidateCache(String)} does for a single path.
+     * Implementations may invalidate each cache store once for the whole batch.
+     *
+     * @param paths JCR repository paths.
+     * @throws HttpCachePersistenceException
+     */
+    default void invalidateCache(Collection<String> paths) throws HttpCachePersistenceException,
+            HttpCacheKeyCreationException {
+        for (String path : paths) {
+            invalidateCache(path);
+        }
+    }
 }
@@ -0,0 +1,273 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.httpcache.engine.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
+import com.adobe.acs.commons.httpcache.engine.CacheContent;
+import com.adobe.acs.commons.httpcache.exception.HttpCacheDataStreamException;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import com.adobe.acs.commons.httpcache.store.HttpCacheStore;
+
+/**
+ * Bounded write-behind queue that persists captured responses into their {@link HttpCacheStore} on background
+ * threads, so that the request thread does not pay for the store write.
+ * <p>
+ * Writes for a cache key that is already waiting in the queue are coalesced: the newest content replaces the queued
+ * content and no additional store write is scheduled. When the queue is full, new writes are dropped; the response
+ * will simply be cached by a later request. Invalidations cancel the queued writes they cover, so a response captured
+ * before an invalidation is not stored after it.
+ */
+class CacheWriteBehindQueue {
+    private static final Logger log = LoggerFactory.getLogger(CacheWriteBehindQueue.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    /** Writes waiting to be persisted, keyed by cache key. At most one pending write per key. */
+    private final ConcurrentHashMap<CacheKey, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    /** Writes taken from the queue which are being stored right now. */
+    private final Map<CacheKey, PendingWrite> storing = new ConcurrentHashMap<>();
+
+    /** Guards moving writes from {@link #pending} to {@link #storing} against cancelling them. */
+    private final Object flushLock = new Object();
+
+    private final ExecutorService executor;
+    private final int capacity;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    CacheWriteBehindQueue(int threads, int capacity) {
+        this.capacity = Math.max(1, capacity);
+
+        final int poolSize = Math.max(1, threads);
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "acs-commons-httpcache-writer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queue the content for persisting into the store.
+     *
+     * @param store   the cache store to write into
+     * @param key     the cache key
+     * @param content the captured content; ownership of its input stream and temp sink passes to this queue
+     * @return false if the write was dropped because the queue is full or shut down
+     */
+    boolean offer(HttpCacheStore store, CacheKey key, CacheContent content) {
+        return offer(store, key, content, null, null);
+    }
+
+    /**
+     * Queue the content for persisting into the store.
+     *
+     * @param store   the cache store to write into
+     * @param key     the cache key
+     * @param content the captured content; ownership of its input stream and temp sink passes to this queue
+     * @param cacheConfig the cache config the content is cached for, or null if unknown
+     * @param onDone  optional callback run once the write is persisted, failed, superseded or dropped
+     * @return false if the write was dropped because the queue is full or shut down
+     */
+    boolean offer(HttpCacheStore store, CacheKey key, CacheContent content, HttpCacheConfig cacheConfig,
+                  Runnable onDone) {
+        final PendingWrite write = new PendingWrite(store, content, cacheConfig, onDone);
+
+        if (pending.size() >= capacity && !pending.containsKey(key)) {
+            droppedCount.incrementAndGet();
+            log.debug("Write-behind queue is full, dropped cache write for [ {} ]", key);
+            release(write);
+            return false;
+        }
+
+        final PendingWrite previous = pending.put(key, write);
+        if (previous != null) {
+            // A write for this key has not been picked up yet; it will persist the newer content instead.
+            coalescedCount.incrementAndGet();
+            release(previous);
+            return true;
+        }
+
+        try {
+            executor.execute(() -> flush(key));
+            return true;
+        } catch (RejectedExecutionException e) {
+            final PendingWrite rejected = pending.remove(key);
+            if (rejected != null) {
+                droppedCount.incrementAndGet();
+                release(rejected);
+            }
+            return false;
+        }
+    }
+
+    private void flush(CacheKey key) {
+        final PendingWrite write;
+        synchronized (flushLock) {
+            write = pending.remove(key);
+            if (write == null) {
+                return;
+            }
+            storing.put(key, write);
+        }
+
+        try {
+            write.store.put(key, write.content, write.cacheConfig);
+            writtenCount.incrementAndGet();
+            log.debug("Response for [ {} ] cached by write-behind queue", key);
+        } catch (HttpCacheDataStreamException | RuntimeException e) {
+            failedCount.incrementAndGet();
+            log.error("Unable to persist cache entry for [ {} ]", key, e);
+        } finally {
+            storing.remove(key, write);
+            write.stored.countDown();
+            release(write);
+        }
+    }
+
+    /**
+     * Cancel the queued writes into the store whose keys match, and wait for the matching writes being stored right
+     * now. Called before invalidating the store, so that no content captured earlier is stored after the
+     * invalidation.
+     *
+     * @param store   the cache store about to be invalidated
+     * @param matches whether the invalidation covers the key of a write
+     */
+    void cancel(HttpCacheStore store, Predicate<CacheKey> matches) {
+        final List<PendingWrite> inProgress = new ArrayList<>();
+        synchronized (flushLock) {
+            for (Map.Entry<CacheKey, PendingWrite> entry : pending.entrySet()) {
+                if (entry.getValue().store == store && matches.test(entry.getKey())
+                        && pending.remove(entry.getKey(), entry.getValue())) {
+                    log.debug("Queued cache write for [ {} ] cancelled by invalidation", entry.getKey());
+                    release(entry.getValue());
+                }
+            }
+            for (Map.Entry<CacheKey, PendingWrite> entry : storing.entrySet()) {
+                if (entry.getValue().store == store && matches.test(entry.getKey())) {
+                    inProgress.add(entry.getValue());
+                }
+            }
+        }
+
+        try {
+            for (PendingWrite write : inProgress) {
+                write.stored.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stop accepting writes and wait a bounded amount of time for the writes already queued.
+     */
+    void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        for (CacheKey key : pending.keySet()) {
+            final PendingWrite abandoned = pending.remove(key);
+            if (abandoned != null) {
+                droppedCount.incrementAndGet();
+                release(abandoned);
+            }
+        }
+    }
+
+    long getQueueDepth() {
+        return pending.size();
+    }
+
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private static void release(PendingWrite write) {
+        IOUtils.closeQuietly(write.content.getInputDataStream());
+        if (write.content.getTempSink() != null) {
+            write.content.getTempSink().release();
+        }
+        if (write.onDone != null) {
+            try {
+                write.onDone.run();
+            } catch (RuntimeException e) {
+                log.warn("Cache write completion callback failed", e);
+            }
+        }
+    }
+
+    private static final class PendingWrite {
+        private final HttpCacheStore store;
+        private final CacheContent content;
+        private final HttpCacheConfig cacheConfig;
+        private final Runnable onDone;
+        private final CountDownLatch stored = new CountDownLatch(1);
+
+        private PendingWrite(HttpCacheStore store, CacheContent content, HttpCacheConfig cacheConfig, Runnable onDone) {
+            this.store = store;
+            this.content = content;
+            this.cacheConfig = cacheConfig;
+            this.onDone = onDone;
+        }
+    }
+}
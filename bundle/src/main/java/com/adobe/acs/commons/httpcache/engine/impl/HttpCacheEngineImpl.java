@@ -19,18 +19,32 @@
  */
 package com.adobe.acs.commons.httpcache.engine.impl;
 
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 import javax.management.DynamicMBean;
 import javax.management.NotCompliantMBeanException;
@@ -75,6 +89,7 @@ import com.adobe.acs.commons.httpcache.exception.HttpCacheRepositoryAccessExcept
 import com.adobe.acs.commons.httpcache.keys.CacheKey;
 import com.adobe.acs.commons.httpcache.rule.HttpCacheHandlingRule;
 import com.adobe.acs.commons.httpcache.store.HttpCacheStore;
+import com.adobe.acs.commons.httpcache.store.mem.impl.CacheKeyPathIndex;
 import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean;
 
 /**
@@ -142,6 +157,14 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
     private static final ConcurrentHashMap<String, HttpCacheHandlingRule> cacheHandlingRules = new
             ConcurrentHashMap<String, HttpCacheHandlingRule>();
 
+    /**
+     * Store types matching invalidation keys with {@link CacheKey#isInvalidatedBy(CacheKey)}. The other stores, e.g. the
+     * JCR store, only remove entries with a key equal to the invalidation key.
+     */
+    private static final Set<String> INVALIDATED_BY_MATCHING_STORE_TYPES = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList(HttpCacheStore.VALUE_MEM_CACHE_STORE_TYPE, HttpCacheStore.VALUE_CAFFEINE_MEMORY_STORE_TYPE,
+                    HttpCacheStore.VALUE_DISK_CACHE_STORE_TYPE)));
+
     @ObjectClassDefinition(name = "ACS AEM Commons - HTTP Cache - Engine",
             description = "Controlling service for http cache implementation.")
     public @interface Config {
@@ -160,10 +183,49 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
                 "com.adobe.acs.commons.httpcache.rule.impl.HonorCacheControlHeaders",
                 "com.adobe.acs.commons.httpcache.rule.impl.DoNotCacheZeroSizeResponse"
         };
+
+        @AttributeDefinition(name = "Asynchronous cache writes",
+                description = "Persist cacheable responses into the cache store on background threads instead of the request thread.",
+                defaultValue = "false")
+        boolean httpcache_engine_asyncwrite_enabled() default false;
+
+        @AttributeDefinition(name = "Asynchronous cache write threads",
+                description = "Number of background threads persisting responses into the cache stores.",
+                defaultValue = "" + DEFAULT_ASYNC_WRITE_THREADS)
+        int httpcache_engine_asyncwrite_threads() default DEFAULT_ASYNC_WRITE_THREADS;
+
+        @AttributeDefinition(name = "Asynchronous cache write queue size",
+                description = "Maximum number of responses waiting to be persisted. Responses beyond this limit are not cached.",
+                defaultValue = "" + DEFAULT_ASYNC_WRITE_QUEUE_SIZE)
+        int httpcache_engine_asyncwrite_queuesize() default DEFAULT_ASYNC_WRITE_QUEUE_SIZE;
+
+        @AttributeDefinition(name = "Single-flight cache misses",
+                description = "Let only one request render a cache miss for a given cache key. Concurrent requests for the same key wait for it and are served from the cache.",
+                defaultValue = "false")
+        boolean httpcache_engine_singleflight_enabled() default false;
+
+        @AttributeDefinition(name = "Single-flight wait timeout",
+                description = "Maximum time in milliseconds a request waits for a concurrent render of the same cache key before rendering itself.",
+                defaultValue = "" + DEFAULT_SINGLE_FLIGHT_TIMEOUT)
+        long httpcache_engine_singleflight_timeout() default DEFAULT_SINGLE_FLIGHT_TIMEOUT;
     }
 
+    static final int DEFAULT_ASYNC_WRITE_THREADS = 2;
+    static final int DEFAULT_ASYNC_WRITE_QUEUE_SIZE = 1000;
+    static final long DEFAULT_SINGLE_FLIGHT_TIMEOUT = 5000L;
+
     private List<String> globalCacheHandlingRulesPid;
 
+    /** Write-behind queue for cache writes; null when responses are cached on the request thread. */
+    private volatile CacheWriteBehindQueue writeBehindQueue;
+
+    /** Cache misses currently being rendered, keyed by cache key. Only used when single-flight is enabled. */
+    private final ConcurrentHashMap<CacheKey, InFlightRender> inFlightRenders = new ConcurrentHashMap<>();
+    private volatile boolean singleFlightEnabled;
+    private long singleFlightTimeout;
+    private final AtomicLong singleFlightWaitCount = new AtomicLong();
+    private final AtomicLong singleFlightTimeoutCount = new AtomicLong();
+
     /** Thread safe list containing the OSGi configurations for the registered httpCacheConfigs. Used only for mbean.*/
     private final ConcurrentHashMap<HttpCacheConfig, Map<String, Object>> cacheConfigConfigs = new
             ConcurrentHashMap<HttpCacheConfig, Map<String, Object>>();
@@ -213,7 +275,15 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
         if (cacheConfigs.contains(cacheConfig)) {
             // Remove the associated cached items from the cache store.
             if (cacheStoresMap.containsKey(cacheConfig.getCacheStoreName())) {
-                cacheStoresMap.get(cacheConfig.getCacheStoreName()).invalidate(cacheConfig);
+                final HttpCacheStore cacheStore = cacheStoresMap.get(cacheConfig.getCacheStoreName());
+                cancelQueuedWrites(cacheStore, key -> {
+                    try {
+                        return cacheConfig.knows(key);
+                    } catch (HttpCacheKeyCreationException e) {
+                        return true;
+                    }
+                });
+                cacheStore.invalidate(cacheConfig);
             } else {
                 log.debug("Configured cache store is unavailable and hence nothing to invalidate.");
             }
@@ -303,11 +373,31 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
                 listIterator.remove();
             }
         }
+
+        if (config.httpcache_engine_asyncwrite_enabled()) {
+            writeBehindQueue = new CacheWriteBehindQueue(config.httpcache_engine_asyncwrite_threads(),
+                    config.httpcache_engine_asyncwrite_queuesize());
+        }
+
+        singleFlightTimeout = config.httpcache_engine_singleflight_timeout() > 0
+                ? config.httpcache_engine_singleflight_timeout() : DEFAULT_SINGLE_FLIGHT_TIMEOUT;
+        singleFlightEnabled = config.httpcache_engine_singleflight_enabled();
         log.info("HttpCacheEngineImpl activated.");
     }
 
     @Deactivate
     protected void deactivate(Map<String, Object> configs) {
+        final CacheWriteBehindQueue queue = writeBehindQueue;
+        writeBehindQueue = null;
+        if (queue != null) {
+            queue.shutdown();
+        }
+
+        // Release any request still waiting on a render.
+        singleFlightEnabled = false;
+        for (Map.Entry<CacheKey, InFlightRender> entry : inFlightRenders.entrySet()) {
+            finishInFlightRender(entry.getKey(), entry.getValue());
+        }
         log.info("HttpCacheEngineImpl deactivated.");
     }
 
@@ -380,6 +470,52 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
         return getCacheStore(cacheConfig).contains(cacheConfig.buildCacheKey(request));
     }
 
+    @Override
+    public boolean joinInFlightRender(SlingHttpServletRequest request, HttpCacheConfig cacheConfig) throws
+            HttpCacheKeyCreationException {
+        if (!singleFlightEnabled) {
+            return false;
+        }
+
+        final CacheKey cacheKey = cacheConfig.buildCacheKey(request);
+        final InFlightRender leader = inFlightRenders.putIfAbsent(cacheKey, new InFlightRender());
+        if (leader == null || leader.isOwnedByCurrentThread()) {
+            // Nobody else is rendering this response, so this request does.
+            return false;
+        }
+
+        singleFlightWaitCount.incrementAndGet();
+        try {
+            if (!leader.await(singleFlightTimeout)) {
+                singleFlightTimeoutCount.incrementAndGet();
+                log.debug("Timed out waiting for concurrent render of [ {} ]", cacheKey);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+
+    @Override
+    public void completeInFlightRender(SlingHttpServletRequest request, HttpCacheConfig cacheConfig) throws
+            HttpCacheKeyCreationException {
+        if (inFlightRenders.isEmpty()) {
+            return;
+        }
+
+        final CacheKey cacheKey = cacheConfig.buildCacheKey(request);
+        final InFlightRender render = inFlightRenders.get(cacheKey);
+        // When the response was handed to the write-behind queue, the queue releases the waiting requests once stored.
+        if (render != null && render.isOwnedByCurrentThread() && !render.writePending) {
+            finishInFlightRender(cacheKey, render);
+        }
+    }
+
+    private void finishInFlightRender(CacheKey cacheKey, InFlightRender render) {
+        inFlightRenders.remove(cacheKey, render);
+        render.complete();
+    }
+
     @Override
     public boolean deliverCacheContent(SlingHttpServletRequest request, SlingHttpServletResponse response,
                                        HttpCacheConfig cacheConfig) throws HttpCacheKeyCreationException,
@@ -414,9 +550,8 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
             cacheConfig) throws HttpCacheKeyCreationException, HttpCacheDataStreamException,
             HttpCachePersistenceException {
 
-        // TODO - This can be made asynchronous to avoid performance penalty on response cache.
-
         CacheContent cacheContent = null;
+        boolean handedOff = false;
         try {
             // Construct the cache content.
             HttpCacheServletResponseWrapper responseWrapper = null;
@@ -430,13 +565,34 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
 
             // Persist in cache.
             if (isRequestCachableAccordingToHandlingRules(request, response, cacheConfig, cacheContent)) {
-                getCacheStore(cacheConfig).put(cacheKey, cacheContent);
-                log.debug("Response for the URI cached - {}", request.getRequestURI());
+                final HttpCacheStore cacheStore = getCacheStore(cacheConfig);
+                final CacheWriteBehindQueue queue = writeBehindQueue;
+                if (queue != null) {
+                    // The queue owns the captured content from here on, including closing its stream.
+                    handedOff = true;
+                    final InFlightRender render = inFlightRenders.get(cacheKey);
+                    Runnable onStored = null;
+                    if (render != null && render.isOwnedByCurrentThread()) {
+                        render.writePending = true;
+                        onStored = () -> finishInFlightRender(cacheKey, render);
+                    }
+                    if (queue.offer(cacheStore, cacheKey, cacheContent, cacheConfig, onStored)) {
+                        log.debug("Response for the URI queued for caching - {}", request.getRequestURI());
+                    }
+                } else {
+                    cacheStore.put(cacheKey, cacheContent, cacheConfig);
+                    log.debug("Response for the URI cached - {}", request.getRequestURI());
+                }
             }
         } finally {
-            // Close the temp sink input stream.
-            if (null != cacheContent) {
-                IOUtils.closeQuietly(cacheContent.getInputDataStream());
+            // Unless the write-behind queue took them over, the temp sink and its input stream are not needed anymore.
+            if (!handedOff) {
+                if (null != cacheContent) {
+                    IOUtils.closeQuietly(cacheContent.getInputDataStream());
+                }
+                if (response instanceof HttpCacheServletResponseWrapper) {
+                    ((HttpCacheServletResponseWrapper) response).getTempSink().release();
+                }
             }
         }
 
@@ -459,13 +615,54 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
     public void invalidateCache(String path) throws HttpCachePersistenceException, HttpCacheKeyCreationException {
         // Find out all the cache config which has this path applicable for invalidation.
         for (HttpCacheConfig cacheConfig : cacheConfigs) {
-            if (cacheConfig.canInvalidate(path)) {
-                // Execute custom rules.
-                executeCustomRuleInvalidations(path, cacheConfig);
+            if (cacheConfig.canInvalidate(path) && executeCustomRuleInvalidations(path, cacheConfig)) {
+                final HttpCacheStore cacheStore = getCacheStore(cacheConfig);
+                final CacheKey invalidationKey = cacheConfig.buildCacheKey(path);
+                cancelQueuedWrites(cacheStore, key -> key.isInvalidatedBy(invalidationKey));
+                cacheStore.invalidate(invalidationKey);
             }
         }
     }
 
+    @Override
+    public void invalidateCache(Collection<String> paths) throws HttpCachePersistenceException, HttpCacheKeyCreationException {
+        // Collect the keys of the whole batch per store, so every store is invalidated once.
+        final Map<HttpCacheStore, Map<String, CacheKey>> keysByStore = new LinkedHashMap<>();
+
+        for (HttpCacheConfig cacheConfig : cacheConfigs) {
+            for (String path : paths) {
+                if (cacheConfig.canInvalidate(path) && executeCustomRuleInvalidations(path, cacheConfig)) {
+                    final CacheKey key = cacheConfig.buildCacheKey(path);
+                    // Keys invalidated by their hierarchy resource path are equivalent to any other key of the same
+                    // type below the same jcr:content, so changes within a page collapse into one invalidation.
+                    // Stores which only remove equal keys, e.g. the JCR and tiered stores, get every key.
+                    final boolean collapse = CacheKeyPathIndex.isPathIndexable(key)
+                            && INVALIDATED_BY_MATCHING_STORE_TYPES.contains(cacheConfig.getCacheStoreName());
+                    final String identity = key.getClass().getName() + ":"
+                            + (collapse ? key.getHierarchyResourcePath() : path);
+                    keysByStore.computeIfAbsent(getCacheStore(cacheConfig), store -> new LinkedHashMap<>())
+                            .putIfAbsent(identity, key);
+                }
+            }
+        }
+
+        for (Map.Entry<HttpCacheStore, Map<String, CacheKey>> entry : keysByStore.entrySet()) {
+            final List<CacheKey> invalidationKeys = new ArrayList<>(entry.getValue().values());
+            cancelQueuedWrites(entry.getKey(), key -> invalidationKeys.stream().anyMatch(key::isInvalidatedBy));
+            entry.getKey().invalidate(invalidationKeys);
+        }
+    }
+
+    /**
+     * Cancel the writes queued for the store which the upcoming invalidation covers.
+     */
+    private void cancelQueuedWrites(HttpCacheStore cacheStore, Predicate<CacheKey> isInvalidated) {
+        final CacheWriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            queue.cancel(cacheStore, isInvalidated);
+        }
+    }
+
 
 
     /**
@@ -583,6 +780,51 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
         return tabularData;
     }
 
+    @Override
+    public long getAsyncWriteQueueDepth() {
+        final CacheWriteBehindQueue queue = writeBehindQueue;
+        return queue == null ? 0 : queue.getQueueDepth();
+    }
+
+    @Override
+    public long getAsyncWriteDroppedCount() {
+        final CacheWriteBehindQueue queue = writeBehindQueue;
+        return queue == null ? 0 : queue.getDroppedCount();
+    }
+
+    @Override
+    public long getAsyncWriteCoalescedCount() {
+        final CacheWriteBehindQueue queue = writeBehindQueue;
+        return queue == null ? 0 : queue.getCoalescedCount();
+    }
+
+    @Override
+    public long getAsyncWriteCompletedCount() {
+        final CacheWriteBehindQueue queue = writeBehindQueue;
+        return queue == null ? 0 : queue.getWrittenCount();
+    }
+
+    @Override
+    public long getAsyncWriteFailedCount() {
+        final CacheWriteBehindQueue queue = writeBehindQueue;
+        return queue == null ? 0 : queue.getFailedCount();
+    }
+
+    @Override
+    public long getSingleFlightInFlightCount() {
+        return inFlightRenders.size();
+    }
+
+    @Override
+    public long getSingleFlightWaitCount() {
+        return singleFlightWaitCount.get();
+    }
+
+    @Override
+    public long getSingleFlightTimeoutCount() {
+        return singleFlightTimeoutCount.get();
+    }
+
     private boolean isRequestCachableAccordingToHandlingRules(SlingHttpServletRequest request, SlingHttpServletResponse response, HttpCacheConfig cacheConfig, CacheContent cacheContent){
         return checkOnHandlingRule(request, cacheConfig, rule -> rule.onResponseCache(request, response, cacheConfig, cacheContent), "Caching for request {} has been cancelled as per custom rule {}");
     }
@@ -638,30 +880,77 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
 
     private void serveCacheContentIntoResponse(SlingHttpServletResponse response, CacheContent cacheContent)
             throws IOException {
-        if(HttpCacheServletResponseWrapper.ResponseWriteMethod.OUTPUTSTREAM.equals(cacheContent.getWriteMethod())){
-            try {
-                IOUtils.copy(cacheContent.getInputDataStream(), response.getOutputStream());
-            } catch(IllegalStateException ex) {
-                // in this case, either the writer has already been obtained or the response doesn't support getOutputStream()
-                IOUtils.copy(cacheContent.getInputDataStream(), response.getWriter(), response.getCharacterEncoding());
+        // Close the cached data once served; disk backed stores hand out open files.
+        try (InputStream data = cacheContent.getInputDataStream()) {
+            if (HttpCacheServletResponseWrapper.ResponseWriteMethod.OUTPUTSTREAM.equals(cacheContent.getWriteMethod())) {
+                try {
+                    copyToOutputStream(data, response.getOutputStream());
+                } catch (IllegalStateException ex) {
+                    // in this case, either the writer has already been obtained or the response doesn't support getOutputStream()
+                    IOUtils.copy(data, response.getWriter(), response.getCharacterEncoding());
+                }
+            } else {
+                IOUtils.copy(data, response.getWriter(), response.getCharacterEncoding());
+            }
+        }
+    }
+
+    private void copyToOutputStream(InputStream data, OutputStream out) throws IOException {
+        if (data instanceof FileInputStream) {
+            // Let the file channel move the bytes instead of copying them through a heap buffer.
+            final FileChannel channel = ((FileInputStream) data).getChannel();
+            final WritableByteChannel target = Channels.newChannel(out);
+            long position = channel.position();
+            final long size = channel.size();
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
             }
-        }else{
-            IOUtils.copy(cacheContent.getInputDataStream(), response.getWriter(), response.getCharacterEncoding());
+        } else {
+            IOUtils.copy(data, out);
         }
     }
 
-    private void executeCustomRuleInvalidations(String path, HttpCacheConfig cacheConfig) throws HttpCachePersistenceException, HttpCacheKeyCreationException {
+    /**
+     * Execute the custom rule invalidation hooks for the path.
+     *
+     * @return true if at least one of the rules applicable to the cache config accepts the invalidation
+     */
+    private boolean executeCustomRuleInvalidations(String path, HttpCacheConfig cacheConfig) {
+        boolean accepted = false;
         for (final Map.Entry<String, HttpCacheHandlingRule> entry : cacheHandlingRules.entrySet()) {
             // Apply rule if it's a configured global or cache-config tied rule.
             if (globalCacheHandlingRulesPid.contains(entry.getKey()) || cacheConfig.acceptsRule(entry.getKey())) {
                 HttpCacheHandlingRule rule = entry.getValue();
                 if (rule.onCacheInvalidate(path)) {
-                    getCacheStore(cacheConfig).invalidate(cacheConfig.buildCacheKey(path));
+                    accepted = true;
                 } else {
                     log.debug("Cache invalidation rejected for path {} per custom rule {}", path, rule
                             .getClass().getName());
                 }
             }
         }
+        return accepted;
+    }
+
+    /**
+     * A cache miss being rendered by one request, which concurrent requests for the same cache key wait on.
+     */
+    private static final class InFlightRender {
+        private final Thread owner = Thread.currentThread();
+        private final CountDownLatch done = new CountDownLatch(1);
+        /** Set once the rendered response is queued for asynchronous persisting. */
+        private volatile boolean writePending;
+
+        private boolean isOwnedByCurrentThread() {
+            return owner == Thread.currentThread();
+        }
+
+        private boolean await(long timeout) throws InterruptedException {
+            return done.await(timeout, TimeUnit.MILLISECONDS);
+        }
+
+        private void complete() {
+            done.countDown();
+        }
     }
 }
@@ -38,5 +38,29 @@ public interface HttpCacheEngineMBean {
 
     @Description("Registered Persistence Stores")
     TabularData getRegisteredPersistenceStores() throws OpenDataException;
+
+    @Description("Cache writes waiting in the asynchronous write-behind queue")
+    long getAsyncWriteQueueDepth();
+
+    @Description("Cache writes dropped because the asynchronous write-behind queue was full")
+    long getAsyncWriteDroppedCount();
+
+    @Description("Cache writes merged into an already queued write for the same cache key")
+    long getAsyncWriteCoalescedCount();
+
+    @Description("Cache writes persisted by the asynchronous write-behind queue")
+    long getAsyncWriteCompletedCount();
+
+    @Description("Cache writes that failed in the asynchronous write-behind queue")
+    long getAsyncWriteFailedCount();
+
+    @Description("Cache misses currently being rendered with single-flight coalescing")
+    long getSingleFlightInFlightCount();
+
+    @Description("Requests that waited for a concurrent render of the same cache key")
+    long getSingleFlightWaitCount();
+
+    @Description("Requests that timed out waiting for a concurrent render of the same cache key")
+    long getSingleFlightTimeoutCount();
 }
 
@@ -22,6 +22,7 @@ package com.adobe.acs.commons.httpcache.filter.impl;
 
 import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
 import com.adobe.acs.commons.httpcache.engine.HttpCacheEngine;
+import com.adobe.acs.commons.httpcache.engine.HttpCacheServletResponseWrapper;
 import com.adobe.acs.commons.httpcache.exception.HttpCacheException;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
@@ -55,6 +56,8 @@ public abstract class AbstractHttpCacheFilter implements Filter {
 
         HttpCacheConfig cacheConfig = null;
         boolean isResponseCacheable = false;
+        boolean isRendering = false;
+        boolean isTempSinkHandedOff = false;
 
         try {
             // Get the first accepting cache config, or null if no accepting cacheConfigs can be found.
@@ -63,8 +66,11 @@ public abstract class AbstractHttpCacheFilter implements Filter {
             // Check if the url is cache-able as per configs and rules.
             // An accepting cacheConfig must exist and all cache rules must be met.
             if (cacheConfig != null && cacheEngine.isRequestCacheable(slingRequest, cacheConfig)) {
-                // Check if cached response available for this request.
-                if (cacheEngine.isCacheHit(slingRequest, cacheConfig)) {
+                // Check if cached response available for this request, possibly after waiting for a concurrent request
+                // rendering the same response.
+                if (cacheEngine.isCacheHit(slingRequest, cacheConfig)
+                        || (cacheEngine.joinInFlightRender(slingRequest, cacheConfig)
+                        && cacheEngine.isCacheHit(slingRequest, cacheConfig))) {
                     // Deliver the response from cache.
                     if (cacheEngine.deliverCacheContent(slingRequest, slingResponse, cacheConfig)) {
                         if (log.isDebugEnabled()) {
@@ -74,6 +80,8 @@ public abstract class AbstractHttpCacheFilter implements Filter {
                         return;
                     }
                 } else {
+                    // Concurrent requests for the same response may be waiting on this one.
+                    isRendering = true;
                     // Mark the request as cacheable once processed.
                     isResponseCacheable = true;
                     // Wrap the response
@@ -84,21 +92,42 @@ public abstract class AbstractHttpCacheFilter implements Filter {
             log.error("HttpCache exception while dealing with request. Passed on the control to filter chain.", e);
         }
 
-        // Pass on the request to filter chain.
-        chain.doFilter(request, slingResponse);
-
         try {
-            // If the request has the attribute marked, cache the response.
-            if (isResponseCacheable) {
-                cacheEngine.cacheResponse(slingRequest, slingResponse, cacheConfig);
-            }
+            // Pass on the request to filter chain.
+            chain.doFilter(request, slingResponse);
+
+            try {
+                // If the request has the attribute marked, cache the response.
+                if (isResponseCacheable) {
+                    // From here on the cache engine owns the temp sink, which may be written into the store later.
+                    isTempSinkHandedOff = true;
+                    cacheEngine.cacheResponse(slingRequest, slingResponse, cacheConfig);
+                }
 
-            if (log.isTraceEnabled()) {
-                log.trace("Delivered un-cached request [ {} ] in {} ms",  slingRequest.getResource().getPath(),
-                        System.currentTimeMillis() - start);
+                if (log.isTraceEnabled()) {
+                    log.trace("Delivered un-cached request [ {} ] in {} ms",  slingRequest.getResource().getPath(),
+                            System.currentTimeMillis() - start);
+                }
+            } catch (HttpCacheException e) {
+                log.error("HttpCache exception while dealing with response. Returned the filter chain response", e);
+            }
+        } finally {
+            if (!isTempSinkHandedOff && slingResponse instanceof HttpCacheServletResponseWrapper) {
+                // The response was not handed to the cache engine, so its temp sink is not needed anymore.
+                ((HttpCacheServletResponseWrapper) slingResponse).getTempSink().release();
             }
+            if (isRendering) {
+                completeInFlightRender(slingRequest, cacheEngine, cacheConfig);
+            }
+        }
+    }
+
+    private void completeInFlightRender(SlingHttpServletRequest slingRequest, HttpCacheEngine cacheEngine,
+                                        HttpCacheConfig cacheConfig) {
+        try {
+            cacheEngine.completeInFlightRender(slingRequest, cacheConfig);
         } catch (HttpCacheException e) {
-            log.error("HttpCache exception while dealing with response. Returned the filter chain response", e);
+            log.error("HttpCache exception while releasing requests waiting for this response.", e);
         }
     }
 
@@ -34,6 +34,12 @@ public final class CacheInvalidationJobConstants {
      */
     public static final String PAYLOAD_KEY_DATA_CHANGE_PATH = "path";
 
+    /**
+     * Paths for which the data is changed, as a String array. Allows a single job to invalidate a batch of changes;
+     * each path is handled as if it was given by {@link #PAYLOAD_KEY_DATA_CHANGE_PATH}.
+     */
+    public static final String PAYLOAD_KEY_DATA_CHANGE_PATHS = "paths";
+
     private CacheInvalidationJobConstants() {
     }
 }
@@ -40,7 +40,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
-import java.util.Map;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * ACS AEM Commons - HTTP Cache - Cache invalidation job consumer
@@ -86,19 +88,31 @@ public class HttpCacheInvalidationJobConsumer implements JobConsumer {
     public JobResult process(final Job job) {
 
         // Validate the given job.
+        final Set<String> paths = new LinkedHashSet<>();
         String path = (String) job.getProperty(CacheInvalidationJobConstants.PAYLOAD_KEY_DATA_CHANGE_PATH);
-        if (StringUtils.isEmpty(path)) {
+        if (StringUtils.isNotEmpty(path)) {
+            paths.add(path);
+        }
+        String[] batchedPaths = job.getProperty(CacheInvalidationJobConstants.PAYLOAD_KEY_DATA_CHANGE_PATHS, String[].class);
+        if (batchedPaths != null) {
+            for (String batchedPath : batchedPaths) {
+                if (StringUtils.isNotEmpty(batchedPath)) {
+                    paths.add(batchedPath);
+                }
+            }
+        }
+        if (paths.isEmpty()) {
             log.error("Invalidation job doesn't have path information.");
             return JobResult.CANCEL;
         }
 
-        invalidate(path);
+        invalidate(paths);
 
         if(invalidateRefs) {
-            invalidateReferences(path);
+            invalidateReferences(paths);
         }
 
-        log.trace("Invalidation job for the path processed.", path);
+        log.trace("Invalidation job for the paths {} processed.", paths);
         return JobResult.OK;
     }
 
@@ -108,17 +122,32 @@ public class HttpCacheInvalidationJobConsumer implements JobConsumer {
      * @param path the resource to invalidate
      */
     void invalidate(String path){
-        // Check if the path in the job is applicable for the set cache configs.
-        if (httpCacheEngine.isPathPotentialToInvalidate(path)) {
+        invalidate(Collections.singleton(path));
+    }
+
+    /**
+     * Invalidate the cache for the given paths in one batch
+     *
+     * @param paths the resources to invalidate
+     */
+    void invalidate(Collection<String> paths){
+        // Check if the paths in the job are applicable for the set cache configs.
+        final Set<String> potentialPaths = new LinkedHashSet<>();
+        for (String path : paths) {
+            if (httpCacheEngine.isPathPotentialToInvalidate(path)) {
+                potentialPaths.add(path);
+            }
+        }
+
+        if (!potentialPaths.isEmpty()) {
             // Invalidate the cache.
             try{
-                log.debug("invalidating {}", path);
-                httpCacheEngine.invalidateCache(path);
+                log.debug("invalidating {}", potentialPaths);
+                httpCacheEngine.invalidateCache(potentialPaths);
             } catch (HttpCacheException e){
-                log.debug("Job with the payload path - {} has invalidated the cache", path);
+                log.debug("Job with the payload paths - {} has invalidated the cache", potentialPaths);
             }
         }
-
     }
 
     /**
@@ -127,16 +156,34 @@ public class HttpCacheInvalidationJobConsumer implements JobConsumer {
      * @param path the path to search for
      */
     void invalidateReferences(String path) {
-        try (ResourceResolver adminResolver = resolverFactory.getServiceResourceResolver(null)){
-            Collection<ReferenceSearch.Info> refs = new ReferenceSearch()
-                    .search(adminResolver, path).values();
-            for (ReferenceSearch.Info info : refs) {
-                String refPath = info.getPage().getPath();
-                invalidate(refPath);
+        invalidateReferences(Collections.singleton(path));
+    }
 
+    /**
+     * Searches for references to the given paths and invalidates all of them in one batch
+     *
+     * @param paths the paths to search for
+     */
+    void invalidateReferences(Collection<String> paths) {
+        final Set<String> refPaths = new LinkedHashSet<>();
+        try (ResourceResolver adminResolver = resolverFactory.getServiceResourceResolver(null)){
+            for (String path : paths) {
+                try {
+                    Collection<ReferenceSearch.Info> refs = new ReferenceSearch()
+                            .search(adminResolver, path).values();
+                    for (ReferenceSearch.Info info : refs) {
+                        refPaths.add(info.getPage().getPath());
+                    }
+                } catch (Exception e) {
+                    log.debug("failed to search references of {}", path);
+                }
             }
         } catch (Exception e){
-            log.debug("failed to invalidate references of {}", path);
+            log.debug("failed to invalidate references of {}", paths);
+        }
+
+        if (!refPaths.isEmpty()) {
+            invalidate(refPaths);
         }
     }
 }
@@ -22,8 +22,10 @@ package com.adobe.acs.commons.httpcache.invalidator.event;
 import com.adobe.acs.commons.httpcache.invalidator.CacheInvalidationJobConstants;
 import org.apache.sling.api.SlingConstants;
 import org.apache.sling.event.jobs.JobManager;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventConstants;
@@ -35,7 +37,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Sample http cache invalidation job creator. Creates invalidation job when there is a change in JCR repository. Cache
@@ -44,6 +52,8 @@ import java.util.Map;
  * to any change in paths (by default) -- /content, /etc and creates an invalidation job. The intention of this
  * invalidation job is that whenever there is any change in the above said paths, the configured cache needs to be
  * invalidated. </p>
+ * <p> Changes are collected for a short debounce window and deduplicated, so a page activation creates a single job
+ * for all of its changed paths instead of one job per changed resource. </p>
  */
 // @formatter:off
 @Component( immediate = true,
@@ -67,22 +77,112 @@ public class JCRNodeChangeEventHandler implements EventHandler {
                 description = "Paths expressed in LDAP syntax. Example: (|(path=/content*)(path=/etc*))"
                         + " - Watches for changes under /content or /etc. ")
         String event_filter();
+
+        @AttributeDefinition(name = "Debounce window (ms)",
+                description = "Changed paths are collected for this long and invalidated by a single job. "
+                        + "0 creates one job per change.")
+        long debounce_window() default DEFAULT_DEBOUNCE_WINDOW;
+
+        @AttributeDefinition(name = "Max paths per job",
+                description = "A job is created before the debounce window ends once this many paths are collected.")
+        int debounce_max_paths() default DEFAULT_DEBOUNCE_MAX_PATHS;
     }
 
+    private static final long DEFAULT_DEBOUNCE_WINDOW = 1000L;
+    private static final int DEFAULT_DEBOUNCE_MAX_PATHS = 1000;
+
     @Reference
     private JobManager jobManager;
 
+    private long debounceWindow;
+    private int debounceMaxPaths;
+
+    private ScheduledExecutorService debouncer;
+
+    /** Changed paths of the current debounce window, guarded by this. */
+    private final Set<String> pendingPaths = new LinkedHashSet<>();
+    private ScheduledFuture<?> pendingFlush;
+
+    @Activate
+    protected void activate(Config config) {
+        debounceWindow = config.debounce_window();
+        debounceMaxPaths = Math.max(1, config.debounce_max_paths());
+
+        if (debounceWindow > 0) {
+            debouncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "acs-commons-httpcache-invalidation-debouncer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        if (debouncer != null) {
+            debouncer.shutdownNow();
+            debouncer = null;
+        }
+        // do not lose the changes of the current window
+        flush();
+    }
+
     @Override
     public void handleEvent(final Event event) {
 
         // Get the required information from the event.
         final String path = (String) event.getProperty(SlingConstants.PROPERTY_PATH);
-        // Create the required payload.
-        final Map<String, Object> payload = new HashMap<String, Object>();
-        payload.put(CacheInvalidationJobConstants.PAYLOAD_KEY_DATA_CHANGE_PATH, path);
-        // Start a job.
-        jobManager.addJob(CacheInvalidationJobConstants.TOPIC_HTTP_CACHE_INVALIDATION_JOB, payload);
 
-        log.debug("New invalidation job created with the payload path. - {}", path);
+        final ScheduledExecutorService currentDebouncer = debouncer;
+        if (currentDebouncer == null) {
+            // Create the required payload.
+            final Map<String, Object> payload = new HashMap<String, Object>();
+            payload.put(CacheInvalidationJobConstants.PAYLOAD_KEY_DATA_CHANGE_PATH, path);
+            // Start a job.
+            jobManager.addJob(CacheInvalidationJobConstants.TOPIC_HTTP_CACHE_INVALIDATION_JOB, payload);
+
+            log.debug("New invalidation job created with the payload path. - {}", path);
+            return;
+        }
+
+        boolean full;
+        synchronized (this) {
+            pendingPaths.add(path);
+            full = pendingPaths.size() >= debounceMaxPaths;
+            if (!full && pendingFlush == null) {
+                pendingFlush = currentDebouncer.schedule(this::flush, debounceWindow, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Creates one invalidation job for all the paths collected in the current debounce window.
+     */
+    void flush() {
+        final String[] paths;
+        synchronized (this) {
+            if (pendingFlush != null) {
+                pendingFlush.cancel(false);
+                pendingFlush = null;
+            }
+            if (pendingPaths.isEmpty()) {
+                return;
+            }
+            paths = pendingPaths.toArray(new String[pendingPaths.size()]);
+            pendingPaths.clear();
+        }
+
+        final Map<String, Object> payload = new HashMap<String, Object>();
+        payload.put(CacheInvalidationJobConstants.PAYLOAD_KEY_DATA_CHANGE_PATHS, paths);
+        try {
+            jobManager.addJob(CacheInvalidationJobConstants.TOPIC_HTTP_CACHE_INVALIDATION_JOB, payload);
+            log.debug("New invalidation job created with {} payload paths.", paths.length);
+        } catch (RuntimeException e) {
+            log.error("Could not create the invalidation job for the paths {}", paths, e);
+        }
     }
 }
@@ -24,6 +24,8 @@ import com.adobe.acs.commons.httpcache.engine.CacheContent;
 import com.adobe.acs.commons.httpcache.exception.HttpCacheDataStreamException;
 import com.adobe.acs.commons.httpcache.keys.CacheKey;
 
+import java.util.Collection;
+
 /**
  * Data store for persisting cache items. Data store implementation could be in-memory, disk or even JCR repository.
  * Multiple implementation of this cache store can be present at any time and they can work in conjunction.
@@ -40,6 +42,8 @@ public interface HttpCacheStore {
     String VALUE_JCR_CACHE_STORE_TYPE = "JCR";
     /** Value representing EHCache type of cache store for the key {@link #KEY_CACHE_STORE_TYPE} */
     String VALUE_CAFFEINE_MEMORY_STORE_TYPE = "CAFFEINE";
+    /** Value representing the tiered (in-memory in front of JCR) type of cache store for the key {@link #KEY_CACHE_STORE_TYPE} */
+    String VALUE_TIERED_CACHE_STORE_TYPE = "TIERED";
 
     String PN_TTL = "httpcache.cachestore.ttl";
     String PN_MAXSIZE = "httpcache.cachestore.maxsize";
@@ -52,6 +56,20 @@ public interface HttpCacheStore {
      */
     void put(CacheKey key, CacheContent content) throws HttpCacheDataStreamException;
 
+    /**
+     * Put an item into the cache on behalf of the given cache config. Stores which keep track of the cache config of
+     * each entry, so {@link #invalidate(HttpCacheConfig)} does not need to check every key, override this.
+     *
+     * @param key         Object holding the key attributes.
+     * @param content     Object holding the content which needs to be cached.
+     * @param cacheConfig The cache config the content is cached for.
+     * @throws HttpCacheDataStreamException Failure when reading the input stream.
+     */
+    default void put(CacheKey key, CacheContent content, HttpCacheConfig cacheConfig)
+            throws HttpCacheDataStreamException {
+        put(key, content);
+    }
+
     /**
      * Check if there is an entry in cache for the given key.
      *
@@ -83,6 +101,18 @@ public interface HttpCacheStore {
      */
     void invalidate(CacheKey key);
 
+    /**
+     * Invalidate the given cache keys. Stores which can invalidate several keys more efficiently than one by one, for
+     * example within a single session, override this.
+     *
+     * @param keys
+     */
+    default void invalidate(Collection<CacheKey> keys) {
+        for (CacheKey key : keys) {
+            invalidate(key);
+        }
+    }
+
     /**
      * Invalidate all the cached items applicable for the given cache config.
      *
@@ -50,4 +50,12 @@ public interface TempSink {
      * @return Length of sink in bytes or -1 if unknown.
      */
     long length();
+
+    /**
+     * Release what the sink holds, e.g. temp files, once the response has been handled. Content already put into a
+     * cache store is not affected. The sink must not be used afterwards.
+     */
+    default void release() {
+        // nothing to release by default
+    }
 }
@@ -26,6 +26,8 @@ import com.adobe.acs.commons.httpcache.exception.HttpCacheKeyCreationException;
 import com.adobe.acs.commons.httpcache.keys.CacheKey;
 import com.adobe.acs.commons.httpcache.store.HttpCacheStore;
 import com.adobe.acs.commons.httpcache.store.TempSink;
+import com.adobe.acs.commons.httpcache.store.mem.impl.CacheKeyOwnerIndex;
+import com.adobe.acs.commons.httpcache.store.mem.impl.CacheKeyPathIndex;
 import com.adobe.acs.commons.httpcache.store.mem.impl.MemCacheMBean;
 import com.adobe.acs.commons.httpcache.store.mem.impl.MemCachePersistenceObject;
 import com.adobe.acs.commons.httpcache.store.mem.impl.MemTempSinkImpl;
@@ -47,10 +49,8 @@ import javax.management.openmbean.CompositeType;
 import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.OpenType;
 import javax.management.openmbean.SimpleType;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  * In-memory cache store implementation. Uses Caffeine Cache.
@@ -66,16 +66,37 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
     /** Cache - Uses Caffeine cache */
     private final Cache<CacheKey, MemCachePersistenceObject> cache;
 
+    /** Index of the cached keys by path, used for invalidation. */
+    private final CacheKeyPathIndex pathIndex = new CacheKeyPathIndex();
+
+    /** Index of the cached keys by cache config, used for invalidation. */
+    private final CacheKeyOwnerIndex ownerIndex = new CacheKeyOwnerIndex();
+
     private final Expiry<CacheKey, MemCachePersistenceObject> expiryPolicy;
     private final long ttl;
     private final long maxSizeInMb;
+    private final boolean offHeap;
 
     public CaffeineMemHttpCacheStoreImpl(Config config) throws NotCompliantMBeanException {
-        super(MemCacheMBean.class);
         // Read config and populate values.
-        expiryPolicy = new CacheExpiryPolicy(config.httpcache_cachestore_caffeinecache_ttl());
-        this.ttl = config.httpcache_cachestore_caffeinecache_ttl();
-        this.maxSizeInMb = config.httpcache_cachestore_caffeinecache_maxsize();
+        this(config.httpcache_cachestore_caffeinecache_ttl(), config.httpcache_cachestore_caffeinecache_maxsize(),
+                config.httpcache_cachestore_caffeinecache_offheap());
+    }
+
+    /**
+     * Create a store outside of the OSGi configuration, e.g. as a tier of another store.
+     *
+     * @param ttl         TTL for all entries in seconds, -1 meaning no TTL
+     * @param maxSizeInMb maximum size of the store in MB
+     * @param offHeap     keep cached bodies and headers off-heap
+     * @throws NotCompliantMBeanException
+     */
+    public CaffeineMemHttpCacheStoreImpl(long ttl, long maxSizeInMb, boolean offHeap) throws NotCompliantMBeanException {
+        super(MemCacheMBean.class);
+        expiryPolicy = new CacheExpiryPolicy(ttl);
+        this.ttl = ttl;
+        this.maxSizeInMb = maxSizeInMb;
+        this.offHeap = offHeap;
 
         // Initializing the cache.
         // If cache is present, invalidate all and reinitialize the cache.
@@ -101,13 +122,22 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
 
     @Override
     protected long getBytesLength(MemCachePersistenceObject cacheObj) {
-        return cacheObj.getBytes().length;
+        return cacheObj.getBodyLength();
+    }
+
+    @Override
+    public String getOffHeapSize() {
+        long size = 0L;
+        for (MemCachePersistenceObject cacheObj : cache.asMap().values()) {
+            size += cacheObj.getOffHeapLength();
+        }
+        return FileUtils.byteCountToDisplaySize(size);
     }
 
     @Override
     protected void addCacheData(Map<String, Object> data, MemCachePersistenceObject cacheObj) {
         int hitCount = cacheObj.getHitCount();
-        long size = cacheObj.getBytes().length;
+        long size = cacheObj.getBodyLength();
         data.put(AbstractCacheMBean.JMX_PN_STATUS, cacheObj.getStatus());
         data.put(AbstractCacheMBean.JMX_PN_SIZE, FileUtils.byteCountToDisplaySize(size));
         data.put(AbstractCacheMBean.JMX_PN_CONTENTTYPE, cacheObj.getContentType());
@@ -120,7 +150,7 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
     protected String toString(MemCachePersistenceObject cacheObj) throws CacheMBeanException {
         try {
             return IOUtils.toString(
-                    new ByteArrayInputStream(cacheObj.getBytes()),
+                    cacheObj.getBodyInputStream(),
                     cacheObj.getCharEncoding());
         } catch (IOException e) {
             throw new CacheMBeanException("Error getting the content from the cacheObject", e);
@@ -144,10 +174,13 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
     /**
      * Removal listener for cache entry items.
      */
-    private static class MemCacheEntryRemovalListener implements RemovalListener<CacheKey, MemCachePersistenceObject> {
+    private class MemCacheEntryRemovalListener implements RemovalListener<CacheKey, MemCachePersistenceObject> {
         @Override
         public void onRemoval(CacheKey cacheKey, MemCachePersistenceObject memCachePersistenceObject, RemovalCause removalCause) {
-            //do nothing as of now
+            if (cacheKey != null) {
+                pathIndex.remove(cacheKey, key -> cache.asMap().containsKey(key));
+                ownerIndex.remove(cacheKey, key -> cache.asMap().containsKey(key));
+            }
         }
     }
 
@@ -158,17 +191,30 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
 
         @Override
         public int weigh(CacheKey memCacheKey, MemCachePersistenceObject memCachePersistenceObject) {
-            // Size of the byte array.
-            return memCachePersistenceObject.getBytes().length;
+            // Size of the body, or of all data held off-heap.
+            return memCachePersistenceObject.isOffHeap() ? (int) memCachePersistenceObject.getOffHeapLength()
+                    : memCachePersistenceObject.getBodyLength();
         }
     }
 
     //-------------------------<CacheStore interface specific implementation>
     @Override
     public void put(CacheKey key, CacheContent content) throws HttpCacheDataStreamException {
-        cache.put(key, new MemCachePersistenceObject().buildForCaching(content.getStatus(), content.getCharEncoding(),
-                content.getContentType(), content.getHeaders(), content.getInputDataStream(), content.getWriteMethod()));
+        put(key, content, null);
+    }
 
+    @Override
+    public void put(CacheKey key, CacheContent content, HttpCacheConfig cacheConfig)
+            throws HttpCacheDataStreamException {
+        final MemCachePersistenceObject value = new MemCachePersistenceObject().buildForCaching(content.getStatus(),
+                content.getCharEncoding(), content.getContentType(), content.getHeaders(), content.getInputDataStream(),
+                content.getWriteMethod(), offHeap);
+        // Index before and after the put, so the index never misses a cached key.
+        pathIndex.add(key);
+        ownerIndex.add(key, cacheConfig);
+        cache.put(key, value);
+        pathIndex.add(key);
+        ownerIndex.add(key, cacheConfig);
     }
 
     @Override
@@ -189,8 +235,8 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
         // Increment hit count
         value.incrementHitCount();
 
-        return new CacheContent(value.getStatus(), value.getCharEncoding(), value.getContentType(), value.getHeaders(), new
-                ByteArrayInputStream(value.getBytes()));
+        return new CacheContent(value.getStatus(), value.getCharEncoding(), value.getContentType(), value.getHeaders(),
+                value.getBodyInputStream(), value.getWriteMethod());
     }
 
     @Override
@@ -200,9 +246,8 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
 
     @Override
     public void invalidate(CacheKey invalidationKey) {
-        final ConcurrentMap<CacheKey, MemCachePersistenceObject> cacheAsMap = cache.asMap();
-
-        for (CacheKey key : cacheAsMap.keySet()) {
+        // Only the keys sharing the invalidation path (and keys with custom invalidation logic) need to be checked.
+        for (CacheKey key : pathIndex.getInvalidationCandidates(invalidationKey)) {
             if (key.isInvalidatedBy(invalidationKey)) {
                 cache.invalidate(key);
             }
@@ -211,8 +256,11 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
 
     @Override
     public void invalidate(HttpCacheConfig cacheConfig) {
-        ConcurrentMap<CacheKey, MemCachePersistenceObject> cacheAsMap = cache.asMap();
-        for (CacheKey key : cacheAsMap.keySet()) {
+        // The entries cached for the config are known; only entries cached without a config need to be matched.
+        for (CacheKey key : ownerIndex.getKeys(cacheConfig)) {
+            cache.invalidate(key);
+        }
+        for (CacheKey key : ownerIndex.getUnownedKeys()) {
             // Match the cache key with cache config.
             try {
                 if (cacheConfig.knows(key)) {
@@ -48,4 +48,9 @@ public @interface Config {
             defaultValue = "" + DEFAULT_MAX_SIZE_IN_MB)
     long httpcache_cachestore_caffeinecache_maxsize() default DEFAULT_MAX_SIZE_IN_MB;
 
+    @AttributeDefinition(name = "Store off-heap",
+            description = "Keep cached response bodies and headers in direct memory instead of the Java heap, "
+                    + "reducing GC pressure for large caches. Bounded by -XX:MaxDirectMemorySize.")
+    boolean httpcache_cachestore_caffeinecache_offheap() default false;
+
 }
@@ -0,0 +1,149 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.httpcache.store.disk.impl;
+
+import com.adobe.acs.commons.httpcache.engine.HttpCacheServletResponseWrapper;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Metadata of a response cached by the disk store. The body itself lives in a separate, content addressed file.
+ * Instances are persisted next to the bodies so the store index can be rebuilt after a restart.
+ */
+class DiskCacheEntry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final CacheKey key;
+    private final int status;
+    private final String charEncoding;
+    private final String contentType;
+    private final HashMap<String, ArrayList<String>> headers;
+    private final HttpCacheServletResponseWrapper.ResponseWriteMethod writeMethod;
+    private final String bodyHash;
+    private final long bodyLength;
+    private final long created;
+    /** Expiry time in epoch milliseconds, or -1 for no expiry. */
+    private final long expiresAt;
+
+    /** Name of the file this entry is persisted in; not part of the persisted state. */
+    private transient String fileName;
+    /** Last access time in epoch milliseconds, drives the LRU eviction; not part of the persisted state. */
+    private transient volatile long lastAccessed;
+
+    @SuppressWarnings("squid:S00107")
+    DiskCacheEntry(CacheKey key, int status, String charEncoding, String contentType, Map<String, List<String>> headers,
+                   HttpCacheServletResponseWrapper.ResponseWriteMethod writeMethod, String bodyHash, long bodyLength,
+                   long expiresAt) {
+        this.key = key;
+        this.status = status;
+        this.charEncoding = charEncoding;
+        this.contentType = contentType;
+        this.headers = new HashMap<>();
+        if (headers != null) {
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                this.headers.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+        this.writeMethod = writeMethod;
+        this.bodyHash = bodyHash;
+        this.bodyLength = bodyLength;
+        this.created = System.currentTimeMillis();
+        this.expiresAt = expiresAt;
+        this.lastAccessed = created;
+    }
+
+    CacheKey getKey() {
+        return key;
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    String getCharEncoding() {
+        return charEncoding;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return a copy of the headers, safe to hand out with a cache content.
+     */
+    Map<String, List<String>> getHeaders() {
+        final Map<String, List<String>> copy = new HashMap<>();
+        for (Map.Entry<String, ArrayList<String>> entry : headers.entrySet()) {
+            copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    HttpCacheServletResponseWrapper.ResponseWriteMethod getWriteMethod() {
+        return writeMethod;
+    }
+
+    String getBodyHash() {
+        return bodyHash;
+    }
+
+    long getBodyLength() {
+        return bodyLength;
+    }
+
+    long getCreated() {
+        return created;
+    }
+
+    boolean isExpired(long now) {
+        return expiresAt > 0 && now >= expiresAt;
+    }
+
+    String getFileName() {
+        return fileName;
+    }
+
+    void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Initialize the transient state of an entry read back from disk.
+     *
+     * @param fileName the file the entry was read from
+     */
+    void restore(String fileName) {
+        this.fileName = fileName;
+        this.lastAccessed = created;
+    }
+
+    long getLastAccessed() {
+        return lastAccessed;
+    }
+
+    void touch() {
+        lastAccessed = System.currentTimeMillis();
+    }
+}
@@ -22,60 +22,335 @@ package com.adobe.acs.commons.httpcache.store.disk.impl;
 import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
 import com.adobe.acs.commons.httpcache.engine.CacheContent;
 import com.adobe.acs.commons.httpcache.exception.HttpCacheDataStreamException;
+import com.adobe.acs.commons.httpcache.exception.HttpCacheKeyCreationException;
 import com.adobe.acs.commons.httpcache.keys.CacheKey;
 import com.adobe.acs.commons.httpcache.store.HttpCacheStore;
 import com.adobe.acs.commons.httpcache.store.TempSink;
-import org.apache.commons.lang.NotImplementedException;
+import com.adobe.acs.commons.httpcache.store.mem.impl.CacheKeyOwnerIndex;
+import com.adobe.acs.commons.httpcache.store.mem.impl.CacheKeyPathIndex;
+import com.adobe.acs.commons.util.DynamicObjectInputStream;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ACS AEM Commons - HTTP Cache - Disk based cache store implementation.
+ * <p>
+ * Response bodies are kept in content addressed files (named by their SHA-256 hash, so identical bodies are stored
+ * once) and streamed from disk when delivered. Only the keys and small metadata records are held in heap. Each
+ * metadata record is also persisted in its own file, written atomically, so the index is rebuilt when the store is
+ * activated again. Entries beyond the configured size are evicted least recently used first.
  */
-
-// TODO - Placeholder component. To be implemented.
-@Component(service=HttpCacheStore.class, 
-      property= {
-      HttpCacheStore.KEY_CACHE_STORE_TYPE + "=" + HttpCacheStore.VALUE_DISK_CACHE_STORE_TYPE
+@Component(service = {HttpCacheStore.class, Runnable.class},
+      property = {
+      HttpCacheStore.KEY_CACHE_STORE_TYPE + "=" + HttpCacheStore.VALUE_DISK_CACHE_STORE_TYPE,
+      "scheduler.concurrent" + "=" + "false",
+      "webconsole.configurationFactory.nameHint" + "=" + "TTL: {httpcache.cachestore.diskcache.ttl}, "
+                + "Max size in MB: {httpcache.cachestore.diskcache.maxsize}"
 })
-public class DiskHttpCacheStoreImpl implements HttpCacheStore {
+@Designate(ocd = DiskHttpCacheStoreImpl.Config.class)
+public class DiskHttpCacheStoreImpl implements HttpCacheStore, Runnable {
+
+    @ObjectClassDefinition(name = "ACS AEM Commons - HTTP Cache - Disk cache store.",
+            description = "Cache data store implementation for file system storage.")
+    public @interface Config {
+
+        long DEFAULT_TTL = -1L; // Defaults to -1 meaning no TTL.
+
+        long DEFAULT_MAX_SIZE_IN_MB = 100L;
+
+        String DEFAULT_CRON_EXPRESSION = "0 0/15 * 1/1 * ? *";
+
+        @AttributeDefinition(name = "Cache directory",
+                description = "File system directory holding the cache. Defaults to the bundle data area.")
+        String httpcache_cachestore_diskcache_path() default "";
+
+        @AttributeDefinition(name = "TTL",
+                description = "TTL for all entries in this cache in seconds. Default to -1 meaning no TTL.",
+                defaultValue = "" + DEFAULT_TTL)
+        long httpcache_cachestore_diskcache_ttl() default DEFAULT_TTL;
+
+        @AttributeDefinition(name = "Maximum size of this store in MB",
+                description = "Default to 100MB. If cache size goes beyond this size, least recently used entries will "
+                        + "be evicted from the cache",
+                defaultValue = "" + DEFAULT_MAX_SIZE_IN_MB)
+        long httpcache_cachestore_diskcache_maxsize() default DEFAULT_MAX_SIZE_IN_MB;
+
+        @AttributeDefinition(name = "Cache clean-up schedule",
+                description = "Removes expired entries and abandoned temp files. [every minute = 0 * * * * ?]",
+                defaultValue = DEFAULT_CRON_EXPRESSION)
+        String scheduler_expression() default DEFAULT_CRON_EXPRESSION;
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(DiskHttpCacheStoreImpl.class);
+
+    /** Megabyte to byte */
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    private static final String BODIES_DIR = "bodies";
+    private static final String ENTRIES_DIR = "entries";
+    private static final String TMP_DIR = "tmp";
+    private static final String ENTRY_SUFFIX = ".entry";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Temp files older than this are considered abandoned. Temp files of responses which were not cached are released
+     * by the cache filter or the cache engine; this only catches what is left behind otherwise.
+     */
+    private static final long STALE_TEMP_FILE_AGE = TimeUnit.HOURS.toMillis(1);
+
+    /** When evicting, free space down to this share of the maximum size. */
+    private static final double EVICTION_LOW_WATERMARK = 0.9;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policyOption = ReferencePolicyOption.GREEDY)
+    private DynamicClassLoaderManager dclm;
+
+    private long ttl;
+    private long maxSizeInBytes;
+
+    private File bodiesDir;
+    private File entriesDir;
+    private File tmpDir;
+
+    private final ConcurrentHashMap<CacheKey, DiskCacheEntry> entries = new ConcurrentHashMap<>();
+
+    /** Index of the cached keys by path, used for invalidation. */
+    private final CacheKeyPathIndex pathIndex = new CacheKeyPathIndex();
+
+    /** Index of the cached keys by cache config, used for invalidation. Recovered entries have no known config. */
+    private final CacheKeyOwnerIndex ownerIndex = new CacheKeyOwnerIndex();
+
+    /** Number of entries referring to each body file; also guards {@link #totalBytes}. */
+    private final Map<String, Integer> bodyReferences = new HashMap<>();
+    private long totalBytes;
+
+    private final Object evictionLock = new Object();
+
+    @Activate
+    protected void activate(BundleContext bundleContext, Config config) throws IOException {
+        this.ttl = config.httpcache_cachestore_diskcache_ttl();
+        this.maxSizeInBytes = config.httpcache_cachestore_diskcache_maxsize() * MEGABYTE;
+
+        final File rootDir = getRootDirectory(bundleContext, config);
+        bodiesDir = new File(rootDir, BODIES_DIR);
+        entriesDir = new File(rootDir, ENTRIES_DIR);
+        tmpDir = new File(rootDir, TMP_DIR);
+
+        // Anything left in the temp directory belongs to requests of a previous run.
+        FileUtils.deleteDirectory(tmpDir);
+        FileUtils.forceMkdir(tmpDir);
+        FileUtils.forceMkdir(bodiesDir);
+        FileUtils.forceMkdir(entriesDir);
+
+        recover();
+        evictIfNeeded();
+
+        log.info("DiskHttpCacheStoreImpl activated with {} entries ({}) in {}.", entries.size(),
+                FileUtils.byteCountToDisplaySize(getTotalBytes()), rootDir.getAbsolutePath());
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        // Entries stay on disk, so the cache is warm when the store comes back.
+        entries.clear();
+        pathIndex.clear();
+        ownerIndex.clear();
+        synchronized (bodyReferences) {
+            bodyReferences.clear();
+            totalBytes = 0;
+        }
+        log.info("DiskHttpCacheStoreImpl deactivated.");
+    }
+
+    private File getRootDirectory(BundleContext bundleContext, Config config) {
+        if (StringUtils.isNotBlank(config.httpcache_cachestore_diskcache_path())) {
+            return new File(config.httpcache_cachestore_diskcache_path());
+        }
+
+        final File dataFile = bundleContext == null ? null : bundleContext.getDataFile("httpcache");
+        if (dataFile != null) {
+            return dataFile;
+        }
+        return new File(FileUtils.getTempDirectory(), "acs-commons-httpcache");
+    }
+
+    //-------------------------<CacheStore interface specific implementation>
     @Override
     public void put(CacheKey key, CacheContent content) throws HttpCacheDataStreamException {
-        throw new NotImplementedException();
+        put(key, content, null);
+    }
+
+    @Override
+    public void put(CacheKey key, CacheContent content, HttpCacheConfig cacheConfig)
+            throws HttpCacheDataStreamException {
+        final File tempFile;
+        final String bodyHash;
+
+        final TempSink tempSink = content.getTempSink();
+        if (tempSink instanceof DiskTempSinkImpl && ((DiskTempSinkImpl) tempSink).getContentHash() != null) {
+            // The response was already spooled to disk and hashed while being written.
+            tempFile = ((DiskTempSinkImpl) tempSink).getFile();
+            bodyHash = ((DiskTempSinkImpl) tempSink).getContentHash();
+        } else {
+            tempFile = newTempFile(TEMP_SUFFIX);
+            bodyHash = writeToFile(content.getInputDataStream(), tempFile);
+        }
+
+        final long bodyLength = tempFile.length();
+        try {
+            addBodyReference(tempFile, bodyHash, bodyLength);
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(tempFile);
+            throw new HttpCacheDataStreamException("Unable to store cache body on disk", e);
+        }
+
+        final DiskCacheEntry entry = new DiskCacheEntry(key, content.getStatus(), content.getCharEncoding(),
+                content.getContentType(), content.getHeaders(), content.getWriteMethod(), bodyHash, bodyLength,
+                getExpiresAt(key));
+        try {
+            writeEntry(entry);
+        } catch (IOException e) {
+            releaseBodyReference(bodyHash, bodyLength);
+            throw new HttpCacheDataStreamException("Unable to store cache entry on disk", e);
+        }
+
+        // Index before and after the put, so the index never misses a cached key.
+        pathIndex.add(key);
+        ownerIndex.add(key, cacheConfig);
+        final DiskCacheEntry previous = entries.put(key, entry);
+        pathIndex.add(key);
+        ownerIndex.add(key, cacheConfig);
+        if (previous != null) {
+            discard(previous);
+        }
+
+        evictIfNeeded();
     }
 
     @Override
     public boolean contains(CacheKey key) {
-        throw new NotImplementedException();
+        final DiskCacheEntry entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+
+        if (entry.isExpired(System.currentTimeMillis())) {
+            remove(key, entry);
+            return false;
+        }
+        return true;
     }
 
     @Override
     public CacheContent getIfPresent(CacheKey key) {
-        throw new NotImplementedException();
+        final DiskCacheEntry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.isExpired(System.currentTimeMillis())) {
+            remove(key, entry);
+            return null;
+        }
+
+        final InputStream body;
+        try {
+            body = new FileInputStream(getBodyFile(entry.getBodyHash()));
+        } catch (FileNotFoundException e) {
+            log.warn("Body of disk cache entry [ {} ] is missing, removing the entry.", key);
+            remove(key, entry);
+            return null;
+        }
+
+        entry.touch();
+        return new CacheContent(entry.getStatus(), entry.getCharEncoding(), entry.getContentType(), entry.getHeaders(),
+                body, entry.getWriteMethod());
     }
 
     @Override
     public long size() {
-        throw new NotImplementedException();
+        return entries.size();
     }
 
     @Override
-    public void invalidate(CacheKey key) {
-        throw new NotImplementedException();
+    public void invalidate(CacheKey invalidationKey) {
+        for (CacheKey key : pathIndex.getInvalidationCandidates(invalidationKey)) {
+            if (key.isInvalidatedBy(invalidationKey)) {
+                remove(key, null);
+            }
+        }
     }
 
     @Override
     public void invalidate(HttpCacheConfig cacheConfig) {
-        throw new NotImplementedException();
+        // The entries cached for the config are known; only entries cached without a config need to be matched.
+        for (CacheKey key : ownerIndex.getKeys(cacheConfig)) {
+            remove(key, null);
+        }
+        for (CacheKey key : ownerIndex.getUnownedKeys()) {
+            // Match the cache key with cache config.
+            try {
+                if (cacheConfig.knows(key)) {
+                    // If matches, invalidate that particular key.
+                    remove(key, null);
+                }
+            } catch (HttpCacheKeyCreationException e) {
+                log.error("Could not invalidate HTTP cache. Falling back to full cache invalidation.", e);
+                this.invalidateAll();
+                return;
+            }
+        }
     }
 
     @Override
     public void invalidateAll() {
-        throw new NotImplementedException();
+        for (CacheKey key : entries.keySet()) {
+            remove(key, null);
+        }
     }
 
     @Override
     public TempSink createTempSink() {
-        throw new NotImplementedException();
+        return new DiskTempSinkImpl(newTempFile(TEMP_SUFFIX));
     }
 
     @Override
@@ -83,5 +358,276 @@ public class DiskHttpCacheStoreImpl implements HttpCacheStore {
         return HttpCacheStore.VALUE_DISK_CACHE_STORE_TYPE;
     }
 
+    /**
+     * Scheduled clean up of expired entries and abandoned temp files.
+     */
+    @Override
+    public void run() {
+        final long now = System.currentTimeMillis();
+        for (Map.Entry<CacheKey, DiskCacheEntry> entry : entries.entrySet()) {
+            if (entry.getValue().isExpired(now)) {
+                remove(entry.getKey(), entry.getValue());
+            }
+        }
+
+        final File[] tempFiles = tmpDir.listFiles();
+        if (tempFiles != null) {
+            for (File tempFile : tempFiles) {
+                if (now - tempFile.lastModified() > STALE_TEMP_FILE_AGE) {
+                    FileUtils.deleteQuietly(tempFile);
+                }
+            }
+        }
+    }
+
+    //-------------------------<Disk specific implementation>
+
+    /**
+     * @return the bytes held by the body files of this store.
+     */
+    long getTotalBytes() {
+        synchronized (bodyReferences) {
+            return totalBytes;
+        }
+    }
+
+    private long getExpiresAt(CacheKey key) {
+        if (key.getExpiryForCreation() > 0) {
+            return System.currentTimeMillis() + key.getExpiryForCreation();
+        } else if (ttl > 0) {
+            return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl);
+        }
+        return -1L;
+    }
+
+    /**
+     * Remove the entry of the key; when an expected entry is given, only if the key still maps to it.
+     */
+    private void remove(CacheKey key, DiskCacheEntry expected) {
+        final DiskCacheEntry removed;
+        if (expected == null) {
+            removed = entries.remove(key);
+        } else {
+            removed = entries.remove(key, expected) ? expected : null;
+        }
+
+        if (removed != null) {
+            pathIndex.remove(key, entries::containsKey);
+            ownerIndex.remove(key, entries::containsKey);
+            discard(removed);
+        }
+    }
+
+    private void discard(DiskCacheEntry entry) {
+        FileUtils.deleteQuietly(new File(entriesDir, entry.getFileName()));
+        releaseBodyReference(entry.getBodyHash(), entry.getBodyLength());
+    }
+
+    private File getBodyFile(String bodyHash) {
+        // Spread the bodies over sub directories to keep the directories small.
+        return new File(new File(bodiesDir, bodyHash.substring(0, 2)), bodyHash);
+    }
+
+    private File newTempFile(String suffix) {
+        return new File(tmpDir, UUID.randomUUID().toString() + suffix);
+    }
+
+    /**
+     * Stream the data into the file, returning the content hash.
+     */
+    private String writeToFile(InputStream data, File file) throws HttpCacheDataStreamException {
+        try (DigestInputStream digestInputStream = new DigestInputStream(data,
+                MessageDigest.getInstance(DiskTempSinkImpl.DIGEST_ALGORITHM));
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            IOUtils.copy(digestInputStream, out);
+            return Hex.encodeHexString(digestInputStream.getMessageDigest().digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            FileUtils.deleteQuietly(file);
+            throw new HttpCacheDataStreamException("Unable to write cache body to disk", e);
+        }
+    }
+
+    /**
+     * Move the temp file into place as the body file for the hash, unless that body is already stored.
+     */
+    private void addBodyReference(File tempFile, String bodyHash, long bodyLength) throws IOException {
+        synchronized (bodyReferences) {
+            final Integer references = bodyReferences.get(bodyHash);
+            if (references != null) {
+                bodyReferences.put(bodyHash, references + 1);
+                FileUtils.deleteQuietly(tempFile);
+                return;
+            }
+
+            final File bodyFile = getBodyFile(bodyHash);
+            if (bodyFile.isFile()) {
+                FileUtils.deleteQuietly(tempFile);
+            } else {
+                FileUtils.forceMkdir(bodyFile.getParentFile());
+                moveAtomically(tempFile, bodyFile);
+            }
+            bodyReferences.put(bodyHash, 1);
+            totalBytes += bodyLength;
+        }
+    }
+
+    private void releaseBodyReference(String bodyHash, long bodyLength) {
+        synchronized (bodyReferences) {
+            final Integer references = bodyReferences.get(bodyHash);
+            if (references == null) {
+                return;
+            } else if (references > 1) {
+                bodyReferences.put(bodyHash, references - 1);
+                return;
+            }
+
+            bodyReferences.remove(bodyHash);
+            totalBytes -= bodyLength;
+            FileUtils.deleteQuietly(getBodyFile(bodyHash));
+        }
+    }
+
+    /**
+     * Files only appear under their final name once completely written, so a crash never leaves partial files
+     * behind that would be picked up on recovery.
+     */
+    private void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The source may still be open (e.g. on Windows); copy it and move the copy in place instead.
+            final File copy = newTempFile(TEMP_SUFFIX);
+            Files.copy(source.toPath(), copy.toPath());
+            Files.move(copy.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            FileUtils.deleteQuietly(source);
+        }
+    }
+
+    private void writeEntry(DiskCacheEntry entry) throws IOException {
+        final String fileName = UUID.randomUUID().toString() + ENTRY_SUFFIX;
+        final File tempFile = newTempFile(ENTRY_SUFFIX);
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeObject(entry);
+        }
+        moveAtomically(tempFile, new File(entriesDir, fileName));
+        entry.setFileName(fileName);
+    }
+
+    private DiskCacheEntry readEntry(File file) {
+        final ClassLoader classLoader = dclm != null ? dclm.getDynamicClassLoader() : getClass().getClassLoader();
+        try (ObjectInputStream in = new DynamicObjectInputStream(new BufferedInputStream(new FileInputStream(file)),
+                classLoader)) {
+            final DiskCacheEntry entry = (DiskCacheEntry) in.readObject();
+            entry.restore(file.getName());
+            return entry;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.debug("Unable to read disk cache entry {}, discarding it.", file.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Rebuild the in-memory index from the entry files, dropping unreadable or expired entries and body files no
+     * entry refers to.
+     */
+    private void recover() {
+        final long now = System.currentTimeMillis();
+        final File[] entryFiles = entriesDir.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+        if (entryFiles != null) {
+            for (File entryFile : entryFiles) {
+                final DiskCacheEntry entry = readEntry(entryFile);
+                if (entry == null || entry.isExpired(now) || !getBodyFile(entry.getBodyHash()).isFile()) {
+                    FileUtils.deleteQuietly(entryFile);
+                    continue;
+                }
+
+                // A crash while replacing an entry can leave two entries for a key; the newest wins.
+                final DiskCacheEntry existing = entries.get(entry.getKey());
+                if (existing != null && existing.getCreated() >= entry.getCreated()) {
+                    FileUtils.deleteQuietly(entryFile);
+                    continue;
+                } else if (existing != null) {
+                    FileUtils.deleteQuietly(new File(entriesDir, existing.getFileName()));
+                }
+                entries.put(entry.getKey(), entry);
+            }
+        }
 
+        synchronized (bodyReferences) {
+            for (DiskCacheEntry entry : entries.values()) {
+                final Integer references = bodyReferences.get(entry.getBodyHash());
+                if (references == null) {
+                    bodyReferences.put(entry.getBodyHash(), 1);
+                    totalBytes += entry.getBodyLength();
+                } else {
+                    bodyReferences.put(entry.getBodyHash(), references + 1);
+                }
+            }
+
+            final File[] bodyDirs = bodiesDir.listFiles(File::isDirectory);
+            if (bodyDirs != null) {
+                for (File bodyDir : bodyDirs) {
+                    final File[] bodyFiles = bodyDir.listFiles();
+                    if (bodyFiles == null) {
+                        continue;
+                    }
+                    for (File bodyFile : bodyFiles) {
+                        if (!bodyReferences.containsKey(bodyFile.getName())) {
+                            FileUtils.deleteQuietly(bodyFile);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (CacheKey key : entries.keySet()) {
+            pathIndex.add(key);
+            ownerIndex.add(key, null);
+        }
+    }
+
+    /**
+     * Evict least recently used entries once the store grows beyond its maximum size.
+     */
+    private void evictIfNeeded() {
+        if (getTotalBytes() <= maxSizeInBytes) {
+            return;
+        }
+
+        synchronized (evictionLock) {
+            if (getTotalBytes() <= maxSizeInBytes) {
+                return;
+            }
+
+            // Snapshot the access times, they keep changing while sorting.
+            final List<EvictionCandidate> candidates = new ArrayList<>(entries.size());
+            for (Map.Entry<CacheKey, DiskCacheEntry> entry : entries.entrySet()) {
+                candidates.add(new EvictionCandidate(entry.getKey(), entry.getValue()));
+            }
+            candidates.sort(Comparator.comparingLong(candidate -> candidate.lastAccessed));
+
+            final long target = (long) (maxSizeInBytes * EVICTION_LOW_WATERMARK);
+            int evicted = 0;
+            for (EvictionCandidate candidate : candidates) {
+                if (getTotalBytes() <= target) {
+                    break;
+                }
+                remove(candidate.key, candidate.entry);
+                evicted++;
+            }
+            log.debug("Evicted {} entries from the disk cache store.", evicted);
+        }
+    }
+
+    private static final class EvictionCandidate {
+        private final CacheKey key;
+        private final DiskCacheEntry entry;
+        private final long lastAccessed;
+
+        private EvictionCandidate(CacheKey key, DiskCacheEntry entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccessed = entry.getLastAccessed();
+        }
+    }
 }
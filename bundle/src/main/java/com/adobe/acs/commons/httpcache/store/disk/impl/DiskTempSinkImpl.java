@@ -0,0 +1,135 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.httpcache.store.disk.impl;
+
+import com.adobe.acs.commons.httpcache.exception.HttpCacheDataStreamException;
+import com.adobe.acs.commons.httpcache.store.TempSink;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TempSink implementation for the disk cache store. Response bytes are streamed into a temp file, never held in heap,
+ * and hashed while being written so the store can file the body by its content hash without reading it again.
+ */
+public class DiskTempSinkImpl implements TempSink {
+    static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final File file;
+    private DigestOutputStream outputStream;
+    private String contentHash;
+    private final List<InputStream> inputStreams = new ArrayList<>();
+
+    public DiskTempSinkImpl(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public OutputStream createOutputStream() throws HttpCacheDataStreamException {
+        if (null == outputStream) {
+            try {
+                outputStream = new DigestOutputStream(new BufferedOutputStream(new FileOutputStream(file)),
+                        MessageDigest.getInstance(DIGEST_ALGORITHM));
+            } catch (IOException | NoSuchAlgorithmException e) {
+                throw new HttpCacheDataStreamException("Unable to create temp file for the disk cache store", e);
+            }
+        }
+        return outputStream;
+    }
+
+    @Override
+    public InputStream createInputStream() throws HttpCacheDataStreamException {
+        close();
+        if (!file.exists()) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        try {
+            final InputStream inputStream = new FileInputStream(file);
+            inputStreams.add(inputStream);
+            return inputStream;
+        } catch (IOException e) {
+            throw new HttpCacheDataStreamException("Unable to read temp file of the disk cache store", e);
+        }
+    }
+
+    @Override
+    public long length() {
+        if (null == contentHash) {
+            return -1;
+        }
+        return file.length();
+    }
+
+    /**
+     * Delete the temp file, unless the store has already taken it over as a cache body.
+     */
+    @Override
+    public void release() {
+        IOUtils.closeQuietly(outputStream);
+        for (InputStream inputStream : inputStreams) {
+            IOUtils.closeQuietly(inputStream);
+        }
+        inputStreams.clear();
+        FileUtils.deleteQuietly(file);
+    }
+
+    /**
+     * @return the temp file holding the response bytes
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the hex encoded content hash, or null if the sink has not been completely written yet.
+     */
+    String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Finish writing to the sink; further writes are not possible.
+     */
+    private void close() throws HttpCacheDataStreamException {
+        if (null != outputStream && null == contentHash) {
+            try {
+                outputStream.close();
+            } catch (IOException e) {
+                throw new HttpCacheDataStreamException("Unable to write temp file of the disk cache store", e);
+            }
+            contentHash = Hex.encodeHexString(outputStream.getMessageDigest().digest());
+        }
+    }
+}
@@ -64,6 +64,7 @@ import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.OpenType;
 import javax.management.openmbean.SimpleType;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -268,6 +269,30 @@ public class JCRHttpCacheStoreImpl extends AbstractJCRCacheMBean<CacheKey, Cache
         });
     }
 
+    @Override
+    public void invalidate(final Collection<CacheKey> keys) {
+        withSession((Session session) -> {
+            int evictionCount = 0;
+            for (final CacheKey key : keys) {
+                final Node bucketNode = new BucketNodeFactory(session, key, config).getBucketNode();
+
+                if (bucketNode != null) {
+                    final Node entryNode = new BucketNodeHandler(bucketNode, dclm).getEntryIfExists(key);
+                    if (entryNode != null) {
+                        entryNode.remove();
+                        evictionCount++;
+                    }
+                }
+            }
+
+            // a single save for the whole batch
+            if (evictionCount > 0) {
+                session.save();
+                incrementEvictionCount(evictionCount);
+            }
+        });
+    }
+
     @Override
     public void invalidate(final HttpCacheConfig cacheConfig) {
         withSession((Session session) -> {
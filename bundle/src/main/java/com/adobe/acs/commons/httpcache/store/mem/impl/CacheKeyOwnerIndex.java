@@ -0,0 +1,126 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.httpcache.store.mem.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import com.adobe.acs.commons.httpcache.store.HttpCacheStore;
+
+/**
+ * Secondary index of the keys held by a cache store, grouped by the cache config each entry was cached for. Lets the
+ * invalidation of a cache config find its keys without scanning the whole cache.
+ * <p>
+ * Keys put without a cache config, through {@link HttpCacheStore#put(CacheKey,
+ * com.adobe.acs.commons.httpcache.engine.CacheContent)} or when a store recovers its entries, are unowned. Callers must
+ * still match those with {@link HttpCacheConfig#knows(CacheKey)}.
+ * <p>
+ * The index may briefly hold keys that are no longer cached; invalidating those is a no-op.
+ */
+public class CacheKeyOwnerIndex {
+
+    /** Owner of the keys cached without a cache config. */
+    private static final Object UNOWNED = new Object();
+
+    private final Map<CacheKey, Object> owners = new HashMap<>();
+
+    private final Map<Object, Set<CacheKey>> keysByOwner = new HashMap<>();
+
+    /**
+     * Add the key to the index, moving it over from a previous owner. Like {@link CacheKeyPathIndex#add(CacheKey)},
+     * must be called both before and after the key is put into the cache.
+     *
+     * @param key   the cache key
+     * @param owner the cache config the entry is cached for, or null if unknown
+     */
+    public synchronized void add(CacheKey key, HttpCacheConfig owner) {
+        final Object newOwner = owner == null ? UNOWNED : owner;
+        final Object previousOwner = owners.put(key, newOwner);
+        if (previousOwner != null && previousOwner != newOwner) {
+            removeFromOwner(previousOwner, key);
+        }
+        keysByOwner.computeIfAbsent(newOwner, o -> new HashSet<>()).add(key);
+    }
+
+    /**
+     * Remove the key from the index, unless the cache still holds it.
+     *
+     * @param key         the cache key
+     * @param stillCached tells whether the cache currently holds a given key
+     */
+    public synchronized void remove(CacheKey key, Predicate<CacheKey> stillCached) {
+        if (stillCached.test(key)) {
+            return;
+        }
+        final Object owner = owners.remove(key);
+        if (owner != null) {
+            removeFromOwner(owner, key);
+        }
+    }
+
+    /**
+     * @param owner the cache config
+     * @return the keys cached for the cache config
+     */
+    public synchronized List<CacheKey> getKeys(HttpCacheConfig owner) {
+        return copyOf(keysByOwner.get(owner));
+    }
+
+    /**
+     * @return the keys cached without a cache config
+     */
+    public synchronized List<CacheKey> getUnownedKeys() {
+        return copyOf(keysByOwner.get(UNOWNED));
+    }
+
+    /**
+     * @return the number of keys in the index
+     */
+    public synchronized long size() {
+        return owners.size();
+    }
+
+    /**
+     * Remove all keys from the index.
+     */
+    public synchronized void clear() {
+        owners.clear();
+        keysByOwner.clear();
+    }
+
+    private void removeFromOwner(Object owner, CacheKey key) {
+        final Set<CacheKey> keys = keysByOwner.get(owner);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByOwner.remove(owner);
+        }
+    }
+
+    private static List<CacheKey> copyOf(Set<CacheKey> keys) {
+        return keys == null ? Collections.emptyList() : new ArrayList<>(keys);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.httpcache.store.mem.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.adobe.acs.commons.httpcache.keys.AbstractCacheKey;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+
+/**
+ * Secondary index of the keys held by an in-memory cache store, organized as a trie over the hierarchy resource path
+ * of each key. Lets invalidation find the affected keys without scanning the whole cache.
+ * <p>
+ * Only keys that keep the default {@link AbstractCacheKey#isInvalidatedBy(CacheKey)} semantics (same hierarchy
+ * resource path) are placed in the trie. Keys with custom invalidation logic are tracked separately and always
+ * returned as candidates, so callers must still confirm each candidate with {@link CacheKey#isInvalidatedBy(CacheKey)}.
+ * <p>
+ * The index may briefly hold keys that are no longer cached; invalidating those is a no-op.
+ */
+public class CacheKeyPathIndex {
+
+    /** Key classes mapped to whether they use the default, path based invalidation. */
+    private static final Map<Class<?>, Boolean> PATH_INVALIDATION_BY_CLASS = new ConcurrentHashMap<>();
+
+    private final Node root = new Node();
+
+    /** Keys which cannot be located by path. */
+    private final Set<CacheKey> unindexed = ConcurrentHashMap.newKeySet();
+
+    private int size;
+
+    /**
+     * Add the key to the index. Must be called both before the key is put into the cache, so an invalidation running
+     * during the put finds it, and after, so a concurrent removal of a previous entry for the key cannot drop it.
+     *
+     * @param key the cache key
+     */
+    public void add(CacheKey key) {
+        if (!isPathIndexable(key)) {
+            synchronized (unindexed) {
+                unindexed.add(key);
+            }
+            return;
+        }
+
+        synchronized (root) {
+            if (nodeFor(key.getHierarchyResourcePath(), true).keys.add(key)) {
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Remove the key from the index, unless the cache still holds it. Guards against a removal notification racing
+     * with a re-put of the same key.
+     *
+     * @param key         the cache key
+     * @param stillCached tells whether the cache currently holds a given key
+     */
+    public void remove(CacheKey key, Predicate<CacheKey> stillCached) {
+        if (!isPathIndexable(key)) {
+            synchronized (unindexed) {
+                if (!stillCached.test(key)) {
+                    unindexed.remove(key);
+                }
+            }
+            return;
+        }
+
+        synchronized (root) {
+            if (stillCached.test(key)) {
+                return;
+            }
+
+            final String[] segments = segments(key.getHierarchyResourcePath());
+            final Node[] path = new Node[segments.length + 1];
+            path[0] = root;
+            for (int i = 0; i < segments.length; i++) {
+                path[i + 1] = path[i].children.get(segments[i]);
+                if (path[i + 1] == null) {
+                    return;
+                }
+            }
+
+            if (path[segments.length].keys.remove(key)) {
+                size--;
+                // Prune the branch when it no longer leads to any key.
+                for (int i = segments.length; i > 0 && path[i].isEmpty(); i--) {
+                    path[i - 1].children.remove(segments[i - 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the keys that may be invalidated by the given key.
+     *
+     * @param invalidationKey the key built for the invalidation
+     * @return the candidate keys
+     */
+    public Collection<CacheKey> getInvalidationCandidates(CacheKey invalidationKey) {
+        final List<CacheKey> candidates = new ArrayList<>(unindexed);
+        final String path = invalidationKey.getHierarchyResourcePath();
+        if (path != null) {
+            synchronized (root) {
+                final Node node = nodeFor(path, false);
+                if (node != null) {
+                    candidates.addAll(node.keys);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Get the indexed keys whose hierarchy resource path is the given path or a descendant of it.
+     *
+     * @param path the repository path
+     * @return the keys at or below the path
+     */
+    public Collection<CacheKey> getKeysAtOrBelow(String path) {
+        final List<CacheKey> keys = new ArrayList<>();
+        synchronized (root) {
+            final Node start = nodeFor(path, false);
+            if (start == null) {
+                return keys;
+            }
+
+            final Deque<Node> stack = new ArrayDeque<>();
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                final Node node = stack.pop();
+                keys.addAll(node.keys);
+                for (Node child : node.children.values()) {
+                    stack.push(child);
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * @return the keys which are not indexed by path
+     */
+    public Collection<CacheKey> getUnindexedKeys() {
+        return new ArrayList<>(unindexed);
+    }
+
+    /**
+     * @return the number of keys in the index
+     */
+    public long size() {
+        synchronized (root) {
+            return (long) size + unindexed.size();
+        }
+    }
+
+    /**
+     * Remove all keys from the index.
+     */
+    public void clear() {
+        synchronized (root) {
+            root.children.clear();
+            root.keys.clear();
+            size = 0;
+        }
+        unindexed.clear();
+    }
+
+    private Node nodeFor(String path, boolean create) {
+        Node node = root;
+        for (String segment : segments(path)) {
+            Node child = node.children.get(segment);
+            if (child == null) {
+                if (!create) {
+                    return null;
+                }
+                child = new Node();
+                node.children.put(segment, child);
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    private static String[] segments(String path) {
+        return StringUtils.split(path, '/');
+    }
+
+    /**
+     * @param key the cache key
+     * @return true if the key is invalidated by any key sharing its hierarchy resource path, and only by those
+     */
+    public static boolean isPathIndexable(CacheKey key) {
+        if (key.getHierarchyResourcePath() == null) {
+            return false;
+        }
+        return PATH_INVALIDATION_BY_CLASS.computeIfAbsent(key.getClass(), CacheKeyPathIndex::usesPathInvalidation);
+    }
+
+    private static boolean usesPathInvalidation(Class<?> keyClass) {
+        try {
+            return AbstractCacheKey.class.equals(
+                    keyClass.getMethod("isInvalidatedBy", CacheKey.class).getDeclaringClass());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final Set<CacheKey> keys = new HashSet<>();
+
+        private boolean isEmpty() {
+            return children.isEmpty() && keys.isEmpty();
+        }
+    }
+}
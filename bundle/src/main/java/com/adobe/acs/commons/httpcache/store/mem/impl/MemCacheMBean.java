@@ -30,4 +30,7 @@ public interface MemCacheMBean extends CacheMBean {
 
     @Description("Cache TTL in Seconds. -1 value represent no TTL.")
     long getTtl();
+
+    @Description("Direct memory used by entries stored off-heap.")
+    String getOffHeapSize();
 }
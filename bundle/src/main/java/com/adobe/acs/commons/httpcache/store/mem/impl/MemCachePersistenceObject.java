@@ -26,9 +26,15 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import org.apache.commons.io.IOUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -38,6 +44,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Value for cache item in mem store.
+ * <p>
+ * Entries built for off-heap storage keep their headers (packed into a compact binary form) and body in a direct
+ * {@link ByteBuffer}; the heap then only holds this small handle.
  */
 public class MemCachePersistenceObject implements Serializable {
     /** Response status **/
@@ -51,6 +60,10 @@ public class MemCachePersistenceObject implements Serializable {
     /** Byte array to hold the data from the stream */
     private byte[] bytes;
     private HttpCacheServletResponseWrapper.ResponseWriteMethod writeMethod;
+    /** Packed headers followed by the body, for entries stored off-heap */
+    private transient ByteBuffer offHeapData;
+    /** Length of the packed headers at the start of <code>offHeapData</code> */
+    private int offHeapHeadersLength;
 
     AtomicInteger count = new AtomicInteger(0);
 
@@ -100,6 +113,83 @@ public class MemCachePersistenceObject implements Serializable {
         return this;
     }
 
+    /**
+     * Construct a Mem cache value suitable for caching, optionally moving headers and body out of the heap.
+     *
+     * @param charEncoding
+     * @param contentType
+     * @param headers
+     * @param dataInputStream
+     * @param offHeap         keep headers and body in a direct buffer
+     * @throws HttpCacheDataStreamException
+     */
+    @SuppressWarnings("squid:S00107")
+    public MemCachePersistenceObject buildForCaching(int status, String charEncoding, String contentType, Map<String,
+            List<String>> headers, InputStream dataInputStream, HttpCacheServletResponseWrapper.ResponseWriteMethod
+            writeMethod, boolean offHeap) throws HttpCacheDataStreamException {
+
+        buildForCaching(status, charEncoding, contentType, headers, dataInputStream, writeMethod);
+        if (offHeap) {
+            moveOffHeap();
+        }
+        return this;
+    }
+
+    private void moveOffHeap() throws HttpCacheDataStreamException {
+        final byte[] packedHeaders;
+        try {
+            packedHeaders = packHeaders(Multimaps.asMap(headers));
+        } catch (IOException e) {
+            throw new HttpCacheDataStreamException("Unable to pack the response headers", e);
+        }
+
+        offHeapData = ByteBuffer.allocateDirect(packedHeaders.length + bytes.length);
+        offHeapData.put(packedHeaders).put(bytes);
+        offHeapData.flip();
+        offHeapHeadersLength = packedHeaders.length;
+
+        headers = null;
+        bytes = null;
+    }
+
+    private static byte[] packHeaders(Map<String, ? extends Collection<String>> headers) throws IOException {
+        final ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(packed)) {
+            out.writeInt(headers.size());
+            for (Map.Entry<String, ? extends Collection<String>> entry : headers.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (String value : entry.getValue()) {
+                    out.writeUTF(value);
+                }
+            }
+        }
+        return packed.toByteArray();
+    }
+
+    private Map<String, List<String>> unpackHeaders() {
+        final byte[] packed = new byte[offHeapHeadersLength];
+        offHeapData.duplicate().get(packed);
+
+        final Map<String, List<String>> map = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(packed))) {
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                final String name = in.readUTF();
+                final int count = in.readInt();
+                final List<String> values = new ArrayList<>(count);
+                for (int j = 0; j < count; j++) {
+                    values.add(in.readUTF());
+                }
+                map.put(name, values);
+            }
+        } catch (IOException e) {
+            // Packed by this object from in-memory data; cannot happen.
+            throw new IllegalStateException("Unable to unpack the response headers", e);
+        }
+        return map;
+    }
+
     /**
      * Get response status
      * @return the status code
@@ -133,6 +223,10 @@ public class MemCachePersistenceObject implements Serializable {
      * @return Returned in <code>Map<String, List<String>></code> format.
      */
     public Map<String, List<String>> getHeaders() {
+        if (null != offHeapData) {
+            return unpackHeaders();
+        }
+
         Map<String, List<String>> map = new HashMap<String, List<String>>();
 
         // Convert com.google.common.collect.AbstractMapBasedMultimap$WrappedSet to List<String> value to avoid cast
@@ -145,14 +239,60 @@ public class MemCachePersistenceObject implements Serializable {
     }
 
     /**
-     * Get the data byte array
+     * Get the data byte array. For entries stored off-heap this is a copy of the body; prefer
+     * {@link #getBodyInputStream()} and {@link #getBodyLength()}.
      *
      * @return
      */
     public byte[] getBytes() {
+        if (null != offHeapData) {
+            final byte[] copy = new byte[getBodyLength()];
+            body().get(copy);
+            return copy;
+        }
         return bytes;
     }
 
+    /**
+     * @return a stream over the body, without copying it.
+     */
+    public InputStream getBodyInputStream() {
+        if (null != offHeapData) {
+            return new ByteBufferInputStream(body());
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    /**
+     * @return the length of the body in bytes.
+     */
+    public int getBodyLength() {
+        if (null != offHeapData) {
+            return offHeapData.limit() - offHeapHeadersLength;
+        }
+        return bytes.length;
+    }
+
+    /**
+     * @return the bytes this entry holds outside of the heap, 0 for on-heap entries.
+     */
+    public long getOffHeapLength() {
+        return null == offHeapData ? 0L : offHeapData.capacity();
+    }
+
+    /**
+     * @return whether headers and body are held outside of the heap.
+     */
+    public boolean isOffHeap() {
+        return null != offHeapData;
+    }
+
+    private ByteBuffer body() {
+        final ByteBuffer body = offHeapData.duplicate();
+        body.position(offHeapHeadersLength);
+        return body.slice();
+    }
+
 
     /**
      * Increments the hit for this cache entry.
@@ -171,4 +311,26 @@ public class MemCachePersistenceObject implements Serializable {
     public HttpCacheServletResponseWrapper.ResponseWriteMethod getWriteMethod() {
         return writeMethod;
     }
+
+    /**
+     * Direct buffers are not serializable; serialize off-heap entries as their on-heap equivalent.
+     */
+    private Object writeReplace() throws ObjectStreamException {
+        if (null == offHeapData) {
+            return this;
+        }
+
+        final MemCachePersistenceObject onHeap = new MemCachePersistenceObject();
+        onHeap.status = status;
+        onHeap.charEncoding = charEncoding;
+        onHeap.contentType = contentType;
+        onHeap.writeMethod = writeMethod;
+        onHeap.headers = HashMultimap.create();
+        for (Map.Entry<String, List<String>> entry : unpackHeaders().entrySet()) {
+            onHeap.headers.putAll(entry.getKey(), entry.getValue());
+        }
+        onHeap.bytes = getBytes();
+        onHeap.count.set(count.get());
+        return onHeap;
+    }
 }
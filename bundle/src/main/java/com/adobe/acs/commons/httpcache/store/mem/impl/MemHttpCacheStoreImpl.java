@@ -50,10 +50,8 @@ import javax.management.openmbean.CompositeType;
 import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.OpenType;
 import javax.management.openmbean.SimpleType;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -86,6 +84,11 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
                         + "from the cache",
                 defaultValue = ""+ DEFAULT_MAX_SIZE_IN_MB)
         long httpcache_cachestore_memcache_maxsize() default DEFAULT_MAX_SIZE_IN_MB;
+
+        @AttributeDefinition(name = "Store off-heap",
+                description = "Keep cached response bodies and headers in direct memory instead of the Java heap, "
+                        + "reducing GC pressure for large caches. Bounded by -XX:MaxDirectMemorySize.")
+        boolean httpcache_cachestore_memcache_offheap() default false;
     }
 
     private static final Logger log = LoggerFactory.getLogger(MemHttpCacheStoreImpl.class);
@@ -98,6 +101,12 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
     /** Cache - Uses Google Guava's cache */
     private Cache<CacheKey, MemCachePersistenceObject> cache;
 
+    /** Index of the cached keys by path, used for invalidation. */
+    private final CacheKeyPathIndex pathIndex = new CacheKeyPathIndex();
+
+    /** Index of the cached keys by cache config, used for invalidation. */
+    private final CacheKeyOwnerIndex ownerIndex = new CacheKeyOwnerIndex();
+
     @Activate
     protected void activate(Config config) {
         this.config = config;
@@ -109,6 +118,8 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
             cache.invalidateAll();
             log.info("Mem cache already present. Invalidating the cache and re-initializing it.");
         }
+        pathIndex.clear();
+        ownerIndex.clear();
         if (this.config.httpcache_cachestore_memcache_ttl() != Config.DEFAULT_TTL) {
             // If ttl is present, attach it to guava cache configuration.
             cache = CacheBuilder.newBuilder()
@@ -140,13 +151,14 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
     /**
      * Removal listener for cache entry items.
      */
-    private static class MemCacheEntryRemovalListener implements RemovalListener<CacheKey, MemCachePersistenceObject> {
-        private static final Logger log = LoggerFactory.getLogger(MemCacheEntryRemovalListener.class);
+    private class MemCacheEntryRemovalListener implements RemovalListener<CacheKey, MemCachePersistenceObject> {
 
         @Override
         public void onRemoval(RemovalNotification<CacheKey, MemCachePersistenceObject> removalNotification) {
             log.debug("Mem cache entry for uri {} removed due to {}", removalNotification.getKey().toString(),
                     removalNotification.getCause().name());
+            pathIndex.remove(removalNotification.getKey(), key -> cache.asMap().containsKey(key));
+            ownerIndex.remove(removalNotification.getKey(), key -> cache.asMap().containsKey(key));
         }
     }
 
@@ -157,16 +169,30 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
 
         @Override
         public int weigh(CacheKey memCacheKey, MemCachePersistenceObject memCachePersistenceObject) {
-            // Size of the byte array.
-            return memCachePersistenceObject.getBytes().length;
+            // Size of the body, or of all data held off-heap.
+            return memCachePersistenceObject.isOffHeap() ? (int) memCachePersistenceObject.getOffHeapLength()
+                    : memCachePersistenceObject.getBodyLength();
         }
     }
 
     //-------------------------<CacheStore interface specific implementation>
     @Override
     public void put(CacheKey key, CacheContent content) throws HttpCacheDataStreamException {
-        cache.put(key, new MemCachePersistenceObject().buildForCaching(content.getStatus(), content.getCharEncoding(),
-                content.getContentType(), content.getHeaders(), content.getInputDataStream(), content.getWriteMethod()));
+        put(key, content, null);
+    }
+
+    @Override
+    public void put(CacheKey key, CacheContent content, HttpCacheConfig cacheConfig)
+            throws HttpCacheDataStreamException {
+        final MemCachePersistenceObject value = new MemCachePersistenceObject().buildForCaching(content.getStatus(),
+                content.getCharEncoding(), content.getContentType(), content.getHeaders(), content.getInputDataStream(),
+                content.getWriteMethod(), config.httpcache_cachestore_memcache_offheap());
+        // Index before and after the put, so the index never misses a cached key.
+        pathIndex.add(key);
+        ownerIndex.add(key, cacheConfig);
+        cache.put(key, value);
+        pathIndex.add(key);
+        ownerIndex.add(key, cacheConfig);
     }
 
     @Override
@@ -187,8 +213,8 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
         // Increment hit count
         value.incrementHitCount();
 
-        return new CacheContent(value.getStatus(), value.getCharEncoding(), value.getContentType(), value.getHeaders(), new
-                ByteArrayInputStream(value.getBytes()), value.getWriteMethod());
+        return new CacheContent(value.getStatus(), value.getCharEncoding(), value.getContentType(), value.getHeaders(),
+                value.getBodyInputStream(), value.getWriteMethod());
     }
 
     @Override
@@ -198,9 +224,8 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
 
     @Override
     public void invalidate(CacheKey invalidationKey) {
-        final ConcurrentMap<CacheKey, MemCachePersistenceObject> cacheAsMap = cache.asMap();
-
-        for (CacheKey key : cacheAsMap.keySet()) {
+        // Only the keys sharing the invalidation path (and keys with custom invalidation logic) need to be checked.
+        for (CacheKey key : pathIndex.getInvalidationCandidates(invalidationKey)) {
             if (key.isInvalidatedBy(invalidationKey)) {
                 cache.invalidate(key);
             }
@@ -209,8 +234,11 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
 
     @Override
     public void invalidate(HttpCacheConfig cacheConfig) {
-        ConcurrentMap<CacheKey, MemCachePersistenceObject> cacheAsMap = cache.asMap();
-        for (CacheKey key : cacheAsMap.keySet()) {
+        // The entries cached for the config are known; only entries cached without a config need to be matched.
+        for (CacheKey key : ownerIndex.getKeys(cacheConfig)) {
+            cache.invalidate(key);
+        }
+        for (CacheKey key : ownerIndex.getUnownedKeys()) {
             // Match the cache key with cache config.
             try {
                 if (cacheConfig.knows(key)) {
@@ -258,14 +286,23 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
 
     @Override
     protected long getBytesLength(MemCachePersistenceObject cacheObj) {
-        return cacheObj.getBytes().length;
+        return cacheObj.getBodyLength();
+    }
+
+    @Override
+    public String getOffHeapSize() {
+        long size = 0L;
+        for (MemCachePersistenceObject cacheObj : cache.asMap().values()) {
+            size += cacheObj.getOffHeapLength();
+        }
+        return FileUtils.byteCountToDisplaySize(size);
     }
 
     @Override
     @SuppressWarnings("squid:S1192")
     protected void addCacheData(Map<String, Object> data, MemCachePersistenceObject cacheObj) {
         int hitCount = cacheObj.getHitCount();
-        long size = cacheObj.getBytes().length;
+        long size = cacheObj.getBodyLength();
         data.put(JMX_PN_STATUS, cacheObj.getStatus());
         data.put(JMX_PN_SIZE, FileUtils.byteCountToDisplaySize(size));
         data.put(JMX_PN_CONTENTTYPE, cacheObj.getContentType());
@@ -279,7 +316,7 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
     protected String toString(MemCachePersistenceObject cacheObj) throws CacheMBeanException{
         try {
             return IOUtils.toString(
-                    new ByteArrayInputStream(cacheObj.getBytes()),
+                    cacheObj.getBodyInputStream(),
                     cacheObj.getCharEncoding());
         } catch (IOException e) {
             throw new CacheMBeanException("Error getting the content from the cacheObject", e);
@@ -18,6 +18,6 @@
  * #L%
  */
 
-@aQute.bnd.annotation.Version("3.17.1")
+@aQute.bnd.annotation.Version("3.19.0")
 package com.adobe.acs.commons.httpcache.store;
 
@@ -0,0 +1,378 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.httpcache.store.tiered.impl;
+
+import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
+import com.adobe.acs.commons.httpcache.engine.CacheContent;
+import com.adobe.acs.commons.httpcache.exception.HttpCacheDataStreamException;
+import com.adobe.acs.commons.httpcache.exception.HttpCacheKeyCreationException;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import com.adobe.acs.commons.httpcache.store.HttpCacheStore;
+import com.adobe.acs.commons.httpcache.store.TempSink;
+import com.adobe.acs.commons.httpcache.store.caffeine.impl.CaffeineMemHttpCacheStoreImpl;
+import com.adobe.acs.commons.httpcache.store.mem.impl.CacheKeyPathIndex;
+import com.adobe.acs.commons.httpcache.store.mem.impl.MemTempSinkImpl;
+import org.apache.commons.io.IOUtils;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.NotCompliantMBeanException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * ACS AEM Commons - HTTP Cache - Tiered cache store implementation.
+ * <p>
+ * A bounded Caffeine in-memory store (L1) in front of the JCR store (L2). Hits are served from memory; entries only
+ * found in the JCR store are promoted into memory. Writes go to memory right away and are written through to the
+ * JCR store in the background, so a restarted instance (or another publish instance sharing the repository content)
+ * starts from a warm cache. Invalidations apply to both tiers.
+ * <p>
+ * The JCR store only invalidates entries whose key equals the invalidation key, so this store tracks the keys it wrote
+ * to or read from the JCR store, and invalidates the ones an invalidation covers there explicitly. Entries a previous
+ * run left in the JCR store are tracked once they are read.
+ */
+@Component(service = HttpCacheStore.class, property = {
+        HttpCacheStore.KEY_CACHE_STORE_TYPE + "=" + HttpCacheStore.VALUE_TIERED_CACHE_STORE_TYPE
+})
+@Designate(ocd = TieredHttpCacheStoreImpl.Config.class)
+public class TieredHttpCacheStoreImpl implements HttpCacheStore {
+
+    @ObjectClassDefinition(name = "ACS AEM Commons - HTTP Cache - Tiered cache store.",
+            description = "Cache data store keeping hot entries in memory in front of the JCR cache store.")
+    public @interface Config {
+
+        long DEFAULT_TTL = -1L; // Defaults to -1 meaning no TTL.
+
+        long DEFAULT_MAX_SIZE_IN_MB = 10L;
+
+        int DEFAULT_WRITE_QUEUE_SIZE = 1000;
+
+        @AttributeDefinition(name = "In-memory TTL",
+                description = "TTL for the in-memory entries in seconds. Default to -1 meaning no TTL. "
+                        + "The JCR store applies its own expiry.",
+                defaultValue = "" + DEFAULT_TTL)
+        long httpcache_cachestore_tiered_ttl() default DEFAULT_TTL;
+
+        @AttributeDefinition(name = "Maximum in-memory size in MB",
+                description = "Default to 10MB. If the in-memory tier grows beyond this size, least used entries are "
+                        + "evicted from memory; they stay available from the JCR store.",
+                defaultValue = "" + DEFAULT_MAX_SIZE_IN_MB)
+        long httpcache_cachestore_tiered_maxsize() default DEFAULT_MAX_SIZE_IN_MB;
+
+        @AttributeDefinition(name = "Write-through queue size",
+                description = "Maximum number of entries waiting to be written to the JCR store. Entries beyond this "
+                        + "are only kept in memory.",
+                defaultValue = "" + DEFAULT_WRITE_QUEUE_SIZE)
+        int httpcache_cachestore_tiered_writequeuesize() default DEFAULT_WRITE_QUEUE_SIZE;
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(TieredHttpCacheStoreImpl.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
+    @Reference(target = "(" + HttpCacheStore.KEY_CACHE_STORE_TYPE + "=" + HttpCacheStore.VALUE_JCR_CACHE_STORE_TYPE + ")")
+    private HttpCacheStore l2Store;
+
+    private HttpCacheStore l1Store;
+
+    /** Single writer to the JCR store, so writes reach it in order. */
+    private ThreadPoolExecutor writeThroughExecutor;
+
+    /** Writes not yet done to the JCR store, so invalidations can cancel them. */
+    private final Map<CacheKey, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+
+    /** Orders writes to the JCR store against invalidations of it. */
+    private final Object l2Lock = new Object();
+
+    private final AtomicLong droppedWrites = new AtomicLong();
+
+    /** Keys of the entries written to or read from the JCR store. */
+    private final CacheKeyPathIndex l2Keys = new CacheKeyPathIndex();
+
+    /** Bumped by every invalidation before the in-memory tier is invalidated, so promotions can detect a race. */
+    private final AtomicLong invalidationGeneration = new AtomicLong();
+
+    @Activate
+    protected void activate(Config config) throws NotCompliantMBeanException {
+        l1Store = new CaffeineMemHttpCacheStoreImpl(config.httpcache_cachestore_tiered_ttl(),
+                config.httpcache_cachestore_tiered_maxsize(), false);
+
+        writeThroughExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.httpcache_cachestore_tiered_writequeuesize())),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "acs-commons-httpcache-tiered-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        log.info("TieredHttpCacheStoreImpl activated.");
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        // Let queued writes reach the JCR store, so they are there on the next start.
+        writeThroughExecutor.shutdown();
+        try {
+            if (!writeThroughExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Not all cache entries were written to the JCR store before shutdown.");
+                writeThroughExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writeThroughExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        pendingWrites.clear();
+        l1Store.invalidateAll();
+        l2Keys.clear();
+
+        log.info("TieredHttpCacheStoreImpl deactivated. {} writes to the JCR store were dropped while active.",
+                droppedWrites.get());
+    }
+
+    //-------------------------<CacheStore interface specific implementation>
+    @Override
+    public void put(CacheKey key, CacheContent content) throws HttpCacheDataStreamException {
+        put(key, content, null);
+    }
+
+    @Override
+    public void put(CacheKey key, CacheContent content, HttpCacheConfig cacheConfig)
+            throws HttpCacheDataStreamException {
+        // The content stream can only be read once, but both tiers need it.
+        final byte[] bytes = toByteArray(content.getInputDataStream());
+
+        l1Store.put(key, copyOf(content, bytes), cacheConfig);
+
+        final PendingWrite write = new PendingWrite(key, content, bytes);
+        pendingWrites.put(key, write);
+        try {
+            writeThroughExecutor.execute(write);
+        } catch (RejectedExecutionException e) {
+            pendingWrites.remove(key, write);
+            droppedWrites.incrementAndGet();
+            log.debug("Write-through queue full, cache entry [ {} ] is kept in memory only.", key);
+        }
+    }
+
+    @Override
+    public boolean contains(CacheKey key) {
+        return l1Store.contains(key) || pendingWrites.containsKey(key) || l2Store.contains(key);
+    }
+
+    @Override
+    public CacheContent getIfPresent(CacheKey key) {
+        final CacheContent l1Content = l1Store.getIfPresent(key);
+        if (l1Content != null) {
+            return l1Content;
+        }
+
+        final long generation = invalidationGeneration.get();
+        // Track the key before reading, so an invalidation running during the read covers the entry in the JCR store.
+        l2Keys.add(key);
+        final CacheContent l2Content = l2Store.getIfPresent(key);
+        if (l2Content == null) {
+            return null;
+        }
+
+        // Promote the entry so the following hits are served from memory.
+        try {
+            final byte[] bytes = toByteArray(l2Content.getInputDataStream());
+            l1Store.put(key, copyOf(l2Content, bytes));
+            if (invalidationGeneration.get() != generation) {
+                // An invalidation ran since the JCR read and may have missed the promoted entry.
+                l1Store.invalidate(key);
+            }
+            return copyOf(l2Content, bytes);
+        } catch (HttpCacheDataStreamException e) {
+            log.warn("Unable to read cache entry [ {} ] from the JCR store.", key, e);
+            return null;
+        }
+    }
+
+    @Override
+    public long size() {
+        // Every entry is written through, so the JCR store holds the full cache.
+        return l2Store.size();
+    }
+
+    @Override
+    public void invalidate(CacheKey invalidationKey) {
+        synchronized (l2Lock) {
+            invalidationGeneration.incrementAndGet();
+            pendingWrites.keySet().removeIf(key -> key.isInvalidatedBy(invalidationKey));
+            l2Store.invalidate(invalidationKey);
+            invalidateL2Keys(l2Keys.getInvalidationCandidates(invalidationKey),
+                    key -> key.isInvalidatedBy(invalidationKey));
+        }
+        l1Store.invalidate(invalidationKey);
+    }
+
+    @Override
+    public void invalidate(Collection<CacheKey> invalidationKeys) {
+        synchronized (l2Lock) {
+            invalidationGeneration.incrementAndGet();
+            pendingWrites.keySet().removeIf(key -> invalidationKeys.stream().anyMatch(key::isInvalidatedBy));
+            l2Store.invalidate(invalidationKeys);
+            final Set<CacheKey> candidates = new LinkedHashSet<>();
+            for (CacheKey invalidationKey : invalidationKeys) {
+                candidates.addAll(l2Keys.getInvalidationCandidates(invalidationKey));
+            }
+            invalidateL2Keys(candidates, key -> invalidationKeys.stream().anyMatch(key::isInvalidatedBy));
+        }
+        l1Store.invalidate(invalidationKeys);
+    }
+
+    @Override
+    public void invalidate(HttpCacheConfig cacheConfig) {
+        synchronized (l2Lock) {
+            invalidationGeneration.incrementAndGet();
+            final Predicate<CacheKey> isKnown = key -> {
+                try {
+                    return cacheConfig.knows(key);
+                } catch (HttpCacheKeyCreationException e) {
+                    return true;
+                }
+            };
+            pendingWrites.keySet().removeIf(isKnown);
+            l2Store.invalidate(cacheConfig);
+            // The JCR store removed the entries of the config itself; only the tracking is left to clean up.
+            final List<CacheKey> trackedKeys = new ArrayList<>(l2Keys.getKeysAtOrBelow("/"));
+            trackedKeys.addAll(l2Keys.getUnindexedKeys());
+            for (CacheKey key : trackedKeys) {
+                if (isKnown.test(key)) {
+                    l2Keys.remove(key, tracked -> false);
+                }
+            }
+        }
+        l1Store.invalidate(cacheConfig);
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (l2Lock) {
+            invalidationGeneration.incrementAndGet();
+            pendingWrites.clear();
+            l2Store.invalidateAll();
+            l2Keys.clear();
+        }
+        l1Store.invalidateAll();
+    }
+
+    @Override
+    public TempSink createTempSink() {
+        return new MemTempSinkImpl();
+    }
+
+    @Override
+    public String getStoreType() {
+        return HttpCacheStore.VALUE_TIERED_CACHE_STORE_TYPE;
+    }
+
+    //-------------------------<Tiered specific implementation>
+
+    /**
+     * Invalidate the tracked keys the invalidation covers in the JCR store, which would otherwise keep entries not
+     * equal to the invalidation key. Must be called holding {@link #l2Lock}.
+     */
+    private void invalidateL2Keys(Collection<CacheKey> candidates, Predicate<CacheKey> isInvalidated) {
+        final List<CacheKey> keys = new ArrayList<>();
+        for (CacheKey key : candidates) {
+            if (isInvalidated.test(key)) {
+                keys.add(key);
+                l2Keys.remove(key, tracked -> false);
+            }
+        }
+        if (!keys.isEmpty()) {
+            l2Store.invalidate(keys);
+        }
+    }
+
+    /**
+     * @return the number of entries waiting to be written to the JCR store
+     */
+    int getPendingWriteCount() {
+        return pendingWrites.size();
+    }
+
+    private static byte[] toByteArray(InputStream inputStream) throws HttpCacheDataStreamException {
+        try (InputStream in = inputStream) {
+            return IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            throw new HttpCacheDataStreamException("Unable to read the cache content", e);
+        }
+    }
+
+    private static CacheContent copyOf(CacheContent content, byte[] bytes) {
+        return new CacheContent(content.getStatus(), content.getCharEncoding(), content.getContentType(),
+                content.getHeaders(), new ByteArrayInputStream(bytes), content.getWriteMethod());
+    }
+
+    /**
+     * A write to the JCR store; skipped if invalidated or superseded by a newer write before it runs.
+     */
+    private final class PendingWrite implements Runnable {
+        private final CacheKey key;
+        private final CacheContent content;
+        private final byte[] bytes;
+
+        private PendingWrite(CacheKey key, CacheContent content, byte[] bytes) {
+            this.key = key;
+            this.content = content;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void run() {
+            synchronized (l2Lock) {
+                if (!pendingWrites.remove(key, this)) {
+                    return;
+                }
+                try {
+                    l2Keys.add(key);
+                    l2Store.put(key, copyOf(content, bytes));
+                } catch (HttpCacheDataStreamException | RuntimeException e) {
+                    log.warn("Unable to write cache entry [ {} ] to the JCR store.", key, e);
+                }
+            }
+        }
+    }
+}
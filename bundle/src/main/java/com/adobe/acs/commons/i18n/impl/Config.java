@@ -31,13 +31,20 @@ public @interface Config {
 
     String PN_MAX_SIZE_IN_MB = "maxSizeCount";
     String PN_TTL = "ttl";
+    String PN_MAX_PAGE_COUNT = "maxPageCount";
 
     long DEFAULT_MAX_SIZE_IN_MB = 10L;
-    long DEFAULT_TTL = -1L;
+    long DEFAULT_TTL = 3600L;
+    long DEFAULT_MAX_PAGE_COUNT = 10000L;
 
-    @AttributeDefinition(name = "CacheSize (count)", description = "This determines the cache size of caching I18n maps to resources.")
+    @AttributeDefinition(name = "CacheSize (count)", description = "This determines the cache size of caching I18n maps to locales.")
     long maxSizeCount() default DEFAULT_MAX_SIZE_IN_MB;
 
-    @AttributeDefinition(name = "Cache expiry", description = "This determines the cache expiry time in seconds of caching I18n maps to resources.")
+    @AttributeDefinition(name = "Cache expiry", description = "This determines the cache expiry time in seconds of caching I18n maps to locales. "
+            + "Cached I18n maps are invalidated when dictionaries change; the expiry catches changes that are not reported. "
+            + "0 or less means no expiry.")
     long getTtl() default  DEFAULT_TTL;
+
+    @AttributeDefinition(name = "Page locale cache size (count)", description = "This determines the number of pages whose resolved locale is cached.")
+    long maxPageCount() default DEFAULT_MAX_PAGE_COUNT;
 }
@@ -29,7 +29,11 @@ import com.day.cq.i18n.I18n;
 import com.day.cq.wcm.api.Page;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang.StringUtils;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
 import org.apache.sling.commons.osgi.Order;
 import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.apache.sling.commons.osgi.RankedServices;
@@ -47,16 +51,23 @@ import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.OpenType;
 import javax.management.openmbean.SimpleType;
 import javax.servlet.http.HttpServletRequest;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 @Component(
         property= {
-            "jmx.objectname=com.adobe.acs.httpcache:type=I18N Provider Cache"
+            "jmx.objectname=com.adobe.acs.httpcache:type=I18N Provider Cache",
+            ResourceChangeListener.PATHS + "=/apps",
+            ResourceChangeListener.PATHS + "=/libs",
+            ResourceChangeListener.PATHS + "=/conf",
+            ResourceChangeListener.PATHS + "=/content"
         },
-        service = {I18nProvider.class,DynamicMBean.class},
+        service = {I18nProvider.class, DynamicMBean.class, ResourceChangeListener.class, ExternalResourceChangeListener.class},
         immediate = true,
         reference = {
             @Reference(
@@ -70,14 +81,28 @@ import java.util.concurrent.TimeUnit;
         }
 )
 @Designate(ocd = Config.class)
-public class I18nProviderImpl extends AbstractGuavaCacheMBean<String,I18n> implements I18nProvider, DynamicMBean {
+public class I18nProviderImpl extends AbstractGuavaCacheMBean<String,I18n> implements I18nProvider, DynamicMBean,
+        ResourceChangeListener, ExternalResourceChangeListener {
 
     private static final String JMX_PN_I18N = "I18n Object";
 
+    private static final String PN_SLING_KEY = "sling:key";
+    private static final String PN_SLING_MESSAGE = "sling:message";
+    private static final String JCR_CONTENT_SUFFIX = "/jcr:content";
+    private static final String I18N_FOLDER = "/i18n/";
+
     private final RankedServices<ResourceBundleProvider> resourceBundleProviders = new RankedServices<>(Order.ASCENDING);
 
+    /**
+     * I18n objects keyed by locale, invalidated when a dictionary changes.
+     */
     private Cache<String, I18n> cache;
 
+    /**
+     * Locales keyed by page path, invalidated when the language of a page or one of its ancestors changes.
+     */
+    private Cache<String, Optional<Locale>> pageLocales;
+
     public I18nProviderImpl() throws NotCompliantMBeanException {
         super(CacheMBean.class);
     }
@@ -87,7 +112,7 @@ public class I18nProviderImpl extends AbstractGuavaCacheMBean<String,I18n> imple
         long size = config.maxSizeCount();
         long ttl = config.getTtl();
 
-        if (ttl != Config.DEFAULT_TTL) {
+        if (ttl > 0) {
             // If ttl is present, attach it to guava cache configuration.
             cache = CacheBuilder.newBuilder()
                     .maximumSize(size )
@@ -101,6 +126,10 @@ public class I18nProviderImpl extends AbstractGuavaCacheMBean<String,I18n> imple
                     .recordStats()
                     .build();
         }
+
+        pageLocales = CacheBuilder.newBuilder()
+                .maximumSize(config.maxPageCount())
+                .build();
     }
 
     @Override
@@ -124,19 +153,12 @@ public class I18nProviderImpl extends AbstractGuavaCacheMBean<String,I18n> imple
 
     @Override
     public I18n i18n(Resource resource) {
-        I18n cached = cache.getIfPresent(resource.getPath());
-        if (cached != null) {
-            return cached;
-        }else{
-            I18n i18n = new I18n(getResourceBundleFromPageLocale(resource));
-            cache.put(resource.getPath(), i18n);
-            return i18n;
-        }
+        return getI18n(getLocaleFromResource(resource));
     }
 
     @Override
     public I18n i18n(Locale locale) {
-        return new I18n(getResourceBundle(locale));
+        return getI18n(locale);
     }
 
     @Override
@@ -144,15 +166,27 @@ public class I18nProviderImpl extends AbstractGuavaCacheMBean<String,I18n> imple
         return new I18n(request);
     }
 
-    private ResourceBundle getResourceBundleFromPageLocale(Resource resource) {
-        final Locale locale = getLocaleFromResource(resource);
-        return getResourceBundle(locale);
+    private I18n getI18n(Locale locale) {
+        final String key = locale != null ? locale.toString() : StringUtils.EMPTY;
+        I18n cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        } else {
+            I18n i18n = new I18n(getResourceBundle(locale));
+            cache.put(key, i18n);
+            return i18n;
+        }
     }
 
     private Locale getLocaleFromResource(Resource resource) {
         final Page page = InjectorUtils.getResourcePage(resource);
         if (page != null) {
-            return page.getLanguage(false);
+            Optional<Locale> cached = pageLocales.getIfPresent(page.getPath());
+            if (cached == null) {
+                cached = Optional.ofNullable(page.getLanguage(false));
+                pageLocales.put(page.getPath(), cached);
+            }
+            return cached.orElse(null);
         }
         return null;
     }
@@ -197,6 +231,64 @@ public class I18nProviderImpl extends AbstractGuavaCacheMBean<String,I18n> imple
 
     }
 
+    @Override
+    public void onChange(List<ResourceChange> changes) {
+        boolean dictionaryChanged = false;
+        for (ResourceChange change : changes) {
+            if (isDictionaryChange(change)) {
+                dictionaryChanged = true;
+            }
+            if (isPageLanguageChange(change)) {
+                // the language of a page is inherited by all of its descendants
+                final String pagePath = StringUtils.removeEnd(change.getPath(), JCR_CONTENT_SUFFIX);
+                pageLocales.asMap().keySet().removeIf(path -> path.equals(pagePath) || path.startsWith(pagePath + "/"));
+            }
+        }
+
+        if (dictionaryChanged) {
+            // resource bundle providers reload changed dictionaries into new resource bundles
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Dictionaries are mix:language trees of sling:MessageEntry nodes, or json files, kept in i18n folders. Changed
+     * property names are not reported reliably, so any change at or below an i18n folder is a dictionary change, and so
+     * is any removal outside /content, which may take a whole i18n folder with it. Dictionaries kept elsewhere are
+     * recognized by changes of sling:key or sling:message when these are reported, and otherwise expire with the TTL.
+     */
+    private boolean isDictionaryChange(ResourceChange change) {
+        final String path = change.getPath();
+        if (StringUtils.contains(path + "/", I18N_FOLDER)) {
+            return true;
+        }
+        if (ResourceChange.ChangeType.REMOVED.equals(change.getType()) && !StringUtils.startsWith(path, "/content/")) {
+            return true;
+        }
+        return hasChangedProperty(change, PN_SLING_KEY) || hasChangedProperty(change, PN_SLING_MESSAGE);
+    }
+
+    /**
+     * The changed property names are not reliably reported, so any change of a page's jcr:content node may have changed
+     * its jcr:language.
+     */
+    private boolean isPageLanguageChange(ResourceChange change) {
+        if (ResourceChange.ChangeType.REMOVED.equals(change.getType())) {
+            return true;
+        }
+        return StringUtils.endsWith(change.getPath(), JCR_CONTENT_SUFFIX);
+    }
+
+    private boolean hasChangedProperty(ResourceChange change, String propertyName) {
+        return contains(change.getAddedPropertyNames(), propertyName)
+                || contains(change.getChangedPropertyNames(), propertyName)
+                || contains(change.getRemovedPropertyNames(), propertyName);
+    }
+
+    private static boolean contains(Set<String> propertyNames, String propertyName) {
+        return propertyNames != null && propertyNames.contains(propertyName);
+    }
+
     protected void bindResourceBundleProvider(ResourceBundleProvider resourceBundleProvider, Map<String,Object> props){
         resourceBundleProviders.bind(resourceBundleProvider, props);
     }
@@ -23,6 +23,9 @@ import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.jcr.Node;
@@ -32,26 +35,101 @@ import javax.jcr.PropertyIterator;
 import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
 import javax.jcr.Value;
+import org.apache.commons.codec.digest.DigestUtils;
 
 /**
  * Type adapter to convert JCR Nodes to JSON Objects (replacement for deprecated
  * NodeItemWriter.)
+ *
+ * The tree is streamed to the writer node by node. By default the whole tree is written and binary values are
+ * replaced by a placeholder; the depth, the properties written and the binary handling can be configured, and
+ * the writer can be flushed periodically so large trees reach e.g. a servlet response in chunks.
  */
 public class JcrJsonAdapter extends TypeAdapter<Node> {
 
+    /**
+     * How binary property values are written.
+     */
+    public enum BinaryMode {
+        /** Write "(binary value)" in place of the value. */
+        PLACEHOLDER,
+        /** Write the SHA-1 hex digest of the value. */
+        HASH
+    }
+
+    private static final String BINARY_PLACEHOLDER = "(binary value)";
+
+    private int maxDepth = -1;
+
+    private Predicate<String> propertyFilter = name -> true;
+
+    private BinaryMode binaryMode = BinaryMode.PLACEHOLDER;
+
+    private int flushInterval = 0;
+
+    /** Nodes written, for the flush interval. */
+    private final AtomicLong nodeCount = new AtomicLong();
+
+    /**
+     * @param maxDepth the depth below which nodes are written as empty objects, where the node being written is at
+     *                 depth 0; a negative value writes the whole tree
+     * @return this adapter
+     */
+    public JcrJsonAdapter withMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * @param propertyFilter accepts the names of the properties to write
+     * @return this adapter
+     */
+    public JcrJsonAdapter withPropertyFilter(Predicate<String> propertyFilter) {
+        this.propertyFilter = propertyFilter;
+        return this;
+    }
+
+    /**
+     * @param binaryMode how binary values are written
+     * @return this adapter
+     */
+    public JcrJsonAdapter withBinaryMode(BinaryMode binaryMode) {
+        this.binaryMode = binaryMode;
+        return this;
+    }
+
+    /**
+     * @param flushInterval the number of nodes after which the writer is flushed; 0 never flushes
+     * @return this adapter
+     */
+    public JcrJsonAdapter withFlushInterval(int flushInterval) {
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
     @Override
     public void write(JsonWriter writer, Node t) throws IOException {
         if (t != null) {
-            try {
-                writer.beginObject();
+            write(writer, t, 0);
+        }
+    }
+
+    private void write(JsonWriter writer, Node t, int depth) throws IOException {
+        try {
+            writer.beginObject();
+            if (maxDepth < 0 || depth < maxDepth) {
                 for (PropertyIterator pi = t.getProperties(); pi.hasNext();) {
                     Property p = (Property) pi.next();
+                    if (!propertyFilter.test(p.getName())) {
+                        continue;
+                    }
                     writer.name(p.getName());
                     if (p.isMultiple()) {
                         writer.beginArray();
                         for (Value v : p.getValues()) {
                             writeValue(writer, v);
                         }
+                        writer.endArray();
                     } else {
                         writeValue(writer, p.getValue());
                     }
@@ -59,20 +137,31 @@ public class JcrJsonAdapter extends TypeAdapter<Node> {
                 for (NodeIterator ni = t.getNodes(); ni.hasNext();) {
                     Node child = ni.nextNode();
                     writer.name(child.getName());
-                    write(writer, child);
+                    write(writer, child, depth + 1);
                 }
-                writer.endObject();
-            } catch (RepositoryException ex) {
-                Logger.getLogger(JcrJsonAdapter.class.getName()).log(Level.SEVERE, null, ex);
-                throw new IOException(ex);
             }
+            writer.endObject();
+        } catch (RepositoryException ex) {
+            Logger.getLogger(JcrJsonAdapter.class.getName()).log(Level.SEVERE, null, ex);
+            throw new IOException(ex);
+        }
+
+        final long written = nodeCount.incrementAndGet();
+        if (flushInterval > 0 && written % flushInterval == 0) {
+            writer.flush();
         }
     }
 
     private void writeValue(JsonWriter writer, Value v) throws IOException, RepositoryException {
         switch (v.getType()) {
             case PropertyType.BINARY:
-                writer.value("(binary value)");
+                if (binaryMode == BinaryMode.HASH) {
+                    try (InputStream stream = v.getBinary().getStream()) {
+                        writer.value(DigestUtils.sha1Hex(stream));
+                    }
+                } else {
+                    writer.value(BINARY_PLACEHOLDER);
+                }
                 break;
             case PropertyType.BOOLEAN:
                 writer.value(v.getBoolean());
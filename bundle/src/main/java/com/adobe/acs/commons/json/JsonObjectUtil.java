@@ -65,6 +65,19 @@ public class JsonObjectUtil {
     }
 
     public static <T> JsonObject toJsonObject(T source, int depth) {
+        Node node = null;
+        if (source instanceof Node) {
+            node = (Node) source;
+        } else if (source instanceof Resource) {
+            node = ((Resource) source).adaptTo(Node.class);
+        }
+        if (node != null && depth >= 0) {
+            // Only read as much of the tree as will be kept rather than pruning a complete dump
+            Gson gson = new GsonBuilder().registerTypeHierarchyAdapter(Node.class,
+                    new JcrJsonAdapter().withMaxDepth(depth)).create();
+            return gson.toJsonTree(node).getAsJsonObject();
+        }
+
         JsonObject obj = toJsonObject(source);
         pruneToDepth(obj, depth);
         return obj;
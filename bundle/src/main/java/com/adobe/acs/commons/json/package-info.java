@@ -20,5 +20,5 @@
 /**
  * JSON Utilities
  */
-@aQute.bnd.annotation.Version("2.0.0")
+@aQute.bnd.annotation.Version("2.1.0")
 package com.adobe.acs.commons.json;
\ No newline at end of file
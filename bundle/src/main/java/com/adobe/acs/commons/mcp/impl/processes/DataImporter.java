@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import javax.jcr.RepositoryException;
@@ -57,6 +58,8 @@ public class DataImporter extends ProcessDefinition {
 
     private static final Logger LOG = LoggerFactory.getLogger(DataImporter.class);
     private static final String PATH = "path";
+    // rows parsed and queued at a time when the spreadsheet is streamed
+    private static final int STREAMING_BATCH_SIZE = 500;
 
     public enum MergeMode {
         CREATE_AND_OVERWRITE_PROPERTIES(true, true, true),
@@ -124,7 +127,8 @@ public class DataImporter extends ProcessDefinition {
 
     @FormField(
             name = "Import in sorted order",
-            description = "If checked, nodes will be imported in the order determined by their paths",
+            description = "If checked, nodes will be imported in the order determined by their paths. "
+                    + "Sorting needs the whole spreadsheet in memory; uncheck it to stream very large spreadsheets row by row",
             component = CheckboxComponent.class,
             options = "checked"
     )
@@ -175,14 +179,18 @@ public class DataImporter extends ProcessDefinition {
     @Override
     public void buildProcess(ProcessInstance instance, ResourceResolver rr) throws LoginException, RepositoryException {
         try {
-            data = new Spreadsheet(enableHeaderNameConversion, importFile, PATH);
             if (presortData) {
+                data = new Spreadsheet(enableHeaderNameConversion, importFile, PATH);
                 Collections.sort(data.getDataRowsAsCompositeVariants(), (a, b) -> b.get(PATH).toString().compareTo(a.get(PATH).toString()));
+                instance.getInfo().setDescription("Import " + data.getFileName() + " (" + data.getRowCount() + " rows)");
+            } else {
+                // rows are parsed while they are imported
+                data = Spreadsheet.stream(enableHeaderNameConversion, importFile, PATH);
+                instance.getInfo().setDescription("Import " + data.getFileName() + " (streamed)");
             }
-            instance.getInfo().setDescription("Import " + data.getFileName() + " (" + data.getRowCount() + " rows)");
         } catch (IOException ex) {
             LOG.error("Unable to process import", ex);
-            instance.getInfo().setDescription("Import " + data.getFileName() + " (failed)");
+            instance.getInfo().setDescription("Import " + importFile.getFileName() + " (failed)");
             throw new RepositoryException("Unable to parse input file", ex);
         }
         instance.defineCriticalAction("Import Data", rr, this::importData);
@@ -197,24 +205,53 @@ public class DataImporter extends ProcessDefinition {
     }
 
     private void importData(ActionManager manager) {
-        data.getDataRowsAsCompositeVariants().forEach((row) -> {
-            manager.deferredWithResolver(rr -> {
-                String path = row.get(PATH).toString();
-                Resource r = rr.getResource(path);
-                if (r == null) {
-                    handleMissingNode(path, rr, row);
-                } else if (mergeMode.update) {
-                    updateMetadata(rr, row);
-                } else {
-                    incrementCount(skippedNodes, 1);
-                    if (detailedReport) {
-                        trackActivity(path, "Skipped", null);
-                    }
+        if (presortData) {
+            data.getDataRowsAsCompositeVariants().forEach(row -> importRow(manager, row));
+        } else {
+            manager.onFinish(this::closeData);
+            importNextBatch(manager);
+        }
+    }
+
+    /**
+     * Parse and queue the next batch of rows of a streamed spreadsheet. Parsing of the following batch is queued
+     * behind the rows, so only a couple of batches are in memory regardless of the size of the spreadsheet.
+     */
+    private void importNextBatch(ActionManager manager) {
+        Iterator<Map<String, CompositeVariant>> rows = data.getDataRowIterator();
+        for (int i = 0; i < STREAMING_BATCH_SIZE && rows.hasNext(); i++) {
+            importRow(manager, rows.next());
+        }
+        if (rows.hasNext()) {
+            manager.deferredWithResolver(rr -> importNextBatch(manager));
+        }
+    }
+
+    private void importRow(ActionManager manager, Map<String, CompositeVariant> row) {
+        manager.deferredWithResolver(rr -> {
+            String path = row.get(PATH).toString();
+            Resource r = rr.getResource(path);
+            if (r == null) {
+                handleMissingNode(path, rr, row);
+            } else if (mergeMode.update) {
+                updateMetadata(rr, row);
+            } else {
+                incrementCount(skippedNodes, 1);
+                if (detailedReport) {
+                    trackActivity(path, "Skipped", null);
                 }
-            });
+            }
         });
     }
 
+    private void closeData() {
+        try {
+            data.close();
+        } catch (IOException ex) {
+            LOG.warn("Unable to remove the temporary copy of {}", data.getFileName(), ex);
+        }
+    }
+
     public void handleMissingNode(String path, ResourceResolver rr, Map<String, CompositeVariant> row) throws PersistenceException {
         if (mergeMode.create) {
             if (!dryRunMode) {
@@ -22,12 +22,10 @@ package com.adobe.acs.commons.models.injectors.impl;
 import com.adobe.acs.commons.models.injectors.annotation.SharedValueMapValue;
 import com.adobe.acs.commons.util.impl.ReflectionUtil;
 import com.adobe.acs.commons.wcm.PageRootProvider;
-import com.adobe.acs.commons.wcm.properties.shared.SharedComponentProperties;
-import com.day.cq.commons.jcr.JcrConstants;
+import com.adobe.acs.commons.wcm.properties.shared.impl.SharedComponentPropertiesCache;
 import com.day.cq.wcm.api.Page;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ValueMap;
-import org.apache.sling.api.wrappers.ValueMapDecorator;
 import org.apache.sling.models.spi.DisposalCallbackRegistry;
 import org.apache.sling.models.spi.Injector;
 import org.osgi.framework.Constants;
@@ -36,8 +34,6 @@ import org.osgi.service.component.annotations.Reference;
 
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Type;
-import java.util.HashMap;
-import java.util.Map;
 
 import static com.adobe.acs.commons.models.injectors.impl.InjectorUtils.getResource;
 
@@ -91,31 +87,24 @@ public class SharedValueMapValueInjector implements Injector {
      * Get shared properties ValueMap the current resource.
      */
     protected ValueMap getSharedProperties(Page pageRoot, Resource resource) {
-        String sharedPropsPath = pageRoot.getPath() + "/" + JcrConstants.JCR_CONTENT + "/" + SharedComponentProperties.NN_SHARED_COMPONENT_PROPERTIES + "/" + resource.getResourceType();
-        Resource sharedPropsResource = resource.getResourceResolver().getResource(sharedPropsPath);
-        return sharedPropsResource != null ? sharedPropsResource.getValueMap() : ValueMapDecorator.EMPTY;
+        return SharedComponentPropertiesCache.get(resource.getResourceResolver())
+                .getSharedProperties(pageRoot.getPath(), resource.getResourceType());
     }
 
     /**
      * Get global properties ValueMap for the current resource.
      */
     protected ValueMap getGlobalProperties(Page pageRoot, Resource resource) {
-        String globalPropsPath = pageRoot.getPath() + "/" + JcrConstants.JCR_CONTENT + "/" + SharedComponentProperties.NN_GLOBAL_COMPONENT_PROPERTIES;
-        Resource globalPropsResource = resource.getResourceResolver().getResource(globalPropsPath);
-        return globalPropsResource != null ? globalPropsResource.getValueMap() : ValueMapDecorator.EMPTY;
+        return SharedComponentPropertiesCache.get(resource.getResourceResolver())
+                .getGlobalProperties(pageRoot.getPath());
     }
 
     /**
      * Get merged properties ValueMap for the current resource.
      */
     protected ValueMap getMergedProperties(Page pageRoot, Resource resource) {
-        Map<String, Object> mergedProperties = new HashMap<String, Object>();
-
-        mergedProperties.putAll(getGlobalProperties(pageRoot, resource));
-        mergedProperties.putAll(getSharedProperties(pageRoot, resource));
-        mergedProperties.putAll(resource.getValueMap());
-
-        return new ValueMapDecorator(mergedProperties);
+        return SharedComponentPropertiesCache.get(resource.getResourceResolver())
+                .getMergedProperties(pageRoot.getPath(), resource.getResourceType(), resource.getValueMap());
     }
 
 }
@@ -20,9 +20,11 @@
 
 package com.adobe.acs.commons.replication.dispatcher.impl;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -166,6 +168,10 @@ public class DispatcherFlushRulesImpl implements Preprocessor {
 
         try (ResourceResolver resourceResolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)){
 
+            // Collect the paths of all rules, so they are flushed in one go; the flusher dedupes them
+            final List<String> hierarchicalFlushPaths = new ArrayList<>();
+            final List<String> resourceOnlyFlushPaths = new ArrayList<>();
+
             // Flush full content hierarchies
             for (final Map.Entry<Pattern, String[]> entry : this.hierarchicalFlushRules.entrySet()) {
                 final Pattern pattern = entry.getKey();
@@ -177,9 +183,7 @@ public class DispatcherFlushRulesImpl implements Preprocessor {
     
                         log.debug("Requesting hierarchical flush of associated path: {} ~> {}", path,
                                 flushPath);
-                        dispatcherFlusher.flush(resourceResolver, flushActionType, false,
-                                HIERARCHICAL_FILTER,
-                                flushPath);
+                        hierarchicalFlushPaths.add(flushPath);
                     }
                 }
             }
@@ -194,13 +198,23 @@ public class DispatcherFlushRulesImpl implements Preprocessor {
                         final String flushPath = m.replaceAll(value);
     
                         log.debug("Requesting ResourceOnly flush of associated path: {} ~> {}", path, entry.getValue());
-                        dispatcherFlusher.flush(resourceResolver, flushActionType, false,
-                                RESOURCE_ONLY_FILTER,
-                                flushPath);
+                        resourceOnlyFlushPaths.add(flushPath);
                     }
                 }
             }
 
+            if (!hierarchicalFlushPaths.isEmpty()) {
+                dispatcherFlusher.flush(resourceResolver, flushActionType, false,
+                        HIERARCHICAL_FILTER,
+                        hierarchicalFlushPaths.toArray(new String[hierarchicalFlushPaths.size()]));
+            }
+
+            if (!resourceOnlyFlushPaths.isEmpty()) {
+                dispatcherFlusher.flush(resourceResolver, flushActionType, false,
+                        RESOURCE_ONLY_FILTER,
+                        resourceOnlyFlushPaths.toArray(new String[resourceOnlyFlushPaths.size()]));
+            }
+
         } catch (LoginException e) {
             log.error("Error issuing  dispatcher flush rules do to repository login exception: {}", e.getMessage());
         }
@@ -30,31 +30,92 @@ import com.day.cq.replication.ReplicationException;
 import com.day.cq.replication.ReplicationOptions;
 import com.day.cq.replication.ReplicationResult;
 import com.day.cq.replication.Replicator;
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jcr.Session;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ACS AEM Commons - Dispatcher Flusher
  * Service used to issue flush requests to enabled Dispatcher Flush Agents.
  */
 @Component(service=DispatcherFlusher.class)
+@Designate(ocd=DispatcherFlusherImpl.Config.class)
 public class DispatcherFlusherImpl implements DispatcherFlusher {
     private static final Logger log = LoggerFactory.getLogger(DispatcherFlusherImpl.class);
 
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    @ObjectClassDefinition(name = "ACS AEM Commons - Dispatcher Flusher",
+            description = "Service used to issue flush requests to enabled Dispatcher Flush Agents.")
+    public @interface Config {
+        int DEFAULT_MAX_PARALLEL_AGENTS = 4;
+
+        @AttributeDefinition(name = "Max parallel agents",
+                description = "Maximum number of flush agents sent flush requests at the same time. "
+                        + "1 flushes the agents one after the other. Default is 4.",
+                defaultValue = "" + DEFAULT_MAX_PARALLEL_AGENTS)
+        int max_parallel_agents() default DEFAULT_MAX_PARALLEL_AGENTS;
+    }
+
     @Reference
     private Replicator replicator;
 
     @Reference
     private AgentManager agentManager;
 
+    /** Flushes independent agents in parallel; null if agents are flushed one after the other */
+    private ExecutorService agentExecutor;
+
+    @Activate
+    protected void activate(Config config) {
+        final int maxParallelAgents = config.max_parallel_agents();
+        if (maxParallelAgents > 1) {
+            agentExecutor = Executors.newFixedThreadPool(maxParallelAgents, runnable -> {
+                final Thread thread = new Thread(runnable, "acs-commons-dispatcher-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        if (agentExecutor != null) {
+            agentExecutor.shutdown();
+            try {
+                if (!agentExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    log.warn("Dispatcher flush requests still running after {} seconds; interrupting them",
+                            SHUTDOWN_TIMEOUT_SECONDS);
+                    agentExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                agentExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            agentExecutor = null;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -84,9 +145,55 @@ public class DispatcherFlusherImpl implements DispatcherFlusher {
                                                      final boolean synchronous,
                                                      final AgentFilter agentFilter,
                                                      final String... paths) throws ReplicationException {
-        final ReplicationOptions options = new ReplicationOptions();
+        final String[] flushPaths = getFlushPaths(agentFilter, paths);
         final ReplicationResultListener listener = new ReplicationResultListener();
 
+        final ExecutorService executor = this.agentExecutor;
+        final Agent[] agents = executor == null ? new Agent[0] : getAgents(agentFilter);
+
+        if (agents.length < 2) {
+            // The Replicator handles the agent, if any, itself
+            replicate(resourceResolver.adaptTo(Session.class), actionType, synchronous, agentFilter, listener,
+                    flushPaths);
+        } else {
+            // Agents are independent, so a slow or unreachable dispatcher must not hold up the others.
+            // JCR sessions are not thread-safe, so every agent is flushed with its own clone of the resolver.
+            final List<Future<Void>> futures = new ArrayList<>();
+            try {
+                for (final Agent agent : agents) {
+                    final AgentFilter singleAgentFilter = candidate -> agent.getId().equals(candidate.getId())
+                            && agentFilter.isIncluded(candidate);
+                    final ResourceResolver agentResourceResolver = cloneResourceResolver(resourceResolver);
+                    futures.add(executor.submit(() -> {
+                        try {
+                            replicate(agentResourceResolver.adaptTo(Session.class), actionType, synchronous,
+                                    singleAgentFilter, listener, flushPaths);
+                        } finally {
+                            agentResourceResolver.close();
+                        }
+                        return null;
+                    }));
+                }
+            } finally {
+                awaitAll(futures);
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            for (final Map.Entry<Agent, Long> entry : listener.getLatencies().entrySet()) {
+                log.debug("Dispatcher Flush of {} path(s) via agent [ {} ] took {} ms", flushPaths.length,
+                        entry.getKey().getId(), entry.getValue());
+            }
+        }
+
+        return listener.getResults();
+    }
+
+    private void replicate(final Session session, final ReplicationActionType actionType, final boolean synchronous,
+                           final AgentFilter agentFilter, final ReplicationResultListener listener,
+                           final String... paths) throws ReplicationException {
+        final ReplicationOptions options = new ReplicationOptions();
+
         options.setFilter(agentFilter);
         options.setSynchronous(synchronous);
         options.setSuppressStatusUpdate(true);
@@ -101,11 +208,81 @@ public class DispatcherFlusherImpl implements DispatcherFlusher {
                 log.debug(" > Replication Action Type: {}", actionType.name());
             }
 
-            replicator.replicate(resourceResolver.adaptTo(Session.class),
-                    actionType, path, options);
+            replicator.replicate(session, actionType, path, options);
         }
+    }
 
-        return listener.getResults();
+    private ResourceResolver cloneResourceResolver(final ResourceResolver resourceResolver)
+            throws ReplicationException {
+        try {
+            return resourceResolver.clone(null);
+        } catch (LoginException e) {
+            throw new ReplicationException("Could not clone the resource resolver to flush the dispatcher", e);
+        }
+    }
+
+    private void awaitAll(final List<Future<Void>> futures) throws ReplicationException {
+        ReplicationException failure = null;
+        for (final Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ReplicationException("Interrupted while waiting for the dispatcher flush agents", e);
+            } catch (ExecutionException e) {
+                // Wait for the remaining agents before reporting the first failure
+                if (failure == null) {
+                    failure = e.getCause() instanceof ReplicationException
+                            ? (ReplicationException) e.getCause()
+                            : new ReplicationException("Dispatcher flush failed", e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Removes duplicate paths. For hierarchical flushes paths below another flushed path are dropped too, as
+     * the dispatcher invalidates everything below a flushed path.
+     *
+     * @param agentFilter the filter selecting the agents to flush
+     * @param paths the requested paths
+     * @return the paths to flush, in the requested order
+     */
+    static String[] getFlushPaths(final AgentFilter agentFilter, final String... paths) {
+        final Set<String> unique = new LinkedHashSet<>();
+        for (final String path : paths) {
+            if (path != null) {
+                unique.add(path);
+            }
+        }
+
+        if (!(agentFilter instanceof DispatcherFlushFilter)
+                || !DispatcherFlushFilter.FlushType.Hierarchical.equals(
+                        ((DispatcherFlushFilter) agentFilter).getFlushType())) {
+            return unique.toArray(new String[unique.size()]);
+        }
+
+        final List<String> collapsed = new ArrayList<>();
+        for (final String path : unique) {
+            if (!hasAncestorIn(path, unique)) {
+                collapsed.add(path);
+            }
+        }
+        return collapsed.toArray(new String[collapsed.size()]);
+    }
+
+    private static boolean hasAncestorIn(final String path, final Set<String> paths) {
+        int index = path.lastIndexOf('/');
+        while (index > 0) {
+            if (paths.contains(path.substring(0, index))) {
+                return true;
+            }
+            index = path.lastIndexOf('/', index - 1);
+        }
+        return false;
     }
 
     /**
@@ -26,18 +26,25 @@ import com.day.cq.replication.ReplicationListener;
 import com.day.cq.replication.ReplicationLog;
 import com.day.cq.replication.ReplicationResult;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Replication Listener that stores replication results for a series of agents.
+ * Replication Listener that stores replication results and latencies for a series of agents.
+ * Agents may be replicated to concurrently.
  */
 public class ReplicationResultListener implements ReplicationListener {
 
-    private final Map<Agent, ReplicationResult> results = new HashMap<Agent, ReplicationResult>();
+    private final Map<Agent, ReplicationResult> results = new ConcurrentHashMap<Agent, ReplicationResult>();
+
+    private final Map<Agent, Long> latencies = new ConcurrentHashMap<Agent, Long>();
+
+    /** Start of the replication currently running per agent id; an agent handles one action at a time */
+    private final Map<String, Long> starts = new ConcurrentHashMap<String, Long>();
 
     public final void onStart(final Agent agent, final ReplicationAction action) {
-        // no-op
+        this.starts.put(agent.getId(), System.nanoTime());
     }
 
     public final void onMessage(final ReplicationLog.Level level, final String message) {
@@ -45,11 +52,18 @@ public class ReplicationResultListener implements ReplicationListener {
     }
 
     public final void onEnd(final Agent agent, final ReplicationAction action, final ReplicationResult result) {
-        this.results.put(agent, result);
+        if (result != null) {
+            this.results.put(agent, result);
+        }
+
+        final Long start = this.starts.remove(agent.getId());
+        if (start != null) {
+            this.latencies.merge(agent, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), Long::sum);
+        }
     }
 
     public final void onError(final Agent agent, final ReplicationAction action, final Exception error) {
-        // no-op
+        this.starts.remove(agent.getId());
     }
 
     /**
@@ -60,4 +74,13 @@ public class ReplicationResultListener implements ReplicationListener {
     public final Map<Agent, ReplicationResult> getResults() {
         return this.results;
     }
+
+    /**
+     * Gets the time spent replicating, per agent.
+     *
+     * @return the Mapped total milliseconds between the start and the end of the replications per Agent
+     */
+    public final Map<Agent, Long> getLatencies() {
+        return this.latencies;
+    }
 }
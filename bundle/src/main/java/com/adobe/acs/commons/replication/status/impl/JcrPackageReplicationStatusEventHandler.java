@@ -28,6 +28,10 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -41,6 +45,7 @@ import org.apache.jackrabbit.vault.packaging.JcrPackageDefinition;
 import org.apache.jackrabbit.vault.packaging.PackageException;
 import org.apache.jackrabbit.vault.packaging.Packaging;
 import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
@@ -65,12 +70,14 @@ import org.osgi.service.metatype.annotations.Option;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.adobe.acs.commons.fam.ThrottledTaskRunner;
 import com.adobe.acs.commons.packaging.PackageHelper;
 import com.adobe.acs.commons.replication.status.ReplicationStatusManager;
 import com.adobe.acs.commons.util.ParameterUtil;
 import com.day.cq.replication.ReplicationAction;
 import com.day.cq.replication.ReplicationEvent;
 import com.day.cq.replication.ReplicationStatus;
+import com.google.common.collect.Lists;
 
 @Component( immediate = true,
         configurationPolicy = ConfigurationPolicy.REQUIRE, property= {
@@ -141,6 +148,19 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
                         )
                 })
         String replicatedat();
+
+        @AttributeDefinition(name = "Batch Size",
+                description = "The number of package paths to update per batch. Packages with more paths are updated in "
+                        + "batches which run in parallel and are committed individually, so a retried job only processes "
+                        + "the batches which did not complete yet. [ Default: 1000 ]",
+                defaultValue = "" + DEFAULT_BATCH_SIZE)
+        int batch_size();
+
+        @AttributeDefinition(name = "Batch Timeout",
+                description = "The number of seconds to wait for all batches of a package. The job fails once this "
+                        + "elapses and is retried with the batches which did not complete yet. [ Default: 600 ]",
+                defaultValue = "" + DEFAULT_BATCH_TIMEOUT)
+        int batch_timeout();
     }
 
     public static final String PROP_REPLICATION_STATUS_NODE_TYPES = "nodetypes";
@@ -167,6 +187,9 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
     @Reference
     private JobManager jobManager;
 
+    @Reference
+    private ThrottledTaskRunner throttledTaskRunner;
+
     private boolean isLeader = false;
 
     // Previously "Package Replication"
@@ -181,6 +204,14 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
     private ReplicatedAt replicatedAt = DEFAULT_REPLICATED_AT;
     public static final String PROP_REPLICATED_AT = "replicatedat";
 
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    public static final String PROP_BATCH_SIZE = "batch.size";
+
+    private static final int DEFAULT_BATCH_TIMEOUT = 600;
+    private int batchTimeout = DEFAULT_BATCH_TIMEOUT;
+    public static final String PROP_BATCH_TIMEOUT = "batch.timeout";
+
     private static final String SERVICE_NAME = "package-replication-status-event-listener";
     private static final Map<String, Object> AUTH_INFO;
 
@@ -235,7 +266,7 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
             }
             
             try {
-                setReplicationStatus(jcrPackage, replicatedBy, resourceResolver);
+                setReplicationStatus(job, jcrPackage, replicatedBy, resourceResolver);
             } finally {
                 // Close  package when we are done.
                 jcrPackage.close();
@@ -269,8 +300,7 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
     }
     
     
-    private void setReplicationStatus(JcrPackage jcrPackage, String replicatedBy, ResourceResolver resourceResolver) throws RepositoryException {
-        final List<Resource> resources = new ArrayList<>();
+    private void setReplicationStatus(Job job, JcrPackage jcrPackage, String replicatedBy, ResourceResolver resourceResolver) throws RepositoryException {
         final String packageId;
         try {
             JcrPackageDefinition packageDefinition = jcrPackage.getDefinition();
@@ -283,21 +313,123 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
             throw new RepositoryException("Could not determine the ID for just replicated package (package invalid?).", e);
         } 
         
+        final List<String> packagePaths;
         try {
-            for (final String packagePath : packageHelper.getContents(jcrPackage)) {
-                final Resource resource = resourceResolver.getResource(packagePath);
-                if (this.accept(resource)) {
-                    resources.add(resource);
-                }
-            }
+            packagePaths = packageHelper.getContents(jcrPackage);
         } catch (RepositoryException|PackageException|IOException e) {
             throw new RepositoryException("Could not retrieve the Packages contents for package '" + packageId + "'", e);
         }
+
+        final Calendar replicatedAtValue;
+        try {
+            replicatedAtValue = getJcrPackageLastModified(jcrPackage);
+        } catch (IOException e) {
+            throw new RepositoryException("Could not determine the replicated at value for package '" + packageId + "'", e);
+        }
+
+        final List<List<String>> batches = Lists.partition(packagePaths, batchSize);
+        if (batches.size() <= 1) {
+            updateReplicationStatus(resourceResolver, packageId, replicatedBy, replicatedAtValue, packagePaths);
+            return;
+        }
+
+        final ReplicationStatusCheckpoint checkpoint;
+        try {
+            checkpoint = ReplicationStatusCheckpoint.open(resourceResolver, job.getId(), batchSize);
+        } catch (PersistenceException e) {
+            throw new RepositoryException("Could not create the replication status checkpoint for package '" + packageId + "'", e);
+        }
+        if (checkpoint.getCompletedCount() > 0) {
+            log.info("Resuming Replication Status Update for JCR Package: {}, {} of {} batches already completed",
+                    packageId, checkpoint.getCompletedCount(), batches.size());
+        }
+
+        final List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < batches.size(); i++) {
+            if (checkpoint.isCompleted(i)) {
+                continue;
+            }
+            final int batch = i;
+            final List<String> batchPaths = batches.get(i);
+            final CompletableFuture<Void> result = new CompletableFuture<>();
+            results.add(result);
+
+            scheduleWork(() -> {
+                // every batch commits with its own resolver so batches can run in parallel
+                try (ResourceResolver batchResourceResolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)) {
+                    updateReplicationStatus(batchResourceResolver, packageId, replicatedBy, replicatedAtValue, batchPaths);
+                    checkpoint.complete(batchResourceResolver, batch);
+                    result.complete(null);
+                } catch (LoginException | RepositoryException | PersistenceException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+
+        RepositoryException failure = null;
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(batchTimeout);
+        for (final CompletableFuture<Void> result : results) {
+            try {
+                result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = new RepositoryException("Could not update the replication status of all batches of package '" + packageId + "'", e.getCause());
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            } catch (TimeoutException e) {
+                // batches still queued or running complete on their own; the retry skips them once checkpointed
+                final RepositoryException timeout = new RepositoryException("Timed out updating the replication status of package '" + packageId + "' after " + batchTimeout + " seconds");
+                if (failure != null) {
+                    timeout.addSuppressed(failure);
+                }
+                failure = timeout;
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new RepositoryException("Interrupted updating the replication status of package '" + packageId + "'", e);
+                break;
+            }
+        }
+
+        // keep the checkpoint while the job is going to be retried
+        if (failure == null || job.getRetryCount() >= job.getNumberOfRetries()) {
+            try {
+                resourceResolver.refresh();
+                checkpoint.remove(resourceResolver);
+            } catch (PersistenceException e) {
+                log.warn("Could not remove the replication status checkpoint for package '{}'", packageId, e);
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        log.info("Updated Replication Status for JCR Package: {} in {} batches", packageId, batches.size());
+    }
+
+    private void scheduleWork(final Runnable work) {
+        if (throttledTaskRunner.isRunning()) {
+            throttledTaskRunner.scheduleWork(work);
+        } else {
+            work.run();
+        }
+    }
+
+    private void updateReplicationStatus(ResourceResolver resourceResolver, String packageId, String replicatedBy,
+                                         Calendar replicatedAtValue, List<String> packagePaths) throws RepositoryException {
+        final List<Resource> resources = new ArrayList<>();
+        for (final String packagePath : packagePaths) {
+            final Resource resource = resourceResolver.getResource(packagePath);
+            if (this.accept(resource)) {
+                resources.add(resource);
+            }
+        }
         try {
             if (resources.size() > 0) {
                 replicationStatusManager.setReplicationStatus(resourceResolver,
                         replicatedBy,
-                        getJcrPackageLastModified(jcrPackage),
+                        replicatedAtValue,
                         ReplicationStatusManager.Status.ACTIVATED,
                         resources.toArray(new Resource[resources.size()]));
 
@@ -470,6 +602,9 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
             this.replicatedAt = ReplicatedAt.PACKAGE_LAST_MODIFIED;
         }
 
+        this.batchSize = Math.max(1, PropertiesUtil.toInteger(config.get(PROP_BATCH_SIZE), DEFAULT_BATCH_SIZE));
+        this.batchTimeout = Math.max(1, PropertiesUtil.toInteger(config.get(PROP_BATCH_TIMEOUT), DEFAULT_BATCH_TIMEOUT));
+
         final String[] nodeTypeAndPathRestrictions = PropertiesUtil.toStringArray(config.get(PROP_REPLICATION_STATUS_NODE_TYPES),
                 DEFAULT_REPLICATION_STATUS_NODE_TYPES);
 
@@ -488,6 +623,8 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
         }
         log.info("Package Replication Status - Replicated By Override User: [ {} ]", this.replicatedByOverride);
         log.info("Package Replication Status - Replicated At: [ {} ]", this.replicatedAt.toString());
+        log.info("Package Replication Status - Batch Size: [ {} ]", this.batchSize);
+        log.info("Package Replication Status - Batch Timeout: [ {} ]", this.batchTimeout);
         log.info("Package Replication Status - Node Types and Path Restrictions: [ {} ]", pathRestrictionByNodeType);
     }
 
@@ -0,0 +1,137 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.replication.status.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.apache.jackrabbit.JcrConstants;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+
+/**
+ * Tracks which batches of a package's contents already had their replication status updated by a job, so a retry
+ * of a failed job only processes the remaining batches.
+ * <p>
+ * Each completed batch is recorded as its own child node, so batches running in parallel never modify the same item.
+ */
+final class ReplicationStatusCheckpoint {
+    static final String ROOT_PATH = "/var/acs-commons/replication-status/package-checkpoints";
+
+    private static final String PN_BATCH_SIZE = "batchSize";
+    private static final String PN_JOB_ID = "jobId";
+    private static final String NN_BATCH_PREFIX = "batch-";
+    private static final String NT_SLING_FOLDER = "sling:Folder";
+
+    private final String path;
+    private final Set<Integer> completedBatches;
+
+    private ReplicationStatusCheckpoint(final String path, final Set<Integer> completedBatches) {
+        this.path = path;
+        this.completedBatches = Collections.unmodifiableSet(completedBatches);
+    }
+
+    /**
+     * Reads the checkpoint of a job, creating it if this is the job's first attempt. A checkpoint recorded with a
+     * different batch size is discarded since its batches no longer line up with the current ones.
+     *
+     * @param resourceResolver the resource resolver
+     * @param jobId the id of the job, stable across retries
+     * @param batchSize the number of package paths per batch
+     * @return the checkpoint
+     * @throws PersistenceException if the checkpoint cannot be created
+     */
+    static ReplicationStatusCheckpoint open(final ResourceResolver resourceResolver, final String jobId,
+                                            final int batchSize) throws PersistenceException {
+        final String path = ROOT_PATH + "/" + DigestUtils.sha1Hex(jobId);
+        final Set<Integer> completedBatches = new HashSet<>();
+
+        Resource resource = resourceResolver.getResource(path);
+
+        if (resource != null && resource.getValueMap().get(PN_BATCH_SIZE, 0) == batchSize) {
+            for (final Resource batch : resource.getChildren()) {
+                if (StringUtils.startsWith(batch.getName(), NN_BATCH_PREFIX)) {
+                    completedBatches.add(NumberUtils.toInt(StringUtils.removeStart(batch.getName(), NN_BATCH_PREFIX), -1));
+                }
+            }
+        } else {
+            if (resource != null) {
+                resourceResolver.delete(resource);
+            }
+
+            final Map<String, Object> properties = new HashMap<>();
+            properties.put(JcrConstants.JCR_PRIMARYTYPE, JcrConstants.NT_UNSTRUCTURED);
+            properties.put(PN_BATCH_SIZE, batchSize);
+            properties.put(PN_JOB_ID, jobId);
+
+            ResourceUtil.getOrCreateResource(resourceResolver, path, properties, NT_SLING_FOLDER, true);
+        }
+
+        return new ReplicationStatusCheckpoint(path, completedBatches);
+    }
+
+    boolean isCompleted(final int batch) {
+        return completedBatches.contains(batch);
+    }
+
+    int getCompletedCount() {
+        return completedBatches.size();
+    }
+
+    /**
+     * Records a batch as completed and commits.
+     *
+     * @param resourceResolver the resource resolver the batch was processed with
+     * @param batch the index of the batch
+     * @throws PersistenceException if the checkpoint cannot be saved
+     */
+    void complete(final ResourceResolver resourceResolver, final int batch) throws PersistenceException {
+        final Resource resource = resourceResolver.getResource(path);
+
+        if (resource != null && resource.getChild(NN_BATCH_PREFIX + batch) == null) {
+            resourceResolver.create(resource, NN_BATCH_PREFIX + batch,
+                    Collections.singletonMap(JcrConstants.JCR_PRIMARYTYPE, (Object) JcrConstants.NT_UNSTRUCTURED));
+            resourceResolver.commit();
+        }
+    }
+
+    /**
+     * Removes the checkpoint once the job is done with it.
+     *
+     * @param resourceResolver the resource resolver
+     * @throws PersistenceException if the checkpoint cannot be removed
+     */
+    void remove(final ResourceResolver resourceResolver) throws PersistenceException {
+        final Resource resource = resourceResolver.getResource(path);
+
+        if (resource != null) {
+            resourceResolver.delete(resource);
+            resourceResolver.commit();
+        }
+    }
+}
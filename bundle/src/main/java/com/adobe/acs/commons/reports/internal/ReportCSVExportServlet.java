@@ -24,6 +24,7 @@ import static org.apache.sling.api.servlets.ServletResolverConstants.SLING_SERVL
 import static org.apache.sling.api.servlets.ServletResolverConstants.SLING_SERVLET_RESOURCE_TYPES;
 import static org.apache.sling.api.servlets.ServletResolverConstants.SLING_SERVLET_SELECTORS;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.net.URLEncoder;
@@ -47,7 +48,6 @@ import org.slf4j.LoggerFactory;
 
 import com.adobe.acs.commons.reports.api.ReportCellCSVExporter;
 import com.adobe.acs.commons.reports.api.ReportException;
-import com.adobe.acs.commons.reports.api.ResultsPage;
 import com.adobe.acs.commons.reports.models.QueryReportExecutor;
 import com.day.cq.commons.jcr.JcrConstants;
 import com.day.text.csv.Csv;
@@ -67,6 +67,9 @@ public class ReportCSVExportServlet extends SlingSafeMethodsServlet {
   private static final long serialVersionUID = 2794836639686938093L;
   private static final Logger log = LoggerFactory.getLogger(ReportCSVExportServlet.class);
 
+  // number of rows written between flushes of the response
+  private static final int FLUSH_INTERVAL = 1000;
+
   protected void doGet(@Nonnull SlingHttpServletRequest request, @Nonnull SlingHttpServletResponse response)
       throws ServletException, IOException {
     log.trace("doGet");
@@ -79,7 +82,7 @@ public class ReportCSVExportServlet extends SlingSafeMethodsServlet {
 
     Writer writer = null;
     try {
-      writer = response.getWriter();
+      writer = new BufferedWriter(response.getWriter());
       // initialize the csv
       final Csv csv = new Csv();
       csv.writeInit(writer);
@@ -151,24 +154,26 @@ public class ReportCSVExportServlet extends SlingSafeMethodsServlet {
     executor.setConfiguration(config);
     log.debug("Retrieved executor {}", executor);
 
-    ResultsPage queryResult = executor.getAllResults();
-    List<? extends Object> results = queryResult.getResults();
-    log.debug("Retrieved {} results", results.size());
-
-    for (Object result : results) {
+    // stream the results, so that only the current row is held in memory
+    Iterator<Object> results = executor.getAllResultsIterator();
+    int count = 0;
+    while (results.hasNext()) {
+      Object result = results.next();
       List<String> row = new ArrayList<String>();
       try {
         for (ReportCellCSVExporter exporter : exporters) {
           row.add(exporter.getValue(result));
         }
         csv.writeRow(row.toArray(new String[row.size()]));
-        writer.flush();
+        if (++count % FLUSH_INTERVAL == 0) {
+          writer.flush();
+        }
       } catch (Exception e) {
         log.warn("Exception writing row: " + row, e);
       }
     }
 
-    log.debug("Results written successfully");
+    log.debug("{} results written successfully", count);
 
   }
 }
@@ -25,10 +25,12 @@ import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 
 import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
@@ -75,17 +77,15 @@ public class QueryReportExecutor implements ReportExecutor {
     this.request = request;
   }
 
-  private ResultsPage fetchResults(int limit, int offset) throws ReportException {
+  private NodeIterator executeQuery(boolean paged, int limit, int offset) throws ReportException {
     prepareStatement();
-    ResourceResolver resolver = request.getResourceResolver();
-    Session session = resolver.adaptTo(Session.class);
-    List<Object> results = new ArrayList<>();
+    Session session = request.getResourceResolver().adaptTo(Session.class);
     try {
       QueryManager queryMgr = session.getWorkspace().getQueryManager();
 
       Query query = queryMgr.createQuery(statement, config.getQueryLanguage());
 
-      if (page != -1) {
+      if (paged) {
         log.debug("Fetching results with limit {} and offset {}", limit, offset);
         query.setLimit(limit);
         query.setOffset(offset);
@@ -93,8 +93,18 @@ public class QueryReportExecutor implements ReportExecutor {
         log.debug("Fetching all results");
       }
       QueryResult result = query.execute();
-      NodeIterator nodes = result.getNodes();
+      return result.getNodes();
+    } catch (RepositoryException re) {
+      log.error("Exception executing search results", re);
+      throw new ReportException("Exception executing search results", re);
+    }
+  }
 
+  private ResultsPage fetchResults(int limit, int offset) throws ReportException {
+    ResourceResolver resolver = request.getResourceResolver();
+    List<Object> results = new ArrayList<>();
+    NodeIterator nodes = executeQuery(page != -1, limit, offset);
+    try {
       while (nodes.hasNext()) {
         results.add(resolver.getResource(nodes.nextNode().getPath()));
       }
@@ -110,6 +120,39 @@ public class QueryReportExecutor implements ReportExecutor {
     return fetchResults(Integer.MAX_VALUE, 0);
   }
 
+  /**
+   * Return all of the results as a lazy iterator. Unlike {@link #getAllResults()}
+   * the results are not collected up front, each resource is resolved when the
+   * iterator reaches it, so memory use does not grow with the size of the report.
+   * A result which cannot be resolved is returned as null.
+   * 
+   * @return an iterator over all of the results
+   * @throws ReportException
+   */
+  public Iterator<Object> getAllResultsIterator() throws ReportException {
+    final ResourceResolver resolver = request.getResourceResolver();
+    final NodeIterator nodes = executeQuery(false, Integer.MAX_VALUE, 0);
+    return new Iterator<Object>() {
+      @Override
+      public boolean hasNext() {
+        return nodes.hasNext();
+      }
+
+      @Override
+      public Object next() {
+        if (!nodes.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        try {
+          return resolver.getResource(nodes.nextNode().getPath());
+        } catch (RepositoryException re) {
+          log.warn("Exception reading search result", re);
+          return null;
+        }
+      }
+    };
+  }
+
   @Override
   public String getDetails() throws ReportException {
     Map<String, String> details = new LinkedHashMap<String, String>();
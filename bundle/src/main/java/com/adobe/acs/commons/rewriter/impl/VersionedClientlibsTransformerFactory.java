@@ -76,12 +76,23 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -105,7 +116,11 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
     private static final boolean DEFAULT_DISABLE_VERSIONING = false;
 
     private static final boolean DEFAULT_ENFORCE_MD5 = false;
-    
+
+    private static final boolean DEFAULT_MD5_PREWARM = false;
+
+    private static final int DEFAULT_MD5_PREWARM_THREADS = 2;
+
     @ObjectClassDefinition(name = "ACS AEM Commons - Versioned Clientlibs Transformer Factory",
     description = "Sling Rewriter Transformer Factory to add auto-generated checksums to client library references")
     public @interface Config {
@@ -118,7 +133,17 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
         @AttributeDefinition(name="Enforce MD5", description="Enables a filter which returns a 404 error if the MD5 in the request does not match the expected value",
             defaultValue = ""+DEFAULT_ENFORCE_MD5)
         boolean enforce_md5();
-    
+
+        @AttributeDefinition(name="Pre-warm MD5 Manifest", description="Computes the md5 of all client libraries in the background on activation and "
+            + "whenever a client library is invalidated, so that the rewriter does not compute it on a request thread. Until a library is "
+            + "pre-warmed, its path is left unversioned",
+            defaultValue = ""+DEFAULT_MD5_PREWARM)
+        boolean md5prewarm_enabled();
+
+        @AttributeDefinition(name="Pre-warm Threads", description="Number of threads computing md5 checksums in parallel while pre-warming",
+            defaultValue = ""+DEFAULT_MD5_PREWARM_THREADS)
+        int md5prewarm_threads();
+
     }
 
     private static final String PROP_MD5_CACHE_SIZE = "md5cache.size";
@@ -127,6 +152,13 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
 
     private static final String PROP_ENFORCE_MD5 = "enforce.md5";
 
+    private static final String PROP_MD5_PREWARM = "md5prewarm.enabled";
+
+    private static final String PROP_MD5_PREWARM_THREADS = "md5prewarm.threads";
+
+    // value returned by AbstractGuavaCacheMBean#getCacheEntry when the key is not in the cache
+    private static final String CACHE_ENTRY_NOT_FOUND = "Invalid cache key parameter.";
+
     private static final String ATTR_JS_PATH = "src";
     private static final String ATTR_CSS_PATH = "href";
 
@@ -143,10 +175,37 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
 
     private volatile Map<String, ClientLibrary> clientLibrariesCache;
 
+    /**
+     * Pre-warmed md5 checksums. The map itself is never modified; updates publish a new copy, so readers do not lock.
+     */
+    private volatile Map<VersionedClientLibraryMd5CacheKey, String> md5Manifest = Collections.emptyMap();
+
+    // orders the publication of manifest copies against invalidations
+    private final Object md5ManifestLock = new Object();
+
+    private final AtomicLong md5ManifestSequence = new AtomicLong();
+
+    // sequence number of the last invalidation per key; checksums computed before it must not be published
+    private final Map<VersionedClientLibraryMd5CacheKey, Long> md5ManifestInvalidations = new ConcurrentHashMap<>();
+
+    // sequence number of the last invalidation of the whole manifest
+    private long md5ManifestClearedSequence;
+
+    // library paths waiting to be re-hashed, drained by a single pre-warm run
+    private final Set<String> pendingPrewarmPaths = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean prewarmScheduled = new AtomicBoolean();
+
+    private ExecutorService prewarmExecutor;
+
+    private ExecutorService md5Executor;
+
     private boolean disableVersioning;
 
     private boolean enforceMd5;
 
+    private boolean md5Prewarm;
+
     @Reference
     private HtmlLibraryManager htmlLibraryManager;
 
@@ -165,6 +224,21 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
         this.md5Cache = CacheBuilder.newBuilder().recordStats().maximumSize(size).build();
         this.disableVersioning = PropertiesUtil.toBoolean(props.get(PROP_DISABLE_VERSIONING), DEFAULT_DISABLE_VERSIONING);
         this.enforceMd5 = PropertiesUtil.toBoolean(props.get(PROP_ENFORCE_MD5), DEFAULT_ENFORCE_MD5);
+        this.md5Prewarm = PropertiesUtil.toBoolean(props.get(PROP_MD5_PREWARM), DEFAULT_MD5_PREWARM);
+        if (md5Prewarm) {
+            final int threads = Math.max(1, PropertiesUtil.toInteger(props.get(PROP_MD5_PREWARM_THREADS), DEFAULT_MD5_PREWARM_THREADS));
+            prewarmExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "acs-commons-versioned-clientlibs-prewarm");
+                thread.setDaemon(true);
+                return thread;
+            });
+            md5Executor = Executors.newFixedThreadPool(threads, runnable -> {
+                final Thread thread = new Thread(runnable, "acs-commons-versioned-clientlibs-md5");
+                thread.setDaemon(true);
+                return thread;
+            });
+            prewarmExecutor.execute(() -> prewarm(null));
+        }
         if (enforceMd5) {
             Dictionary<String, Object> filterProps = new Hashtable<String, Object>();
             filterProps.put("sling.filter.scope", "REQUEST");
@@ -181,6 +255,15 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
             filterReg.unregister();;
             filterReg = null;
         }
+        if (prewarmExecutor != null) {
+            prewarmExecutor.shutdownNow();
+            md5Executor.shutdownNow();
+            prewarmExecutor = null;
+            md5Executor = null;
+        }
+        pendingPrewarmPaths.clear();
+        prewarmScheduled.set(false);
+        clearManifest();
         this.md5Cache = null;
         this.clientLibrariesCache = null;
     }
@@ -238,6 +321,12 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
             final HtmlLibrary htmlLibrary = getLibrary(libraryType, libraryPath, resourceResolver);
 
             if (htmlLibrary != null) {
+                final String md5 = md5Prewarm ? getPrewarmedMd5(htmlLibrary) : getMd5(htmlLibrary);
+                if (md5 == null) {
+                    log.debug("MD5 of {} is not pre-warmed yet, leaving the path unversioned", libraryPath);
+                    return null;
+                }
+
                 StringBuilder builder = new StringBuilder();
                 builder.append(libraryPath);
                 builder.append(".");
@@ -248,7 +337,7 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
                 if (enforceMd5) {
                     builder.append(MD5_PREFIX);
                 }
-                builder.append(getMd5(htmlLibrary));
+                builder.append(md5);
                 builder.append(libraryType.extension);
 
                 return builder.toString();
@@ -309,7 +398,12 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
     }
 
     @Nonnull private String getMd5(@Nonnull final HtmlLibrary htmlLibrary) throws IOException, ExecutionException {
-        return md5Cache.get(new VersionedClientLibraryMd5CacheKey(htmlLibrary), new Callable<String>() {
+        final VersionedClientLibraryMd5CacheKey key = new VersionedClientLibraryMd5CacheKey(htmlLibrary);
+        final String prewarmed = md5Manifest.get(key);
+        if (prewarmed != null) {
+            return prewarmed;
+        }
+        return md5Cache.get(key, new Callable<String>() {
 
             @Override
             public String call() throws Exception {
@@ -318,6 +412,25 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
         });
     }
 
+    /**
+     * Get the md5 of the library without computing it. On a miss the library is queued for the pre-warm job, and
+     * rendered unversioned until then, so the request thread never hashes a client library.
+     *
+     * @param htmlLibrary the library
+     * @return the md5 from the manifest or the md5 cache, or null if it is not known yet
+     */
+    @Nullable private String getPrewarmedMd5(@Nonnull final HtmlLibrary htmlLibrary) {
+        final VersionedClientLibraryMd5CacheKey key = new VersionedClientLibraryMd5CacheKey(htmlLibrary);
+        String md5 = md5Manifest.get(key);
+        if (md5 == null) {
+            md5 = md5Cache.getIfPresent(key);
+        }
+        if (md5 == null) {
+            schedulePrewarm(htmlLibrary.getLibraryPath());
+        }
+        return md5;
+    }
+
     @Nonnull private String calculateMd5(@Nonnull final HtmlLibrary htmlLibrary, boolean isMinified) throws IOException {
         // make sure that the minified version is being request in case minification is globally enabled
         // as this will reset the dirty flag on the clientlib
@@ -326,6 +439,141 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
         }
     }
 
+    /**
+     * Queue the given library for hashing by the pre-warm job. Runs requested while a pre-warm run is queued
+     * are folded into it.
+     *
+     * @param libraryPath the library path
+     */
+    private void schedulePrewarm(@Nonnull final String libraryPath) {
+        final ExecutorService executor = prewarmExecutor;
+        if (executor == null) {
+            return;
+        }
+        pendingPrewarmPaths.add(libraryPath);
+        if (prewarmScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    prewarmScheduled.set(false);
+                    final List<String> paths = new ArrayList<>(pendingPrewarmPaths);
+                    pendingPrewarmPaths.removeAll(paths);
+                    prewarm(paths);
+                });
+            } catch (RejectedExecutionException e) {
+                prewarmScheduled.set(false);
+                log.debug("Versioned ClientLibs pre-warm job is shut down, not hashing {}", libraryPath);
+            }
+        }
+    }
+
+    private void scheduleFullPrewarm() {
+        final ExecutorService executor = prewarmExecutor;
+        if (executor == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> prewarm(null));
+        } catch (RejectedExecutionException e) {
+            log.debug("Versioned ClientLibs pre-warm job is shut down, not rebuilding the manifest");
+        }
+    }
+
+    /**
+     * Compute the md5 of the given libraries, or of all libraries, in parallel and publish them to the manifest.
+     *
+     * @param libraryPaths the library paths to hash, or null to rebuild the whole manifest
+     */
+    private void prewarm(@Nullable final List<String> libraryPaths) {
+        final ExecutorService executor = md5Executor;
+        if (executor == null) {
+            return;
+        }
+        final long sequence = md5ManifestSequence.get();
+        final long start = System.currentTimeMillis();
+        final Map<VersionedClientLibraryMd5CacheKey, Future<String>> futures = new HashMap<>();
+        try {
+            final boolean minify = htmlLibraryManager.isMinifyEnabled();
+            final Map<String, ClientLibrary> libraries = htmlLibraryManager.getLibraries();
+            final Iterable<String> paths = libraryPaths == null ? libraries.keySet() : libraryPaths;
+            for (final String path : paths) {
+                final ClientLibrary clientLibrary = libraries.get(path);
+                if (clientLibrary == null) {
+                    continue;
+                }
+                for (final LibraryType type : clientLibrary.getTypes()) {
+                    final HtmlLibrary htmlLibrary = htmlLibraryManager.getLibrary(type, path);
+                    if (htmlLibrary != null) {
+                        futures.put(new VersionedClientLibraryMd5CacheKey(htmlLibrary.getLibraryPath(), type),
+                                executor.submit(() -> calculateMd5(htmlLibrary, minify)));
+                    }
+                }
+            }
+
+            final Map<VersionedClientLibraryMd5CacheKey, String> checksums = new HashMap<>();
+            for (final Map.Entry<VersionedClientLibraryMd5CacheKey, Future<String>> entry : futures.entrySet()) {
+                try {
+                    checksums.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    log.warn("Could not compute the md5 of {} while pre-warming", entry.getKey(), e.getCause());
+                }
+            }
+            publishManifest(checksums, sequence, libraryPaths == null);
+            log.debug("Pre-warmed {} Versioned ClientLibs md5 checksums in {} ms", checksums.size(),
+                    System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException e) {
+            log.debug("Versioned ClientLibs pre-warm job is shut down");
+        } catch (RuntimeException e) {
+            log.error("Could not pre-warm the Versioned ClientLibs md5 manifest", e);
+        } finally {
+            for (Future<String> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private void publishManifest(@Nonnull final Map<VersionedClientLibraryMd5CacheKey, String> checksums,
+                                 final long sequence, final boolean replace) {
+        synchronized (md5ManifestLock) {
+            if (sequence < md5ManifestClearedSequence) {
+                // the whole manifest was invalidated while these checksums were computed
+                return;
+            }
+            final Map<VersionedClientLibraryMd5CacheKey, String> manifest = replace ? new HashMap<>() : new HashMap<>(md5Manifest);
+            for (final Map.Entry<VersionedClientLibraryMd5CacheKey, String> entry : checksums.entrySet()) {
+                final Long invalidated = md5ManifestInvalidations.get(entry.getKey());
+                if (invalidated == null || invalidated <= sequence) {
+                    // computed after the last invalidation of the library
+                    md5ManifestInvalidations.remove(entry.getKey());
+                    manifest.put(entry.getKey(), entry.getValue());
+                }
+            }
+            md5Manifest = Collections.unmodifiableMap(manifest);
+        }
+    }
+
+    private void invalidateManifest(@Nonnull final String libraryPath) {
+        synchronized (md5ManifestLock) {
+            final long sequence = md5ManifestSequence.incrementAndGet();
+            final Map<VersionedClientLibraryMd5CacheKey, String> manifest = new HashMap<>(md5Manifest);
+            for (final LibraryType type : LibraryType.values()) {
+                final VersionedClientLibraryMd5CacheKey key = new VersionedClientLibraryMd5CacheKey(libraryPath, type);
+                md5ManifestInvalidations.put(key, sequence);
+                manifest.remove(key);
+            }
+            md5Manifest = Collections.unmodifiableMap(manifest);
+        }
+    }
+
+    private void clearManifest() {
+        synchronized (md5ManifestLock) {
+            md5ManifestClearedSequence = md5ManifestSequence.incrementAndGet();
+            md5ManifestInvalidations.clear();
+            md5Manifest = Collections.emptyMap();
+        }
+    }
+
     private class VersionableClientlibsTransformer extends AbstractTransformer {
 
         private SlingHttpServletRequest request;
@@ -355,6 +603,24 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
         md5Cache.invalidate(new VersionedClientLibraryMd5CacheKey(path, LibraryType.JS));
         md5Cache.invalidate(new VersionedClientLibraryMd5CacheKey(path, LibraryType.CSS));
         clientLibrariesCache = null;
+        if (md5Prewarm) {
+            if (path != null) {
+                invalidateManifest(path);
+                schedulePrewarm(path);
+            } else {
+                clearManifest();
+                scheduleFullPrewarm();
+            }
+        }
+    }
+
+    @Override
+    public void clearCache() {
+        super.clearCache();
+        if (md5Prewarm) {
+            clearManifest();
+            scheduleFullPrewarm();
+        }
     }
 
     @Override
@@ -430,17 +696,34 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
                         return;
                     }
 
-                    String md5FromCache = null;
-                    try {
-                        md5FromCache = getCacheEntry(uriInfo.cacheKey);
-                    } catch (Exception e) {
-                        md5FromCache = null;
+                    String md5FromCache = md5Manifest.get(uriInfo.manifestKey);
+                    if (md5FromCache == null) {
+                        try {
+                            md5FromCache = getCacheEntry(uriInfo.cacheKey);
+                        } catch (Exception e) {
+                            md5FromCache = null;
+                        }
                     }
 
                     // this static value "Invalid cache key parameter." happens when the cache key can't be
                     // found in the cache
-                    if ("Invalid cache key parameter.".equals(md5FromCache)) {
-                        md5FromCache = calculateMd5(uriInfo.htmlLibrary, htmlLibraryManager.isMinifyEnabled());
+                    if (CACHE_ENTRY_NOT_FOUND.equals(md5FromCache)) {
+                        if (md5Prewarm) {
+                            // Not pre-warmed yet, e.g. right after an invalidation. The md5 in the URL can only be
+                            // checked against the content, and letting it pass unchecked would let caches in front of
+                            // the publisher keep outdated content under it, so this is the one place that still hashes
+                            // on the request thread. The rewriter only renders md5s it already knows, so this is rare;
+                            // hash through the md5 cache so concurrent requests share one computation.
+                            log.debug("MD5 for '{}' is not pre-warmed yet, computing it for {}", uriInfo.cleanedUri, uri);
+                            schedulePrewarm(uriInfo.htmlLibrary.getLibraryPath());
+                            try {
+                                md5FromCache = getMd5(uriInfo.htmlLibrary);
+                            } catch (ExecutionException e) {
+                                throw new ServletException("Could not compute the md5 of " + uriInfo.cleanedUri, e.getCause());
+                            }
+                        } else {
+                            md5FromCache = calculateMd5(uriInfo.htmlLibrary, htmlLibraryManager.isMinifyEnabled());
+                        }
                     }
 
                     if (md5FromCache == null) {
@@ -482,6 +765,7 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
         private final String md5;
         private final HtmlLibrary htmlLibrary;
         private final String cacheKey;
+        private final VersionedClientLibraryMd5CacheKey manifestKey;
 
         UriInfo(String cleanedUri, String md5, LibraryType libraryType, HtmlLibrary htmlLibrary) {
             this.cleanedUri = cleanedUri;
@@ -489,8 +773,10 @@ public final class VersionedClientlibsTransformerFactory extends AbstractGuavaCa
             this.htmlLibrary = htmlLibrary;
             if (libraryType != null && htmlLibrary != null) {
                 cacheKey = htmlLibrary.getLibraryPath() + libraryType.extension;
+                manifestKey = new VersionedClientLibraryMd5CacheKey(htmlLibrary.getLibraryPath(), libraryType);
             } else {
                 cacheKey = null;
+                manifestKey = null;
             }
         }
     }
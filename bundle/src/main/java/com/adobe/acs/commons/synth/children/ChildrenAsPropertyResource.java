@@ -19,11 +19,14 @@
  */
 package com.adobe.acs.commons.synth.children;
 
-import com.adobe.acs.commons.json.JsonObjectUtil;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import org.apache.commons.collections.IteratorUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.jackrabbit.JcrConstants;
 import org.apache.sling.api.resource.ModifiableValueMap;
 import org.apache.sling.api.resource.Resource;
@@ -36,7 +39,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jcr.RepositoryException;
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -44,6 +49,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -95,6 +101,16 @@ public class ChildrenAsPropertyResource extends ResourceWrapper {
 
     private Comparator<Resource> comparator = null;
 
+    /**
+     * The property value the children were read from or last persisted as.
+     */
+    private String persistedData = null;
+
+    /**
+     * Whether children were added or removed since they were read or last persisted.
+     */
+    private boolean childrenModified = false;
+
     public static final Comparator<Resource> RESOURCE_NAME_COMPARATOR = new ResourceNameComparator();
 
     /**
@@ -203,6 +219,7 @@ public class ChildrenAsPropertyResource extends ResourceWrapper {
 
         this.lookupCache.put(child.getName(), child);
         this.orderedCache.add(child);
+        this.childrenModified = true;
 
         return child;
     }
@@ -220,6 +237,7 @@ public class ChildrenAsPropertyResource extends ResourceWrapper {
             Resource tmp = this.lookupCache.get(name);
             this.orderedCache.remove(tmp);
             this.lookupCache.remove(name);
+            this.childrenModified = true;
         }
     }
 
@@ -239,6 +257,7 @@ public class ChildrenAsPropertyResource extends ResourceWrapper {
         }
 
         this.lookupCache = new HashMap<String, Resource>();
+        this.childrenModified = true;
     }
 
     /**
@@ -253,6 +272,7 @@ public class ChildrenAsPropertyResource extends ResourceWrapper {
 
     /**
      * Serializes all children data as JSON to the resource's propertyName.
+     * Children whose data did not change since they were last serialized are copied through as is.
      *
      * @throws InvalidDataFormatException
      */
@@ -260,21 +280,55 @@ public class ChildrenAsPropertyResource extends ResourceWrapper {
         final long start = System.currentTimeMillis();
 
         final ModifiableValueMap modifiableValueMap = this.resource.adaptTo(ModifiableValueMap.class);
-        JsonObject childrenJSON = new JsonObject();
+
+        if (!this.orderedCache.isEmpty() && !this.isModified()
+                && StringUtils.equals(this.persistedData, modifiableValueMap.get(this.propertyName, String.class))) {
+            log.debug("Nothing to persist for [ {} ]", this.resource.getPath() + "/" + this.propertyName);
+            return;
+        }
+
+        final Gson gson = new Gson();
+        final StringBuilder childrenJSON = new StringBuilder("{");
+        final Set<String> serializedNames = new HashSet<String>();
 
         try {
-            // Add the new entries to the JSON
-            for (Resource childResource : this.orderedCache) {
-                childrenJSON.add(childResource.getName(), this.serializeToJSON(childResource));
+            // Add the entries to the JSON; an overwritten child keeps the position of the child it replaced
+            for (Resource orderedResource : this.orderedCache) {
+                final Resource childResource = this.lookupCache.get(orderedResource.getName());
+
+                if (childResource == null || !serializedNames.add(childResource.getName())) {
+                    continue;
+                }
+
+                String childJSON = null;
+                if (childResource instanceof SyntheticChildAsPropertyResource) {
+                    childJSON = ((SyntheticChildAsPropertyResource) childResource).getJson();
+                }
+
+                if (childJSON == null) {
+                    childJSON = this.serializeToJSON(childResource).toString();
+
+                    if (childResource instanceof SyntheticChildAsPropertyResource) {
+                        ((SyntheticChildAsPropertyResource) childResource).setJson(childJSON);
+                    }
+                }
+
+                if (childrenJSON.length() > 1) {
+                    childrenJSON.append(',');
+                }
+                childrenJSON.append(gson.toJson(childResource.getName())).append(':').append(childJSON);
             }
 
-            if (childrenJSON.entrySet().size() > 0) {
+            if (!serializedNames.isEmpty()) {
                 // Persist the JSON back to the Node
-                modifiableValueMap.put(this.propertyName, childrenJSON.toString());
+                this.persistedData = childrenJSON.append('}').toString();
+                modifiableValueMap.put(this.propertyName, this.persistedData);
             } else {
                 // Nothing to persist; delete the property
+                this.persistedData = null;
                 modifiableValueMap.remove(this.propertyName);
             }
+            this.childrenModified = false;
 
             log.debug("Persist operation for [ {} ] in [ {} ms ]",
                     this.resource.getPath() + "/" + this.propertyName,
@@ -289,6 +343,25 @@ public class ChildrenAsPropertyResource extends ResourceWrapper {
         }
     }
 
+    /**
+     * @return true if children were added or removed, or the data of any child changed, since the children were read
+     * or last persisted.
+     */
+    private boolean isModified() {
+        if (this.childrenModified) {
+            return true;
+        }
+
+        for (Resource childResource : this.orderedCache) {
+            if (!(childResource instanceof SyntheticChildAsPropertyResource)
+                    || ((SyntheticChildAsPropertyResource) childResource).isModified()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Convert the serialized JSON data found in the node property to Resources.
      *
@@ -302,7 +375,15 @@ public class ChildrenAsPropertyResource extends ResourceWrapper {
 
         List<SyntheticChildAsPropertyResource> resources;
 
-        resources = deserializeToSyntheticChildResources(JsonObjectUtil.toJsonObject(propertyData));
+        // Stream the children straight into their value maps rather than building a JSON tree first
+        try (JsonReader reader = new JsonReader(new StringReader(propertyData))) {
+            reader.setLenient(true);
+            resources = deserializeToSyntheticChildResources(reader);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new InvalidDataFormatException(this.resource, this.propertyName, propertyData);
+        }
+
+        this.persistedData = this.resource.getValueMap().get(this.propertyName, String.class);
 
         if (this.comparator != null) {
             Collections.sort(resources, this.comparator);
@@ -372,6 +453,94 @@ public class ChildrenAsPropertyResource extends ResourceWrapper {
         return resources;
     }
 
+    /**
+     * Reads the JSON object of children from the reader into the list of SyntheticChildAsPropertyResources.
+     *
+     * @param reader the reader positioned at the JSON object to deserialize.
+     * @return the list of SyntheticChildAsPropertyResources the JSON object represents.
+     * @throws IOException if the JSON is malformed
+     */
+    private List<SyntheticChildAsPropertyResource> deserializeToSyntheticChildResources(final JsonReader reader)
+            throws IOException {
+        final List<SyntheticChildAsPropertyResource> resources = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String nodeName = reader.nextName();
+
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+
+            final Map<String, Object> properties = new HashMap<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String propName = reader.nextName();
+                final String value = reader.peek() == JsonToken.BEGIN_ARRAY ? nextArrayValue(reader) : nextValue(reader);
+
+                if (value != null) {
+                    properties.put(propName, value);
+                }
+            }
+            reader.endObject();
+
+            resources.add(new SyntheticChildAsPropertyResource(this.getParent(), nodeName, properties));
+        }
+        reader.endObject();
+
+        // The lenient reader would otherwise accept anything following the children
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new MalformedJsonException("Unexpected data after the children JSON object");
+        }
+
+        return resources;
+    }
+
+    /**
+     * Reads the next scalar JSON value.
+     *
+     * @param reader the reader positioned at the value.
+     * @return the string representation of the value, or null for a JSON null.
+     * @throws IOException if the JSON is malformed
+     */
+    private static String nextValue(final JsonReader reader) throws IOException {
+        final JsonToken token = reader.peek();
+
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        } else if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        } else {
+            // Strings and numbers alike are kept as their string representation
+            return reader.nextString();
+        }
+    }
+
+    /**
+     * Reads a JSON array holding a single value as that value, as JsonElement.getAsString() does.
+     *
+     * @param reader the reader positioned at the array.
+     * @return the string representation of the array's only value, or null for a JSON null.
+     * @throws IOException if the JSON is malformed
+     * @throws IllegalStateException if the array does not hold exactly one value
+     */
+    private static String nextArrayValue(final JsonReader reader) throws IOException {
+        reader.beginArray();
+        if (!reader.hasNext()) {
+            throw new IllegalStateException("Expected a single value but found an empty array");
+        }
+
+        final String value = nextValue(reader);
+        if (reader.hasNext()) {
+            throw new IllegalStateException("Expected a single value but found an array of several values");
+        }
+        reader.endArray();
+
+        return value;
+    }
+
     /**
      * Sort by resource name ascending (resource.getName()).
      */
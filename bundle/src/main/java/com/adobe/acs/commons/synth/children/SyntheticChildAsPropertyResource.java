@@ -35,6 +35,11 @@ public class SyntheticChildAsPropertyResource extends SyntheticResource {
 
     private final JSONModifiableValueMapDecorator data;
 
+    /**
+     * The JSON representation of the data as last serialized; only valid while the data is unmodified.
+     */
+    private String json;
+
     /**
      * Creates a new SyntheticChildAsPropertyResource.
      *
@@ -70,6 +75,28 @@ public class SyntheticChildAsPropertyResource extends SyntheticResource {
         return this.data;
     }
 
+    /**
+     * @return true if the data was changed since the resource was read or last serialized
+     */
+    boolean isModified() {
+        return this.data.isModified();
+    }
+
+    /**
+     * @return the JSON representation of the data, or null if the data has to be serialized again
+     */
+    String getJson() {
+        return this.data.isModified() ? null : this.json;
+    }
+
+    /**
+     * @param json the JSON representation of the current data
+     */
+    void setJson(String json) {
+        this.json = json;
+        this.data.resetModified();
+    }
+
     /**
      * {@inheritDoc}
      */
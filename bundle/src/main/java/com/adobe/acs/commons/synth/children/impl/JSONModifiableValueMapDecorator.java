@@ -39,6 +39,8 @@ import java.util.Map;
 public final class JSONModifiableValueMapDecorator extends ModifiableValueMapDecorator {
     private static final Logger log = LoggerFactory.getLogger(JSONModifiableValueMapDecorator.class);
 
+    private boolean modified = false;
+
     /**
      * Creates an empty JSONModifiableValueMapDecorator.
      */
@@ -55,6 +57,56 @@ public final class JSONModifiableValueMapDecorator extends ModifiableValueMapDec
         super(base);
     }
 
+    /**
+     * @return true if the data was changed since this decorator was created or last marked as unmodified
+     */
+    public boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * Marks the current data as unmodified, e.g. after it has been persisted.
+     */
+    public void resetModified() {
+        modified = false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object put(String key, Object value) {
+        modified = true;
+        return super.put(key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putAll(Map<? extends String, ?> t) {
+        modified = true;
+        super.putAll(t);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object remove(Object key) {
+        modified = true;
+        return super.remove(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        modified = true;
+        super.clear();
+    }
+
     /**
      * {@inheritDoc}
      * <p>
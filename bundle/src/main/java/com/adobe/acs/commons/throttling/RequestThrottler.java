@@ -23,6 +23,9 @@ import java.io.IOException;
 import java.time.Clock;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -38,6 +41,7 @@ import org.apache.sling.api.SlingHttpServletResponse;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.metatype.annotations.AttributeDefinition;
 import org.osgi.service.metatype.annotations.Designate;
@@ -118,6 +122,9 @@ import org.slf4j.LoggerFactory;
  * for the complete time, which might lead to a shortage of threads.</li>
  * </ul>
  * 
+ * The CPU load is sampled once per second in the background, the decision on the
+ * request thread is lock-free and does not query the CPU load.
+ * 
  * 
  *
  */
@@ -150,7 +157,9 @@ public class RequestThrottler implements Filter {
 
     private static final Logger LOG = LoggerFactory.getLogger(RequestThrottler.class);
 
-    ThrottlingState state;
+    private static final long LOAD_SAMPLE_INTERVAL_MS = 1000;
+
+    SlidingWindowThrottlingState state;
     private Config config;
 
     CpuLoadEstimator loadEstimator;
@@ -159,6 +168,8 @@ public class RequestThrottler implements Filter {
 
     Clock clock;
 
+    private ScheduledExecutorService loadSampler;
+
     @Activate
     @Modified
     protected void activate(Config c) {
@@ -167,7 +178,23 @@ public class RequestThrottler implements Filter {
                 c.start_throttling_percentage());
         loadEstimator = new CpuLoadEstimator(tc);
         clock = Clock.systemUTC();
-        this.state = new ThrottlingState(clock, loadEstimator);
+        final SlidingWindowThrottlingState newState = new SlidingWindowThrottlingState(clock, loadEstimator);
+        this.state = newState;
+
+        // sample the CPU load in the background, so requests never wait for the MBean server
+        stopLoadSampler();
+        loadSampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "acs-commons-request-throttler-load-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loadSampler.scheduleWithFixedDelay(() -> {
+            try {
+                newState.refreshLimit();
+            } catch (RuntimeException e) {
+                LOG.warn("Cannot sample the load for request throttling", e);
+            }
+        }, LOAD_SAMPLE_INTERVAL_MS, LOAD_SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
 
         // precompile all patterns
         filteredPaths = Arrays.asList(config.filtered_paths()).stream().map(s -> Pattern.compile(s))
@@ -175,6 +202,18 @@ public class RequestThrottler implements Filter {
 
     }
 
+    @Deactivate
+    protected void deactivate() {
+        stopLoadSampler();
+    }
+
+    private void stopLoadSampler() {
+        if (loadSampler != null) {
+            loadSampler.shutdownNow();
+            loadSampler = null;
+        }
+    }
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
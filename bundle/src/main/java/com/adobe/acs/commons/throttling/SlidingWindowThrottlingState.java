@@ -0,0 +1,198 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.throttling;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Lock-free implementation of the sliding window of ThrottlingState: within any minute at most
+ * as many requests are admitted as the LoadEstimator permits.
+ * 
+ * The admission timestamps are kept in a ring of atomic longs. The slot at the ring cursor holds
+ * the oldest admission; a request is admitted if that admission is older than a minute and it
+ * manages to advance the cursor with a CAS. The decision is O(1) and threads never block each
+ * other.
+ * 
+ * The LoadEstimator is not consulted per request: refreshLimit() samples it and resizes the ring,
+ * the RequestThrottler calls it periodically from a background thread.
+ * 
+ */
+class SlidingWindowThrottlingState {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SlidingWindowThrottlingState.class);
+
+    private static final long ONE_MINUTE = 1000 * 60;
+
+    /**
+     * Value of a slot which has not been used yet.
+     */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    /**
+     * Returned by Window#tryAcquire if the request is admitted; never a valid timestamp of a full
+     * slot, as empty slots are always free.
+     */
+    private static final long ADMITTED = Long.MIN_VALUE;
+
+    private final Clock clock;
+
+    private final LoadEstimator loadEstimator;
+
+    private final AtomicReference<Window> window;
+
+    SlidingWindowThrottlingState(Clock clock, LoadEstimator le) {
+        this.clock = clock;
+        this.loadEstimator = le;
+        this.window = new AtomicReference<>(new Window(Math.max(0, le.getMaxRequestPerMinute())));
+    }
+
+    ThrottlingDecision evaluateThrottling() {
+        final Window current = window.get();
+        final long now = clock.instant().toEpochMilli();
+
+        if (current.capacity() == 0) {
+            return new ThrottlingDecision(ThrottlingDecision.State.THROTTLE).withDelay(ONE_MINUTE)
+                    .withMessage("throttling required (no requests permitted at the current load)");
+        }
+
+        final long oldest = current.tryAcquire(now);
+        if (oldest == ADMITTED) {
+            return new ThrottlingDecision(ThrottlingDecision.State.NOTHROTTLE);
+        }
+
+        // time has not yet passed, we need some throttling
+        long diff = oldest + ONE_MINUTE - now;
+        return new ThrottlingDecision(ThrottlingDecision.State.THROTTLE).withDelay(diff)
+                .withMessage("throttling required (at least " + diff + " ms)");
+    }
+
+    /**
+     * Sample the LoadEstimator and adjust the number of requests permitted per minute.
+     *
+     * @return the number of requests permitted per minute
+     */
+    int refreshLimit() {
+        int limit = Math.max(0, loadEstimator.getMaxRequestPerMinute());
+        resize(limit);
+        return limit;
+    }
+
+    int getLimit() {
+        return window.get().capacity();
+    }
+
+    /**
+     * Resize the window, keeping the most recent admissions. Admissions racing with the resize may
+     * not be carried over, which can admit a few extra requests right after the limit changed.
+     *
+     * @param newSize the number of requests permitted per minute
+     */
+    void resize(int newSize) {
+        final Window current = window.get();
+        if (current.capacity() != newSize) {
+            LOG.debug("Resizing throttling window from {} to {}", current.capacity(), newSize);
+            window.compareAndSet(current, current.resize(newSize));
+        }
+    }
+
+    private static boolean isExpired(long stamp, long now) {
+        return stamp == EMPTY || now - stamp > ONE_MINUTE;
+    }
+
+    private static final class Window {
+
+        /**
+         * Admission timestamps in epoch milliseconds.
+         */
+        private final AtomicLongArray stamps;
+
+        /**
+         * Per slot, the cursor position at which the slot can be claimed next. A slot is claimed by
+         * advancing the cursor first and publishing the timestamp and the next sequence after, so a
+         * thread a full lap ahead waits for the publication instead of reading a stale timestamp.
+         */
+        private final AtomicLongArray sequences;
+
+        private final AtomicLong cursor = new AtomicLong();
+
+        Window(int capacity) {
+            stamps = new AtomicLongArray(capacity);
+            sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                stamps.set(i, EMPTY);
+                sequences.set(i, i);
+            }
+        }
+
+        int capacity() {
+            return stamps.length();
+        }
+
+        /**
+         * @param now the current time
+         * @return ADMITTED, or the timestamp of the oldest admission within the last minute
+         */
+        long tryAcquire(long now) {
+            final int capacity = stamps.length();
+            for (;;) {
+                final long pos = cursor.get();
+                final int idx = (int) (pos % capacity);
+                if (sequences.get(idx) != pos) {
+                    // either pos is stale, or the previous claim of this slot is being published
+                    Thread.yield();
+                    continue;
+                }
+                final long stamp = stamps.get(idx);
+                if (cursor.get() != pos) {
+                    // the slot was claimed meanwhile, the stamp might not be the current one
+                    continue;
+                }
+                if (!isExpired(stamp, now)) {
+                    return stamp;
+                }
+                if (cursor.compareAndSet(pos, pos + 1)) {
+                    stamps.set(idx, now);
+                    sequences.set(idx, pos + capacity);
+                    return ADMITTED;
+                }
+            }
+        }
+
+        Window resize(int capacity) {
+            final Window resized = new Window(capacity);
+            final int oldCapacity = stamps.length();
+            final long pos = cursor.get();
+            final int keep = Math.min(oldCapacity, capacity);
+            // the new cursor starts at 0: free slots first, then the kept admissions from oldest to newest
+            final int offset = capacity - keep;
+            for (int i = 0; i < keep; i++) {
+                int idx = (int) ((pos + oldCapacity - keep + i) % oldCapacity);
+                resized.stamps.set(offset + i, stamps.get(idx));
+            }
+            return resized;
+        }
+    }
+}
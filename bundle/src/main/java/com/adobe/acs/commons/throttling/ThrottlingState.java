@@ -42,7 +42,9 @@ import org.slf4j.LoggerFactory;
  * 
  * 
  * 
+ * @deprecated no longer used by the RequestThrottler, which uses a lock-free sliding window
  */
+@Deprecated
 public class ThrottlingState {
 
     private static final Logger LOG = LoggerFactory.getLogger(ThrottlingState.class);
@@ -0,0 +1,251 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.apache.commons.lang.StringUtils;
+
+import aQute.bnd.annotation.ProviderType;
+
+/**
+ * HttpServletResponseWrapper which injects content into an HTML response while it is being written.
+ * <p>
+ * Unlike {@link BufferingResponse} the content is not captured: characters are passed through to the wrapped
+ * response as they are produced and only the few characters which could be the start of the marker are held back.
+ * The injection happens once, immediately before the first occurrence of the marker (e.g. {@code </body>}).
+ * <p>
+ * Only responses written through {@link #getWriter()} with an HTML content type are inspected; the output stream
+ * is passed through untouched. {@link #finish()} must be called once the response has been rendered, to write out
+ * any characters still held back.
+ */
+@ProviderType
+public final class InjectingResponse extends HttpServletResponseWrapper {
+
+    /**
+     * Callback writing the injected content.
+     */
+    @FunctionalInterface
+    public interface Injection {
+        /**
+         * @param printWriter the writer of the wrapped response, positioned right before the marker
+         * @throws IOException if the content could not be written
+         */
+        void inject(PrintWriter printWriter) throws IOException;
+    }
+
+    private final String marker;
+
+    private final Injection injection;
+
+    private InjectingWriter injectingWriter;
+
+    private PrintWriter printWriter;
+
+    /**
+     * @param response  the response to wrap
+     * @param marker    the content is injected before the first occurrence of this marker, matched case-sensitive
+     * @param injection writes the injected content
+     */
+    public InjectingResponse(final HttpServletResponse response, final String marker, final Injection injection) {
+        super(response);
+        if (StringUtils.isEmpty(marker)) {
+            throw new IllegalArgumentException("The injection marker must not be empty");
+        }
+        this.marker = marker;
+        this.injection = injection;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (printWriter == null) {
+            final PrintWriter writer = super.getWriter();
+            if (StringUtils.contains(getContentType(), "html")) {
+                injectingWriter = new InjectingWriter(writer, marker.toCharArray(), injection);
+                printWriter = new PrintWriter(injectingWriter);
+            } else {
+                printWriter = writer;
+            }
+        }
+        return printWriter;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (printWriter != null) {
+            printWriter.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (injectingWriter != null) {
+            injectingWriter.reset();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        if (injectingWriter != null) {
+            injectingWriter.reset();
+        }
+    }
+
+    /**
+     * Write out the characters held back while looking for the marker. Call once the response has been rendered.
+     *
+     * @throws IOException if the characters could not be written
+     */
+    public void finish() throws IOException {
+        if (injectingWriter != null) {
+            injectingWriter.finish();
+        }
+    }
+
+    /**
+     * @return true if the marker was found and the content has been injected
+     */
+    public boolean isInjected() {
+        return injectingWriter != null && injectingWriter.injected;
+    }
+
+    /**
+     * Writer passing characters through while matching them against the marker. Characters matching a prefix of the
+     * marker are held back in a window of at most marker length, so memory stays constant regardless of the page size.
+     */
+    private static final class InjectingWriter extends Writer {
+
+        private final Writer out;
+
+        private final char[] marker;
+
+        private final Injection injection;
+
+        private final char[] pending;
+
+        private int pendingLength;
+
+        private boolean injected;
+
+        InjectingWriter(final Writer out, final char[] marker, final Injection injection) {
+            this.out = out;
+            this.marker = marker;
+            this.injection = injection;
+            this.pending = new char[marker.length];
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) throws IOException {
+            final int end = off + len;
+            int i = off;
+            while (i < end) {
+                if (injected) {
+                    out.write(cbuf, i, end - i);
+                    return;
+                }
+                if (pendingLength == 0) {
+                    // Nothing held back, pass everything up to the next candidate marker start through at once
+                    final int start = i;
+                    while (i < end && cbuf[i] != marker[0]) {
+                        i++;
+                    }
+                    if (i > start) {
+                        out.write(cbuf, start, i - start);
+                    }
+                    if (i == end) {
+                        return;
+                    }
+                }
+                accept(cbuf[i++]);
+            }
+        }
+
+        @Override
+        public void write(final int c) throws IOException {
+            write(new char[]{(char) c}, 0, 1);
+        }
+
+        private void accept(final char c) throws IOException {
+            pending[pendingLength++] = c;
+
+            // Release the leading characters until the held back ones are a prefix of the marker again
+            int start = 0;
+            while (start < pendingLength && !isMarkerPrefix(start)) {
+                start++;
+            }
+            if (start > 0) {
+                out.write(pending, 0, start);
+                System.arraycopy(pending, start, pending, 0, pendingLength - start);
+                pendingLength -= start;
+            }
+
+            if (pendingLength == marker.length) {
+                injected = true;
+                final PrintWriter injectionWriter = new PrintWriter(out);
+                injection.inject(injectionWriter);
+                injectionWriter.flush();
+                out.write(pending, 0, pendingLength);
+                pendingLength = 0;
+            }
+        }
+
+        private boolean isMarkerPrefix(final int start) {
+            for (int i = start; i < pendingLength; i++) {
+                if (pending[i] != marker[i - start]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void finish() throws IOException {
+            if (pendingLength > 0) {
+                out.write(pending, 0, pendingLength);
+                pendingLength = 0;
+            }
+            out.flush();
+        }
+
+        void reset() {
+            pendingLength = 0;
+            injected = false;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Held back characters stay pending, the marker might continue with the next write
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            out.close();
+        }
+    }
+}
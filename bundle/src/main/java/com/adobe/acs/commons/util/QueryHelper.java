@@ -25,6 +25,7 @@ import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 
 import javax.jcr.RepositoryException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -44,6 +45,24 @@ public interface QueryHelper {
                                  String statement,
                                  String relPath) throws RepositoryException;
 
+    /**
+     * Same as {@link #findResources(ResourceResolver, String, String, String)}, but the results are resolved lazily
+     * while iterating, so large result sets do not have to be held in memory at once.
+     *
+     * @param resourceResolver the resourceResolver providing access into the JCR
+     * @param language querybuilder, list, xpath, JCR-SQL, JCR-SQL2
+     * @param statement the query statement
+     * @param relPath the relative path to apply to the query result resources
+     * @return an iterator over the Resource objects
+     * @throws RepositoryException
+     */
+    default Iterator<Resource> findResourcesIterator(ResourceResolver resourceResolver,
+                                                     String language,
+                                                     String statement,
+                                                     String relPath) throws RepositoryException {
+        return findResources(resourceResolver, language, statement, relPath).iterator();
+    }
+
     /**
      * Determines if the provided query will traverse.
      * @param resourceResolver the resourceResolver providing access into the JCR
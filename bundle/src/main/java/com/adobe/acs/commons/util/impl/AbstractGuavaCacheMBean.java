@@ -47,7 +47,7 @@ public abstract class AbstractGuavaCacheMBean<K, V> extends AbstractCacheMBean<K
     protected abstract Cache<K, V> getCache();
 
     @Override
-    public final void clearCache() {
+    public void clearCache() {
         getCache().invalidateAll();
     }
 
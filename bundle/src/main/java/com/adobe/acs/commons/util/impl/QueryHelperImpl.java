@@ -20,12 +20,13 @@
 
 package com.adobe.acs.commons.util.impl;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import javax.jcr.NodeIterator;
+import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.query.Query;
@@ -44,7 +45,9 @@ import com.adobe.acs.commons.util.ParameterUtil;
 import com.adobe.acs.commons.util.QueryHelper;
 import com.day.cq.search.PredicateGroup;
 import com.day.cq.search.QueryBuilder;
-import com.day.cq.search.result.Hit;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 
 @Component(service=QueryHelper.class)
 public class QueryHelperImpl implements QueryHelper {
@@ -70,8 +73,27 @@ public class QueryHelperImpl implements QueryHelper {
                                         final String language,
                                         final String statement,
                                         final String relPath) throws RepositoryException {
+        return Lists.newArrayList(findResourcesIterator(resourceResolver, language, statement, relPath));
+    }
+
+    /**
+     * Find all the resources needed for the package definition; the query results are only resolved to resources
+     * as the returned iterator advances.
+     *
+     * @param resourceResolver the resource resolver to find the resources
+     * @param language         the Query language
+     * @param statement        the Query statement
+     * @param relPath          the relative path to resolve against query result nodes for package resources
+     * @return an iterator over the resources
+     * @throws RepositoryException
+     */
+    @Override
+    public Iterator<Resource> findResourcesIterator(final ResourceResolver resourceResolver,
+                                                    final String language,
+                                                    final String statement,
+                                                    final String relPath) throws RepositoryException {
         if (StringUtils.isEmpty(statement)) {
-            return Collections.emptyList();
+            return Collections.emptyIterator();
         }
 
         final String[] lines = StringUtils.split(statement, '\n');
@@ -85,41 +107,22 @@ public class QueryHelperImpl implements QueryHelper {
         }
     }
 
-    private List<Resource> getResourcesFromQuery(ResourceResolver resourceResolver, String language, String statement, String relPath) throws RepositoryException {
-        final List<Resource> resources = new ArrayList<>();
+    @SuppressWarnings("unchecked")
+    private Iterator<Resource> getResourcesFromQuery(ResourceResolver resourceResolver, String language, String statement, String relPath) throws RepositoryException {
         QueryManager queryManager = resourceResolver.adaptTo(Session.class).getWorkspace().getQueryManager();
-        NodeIterator nodeIter = queryManager.createQuery(statement, language).execute().getNodes();
-
-        while (nodeIter.hasNext()) {
-            Resource resource = resourceResolver.getResource(nodeIter.nextNode().getPath());
-            final Resource relativeAwareResource = getRelativeAwareResource(resource, relPath);
+        Iterator<Node> nodeIter = queryManager.createQuery(statement, language).execute().getNodes();
 
-            if (relativeAwareResource != null) {
-                resources.add(relativeAwareResource);
-            }
-        }
-
-        return resources;
+        return toResources(resourceResolver, nodeIter, relPath);
     }
 
-    private List<Resource> getResourcesFromList(ResourceResolver resourceResolver, String[] lines, String relPath) {
-        final List<Resource> resources = new ArrayList<>();
-        for (String line : lines) {
-            if (StringUtils.isNotBlank(line)) {
-                final Resource resource = resourceResolver.getResource(line);
-                final Resource relativeAwareResource = getRelativeAwareResource(resource, relPath);
-
-                if (relativeAwareResource != null) {
-                    resources.add(relativeAwareResource);
-                }
-            }
-        }
+    private Iterator<Resource> getResourcesFromList(ResourceResolver resourceResolver, String[] lines, String relPath) {
+        final Iterator<String> paths = Iterators.filter(Arrays.asList(lines).iterator(), StringUtils::isNotBlank);
 
-        return resources;
+        return Iterators.filter(Iterators.transform(paths,
+                path -> getRelativeAwareResource(resourceResolver.getResource(path), relPath)), Predicates.notNull());
     }
 
-    private List<Resource> getResourcesFromQueryBuilder(ResourceResolver resourceResolver, String[] lines) throws RepositoryException {
-        final List<Resource> resources = new ArrayList<>();
+    private Iterator<Resource> getResourcesFromQueryBuilder(ResourceResolver resourceResolver, String[] lines) throws RepositoryException {
         final Map<String, String> params = ParameterUtil.toMap(lines, "=", false, null, true);
 
         // ensure all results are returned
@@ -128,12 +131,21 @@ public class QueryHelperImpl implements QueryHelper {
         }
 
         final com.day.cq.search.Query query = queryBuilder.createQuery(PredicateGroup.create(params), resourceResolver.adaptTo(Session.class));
-        final List<Hit> hits = query.getResult().getHits();
-        for (final Hit hit : hits) {
-            resources.add(hit.getResource());
-        }
+        // Unlike getHits(), the node iterator does not load the whole result page upfront
+        return toResources(resourceResolver, query.getResult().getNodes(), null);
+    }
 
-        return resources;
+    private Iterator<Resource> toResources(final ResourceResolver resourceResolver, final Iterator<Node> nodes, final String relPath) {
+        return Iterators.filter(Iterators.transform(nodes,
+                node -> getRelativeAwareResource(resourceResolver.getResource(getPath(node)), relPath)), Predicates.notNull());
+    }
+
+    private static String getPath(final Node node) {
+        try {
+            return node.getPath();
+        } catch (RepositoryException e) {
+            throw new IllegalStateException("Unable to read the path of a query result node", e);
+        }
     }
 
     @Override
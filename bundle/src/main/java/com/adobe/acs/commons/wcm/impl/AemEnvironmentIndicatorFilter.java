@@ -19,7 +19,7 @@
  */
 package com.adobe.acs.commons.wcm.impl;
 
-import com.adobe.acs.commons.util.BufferingResponse;
+import com.adobe.acs.commons.util.InjectingResponse;
 import com.day.cq.wcm.api.WCMMode;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -49,7 +49,6 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.Map;
@@ -161,7 +160,6 @@ public class AemEnvironmentIndicatorFilter implements Filter {
     }
 
     @Override
-    @SuppressWarnings("squid:S3776")
     public final void doFilter(final ServletRequest servletRequest, final ServletResponse servletResponse,
                                final FilterChain filterChain) throws IOException, ServletException {
 
@@ -179,11 +177,30 @@ public class AemEnvironmentIndicatorFilter implements Filter {
             return;
         }
 
-        final BufferingResponse capturedResponse = new BufferingResponse(response);
+        // Stream the response, injecting the indicator right before the closing body tag as it passes through
+        final InjectingResponse injectingResponse = new InjectingResponse(response, "</body>", printWriter -> {
+            // The WCM mode is only known once the request has been processed, so check it when injecting
+            if (!isExcludedWCMMode(request)) {
+                if (StringUtils.isNotBlank(css)) {
+                    printWriter.write("<style>" + css + " </style>");
+                    printWriter.write("<div id=\"" + DIV_ID + "\">" + innerHTML + "</div>");
+                }
 
-        filterChain.doFilter(request, capturedResponse);
+                if (StringUtils.isNotBlank(titlePrefix)) {
+                    printWriter.printf(TITLE_UPDATE_SCRIPT, titlePrefix);
+                }
+            }
+        });
 
-        boolean doInclude = true;
+        try {
+            filterChain.doFilter(request, injectingResponse);
+        } finally {
+            // Write out what was held back, also if the rendering failed half way
+            injectingResponse.finish();
+        }
+    }
+
+    private boolean isExcludedWCMMode(final HttpServletRequest request) {
         if (ArrayUtils.isNotEmpty(excludedWCMModes)) {
             // Test for configured WCM modes, where the indicators are not displayed
             WCMMode wcmmode = extractFromRequest(request);
@@ -191,44 +208,14 @@ public class AemEnvironmentIndicatorFilter implements Filter {
             if (wcmmode != null) {
                 for (String m : excludedWCMModes) {
                     if (StringUtils.equalsIgnoreCase(wcmmode.name(), m)) {
-                        doInclude = false;
-                        break;
+                        return true;
                     }
                 }
             } else {
                 // No wcmmode could be extracted from the request
             }
         }
-
-        // Get contents
-        final String contents = capturedResponse.getContents();
-
-        if (doInclude && contents != null && StringUtils.contains(response.getContentType(), "html")) {
-
-            final int bodyIndex = contents.indexOf("</body>");
-
-            if (bodyIndex != -1) {
-                final PrintWriter printWriter = response.getWriter();
-
-                printWriter.write(contents.substring(0, bodyIndex));
-
-                if (StringUtils.isNotBlank(css)) {
-                    printWriter.write("<style>" + css + " </style>");
-                    printWriter.write("<div id=\"" + DIV_ID + "\">" + innerHTML + "</div>");
-                }
-
-                if (StringUtils.isNotBlank(titlePrefix)) {
-                    printWriter.printf(TITLE_UPDATE_SCRIPT, titlePrefix);
-                }
-
-                printWriter.write(contents.substring(bodyIndex));
-                return;
-            }
-        }
-
-        if (contents != null) {
-            response.getWriter().write(contents);
-        }
+        return false;
     }
 
     @Override
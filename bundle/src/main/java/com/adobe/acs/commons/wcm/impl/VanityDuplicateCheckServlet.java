@@ -23,25 +23,23 @@ import static org.apache.sling.api.servlets.ServletResolverConstants.SLING_SERVL
 import static org.apache.sling.api.servlets.ServletResolverConstants.SLING_SERVLET_PATHS;
 
 import java.io.IOException;
-import java.util.Iterator;
 
-import javax.jcr.query.Query;
 import javax.servlet.Servlet;
 import javax.servlet.ServletException;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
-import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
 
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.day.cq.wcm.api.NameConstants;
+import com.adobe.acs.commons.wcm.vanity.VanityURLService;
 import com.google.gson.Gson;
 import java.util.ArrayList;
 import java.util.List;
@@ -58,6 +56,9 @@ public final class VanityDuplicateCheckServlet extends SlingSafeMethodsServlet {
 
     private static final Logger log = LoggerFactory.getLogger(VanityDuplicateCheckServlet.class);
 
+    @Reference
+    private VanityURLService vanityURLService;
+
     @Override
     protected void doGet(SlingHttpServletRequest request, SlingHttpServletResponse response)
             throws ServletException, IOException {
@@ -73,12 +74,7 @@ public final class VanityDuplicateCheckServlet extends SlingSafeMethodsServlet {
         List<String> paths = new ArrayList<>();
 
         if (StringUtils.isNotBlank(vanityPath)) {
-            String xpath = "//element(*)[" + NameConstants.PN_SLING_VANITY_PATH + "='" + vanityPath + "']";
-            @SuppressWarnings("deprecation")
-            Iterator<Resource> resources = resolver.findResources(xpath, Query.XPATH);
-            while (resources.hasNext()) {
-                Resource resource = resources.next();
-                String path = resource.getPath();
+            for (String path : vanityURLService.getVanityPathResources(resolver, vanityPath)) {
                 if (path.startsWith("/content") && !path.equals(pagePath)) {
                     paths.add(path);
                 }
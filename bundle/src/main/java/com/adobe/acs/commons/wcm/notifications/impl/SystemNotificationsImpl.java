@@ -145,9 +145,9 @@ public class SystemNotificationsImpl extends AbstractHtmlRequestInjector impleme
     }
 
     @Override
-    protected int getInjectIndex(String originalContents) {
+    protected String getInjectMarker() {
         // Inject immediately before the ending body tag
-        return StringUtils.indexOf(originalContents, "</body>");
+        return "</body>";
     }
 
     @Override
@@ -66,63 +66,49 @@ public class SharedComponentPropertiesBindingsValuesProvider implements Bindings
         Resource resource = (Resource) bindings.get("resource");
         Component component = WCMUtils.getComponent(resource);
         if (component != null) {
+            ValueMap mergedProperties = null;
             if (pageRootProvider != null) {
-                setSharedProperties(bindings, resource, component);
+                mergedProperties = setSharedProperties(bindings, resource, component);
             } else {
                 log.debug("Page Root Provider must be configured for shared component properties to be supported");
             }
-            setMergedProperties(bindings, resource);
+            if (mergedProperties == null) {
+                // without a page root there are only instance-level properties
+                Map<String, Object> instanceProperties = new HashMap<String, Object>();
+                if (resource.getValueMap() != null) {
+                    instanceProperties.putAll(resource.getValueMap());
+                }
+                mergedProperties = new ValueMapDecorator(instanceProperties);
+            }
+            bindings.put(SharedComponentProperties.MERGED_PROPERTIES, mergedProperties);
         }
     }
 
-    private void setSharedProperties(Bindings bindings, Resource resource, Component component) {
+    /**
+     * Adds the shared and global property bindings.
+     *
+     * @return the merged properties, or null if the page root could not be determined
+     */
+    private ValueMap setSharedProperties(Bindings bindings, Resource resource, Component component) {
         Page pageRoot = pageRootProvider.getRootPage(resource);
         if (pageRoot != null) {
-            String globalPropsPath = pageRoot.getPath() + "/jcr:content/" + SharedComponentProperties.NN_GLOBAL_COMPONENT_PROPERTIES;
-            Resource globalPropsResource = resource.getResourceResolver().getResource(globalPropsPath);
+            SharedComponentPropertiesCache cache = SharedComponentPropertiesCache.get(resource.getResourceResolver());
+            Resource globalPropsResource = cache.getGlobalPropertiesResource(pageRoot.getPath());
             if (globalPropsResource != null) {
                 bindings.put(SharedComponentProperties.GLOBAL_PROPERTIES, globalPropsResource.getValueMap());
                 bindings.put(SharedComponentProperties.GLOBAL_PROPERTIES_RESOURCE, globalPropsResource);
             }
 
-            String sharedPropsPath = pageRoot.getPath() + "/jcr:content/" + SharedComponentProperties.NN_SHARED_COMPONENT_PROPERTIES +  "/"
-                    + component.getResourceType();
-            Resource sharedPropsResource = resource.getResourceResolver().getResource(sharedPropsPath);
+            Resource sharedPropsResource = cache.getSharedPropertiesResource(pageRoot.getPath(), component.getResourceType());
             if (sharedPropsResource != null) {
                 bindings.put(SharedComponentProperties.SHARED_PROPERTIES, sharedPropsResource.getValueMap());
                 bindings.put(SharedComponentProperties.SHARED_PROPERTIES_RESOURCE, sharedPropsResource);
             }
+
+            return cache.getMergedProperties(pageRoot.getPath(), component.getResourceType(), resource.getValueMap());
         } else {
             log.debug("Could not determine shared properties root for resource {}", resource.getPath());
+            return null;
         }
     }
-
-    private void setMergedProperties(Bindings bindings, Resource resource) {
-        ValueMap globalPropertyMap = (ValueMap) bindings.get(SharedComponentProperties.GLOBAL_PROPERTIES);
-        ValueMap sharedPropertyMap = (ValueMap) bindings.get(SharedComponentProperties.SHARED_PROPERTIES);
-        ValueMap localPropertyMap = resource.getValueMap();
-
-        bindings.put(SharedComponentProperties.MERGED_PROPERTIES, mergeProperties(localPropertyMap, sharedPropertyMap, globalPropertyMap));
-    }
-
-    private ValueMap mergeProperties(ValueMap instanceProperties, ValueMap sharedProperties, ValueMap globalProperties) {
-        Map<String, Object> mergedProperties = new HashMap<String, Object>();
-
-        // Add Component Global Configs
-        if (globalProperties != null) {
-            mergedProperties.putAll(globalProperties);
-        }
-
-        // Add Component Shared Configs
-        if (sharedProperties != null) {
-            mergedProperties.putAll(sharedProperties);
-        }
-
-        // Merge in the Component Local Configs
-        if (instanceProperties != null) {
-            mergedProperties.putAll(instanceProperties);
-        }
-
-        return new ValueMapDecorator(mergedProperties);
-    }
 }
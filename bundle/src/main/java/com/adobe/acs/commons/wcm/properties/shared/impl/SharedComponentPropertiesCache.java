@@ -0,0 +1,161 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.wcm.properties.shared.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+
+import com.adobe.acs.commons.wcm.properties.shared.SharedComponentProperties;
+import com.day.cq.commons.jcr.JcrConstants;
+
+/**
+ * Resolves the global and shared component properties below a page root and caches them for the lifetime of a
+ * resource resolver, which usually is a single request. All components rendered on a page share the same page root,
+ * so the lookups and merges only happen once per page root and resource type instead of once per component.
+ * <p>
+ * Cached properties are dropped whenever {@link SharedComponentPropertiesChangeListener} observes a change of shared
+ * or global component properties, so long-lived resource resolvers do not keep serving stale values.
+ */
+public final class SharedComponentPropertiesCache {
+    private static final String PROPERTY_MAP_KEY = SharedComponentPropertiesCache.class.getName();
+
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private final ResourceResolver resourceResolver;
+    private final long generation;
+    private final Map<String, Resource> resources = new HashMap<>();
+    private final Map<String, Map<String, Object>> sharedAndGlobalProperties = new HashMap<>();
+
+    private SharedComponentPropertiesCache(final ResourceResolver resourceResolver, final long generation) {
+        this.resourceResolver = resourceResolver;
+        this.generation = generation;
+    }
+
+    /**
+     * @param resourceResolver the resource resolver to resolve properties with
+     * @return the cache bound to the resource resolver; uncached if the resolver has no property map
+     */
+    public static SharedComponentPropertiesCache get(final ResourceResolver resourceResolver) {
+        final long currentGeneration = GENERATION.get();
+        final Map<String, Object> propertyMap = resourceResolver.getPropertyMap();
+        if (propertyMap == null) {
+            return new SharedComponentPropertiesCache(resourceResolver, currentGeneration);
+        }
+
+        final Object cache = propertyMap.get(PROPERTY_MAP_KEY);
+        if (cache instanceof SharedComponentPropertiesCache
+                && ((SharedComponentPropertiesCache) cache).generation == currentGeneration) {
+            return (SharedComponentPropertiesCache) cache;
+        }
+
+        final SharedComponentPropertiesCache newCache = new SharedComponentPropertiesCache(resourceResolver, currentGeneration);
+        propertyMap.put(PROPERTY_MAP_KEY, newCache);
+        return newCache;
+    }
+
+    /**
+     * Drops the cached properties of all resource resolvers.
+     */
+    static void invalidate() {
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * @param pageRootPath the path of the page root
+     * @return the global properties resource, or null if the page root has none
+     */
+    public Resource getGlobalPropertiesResource(final String pageRootPath) {
+        return getResource(pageRootPath + "/" + JcrConstants.JCR_CONTENT + "/"
+                + SharedComponentProperties.NN_GLOBAL_COMPONENT_PROPERTIES);
+    }
+
+    /**
+     * @param pageRootPath the path of the page root
+     * @param resourceType the resource type of the component
+     * @return the shared properties resource, or null if the page root has none for the resource type
+     */
+    public Resource getSharedPropertiesResource(final String pageRootPath, final String resourceType) {
+        return getResource(pageRootPath + "/" + JcrConstants.JCR_CONTENT + "/"
+                + SharedComponentProperties.NN_SHARED_COMPONENT_PROPERTIES + "/" + resourceType);
+    }
+
+    /**
+     * @param pageRootPath the path of the page root
+     * @return the global properties, empty if the page root has none
+     */
+    public ValueMap getGlobalProperties(final String pageRootPath) {
+        return getValueMap(getGlobalPropertiesResource(pageRootPath));
+    }
+
+    /**
+     * @param pageRootPath the path of the page root
+     * @param resourceType the resource type of the component
+     * @return the shared properties, empty if the page root has none for the resource type
+     */
+    public ValueMap getSharedProperties(final String pageRootPath, final String resourceType) {
+        return getValueMap(getSharedPropertiesResource(pageRootPath, resourceType));
+    }
+
+    /**
+     * Merges the instance properties of a component over its shared and global properties, giving preference to
+     * instance-level values, then shared values, and finally global values.
+     *
+     * @param pageRootPath the path of the page root
+     * @param resourceType the resource type of the component
+     * @param instanceProperties the properties of the component instance
+     * @return the merged properties
+     */
+    public ValueMap getMergedProperties(final String pageRootPath, final String resourceType,
+                                        final ValueMap instanceProperties) {
+        final Map<String, Object> mergedProperties = new HashMap<>(
+                sharedAndGlobalProperties.computeIfAbsent(pageRootPath + "#" + resourceType, key -> {
+                    final Map<String, Object> properties = new HashMap<>(getGlobalProperties(pageRootPath));
+                    properties.putAll(getSharedProperties(pageRootPath, resourceType));
+                    return Collections.unmodifiableMap(properties);
+                }));
+
+        if (instanceProperties != null) {
+            mergedProperties.putAll(instanceProperties);
+        }
+
+        return new ValueMapDecorator(mergedProperties);
+    }
+
+    private Resource getResource(final String path) {
+        if (resources.containsKey(path)) {
+            return resources.get(path);
+        }
+
+        final Resource resource = resourceResolver.getResource(path);
+        resources.put(path, resource);
+        return resource;
+    }
+
+    private static ValueMap getValueMap(final Resource resource) {
+        return resource != null ? resource.getValueMap() : ValueMapDecorator.EMPTY;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.wcm.properties.shared.impl;
+
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Component;
+
+import com.adobe.acs.commons.wcm.properties.shared.SharedComponentProperties;
+
+/**
+ * Invalidates the {@link SharedComponentPropertiesCache} when shared or global component properties change, or when
+ * content is removed, which may remove a page root along with its properties.
+ */
+@Component(service = {ResourceChangeListener.class, ExternalResourceChangeListener.class},
+        property = {
+                ResourceChangeListener.PATHS + "=/content",
+                ResourceChangeListener.CHANGES + "=ADDED",
+                ResourceChangeListener.CHANGES + "=CHANGED",
+                ResourceChangeListener.CHANGES + "=REMOVED"
+        })
+public class SharedComponentPropertiesChangeListener implements ResourceChangeListener, ExternalResourceChangeListener {
+
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        for (final ResourceChange change : changes) {
+            if (ResourceChange.ChangeType.REMOVED.equals(change.getType())
+                    || StringUtils.contains(change.getPath(), "/" + SharedComponentProperties.NN_GLOBAL_COMPONENT_PROPERTIES)
+                    || StringUtils.contains(change.getPath(), "/" + SharedComponentProperties.NN_SHARED_COMPONENT_PROPERTIES)) {
+                SharedComponentPropertiesCache.invalidate();
+                return;
+            }
+        }
+    }
+}
@@ -22,10 +22,12 @@ package com.adobe.acs.commons.wcm.vanity;
 import aQute.bnd.annotation.ProviderType;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.resource.ResourceResolver;
 
 import javax.jcr.RepositoryException;
 import javax.servlet.ServletException;
 import java.io.IOException;
+import java.util.Collection;
 
 @ProviderType
 @SuppressWarnings("checkstyle:abbreviationaswordinname")
@@ -40,4 +42,13 @@ public interface VanityURLService {
      * @return true if this request is dispatched because it's a valid Vanity path, else false.
      */
     boolean dispatch(SlingHttpServletRequest request, SlingHttpServletResponse response) throws ServletException, IOException, RepositoryException;
+
+    /**
+     * Finds the resources declaring the given sling:vanityPath.
+     *
+     * @param resourceResolver the resource resolver of the caller; only resources it can read are returned
+     * @param vanityPath the vanity path to look up
+     * @return the paths of the resources declaring the vanity path
+     */
+    Collection<String> getVanityPathResources(ResourceResolver resourceResolver, String vanityPath);
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.wcm.vanity.impl;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.jcr.query.Query;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.observation.ResourceChange;
+
+import com.day.cq.wcm.api.NameConstants;
+
+/**
+ * Immutable index of the sling:vanityPath values declared under /content, mapping each vanity path to the resources
+ * declaring it. Updates never modify an index, they return a new one, so readers can use an instance without locking.
+ */
+final class VanityPathIndex {
+
+    static final String INDEXED_ROOT = "/content";
+
+    private static final String QUERY = "SELECT * FROM [nt:base] AS s WHERE ISDESCENDANTNODE([" + INDEXED_ROOT + "]) "
+            + "AND s.[" + NameConstants.PN_SLING_VANITY_PATH + "] IS NOT NULL";
+
+    /** vanity path to the paths of the resources declaring it */
+    private final Map<String, Set<String>> resourcesByVanityPath;
+
+    /** resource path to the vanity paths it declares; used to apply changes */
+    private final Map<String, Set<String>> vanityPathsByResource;
+
+    private VanityPathIndex(Map<String, Set<String>> resourcesByVanityPath,
+                            Map<String, Set<String>> vanityPathsByResource) {
+        this.resourcesByVanityPath = resourcesByVanityPath;
+        this.vanityPathsByResource = vanityPathsByResource;
+    }
+
+    /**
+     * Build the index from scratch.
+     *
+     * @param resourceResolver resolver able to read everything under /content
+     * @return the new index
+     */
+    static VanityPathIndex build(ResourceResolver resourceResolver) {
+        final Builder builder = new Builder();
+        final Iterator<Resource> resources = resourceResolver.findResources(QUERY, Query.JCR_SQL2);
+        while (resources.hasNext()) {
+            builder.put(resources.next());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Apply resource changes, as reported by a ResourceChangeListener, to a copy of this index.
+     *
+     * @param resourceResolver resolver able to read everything under /content
+     * @param changes          the changes to apply
+     * @return the updated index
+     */
+    VanityPathIndex update(ResourceResolver resourceResolver, Collection<ResourceChange> changes) {
+        final Builder builder = new Builder(this);
+        for (final ResourceChange change : changes) {
+            final String path = change.getPath();
+            if (!isIndexed(path)) {
+                continue;
+            }
+            if (change.getType() == ResourceChange.ChangeType.REMOVED) {
+                // Only the root of a removed tree is reported
+                builder.removeTree(path);
+            } else if (change.getType() == ResourceChange.ChangeType.ADDED) {
+                // Moves, copies and package installs only report the root of the added tree
+                builder.removeTree(path);
+                final Resource resource = resourceResolver.getResource(path);
+                if (resource != null) {
+                    builder.putTree(resource);
+                }
+            } else {
+                builder.remove(path);
+                final Resource resource = resourceResolver.getResource(path);
+                if (resource != null) {
+                    builder.put(resource);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param vanityPath the vanity path
+     * @return the paths of the resources declaring the vanity path, never null
+     */
+    Set<String> getResources(String vanityPath) {
+        final Set<String> resources = resourcesByVanityPath.get(normalize(vanityPath));
+        return resources == null ? Collections.<String>emptySet() : resources;
+    }
+
+    /**
+     * @return the number of distinct vanity paths in the index
+     */
+    int size() {
+        return resourcesByVanityPath.size();
+    }
+
+    static boolean isIndexed(String path) {
+        return StringUtils.equals(path, INDEXED_ROOT) || StringUtils.startsWith(path, INDEXED_ROOT + "/");
+    }
+
+    static String normalize(String vanityPath) {
+        final String trimmed = StringUtils.trimToEmpty(vanityPath);
+        return trimmed.startsWith("/") ? trimmed : "/" + trimmed;
+    }
+
+    /**
+     * Copies the maps of an index, applies changes and hands them to a new index.
+     */
+    private static final class Builder {
+        private final Map<String, Set<String>> resourcesByVanityPath;
+        private final Map<String, Set<String>> vanityPathsByResource;
+
+        Builder() {
+            this.resourcesByVanityPath = new HashMap<>();
+            this.vanityPathsByResource = new HashMap<>();
+        }
+
+        Builder(VanityPathIndex index) {
+            this.resourcesByVanityPath = new HashMap<>(index.resourcesByVanityPath);
+            this.vanityPathsByResource = new HashMap<>(index.vanityPathsByResource);
+        }
+
+        void put(Resource resource) {
+            final String[] values = resource.getValueMap().get(NameConstants.PN_SLING_VANITY_PATH, String[].class);
+            if (ArrayUtils.isEmpty(values)) {
+                return;
+            }
+            final Set<String> vanityPaths = new HashSet<>();
+            for (final String value : values) {
+                if (StringUtils.isNotBlank(value)) {
+                    vanityPaths.add(normalize(value));
+                }
+            }
+            if (vanityPaths.isEmpty()) {
+                return;
+            }
+
+            final String path = resource.getPath();
+            vanityPathsByResource.put(path, Collections.unmodifiableSet(vanityPaths));
+            for (final String vanityPath : vanityPaths) {
+                // Sets are shared with the index being copied, so replace rather than modify them
+                final Set<String> resources = new HashSet<>(
+                        resourcesByVanityPath.getOrDefault(vanityPath, Collections.<String>emptySet()));
+                resources.add(path);
+                resourcesByVanityPath.put(vanityPath, Collections.unmodifiableSet(resources));
+            }
+        }
+
+        void putTree(Resource root) {
+            final Deque<Resource> resources = new ArrayDeque<>();
+            resources.push(root);
+            while (!resources.isEmpty()) {
+                final Resource resource = resources.pop();
+                put(resource);
+                for (final Resource child : resource.getChildren()) {
+                    resources.push(child);
+                }
+            }
+        }
+
+        void remove(String path) {
+            final Set<String> vanityPaths = vanityPathsByResource.remove(path);
+            if (vanityPaths == null) {
+                return;
+            }
+            for (final String vanityPath : vanityPaths) {
+                final Set<String> resources = new HashSet<>(
+                        resourcesByVanityPath.getOrDefault(vanityPath, Collections.<String>emptySet()));
+                resources.remove(path);
+                if (resources.isEmpty()) {
+                    resourcesByVanityPath.remove(vanityPath);
+                } else {
+                    resourcesByVanityPath.put(vanityPath, Collections.unmodifiableSet(resources));
+                }
+            }
+        }
+
+        void removeTree(String path) {
+            final String prefix = path + "/";
+            final Set<String> removed = new HashSet<>();
+            for (final String resourcePath : vanityPathsByResource.keySet()) {
+                if (resourcePath.equals(path) || resourcePath.startsWith(prefix)) {
+                    removed.add(resourcePath);
+                }
+            }
+            for (final String resourcePath : removed) {
+                remove(resourcePath);
+            }
+        }
+
+        VanityPathIndex build() {
+            return new VanityPathIndex(Collections.unmodifiableMap(resourcesByVanityPath),
+                    Collections.unmodifiableMap(vanityPathsByResource));
+        }
+    }
+}
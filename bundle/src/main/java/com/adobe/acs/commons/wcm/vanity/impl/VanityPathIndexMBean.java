@@ -0,0 +1,40 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.wcm.vanity.impl;
+
+import aQute.bnd.annotation.ProviderType;
+import com.adobe.granite.jmx.annotation.Description;
+
+@ProviderType
+@Description("ACS AEM Commons - Vanity Path Index MBean")
+public interface VanityPathIndexMBean {
+
+    @Description("Number of distinct vanity paths in the index; -1 if the index is not available")
+    int getIndexSize();
+
+    @Description("Duration of the last full rebuild of the index in milliseconds")
+    long getLastRebuildDuration();
+
+    @Description("Time of the last full rebuild of the index")
+    String getLastRebuildTime();
+
+    @Description("Rebuild the index from the repository")
+    void rebuildIndex();
+}
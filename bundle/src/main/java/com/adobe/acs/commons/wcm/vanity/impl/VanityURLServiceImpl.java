@@ -20,8 +20,21 @@
 package com.adobe.acs.commons.wcm.vanity.impl;
 
 import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import javax.jcr.RepositoryException;
+import javax.jcr.query.Query;
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
 
@@ -29,22 +42,98 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
 import org.apache.sling.api.request.RequestPathInfo;
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.apache.sling.commons.scheduler.ScheduleOptions;
+import org.apache.sling.commons.scheduler.Scheduler;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.adobe.acs.commons.wcm.vanity.VanityURLService;
+import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean;
 import com.day.cq.commons.PathInfo;
+import com.day.cq.wcm.api.NameConstants;
 
 @Component(service=VanityURLService.class)
 @SuppressWarnings("checkstyle:abbreviationaswordinname")
-public class VanityURLServiceImpl implements VanityURLService {
+public class VanityURLServiceImpl implements VanityURLService, VanityPathIndexMBean {
 
     private static final Logger log = LoggerFactory.getLogger(VanityURLServiceImpl.class);
 
     private static final String VANITY_DISPATCH_CHECK_ATTR = "acs-aem-commons__vanity-check-loop-detection";
     private static final String DEFAULT_PATH_SCOPE = "/content";
+    private static final String SERVICE_NAME = "vanity-path-index";
+    private static final Map<String, Object> AUTH_INFO =
+            Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, (Object) SERVICE_NAME);
+
+    @Reference
+    private ResourceResolverFactory resourceResolverFactory;
+
+    @Reference
+    private Scheduler scheduler;
+
+    /** Replaced as a whole on every update; null if the index could not be built */
+    private volatile VanityPathIndex vanityPathIndex;
+
+    private final Object indexLock = new Object();
+
+    private volatile long lastRebuildDuration = -1;
+
+    private volatile long lastRebuildTime = -1;
+
+    private ServiceRegistration<?> listenerRegistration;
+
+    private ServiceRegistration<?> mbeanRegistration;
+
+    @Activate
+    @SuppressWarnings("squid:S1149")
+    protected void activate(BundleContext bundleContext) {
+        // Querying all vanity paths can take a while; resolve vanity paths one by one until the index is built
+        scheduleRebuild();
+
+        final Dictionary<String, Object> listenerProps = new Hashtable<>();
+        listenerProps.put(ResourceChangeListener.PATHS, VanityPathIndex.INDEXED_ROOT);
+        listenerProps.put(ResourceChangeListener.CHANGES, new String[]{
+                ResourceChange.ChangeType.ADDED.name(),
+                ResourceChange.ChangeType.CHANGED.name(),
+                ResourceChange.ChangeType.REMOVED.name()});
+        listenerRegistration = bundleContext.registerService(
+                new String[]{ResourceChangeListener.class.getName(), ExternalResourceChangeListener.class.getName()},
+                new IndexUpdater(), listenerProps);
+
+        try {
+            final Dictionary<String, Object> mbeanProps = new Hashtable<>();
+            mbeanProps.put("jmx.objectname", "com.adobe.acs.commons:type=Vanity Path Index");
+            mbeanRegistration = bundleContext.registerService(DynamicMBean.class.getName(),
+                    new AnnotatedStandardMBean(this, VanityPathIndexMBean.class), mbeanProps);
+        } catch (NotCompliantMBeanException e) {
+            log.error("Could not register the vanity path index MBean", e);
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        if (listenerRegistration != null) {
+            listenerRegistration.unregister();
+            listenerRegistration = null;
+        }
+        if (mbeanRegistration != null) {
+            mbeanRegistration.unregister();
+            mbeanRegistration = null;
+        }
+        vanityPathIndex = null;
+    }
 
     public boolean dispatch(SlingHttpServletRequest request, SlingHttpServletResponse response) throws ServletException, IOException, RepositoryException {
         if (request.getAttribute(VANITY_DISPATCH_CHECK_ATTR) != null) {
@@ -85,6 +174,12 @@ public class VanityURLServiceImpl implements VanityURLService {
      * @return return true if the vanityPath is a registered sling:vanityPath under /content
      */
     protected boolean isVanityPath(String pathScope, String vanityPath, SlingHttpServletRequest request) throws RepositoryException {
+        final VanityPathIndex index = this.vanityPathIndex;
+        if (index != null && index.getResources(vanityPath).isEmpty()) {
+            // Misses, e.g. bots probing random URLs, are answered without resolving anything
+            return false;
+        }
+
         final Resource vanityResource = request.getResourceResolver().resolve(vanityPath);
 
         if (vanityResource != null) {
@@ -105,5 +200,101 @@ public class VanityURLServiceImpl implements VanityURLService {
         return false;
     }
 
+    @Override
+    public Collection<String> getVanityPathResources(ResourceResolver resourceResolver, String vanityPath) {
+        final List<String> paths = new ArrayList<>();
+        if (StringUtils.isBlank(vanityPath)) {
+            return paths;
+        }
 
-}
\ No newline at end of file
+        final VanityPathIndex index = this.vanityPathIndex;
+        if (index != null) {
+            for (final String path : index.getResources(vanityPath)) {
+                // The index is built with a service user; only report what the caller can read
+                if (resourceResolver.getResource(path) != null) {
+                    paths.add(path);
+                }
+            }
+        } else {
+            final String xpath = "//element(*)[" + NameConstants.PN_SLING_VANITY_PATH + "='" + vanityPath + "']";
+            @SuppressWarnings("deprecation")
+            final Iterator<Resource> resources = resourceResolver.findResources(xpath, Query.XPATH);
+            while (resources.hasNext()) {
+                paths.add(resources.next().getPath());
+            }
+        }
+        return paths;
+    }
+
+    @Override
+    public int getIndexSize() {
+        final VanityPathIndex index = this.vanityPathIndex;
+        return index == null ? -1 : index.size();
+    }
+
+    @Override
+    public long getLastRebuildDuration() {
+        return lastRebuildDuration;
+    }
+
+    @Override
+    public String getLastRebuildTime() {
+        if (lastRebuildTime < 0) {
+            return "never";
+        }
+        return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date(lastRebuildTime));
+    }
+
+    @Override
+    public void rebuildIndex() {
+        synchronized (indexLock) {
+            final long start = System.currentTimeMillis();
+            try (ResourceResolver resourceResolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)) {
+                vanityPathIndex = VanityPathIndex.build(resourceResolver);
+                lastRebuildDuration = System.currentTimeMillis() - start;
+                lastRebuildTime = start;
+                log.info("Indexed [ {} ] vanity paths in [ {} ] ms", vanityPathIndex.size(), lastRebuildDuration);
+            } catch (LoginException | RuntimeException e) {
+                // Keep serving; vanity paths are resolved one by one until the index can be built
+                log.error("Could not build the vanity path index, falling back to resource resolution", e);
+                vanityPathIndex = null;
+            }
+        }
+    }
+
+    private void scheduleRebuild() {
+        final ScheduleOptions options = scheduler.NOW();
+        options.name(SERVICE_NAME + "-rebuild");
+        options.canRunConcurrently(false);
+        if (!scheduler.schedule((Runnable) this::rebuildIndex, options)) {
+            log.error("Could not schedule the vanity path index rebuild, falling back to resource resolution");
+        }
+    }
+
+    private void updateIndex(List<ResourceChange> changes) {
+        synchronized (indexLock) {
+            final VanityPathIndex index = this.vanityPathIndex;
+            if (index == null) {
+                return;
+            }
+            try (ResourceResolver resourceResolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)) {
+                vanityPathIndex = index.update(resourceResolver, changes);
+            } catch (LoginException | RuntimeException e) {
+                log.error("Could not update the vanity path index, falling back to resource resolution until it is "
+                        + "rebuilt", e);
+                vanityPathIndex = null;
+                scheduleRebuild();
+            }
+        }
+    }
+
+    /**
+     * Keeps the index in sync with the changes below /content, including those made on other cluster nodes.
+     */
+    private final class IndexUpdater implements ResourceChangeListener, ExternalResourceChangeListener {
+        @Override
+        public void onChange(List<ResourceChange> changes) {
+            updateIndex(changes);
+        }
+    }
+}
@@ -20,5 +20,5 @@
 /**
  * Vanity WCM Utilities.
  */
-@aQute.bnd.annotation.Version("1.0.0")
+@aQute.bnd.annotation.Version("1.1.0")
 package com.adobe.acs.commons.wcm.vanity;
\ No newline at end of file
@@ -41,8 +41,7 @@ import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.Iterator;
 import java.util.Map;
 
 public abstract class AbstractWorkflowRunner implements BulkWorkflowRunner {
@@ -63,9 +62,9 @@ public abstract class AbstractWorkflowRunner implements BulkWorkflowRunner {
     public void initialize(QueryHelper queryHelper, Config config) throws
             PersistenceException, RepositoryException {
 
-        // Query for all candidate resources
+        // Query for all candidate resources; results are resolved as they are consumed
         final ResourceResolver resourceResolver = config.getResourceResolver();
-        final List<Resource> resources = queryHelper.findResources(resourceResolver,
+        final Iterator<Resource> itr = queryHelper.findResourcesIterator(resourceResolver,
                 config.getQueryType(),
                 config.getQueryStatement(),
                 config.getRelativePath());
@@ -79,10 +78,7 @@ public abstract class AbstractWorkflowRunner implements BulkWorkflowRunner {
         // Set the first Payload Group to be the launchpad node
         JcrUtil.setProperty(workspace, Workspace.PN_ACTIVE_PAYLOAD_GROUPS, new String[]{PayloadGroup.dereference(currentPayloadGroup.getPath())});
 
-
         // No begin populating the actual PayloadGroup nodes
-        ListIterator<Resource> itr = resources.listIterator();
-
         while (itr.hasNext()) {
             // Increment to a new PayloadGroup as needed
             if (total % config.getBatchSize() == 0 && itr.hasNext()) {
@@ -99,6 +95,8 @@ public abstract class AbstractWorkflowRunner implements BulkWorkflowRunner {
             log.debug("Created payload with search result [ {} ]", payload.getPath());
 
             if (++total % SAVE_THRESHOLD == 0 || !itr.hasNext()) {
+                // Report the progress so far, so long running initializations are visible in the UI
+                JcrUtil.setProperty(workspace, Workspace.PN_INITIALIZED_COUNT, (long) total);
                 resourceResolver.commit();
             }
         } // while
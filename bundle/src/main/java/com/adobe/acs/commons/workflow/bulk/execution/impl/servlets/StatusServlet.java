@@ -95,6 +95,9 @@ public class StatusServlet extends SlingAllMethodsServlet {
         final JsonObject json = new JsonObject();
 
         json.addProperty("initialized", workspace.isInitialized());
+        if (!workspace.isInitialized()) {
+            json.addProperty("initializedCount", workspace.getInitializedCount());
+        }
         json.addProperty("status", workspace.getStatus().name());
 
         if (workspace.getSubStatus() != null) {
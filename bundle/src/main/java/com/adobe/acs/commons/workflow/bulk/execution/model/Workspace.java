@@ -56,6 +56,7 @@ public class Workspace {
     public static final String PN_STATUS = "status";
     public static final String PN_SUB_STATUS = "subStatus";
     private static final String PN_INITIALIZED = "initialized";
+    public static final String PN_INITIALIZED_COUNT = "initializedCount";
     private static final String PN_COMPLETED_AT = "completedAt";
     private static final String PN_COUNT_COMPLETE = "completeCount";
     private static final String PN_COUNT_FAILURE = "failCount";
@@ -104,6 +105,10 @@ public class Workspace {
     @Default(booleanValues = false)
     private boolean initialized;
 
+    @Inject
+    @Default(intValues = 0)
+    private int initializedCount;
+
     @Inject
     @Default(intValues = 0)
     private int totalCount;
@@ -180,6 +185,13 @@ public class Workspace {
         return jobName;
     }
 
+    /**
+     * @return the number of payloads created so far while the workspace is being initialized
+     */
+    public int getInitializedCount() {
+        return initializedCount;
+    }
+
     public int getTotalCount() {
         return totalCount;
     }
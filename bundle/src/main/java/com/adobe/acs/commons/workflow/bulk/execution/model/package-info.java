@@ -21,7 +21,7 @@
 /**
  * Bulk Execution Model API
  */
-@Version("4.0.0")
+@Version("4.1.0")
 package com.adobe.acs.commons.workflow.bulk.execution.model;
 
 import org.osgi.annotation.versioning.Version;
\ No newline at end of file
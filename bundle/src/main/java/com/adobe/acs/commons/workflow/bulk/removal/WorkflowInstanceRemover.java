@@ -93,6 +93,34 @@ public interface WorkflowInstanceRemover {
             InterruptedException, WorkflowRemovalForceQuitException;
 
 
+    /**
+     * Removes workflow instances that match the parameter criteria.
+     * In parallel mode each dated workflow instance folder is processed as its own unit of work, with its own commits
+     * and retries, and folders whose instances all match are removed as a whole.
+     *
+     * @param resourceResolver the resource resolver; must have access to read/delete workflow instances
+     * @param modelIds WF Models to remove
+     * @param statuses WF Statuses to remove
+     * @param payloads Regexes; WF Payloads to remove
+     * @param olderThan UTC time in milliseconds; only delete WF's started after this time
+     * @param batchSize number of workflow instances to delete per JCR save
+     * @param maxDurationInMins max number of mins the workflow removal process is allowed to run
+     * @param parallel true to process the workflow instance folders in parallel
+     * @return the number of WF instances removed
+     */
+    default int removeWorkflowInstances(final ResourceResolver resourceResolver,
+                                        final Collection<String> modelIds,
+                                        final Collection<String> statuses,
+                                        final Collection<Pattern> payloads,
+                                        final Calendar olderThan,
+                                        final int batchSize,
+                                        final int maxDurationInMins,
+                                        final boolean parallel) throws PersistenceException, WorkflowRemovalException,
+            InterruptedException, WorkflowRemovalForceQuitException {
+        return removeWorkflowInstances(resourceResolver, modelIds, statuses, payloads, olderThan, batchSize, maxDurationInMins);
+    }
+
+
     /**
      * Gets the Workflow Remover's status.
      * *
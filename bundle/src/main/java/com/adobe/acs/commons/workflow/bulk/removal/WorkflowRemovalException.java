@@ -27,4 +27,8 @@ public final class WorkflowRemovalException extends Exception {
         super(message);
     }
 
+    public WorkflowRemovalException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
 }
\ No newline at end of file
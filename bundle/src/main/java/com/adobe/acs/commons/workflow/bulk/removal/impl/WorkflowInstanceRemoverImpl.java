@@ -39,6 +39,7 @@ import javax.jcr.RepositoryException;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.jackrabbit.JcrConstants;
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
@@ -48,9 +49,14 @@ import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.adobe.acs.commons.fam.ActionManager;
+import com.adobe.acs.commons.fam.ActionManagerFactory;
+import com.adobe.acs.commons.fam.Failure;
 import com.adobe.acs.commons.workflow.bulk.removal.WorkflowInstanceRemover;
 import com.adobe.acs.commons.workflow.bulk.removal.WorkflowRemovalException;
 import com.adobe.acs.commons.workflow.bulk.removal.WorkflowRemovalForceQuitException;
@@ -95,6 +101,8 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
     private static final int MAX_SAVE_RETRIES = 5;
 
     private static final long MS_IN_ONE_MINUTE = 60000;
+
+    private static final long PARALLEL_CHECK_INTERVAL = 100;
     private static final String STATUS_RUNNING = "RUNNING";
 
     private final AtomicReference<WorkflowRemovalStatus> status
@@ -108,6 +116,9 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
     @Reference
     private WorkflowService workflowService;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policyOption = ReferencePolicyOption.GREEDY)
+    private ActionManagerFactory actionManagerFactory;
+
     /**
      * {@inheritDoc}
      */
@@ -213,7 +224,6 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
     /**
      * {@inheritDoc}
      */
-    @SuppressWarnings({"squid:S3776", "squid:S1141"})
     public int removeWorkflowInstances(final ResourceResolver resourceResolver,
                                        final Collection<String> modelIds,
                                        final Collection<String> statuses,
@@ -222,6 +232,23 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
                                        final int batchSize,
                                        final int maxDurationInMins)
             throws PersistenceException, WorkflowRemovalException, InterruptedException, WorkflowRemovalForceQuitException {
+        return removeWorkflowInstances(resourceResolver, modelIds, statuses, payloads, olderThan, batchSize, maxDurationInMins, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings({"squid:S3776", "squid:S1141"})
+    public int removeWorkflowInstances(final ResourceResolver resourceResolver,
+                                       final Collection<String> modelIds,
+                                       final Collection<String> statuses,
+                                       final Collection<Pattern> payloads,
+                                       final Calendar olderThan,
+                                       final int batchSize,
+                                       final int maxDurationInMins,
+                                       final boolean parallel)
+            throws PersistenceException, WorkflowRemovalException, InterruptedException, WorkflowRemovalForceQuitException {
 
         final long start = System.currentTimeMillis();
         long end = -1;
@@ -239,87 +266,50 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
             // Compute the end time
             end = start + maxDurationInMs;
         }
-        
+
+        final ActionManagerFactory localActionManagerFactory = this.actionManagerFactory;
+
+        if (parallel && localActionManagerFactory == null) {
+            log.warn("No Action Manager Factory is available; removing workflow instances sequentially");
+        }
+
         try {
             this.start(resourceResolver);
 
-            final List<Resource> containerFolders = this.getWorkflowInstanceFolders(resourceResolver);
+            if (parallel && localActionManagerFactory != null) {
+                final ParallelRemoval removal = new ParallelRemoval(modelIds, statuses, payloads, olderThan, batchSize, end);
+                count = removal.run(resourceResolver, localActionManagerFactory);
+            } else {
+                final List<Resource> containerFolders = this.getWorkflowInstanceFolders(resourceResolver);
 
-            for (Resource containerFolder : containerFolders) {
-                log.debug("Checking [ {} ] for workflow instances to remove", containerFolder.getPath());
+                for (Resource containerFolder : containerFolders) {
+                    log.debug("Checking [ {} ] for workflow instances to remove", containerFolder.getPath());
 
-                final Collection<Resource> sortedFolders = this.getSortedAndFilteredFolders(containerFolder);
+                    final Collection<Resource> sortedFolders = this.getSortedAndFilteredFolders(containerFolder);
 
-                for (final Resource folder : sortedFolders) {
+                    for (final Resource folder : sortedFolders) {
 
-                    int remaining = 0;
+                        int remaining = 0;
 
-                    for (final Resource instance : folder.getChildren()) {
-
-                        if (this.forceQuit.get()) {
-                            throw new WorkflowRemovalForceQuitException();
-                        } else if (end > 0 && System.currentTimeMillis() >= end) {
-                            throw new WorkflowRemovalMaxDurationExceededException();
-                        }
+                        for (final Resource instance : folder.getChildren()) {
 
-                        final ValueMap properties = instance.getValueMap();
+                            if (this.forceQuit.get()) {
+                                throw new WorkflowRemovalForceQuitException();
+                            } else if (end > 0 && System.currentTimeMillis() >= end) {
+                                throw new WorkflowRemovalMaxDurationExceededException();
+                            }
 
-                        if (!StringUtils.equals(NT_CQ_WORKFLOW,
-                                properties.get(JcrConstants.JCR_PRIMARYTYPE, String.class))) {
+                            if (!isWorkflowInstance(instance)) {
+                                // Only process cq:Workflow's
+                                remaining++;
+                                continue;
+                            }
 
-                            // Only process cq:Workflow's
-                            remaining++;
-                            continue;
-                        }
+                            checkedCount++;
 
-                        checkedCount++;
-
-                        final String instanceStatus = getStatus(instance);
-                        final String model = properties.get(PN_MODEL_ID, String.class);
-                        final Calendar startTime = properties.get(PN_STARTED_AT, Calendar.class);
-                        final String payload = properties.get(PAYLOAD_PATH, String.class);
-
-                        if (StringUtils.isBlank(payload)) {
-                            log.warn("Unable to find payload for Workflow instance [ {} ]", instance.getPath());
-                            remaining++;
-                            continue;
-                        } else if (CollectionUtils.isNotEmpty(statuses) && !statuses.contains(instanceStatus)) {
-                            log.trace("Workflow instance [ {} ] has non-matching status of [ {} ]", instance.getPath(), instanceStatus);
-                            remaining++;
-                            continue;
-                        } else if (CollectionUtils.isNotEmpty(modelIds) && !modelIds.contains(model)) {
-                            log.trace("Workflow instance [ {} ] has non-matching model of [ {} ]", instance.getPath(), model);
-                            remaining++;
-                            continue;
-                        } else if (olderThan != null && startTime != null && startTime.before(olderThan)) {
-                            log.trace("Workflow instance [ {} ] has non-matching start time of [ {} ]", instance.getPath(),
-                                    startTime);
-                            remaining++;
-                            continue;
-                        } else {
-
-                            if (CollectionUtils.isNotEmpty(payloads)) {
-                                // Only evaluate payload patterns if they are provided
-
-                                boolean match = false;
-
-                                if (StringUtils.isNotEmpty(payload)) {
-                                    for (final Pattern pattern : payloads) {
-                                        if (payload.matches(pattern.pattern())) {
-                                            // payload matches a pattern
-                                            match = true;
-                                            break;
-                                        }
-                                    }
-
-                                    if (!match) {
-                                        // Not a match; skip to next workflow instance
-                                        log.trace("Workflow instance [ {} ] has non-matching payload path [ {} ]",
-                                                instance.getPath(), payload);
-                                        remaining++;
-                                        continue;
-                                    }
-                                }
+                            if (!this.isRemovable(instance, modelIds, statuses, payloads, olderThan)) {
+                                remaining++;
+                                continue;
                             }
 
                             // Only remove matching
@@ -341,26 +331,24 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
                                 log.info("Removed a running total of [ {} ] workflow instances", count);
                             }
                         }
-                    }
 
-                    if (remaining == 0
-                            && isWorkflowDatedFolder(folder)
-                            && !StringUtils.startsWith(folder.getName(), new SimpleDateFormat(WORKFLOW_FOLDER_FORMAT).format(new Date()))) {
-                        // Dont remove folders w items and dont remove any of "today's" folders
-                        // MUST match the YYYY-MM-DD(.*) pattern; do not try to remove root folders
-                        try {
-                            folder.adaptTo(Node.class).remove();
-                            log.debug("Removed empty workflow folder node [ {} ]", folder.getPath());
-                            // Incrementing only count to trigger batch save and not total since is not a WF
-                            count++;
-                        } catch (RepositoryException e) {
-                            log.error("Could not remove workflow folder at [ {} ]", folder.getPath(), e);
+                        if (remaining == 0 && isRemovableFolder(folder)) {
+                            // Dont remove folders w items and dont remove any of "today's" folders
+                            // MUST match the YYYY-MM-DD(.*) pattern; do not try to remove root folders
+                            try {
+                                folder.adaptTo(Node.class).remove();
+                                log.debug("Removed empty workflow folder node [ {} ]", folder.getPath());
+                                // Incrementing only count to trigger batch save and not total since is not a WF
+                                count++;
+                            } catch (RepositoryException e) {
+                                log.error("Could not remove workflow folder at [ {} ]", folder.getPath(), e);
+                            }
                         }
                     }
-                }
 
-                // Save final batch if needed, and update tracking nodes
-                this.complete(resourceResolver, checkedCount, workflowRemovedCount);
+                    // Save final batch if needed, and update tracking nodes
+                    this.complete(resourceResolver, checkedCount, workflowRemovedCount);
+                }
             }
 
         } catch (PersistenceException e) {
@@ -400,6 +388,58 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
         return count;
     }
 
+    @SuppressWarnings("squid:S3776")
+    private boolean isRemovable(final Resource instance,
+                                final Collection<String> modelIds,
+                                final Collection<String> statuses,
+                                final Collection<Pattern> payloads,
+                                final Calendar olderThan) {
+        final ValueMap properties = instance.getValueMap();
+
+        final String instanceStatus = getStatus(instance);
+        final String model = properties.get(PN_MODEL_ID, String.class);
+        final Calendar startTime = properties.get(PN_STARTED_AT, Calendar.class);
+        final String payload = properties.get(PAYLOAD_PATH, String.class);
+
+        if (StringUtils.isBlank(payload)) {
+            log.warn("Unable to find payload for Workflow instance [ {} ]", instance.getPath());
+            return false;
+        } else if (CollectionUtils.isNotEmpty(statuses) && !statuses.contains(instanceStatus)) {
+            log.trace("Workflow instance [ {} ] has non-matching status of [ {} ]", instance.getPath(), instanceStatus);
+            return false;
+        } else if (CollectionUtils.isNotEmpty(modelIds) && !modelIds.contains(model)) {
+            log.trace("Workflow instance [ {} ] has non-matching model of [ {} ]", instance.getPath(), model);
+            return false;
+        } else if (olderThan != null && startTime != null && startTime.before(olderThan)) {
+            log.trace("Workflow instance [ {} ] has non-matching start time of [ {} ]", instance.getPath(),
+                    startTime);
+            return false;
+        } else if (CollectionUtils.isNotEmpty(payloads)) {
+            // Only evaluate payload patterns if they are provided
+            for (final Pattern pattern : payloads) {
+                if (payload.matches(pattern.pattern())) {
+                    // payload matches a pattern
+                    return true;
+                }
+            }
+
+            // Not a match; skip to next workflow instance
+            log.trace("Workflow instance [ {} ] has non-matching payload path [ {} ]", instance.getPath(), payload);
+            return false;
+        }
+
+        return true;
+    }
+
+    private boolean isWorkflowInstance(final Resource resource) {
+        return StringUtils.equals(NT_CQ_WORKFLOW, resource.getValueMap().get(JcrConstants.JCR_PRIMARYTYPE, String.class));
+    }
+
+    private boolean isRemovableFolder(final Resource folder) {
+        return isWorkflowDatedFolder(folder)
+                && !StringUtils.startsWith(folder.getName(), new SimpleDateFormat(WORKFLOW_FOLDER_FORMAT).format(new Date()));
+    }
+
     private Collection<Resource> getSortedAndFilteredFolders(Resource folderResource) {
         final Collection<Resource> sortedCollection = new TreeSet(new WorkflowInstanceFolderComparator());
         for (Resource folder : folderResource.getChildren()) {
@@ -551,4 +591,220 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
     protected void reset(Map<String, Object> config) {
         this.forceQuit.set(false);
     }
+
+    /**
+     * Removes workflow instances one dated workflow instance folder at a time, with the folders scheduled in parallel
+     * via an Action Manager. Each folder commits (and on failure retries) independently of the others.
+     */
+    private final class ParallelRemoval {
+        private final Collection<String> modelIds;
+        private final Collection<String> statuses;
+        private final Collection<Pattern> payloads;
+        private final Calendar olderThan;
+        private final int batchSize;
+        private final long end;
+
+        private int checked = 0;
+        private int removed = 0;
+
+        ParallelRemoval(final Collection<String> modelIds,
+                        final Collection<String> statuses,
+                        final Collection<Pattern> payloads,
+                        final Calendar olderThan,
+                        final int batchSize,
+                        final long end) {
+            this.modelIds = modelIds;
+            this.statuses = statuses;
+            this.payloads = payloads;
+            this.olderThan = olderThan;
+            this.batchSize = batchSize;
+            this.end = end;
+        }
+
+        int run(final ResourceResolver resourceResolver, final ActionManagerFactory factory)
+                throws PersistenceException, WorkflowRemovalException, InterruptedException, WorkflowRemovalForceQuitException {
+            final ActionManager manager;
+            try {
+                manager = factory.createTaskManager("Workflow Instance Removal", resourceResolver, batchSize);
+            } catch (LoginException e) {
+                throw new WorkflowRemovalException("Unable to create an Action Manager for the Workflow Removal", e);
+            }
+
+            int folderCount = 0;
+
+            try {
+                for (final Resource containerFolder : getWorkflowInstanceFolders(resourceResolver)) {
+                    for (final Resource folder : getSortedAndFilteredFolders(containerFolder)) {
+                        final String path = folder.getPath();
+                        manager.deferredWithResolver(resolver -> {
+                            manager.setCurrentItem(path);
+                            removeFolder(resolver, path);
+                        });
+                        folderCount++;
+                    }
+                }
+
+                log.debug("Scheduled [ {} ] workflow instance folders for removal", folderCount);
+
+                while (folderCount > 0 && !manager.isComplete()) {
+                    if (forceQuit.get()) {
+                        throw new WorkflowRemovalForceQuitException();
+                    }
+                    Thread.sleep(PARALLEL_CHECK_INTERVAL);
+                }
+
+                if (forceQuit.get()) {
+                    throw new WorkflowRemovalForceQuitException();
+                }
+
+                for (final Failure failure : manager.getFailureList()) {
+                    log.error("Could not remove workflow instances in [ {} ]", failure.getNodePath(), failure.getException());
+                }
+
+                if (manager.getErrorCount() > 0) {
+                    throw new WorkflowRemovalException(String.format("Could not remove workflow instances in [ %d ] of [ %d ] folders",
+                            manager.getErrorCount(), folderCount));
+                }
+            } finally {
+                factory.purge(manager);
+            }
+
+            if (isExpired()) {
+                log.warn("Workflow removal exceeded its max duration; remaining folders were skipped.");
+            }
+
+            complete(resourceResolver, getChecked(), getRemoved());
+
+            return getRemoved();
+        }
+
+        private void removeFolder(final ResourceResolver resourceResolver, final String path)
+                throws PersistenceException, InterruptedException {
+            int attempt = 0;
+            boolean done = false;
+
+            while (!done) {
+                try {
+                    removeFolderContents(resourceResolver, path);
+                    done = true;
+                } catch (PersistenceException e) {
+                    // Start over from the persisted state; instances removed by earlier commits are simply gone
+                    resourceResolver.revert();
+                    resourceResolver.refresh();
+
+                    if (++attempt > MAX_SAVE_RETRIES) {
+                        throw e;
+                    }
+
+                    log.warn("Could not persist removal of workflow instances in [ {} ], trying again in {} ms", path, 1000 * attempt);
+                    Thread.sleep(1000L * attempt);
+                }
+            }
+        }
+
+        @SuppressWarnings("squid:S3776")
+        private void removeFolderContents(final ResourceResolver resourceResolver, final String path) throws PersistenceException {
+            final Resource folder = resourceResolver.getResource(path);
+
+            if (folder == null || isStopped()) {
+                return;
+            }
+
+            final List<String> matches = new ArrayList<String>();
+            int folderChecked = 0;
+            boolean keepFolder = false;
+
+            for (final Resource instance : folder.getChildren()) {
+                if (isStopped()) {
+                    keepFolder = true;
+                    break;
+                } else if (!isWorkflowInstance(instance)) {
+                    keepFolder = true;
+                    continue;
+                }
+
+                folderChecked++;
+
+                if (isRemovable(instance, modelIds, statuses, payloads, olderThan)) {
+                    matches.add(instance.getPath());
+                } else {
+                    keepFolder = true;
+                }
+            }
+
+            if (forceQuit.get()) {
+                return;
+            }
+
+            if (!keepFolder && matches.size() <= batchSize && isRemovableFolder(folder)) {
+                // Every child is a matching workflow instance, so remove the folder as a whole
+                resourceResolver.delete(folder);
+                resourceResolver.commit();
+                log.debug("Removed workflow folder [ {} ] with [ {} ] workflow instances", path, matches.size());
+
+                progress(folderChecked, matches.size());
+                return;
+            }
+
+            int pending = 0;
+
+            for (final String match : matches) {
+                if (isStopped()) {
+                    keepFolder = true;
+                    break;
+                }
+
+                final Resource instance = resourceResolver.getResource(match);
+                if (instance != null) {
+                    resourceResolver.delete(instance);
+                    pending++;
+                }
+
+                if (pending == batchSize) {
+                    resourceResolver.commit();
+                    progress(0, pending);
+                    pending = 0;
+                }
+            }
+
+            if (forceQuit.get()) {
+                // Any uncommitted changes are lost on force quit
+                resourceResolver.revert();
+                return;
+            }
+
+            if (!keepFolder && isRemovableFolder(folder)) {
+                resourceResolver.delete(folder);
+                log.debug("Removed empty workflow folder node [ {} ]", path);
+            }
+
+            resourceResolver.commit();
+            progress(folderChecked, pending);
+        }
+
+        private synchronized void progress(final int checkedDelta, final int removedDelta) {
+            this.checked += checkedDelta;
+            this.removed += removedDelta;
+
+            final WorkflowRemovalStatus removalStatus = status.get();
+            removalStatus.setChecked(this.checked);
+            removalStatus.setRemoved(this.removed);
+        }
+
+        private synchronized int getChecked() {
+            return this.checked;
+        }
+
+        private synchronized int getRemoved() {
+            return this.removed;
+        }
+
+        private boolean isExpired() {
+            return end > 0 && System.currentTimeMillis() >= end;
+        }
+
+        private boolean isStopped() {
+            return forceQuit.get() || isExpired();
+        }
+    }
 }
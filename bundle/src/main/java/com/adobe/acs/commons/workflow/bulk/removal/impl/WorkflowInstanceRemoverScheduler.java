@@ -120,6 +120,12 @@ public class WorkflowInstanceRemoverScheduler implements Runnable {
                         + "[ Default: 0 ]",
                 defaultValue = "" + DEFAULT_MAX_DURATION)
         int max_duration() default DEFAULT_MAX_DURATION;
+
+        @AttributeDefinition(name = "Parallel removal",
+                description = "Remove the workflow instances of each dated folder in parallel, with per-folder commits and retries. "
+                        + "[ Default: false ]",
+                defaultValue = "false")
+        boolean parallel() default false;
     }
 
     private List<String> models = new ArrayList<String>();
@@ -134,6 +140,8 @@ public class WorkflowInstanceRemoverScheduler implements Runnable {
     private static final int DEFAULT_MAX_DURATION = 0;
     private int maxDuration = DEFAULT_MAX_DURATION;
 
+    private boolean parallel = false;
+
     @Override
     @SuppressWarnings("squid:S2142")
     public final void run() {
@@ -149,7 +157,8 @@ public class WorkflowInstanceRemoverScheduler implements Runnable {
                     payloads,
                     olderThan,
                     batchSize,
-                    maxDuration);
+                    maxDuration,
+                    parallel);
 
             if (log.isInfoEnabled()) {
                 log.info("Removed [ {} ] Workflow instances in {} ms", count, System.currentTimeMillis() - start);
@@ -211,6 +220,8 @@ public class WorkflowInstanceRemoverScheduler implements Runnable {
 
         maxDuration = config.max_duration();
 
+        parallel = config.parallel();
+
         final InfoWriter iw = new InfoWriter();
         iw.title("Workflow Instance Removal Configuration");
         iw.message("Workflow status: {}", statuses);
@@ -219,6 +230,7 @@ public class WorkflowInstanceRemoverScheduler implements Runnable {
         iw.message("Older than: {}", olderThan);
         iw.message("Batch size: {}", batchSize);
         iw.message("Max Duration (minutes): {}", maxDuration);
+        iw.message("Parallel: {}", parallel);
         iw.end();
 
         log.info(iw.toString());
@@ -232,5 +244,6 @@ public class WorkflowInstanceRemoverScheduler implements Runnable {
         payloads = new ArrayList<Pattern>();
         batchSize = DEFAULT_BATCH_SIZE;
         maxDuration = DEFAULT_MAX_DURATION;
+        parallel = false;
     }
 }
@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.workflow.synthetic;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The aggregated outcome of executing a Synthetic Workflow against a batch of payloads.
+ */
+public final class SyntheticWorkflowBatchResult {
+    private final int successCount;
+    private final Map<String, Exception> failures;
+    private final long elapsedTime;
+    private final long processingTime;
+
+    public SyntheticWorkflowBatchResult(int successCount, Map<String, Exception> failures,
+                                        long elapsedTime, long processingTime) {
+        this.successCount = successCount;
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        this.elapsedTime = elapsedTime;
+        this.processingTime = processingTime;
+    }
+
+    /**
+     * @return the number of payloads the workflow was successfully executed against
+     */
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    /**
+     * @return the number of payloads the workflow failed for
+     */
+    public int getFailureCount() {
+        return failures.size();
+    }
+
+    /**
+     * @return the cause of failure, indexed by payload path
+     */
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the wall clock time of the batch execution in ms
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * @return the time spent executing the workflow, summed over all payloads, in ms
+     */
+    public long getProcessingTime() {
+        return processingTime;
+    }
+
+    /**
+     * @return the average time spent executing the workflow for a single payload in ms
+     */
+    public long getAverageProcessingTime() {
+        final int count = successCount + failures.size();
+        return count == 0 ? 0 : processingTime / count;
+    }
+}
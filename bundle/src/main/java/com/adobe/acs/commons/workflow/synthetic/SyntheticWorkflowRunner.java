@@ -68,6 +68,34 @@ public interface SyntheticWorkflowRunner extends WorkflowService {
                  boolean autoSaveAfterEachWorkflowProcess,
                  boolean autoSaveAtEnd) throws WorkflowException;
 
+    /**
+     * Execute the provided Synthetic Workflow Model against each of the payloads.
+     * The payloads are split into partitions, each of which is run on the ACS AEM Commons ThrottledTaskRunner with its
+     * own clone of the resourceResolver, so large payload sets are processed in parallel. Changes are committed every
+     * saveThreshold payloads of a partition and at the end of the partition.
+     * A failing payload does not stop the execution; its failure is reported in the result. Its changes are rolled
+     * back together with those of the payloads executed in the same partition since the last commit, which are reported
+     * as failed as well. Payloads not executed within the configured batch timeout are cancelled and reported as
+     * failed.
+     * When called from a synthetic workflow partition or a Fast Action Manager action, the partitions run one after
+     * the other on the calling thread instead, as waiting for the runner from one of its own tasks can deadlock it.
+     * Other tasks scheduled directly on the ThrottledTaskRunner must not call this method.
+     *
+     * @param resourceResolver       the resourceResolver object that provides access to the JCR for WF operations;
+     *                               it is only cloned, and its own pending changes are not committed
+     * @param payloadPaths           the paths to execute the workflow against
+     * @param syntheticWorkflowModel the Synthetic Workflow Model to execute
+     * @param partitionSize          the number of payloads executed by a single task
+     * @param saveThreshold          the number of payloads after which the changes of a partition are committed
+     * @return the aggregated timings and failures of the execution
+     * @throws WorkflowException if the resourceResolver could not be cloned
+     */
+    SyntheticWorkflowBatchResult execute(ResourceResolver resourceResolver,
+                                         Iterable<String> payloadPaths,
+                                         SyntheticWorkflowModel syntheticWorkflowModel,
+                                         int partitionSize,
+                                         int saveThreshold) throws WorkflowException;
+
     /**
      * Generates the SyntheticWorkflowModel that represents the AEM Workflow Model to execute in the context of Synthetic Workflow.
      *
@@ -20,6 +20,9 @@
 
 package com.adobe.acs.commons.workflow.synthetic.impl;
 
+import com.adobe.acs.commons.fam.ThrottledTaskRunner;
+import com.adobe.acs.commons.fam.actions.Actions;
+import com.adobe.acs.commons.workflow.synthetic.SyntheticWorkflowBatchResult;
 import com.adobe.acs.commons.workflow.synthetic.SyntheticWorkflowModel;
 import com.adobe.acs.commons.workflow.synthetic.SyntheticWorkflowRunner;
 import com.adobe.acs.commons.workflow.synthetic.SyntheticWorkflowStep;
@@ -33,7 +36,9 @@ import com.day.cq.workflow.WorkflowException;
 import com.day.cq.workflow.WorkflowService;
 import com.day.cq.workflow.WorkflowSession;
 import com.day.cq.workflow.exec.WorkflowProcess;
+import com.google.common.collect.Iterables;
 import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.commons.osgi.PropertiesUtil;
@@ -46,6 +51,9 @@ import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,9 +65,17 @@ import java.util.Date;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ACS AEM Commons - Synthetic Workflow Runner
@@ -83,8 +99,22 @@ import java.util.concurrent.ConcurrentHashMap;
                    unbind = "unbindGraniteWorkflowProcesses"
            )   
 })
+@Designate(ocd = SyntheticWorkflowRunnerImpl.Config.class)
 // Explicitly register to the SyntheticWorkflowRunner interface (as this extends WorkflowService, which we do not want to register a service against)
 public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
+
+    @ObjectClassDefinition(name = "ACS AEM Commons - Synthetic Workflow Runner",
+            description = "Executes Synthetic Workflow Models against payloads.")
+    public @interface Config {
+        int DEFAULT_BATCH_TIMEOUT = 3600;
+
+        @AttributeDefinition(name = "Batch Timeout",
+                description = "The number of seconds to wait for the execution against a batch of payloads. The "
+                        + "payloads not executed by then are cancelled and reported as failed. [ Default: 3600 ]",
+                defaultValue = "" + DEFAULT_BATCH_TIMEOUT)
+        int batch_timeout() default DEFAULT_BATCH_TIMEOUT;
+    }
+
     private static final Logger log = LoggerFactory.getLogger(SyntheticWorkflowRunnerImpl.class);
 
     private static final String UNSUPPORTED_OPERATION_MESSAGE = "Operation not supported by Synthetic Workflow";
@@ -104,8 +134,18 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
     @Reference
     private ResourceResolverFactory resourceResolverFactory;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    private volatile ThrottledTaskRunner throttledTaskRunner;
+
+    /**
+     * Set while a partition runs on the ThrottledTaskRunner, so executions nested in it do not wait for the runner.
+     */
+    private static final ThreadLocal<Boolean> RUNNING_ON_TASK_RUNNER = new ThreadLocal<>();
+
     private ServiceRegistration accessorReg;
 
+    private volatile int batchTimeout = Config.DEFAULT_BATCH_TIMEOUT;
+
     @Override
     public final void execute(final ResourceResolver resourceResolver, final String payloadPath,
                               final String[] workflowProcessLabels) throws WorkflowException {
@@ -200,6 +240,103 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
                 autoSaveAtEnd);
     }
 
+    @Override
+    public SyntheticWorkflowBatchResult execute(final ResourceResolver resourceResolver,
+                                                final Iterable<String> payloadPaths,
+                                                final SyntheticWorkflowModel syntheticWorkflowModel,
+                                                final int partitionSize,
+                                                final int saveThreshold) throws WorkflowException {
+        final long start = System.currentTimeMillis();
+        final long deadline = start + TimeUnit.SECONDS.toMillis(batchTimeout);
+        final BatchProgress progress = new BatchProgress();
+        final List<Partition> partitions = new ArrayList<>();
+        // Waiting for partitions queued behind the task that waits for them can deadlock the runner
+        final boolean runInline = isOnTaskRunnerThread();
+
+        for (final List<String> payloads : Iterables.partition(payloadPaths, Math.max(1, partitionSize))) {
+            // Resolvers are not thread-safe, so each partition works with its own clone
+            final ResourceResolver partitionResourceResolver;
+            try {
+                partitionResourceResolver = resourceResolver.clone(null);
+            } catch (LoginException e) {
+                awaitPartitions(partitions, deadline, progress);
+                throw new WorkflowException("Could not clone the resource resolver for synthetic workflow execution", e);
+            }
+
+            final Partition partition = new Partition(partitionResourceResolver, payloads, syntheticWorkflowModel,
+                    saveThreshold, progress);
+            partitions.add(partition);
+
+            if (runInline) {
+                partition.run();
+            } else {
+                scheduleWork(partition);
+            }
+        }
+
+        awaitPartitions(partitions, deadline, progress);
+
+        final SyntheticWorkflowBatchResult batchResult = new SyntheticWorkflowBatchResult(progress.successCount.get(),
+                progress.failures, System.currentTimeMillis() - start, progress.processingTime.get());
+        log.info("Synthetic workflow execution of [ {} ] payloads completed in [ {} ] ms with [ {} ] failures",
+                batchResult.getSuccessCount() + batchResult.getFailureCount(), batchResult.getElapsedTime(),
+                batchResult.getFailureCount());
+        return batchResult;
+    }
+
+    /**
+     * Wait for the partitions until the deadline; the partitions not completed by then are cancelled and their
+     * payloads without an outcome yet are reported as failed.
+     */
+    private void awaitPartitions(final List<Partition> partitions, final long deadline, final BatchProgress progress) {
+        final CompletableFuture<?>[] results = partitions.stream().map(partition -> partition.done)
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(results).get(Math.max(0, deadline - System.currentTimeMillis()),
+                    TimeUnit.MILLISECONDS);
+            return;
+        } catch (TimeoutException e) {
+            log.warn("Synthetic workflow execution timed out after [ {} ] seconds, cancelling the remaining payloads",
+                    batchTimeout);
+        } catch (InterruptedException e) {
+            log.warn("Interrupted while waiting for synthetic workflow execution, cancelling the remaining payloads");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Partitions always complete normally
+            log.error("Unexpected failure of a synthetic workflow partition", e);
+        }
+
+        for (final Partition partition : partitions) {
+            for (final String payloadPath : partition.cancel()) {
+                progress.failures.put(payloadPath, new WorkflowException(
+                        "Synthetic workflow execution was cancelled after [ " + batchTimeout + " ] seconds"));
+            }
+        }
+    }
+
+    private void scheduleWork(final Runnable work) {
+        final ThrottledTaskRunner taskRunner = throttledTaskRunner;
+        if (taskRunner != null && taskRunner.isRunning()) {
+            taskRunner.scheduleWork(() -> {
+                RUNNING_ON_TASK_RUNNER.set(Boolean.TRUE);
+                try {
+                    work.run();
+                } finally {
+                    RUNNING_ON_TASK_RUNNER.remove();
+                }
+            });
+        } else {
+            work.run();
+        }
+    }
+
+    /**
+     * @return true if the current thread runs a synthetic workflow partition or a Fast Action Manager task
+     */
+    private static boolean isOnTaskRunnerThread() {
+        return RUNNING_ON_TASK_RUNNER.get() != null || Actions.getCurrentActionManager() != null;
+    }
+
     @SuppressWarnings({"squid:S3776", "squid:S1163", "squid:S1143"})
     private void run(final ResourceResolver resourceResolver,
                      final String payloadPath,
@@ -476,7 +613,10 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
     }
 
     @Activate
-    protected final void activate(BundleContext bundleContext) {
+    protected final void activate(BundleContext bundleContext, Config config) {
+        this.batchTimeout = Math.max(1, config.batch_timeout());
+        log.info("Synthetic Workflow Runner - Batch Timeout: [ {} ]", this.batchTimeout);
+
         this.accessorReg = bundleContext.registerService(SyntheticWorkflowRunnerAccessor.class.getName(), new SyntheticWorkflowRunnerAccessor() {
             @Override
             public SyntheticWorkflowRunner getSyntheticWorkflowRunner() {
@@ -554,4 +694,163 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
             }
         }
     }
+
+    /**
+     * The outcome of a batch execution, shared by its partitions.
+     */
+    private static final class BatchProgress {
+        private final AtomicInteger successCount = new AtomicInteger();
+        private final Map<String, Exception> failures = new ConcurrentHashMap<>();
+        private final AtomicLong processingTime = new AtomicLong();
+    }
+
+    /**
+     * The payloads of a batch execution run by a single task. Outcomes are only reported while the partition is not
+     * cancelled, so a cancelled partition leaves the reporting of its remaining payloads to the caller.
+     */
+    private final class Partition implements Runnable {
+        private final ResourceResolver resourceResolver;
+        private final List<String> payloadPaths;
+        private final SyntheticWorkflowModel syntheticWorkflowModel;
+        private final int saveThreshold;
+        private final BatchProgress progress;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        /** Payloads without a reported outcome yet; guarded by this partition. */
+        private final Set<String> unreported;
+        private boolean started;
+        private boolean cancelled;
+
+        private Partition(final ResourceResolver resourceResolver,
+                          final List<String> payloadPaths,
+                          final SyntheticWorkflowModel syntheticWorkflowModel,
+                          final int saveThreshold,
+                          final BatchProgress progress) {
+            this.resourceResolver = resourceResolver;
+            this.payloadPaths = payloadPaths;
+            this.syntheticWorkflowModel = syntheticWorkflowModel;
+            this.saveThreshold = Math.max(1, saveThreshold);
+            this.progress = progress;
+            this.unreported = new LinkedHashSet<>(payloadPaths);
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                started = true;
+            }
+
+            try {
+                runPayloads();
+            } finally {
+                resourceResolver.close();
+                done.complete(null);
+            }
+        }
+
+        /**
+         * Stop reporting outcomes, and roll back whatever is not committed yet.
+         *
+         * @return the payloads without a reported outcome
+         */
+        private synchronized List<String> cancel() {
+            if (done.isDone()) {
+                return Collections.emptyList();
+            }
+            cancelled = true;
+            if (!started) {
+                resourceResolver.close();
+                done.complete(null);
+            }
+            return new ArrayList<>(unreported);
+        }
+
+        private void runPayloads() {
+            // Workflow processes may write to their metadata maps, so partitions running in parallel must not
+            // share them
+            final Map<String, Map<String, Object>> processArgs = new HashMap<>();
+            for (final Map.Entry<String, Map<String, Object>> entry
+                    : syntheticWorkflowModel.getSyntheticWorkflowModelData().entrySet()) {
+                processArgs.put(entry.getKey(), entry.getValue() == null ? null : new HashMap<>(entry.getValue()));
+            }
+            final List<SyntheticWorkflowStep> workflowSteps = convertToSyntheticWorkflowSteps(
+                    syntheticWorkflowModel.getWorkflowProcessNames(), WorkflowProcessIdType.PROCESS_NAME, processArgs);
+
+            final List<String> uncommitted = new ArrayList<>();
+            for (final String payloadPath : payloadPaths) {
+                if (isCancelled()) {
+                    resourceResolver.revert();
+                    return;
+                }
+
+                final long start = System.currentTimeMillis();
+                try {
+                    execute(resourceResolver, payloadPath, workflowSteps, false, false);
+                    uncommitted.add(payloadPath);
+                } catch (WorkflowException | RuntimeException e) {
+                    log.error("Synthetic workflow execution of payload [ {} ] failed", payloadPath, e);
+                    fail(payloadPath, e, uncommitted);
+                } finally {
+                    progress.processingTime.addAndGet(System.currentTimeMillis() - start);
+                }
+
+                if (uncommitted.size() >= saveThreshold) {
+                    commit(uncommitted);
+                }
+            }
+            commit(uncommitted);
+        }
+
+        private synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Roll back the changes of the failed payload. The changes of the payloads executed since the last commit are
+         * part of the same session, so they are rolled back and reported as failed too.
+         */
+        private synchronized void fail(final String payloadPath, final Exception cause,
+                                       final List<String> uncommitted) {
+            resourceResolver.revert();
+            if (!cancelled) {
+                report(payloadPath, cause);
+                for (final String rolledBack : uncommitted) {
+                    report(rolledBack, new WorkflowException("Changes were rolled back with the failed payload [ "
+                            + payloadPath + " ]", cause));
+                }
+            }
+            uncommitted.clear();
+        }
+
+        private synchronized void commit(final List<String> uncommitted) {
+            if (cancelled) {
+                resourceResolver.revert();
+                uncommitted.clear();
+                return;
+            }
+
+            try {
+                if (resourceResolver.hasChanges()) {
+                    resourceResolver.commit();
+                }
+                progress.successCount.addAndGet(uncommitted.size());
+                unreported.removeAll(uncommitted);
+            } catch (PersistenceException e) {
+                log.error("Could not save the synthetic workflow changes of [ {} ] payloads", uncommitted.size(), e);
+                resourceResolver.revert();
+                for (final String payloadPath : uncommitted) {
+                    report(payloadPath, e);
+                }
+            }
+            uncommitted.clear();
+        }
+
+        private void report(final String payloadPath, final Exception cause) {
+            progress.failures.put(payloadPath, cause);
+            unreported.remove(payloadPath);
+        }
+    }
 }
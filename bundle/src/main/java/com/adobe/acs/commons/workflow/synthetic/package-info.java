@@ -21,5 +21,5 @@
 /**
  * Synthetic AEM Workflow APIs.
  */
-@aQute.bnd.annotation.Version("3.0.0")
+@aQute.bnd.annotation.Version("3.1.0")
 package com.adobe.acs.commons.workflow.synthetic;
\ No newline at end of file
@@ -24,6 +24,7 @@ import com.adobe.acs.commons.analysis.jcrchecksum.ChecksumGeneratorOptions;
 import com.adobe.acs.commons.analysis.jcrchecksum.impl.options.CustomChecksumGeneratorOptions;
 import com.adobe.acs.commons.analysis.jcrchecksum.impl.options.DefaultChecksumGeneratorOptions;
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.jackrabbit.api.ReferenceBinary;
 import org.apache.jackrabbit.value.ValueFactoryImpl;
 import org.apache.sling.testing.mock.jcr.MockJcr;
 import org.junit.After;
@@ -32,21 +33,32 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import javax.jcr.Binary;
 import javax.jcr.Node;
+import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.Value;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ChecksumGeneratorImplTest {
@@ -606,4 +618,73 @@ public class ChecksumGeneratorImplTest {
         assertFalse(checksumGenerator.isExcludedSubTree(session.getNode("/content/parent1/child"), opts));
         assertTrue(checksumGenerator.isExcludedSubTree(session.getNode("/content/parent2/child"), opts));
     }
+
+    @Test
+    public void testParallelChecksumsMatchSequentialChecksums() throws Exception {
+        Node content = session.getRootNode().addNode("content");
+        for (int i = 0; i < 20; i++) {
+            Node page = content.addNode("page-" + i, "cq:Page").addNode("jcr:content", "cq:PageContent");
+            page.setProperty("jcr:title", "title " + i);
+            page.addNode("par", "nt:unstructured").setProperty("text", "text " + i);
+        }
+        session.save();
+
+        Map<String, String> expected = checksumGenerator.generateChecksums(session, "/content");
+
+        ChecksumGeneratorImpl parallelGenerator = new ChecksumGeneratorImpl();
+        parallelGenerator.activate(config(4, 100));
+        try {
+            List<String> streamed = new ArrayList<>();
+            parallelGenerator.generateChecksums(session, "/content", new DefaultChecksumGeneratorOptions(),
+                    (path, checksum) -> streamed.add(path + "=" + checksum));
+
+            List<String> sequential = new ArrayList<>();
+            for (Map.Entry<String, String> entry : expected.entrySet()) {
+                sequential.add(entry.getKey() + "=" + entry.getValue());
+            }
+
+            assertEquals(20, streamed.size());
+            assertEquals(sequential, streamed);
+        } finally {
+            parallelGenerator.deactivate();
+        }
+    }
+
+    @Test
+    public void testBinaryChecksumsAreCachedByReference() throws Exception {
+        ChecksumGeneratorImpl cachingGenerator = new ChecksumGeneratorImpl();
+        cachingGenerator.activate(config(1, 100));
+
+        Binary binary = mock(Binary.class, withSettings().extraInterfaces(ReferenceBinary.class));
+        when(((ReferenceBinary) binary).getReference()).thenReturn("blob-1");
+        when(binary.getStream()).thenReturn(new ByteArrayInputStream("test binary string".getBytes()));
+        Value value = mock(Value.class);
+        when(value.getType()).thenReturn(PropertyType.BINARY);
+        when(value.getBinary()).thenReturn(binary);
+
+        assertEquals(DigestUtils.sha1Hex("test binary string"), cachingGenerator.getBinaryChecksum(value));
+        assertEquals(DigestUtils.sha1Hex("test binary string"), cachingGenerator.getBinaryChecksum(value));
+
+        verify(binary, times(1)).getStream();
+        verify(binary, times(2)).dispose();
+    }
+
+    private ChecksumGeneratorImpl.Config config(final int parallelism, final int binaryCacheSize) {
+        return new ChecksumGeneratorImpl.Config() {
+            @Override
+            public Class<? extends Annotation> annotationType() {
+                return ChecksumGeneratorImpl.Config.class;
+            }
+
+            @Override
+            public int parallelism() {
+                return parallelism;
+            }
+
+            @Override
+            public int binary_cache_size() {
+                return binaryCacheSize;
+            }
+        };
+    }
 }
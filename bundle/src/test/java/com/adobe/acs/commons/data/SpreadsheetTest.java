@@ -23,11 +23,16 @@ import com.adobe.acs.commons.data.CompositeVariant;
 import com.adobe.acs.commons.data.Spreadsheet;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import org.apache.poi.ss.usermodel.CellStyle;
@@ -36,7 +41,9 @@ import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.*;
 
@@ -57,6 +64,9 @@ public class SpreadsheetTest {
     static Date testDate = new Date();
     static Spreadsheet dataTypesSheet;
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @BeforeClass
     public static void setUp() throws IOException {
         testWorkbook = new XSSFWorkbook();
@@ -216,6 +226,55 @@ public class SpreadsheetTest {
         }
     }
 
+    @Test
+    public void testStreamedRowsMatchLoadedRows() throws IOException {
+        File file = folder.newFile("test.xlsx");
+        Files.write(file.toPath(), workbookData.toByteArray());
+        Spreadsheet loaded = new Spreadsheet(true, new ByteArrayInputStream(workbookData.toByteArray()), "someOtherCol");
+        Spreadsheet streamed = Spreadsheet.stream(true, file, "someOtherCol");
+        try {
+            assertEquals(loaded.getHeaderRow(), streamed.getHeaderRow());
+            assertTrue(streamed.getDataRowsAsCompositeVariants().isEmpty());
+            assertSameRows(loaded.getDataRowsAsCompositeVariants(), streamed.getDataRowIterator());
+            assertEquals(loaded.getRowCount(), streamed.getRowCount());
+        } finally {
+            streamed.close();
+        }
+    }
+
+    @Test
+    public void testStreamedSheetTypes() throws IOException {
+        File file = folder.newFile("types.xlsx");
+        try (InputStream in = SpreadsheetTest.class.getResourceAsStream("/com/adobe/acs/commons/data/spreadsheet-data-types.xlsx")) {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Spreadsheet streamed = Spreadsheet.stream(false, file);
+        try {
+            assertSameRows(dataTypesSheet.getDataRowsAsCompositeVariants(), streamed.getDataRowIterator());
+        } finally {
+            streamed.close();
+        }
+    }
+
+    private static void assertSameRows(List<Map<String, CompositeVariant>> expected, Iterator<Map<String, CompositeVariant>> actual) {
+        List<Map<String, CompositeVariant>> rows = new ArrayList<>();
+        actual.forEachRemaining(rows::add);
+        assertEquals(expected.size(), rows.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).keySet(), rows.get(i).keySet());
+            for (String column : expected.get(i).keySet()) {
+                CompositeVariant expectedValue = expected.get(i).get(column);
+                CompositeVariant actualValue = rows.get(i).get(column);
+                assertEquals(column, expectedValue.toString(), actualValue.toString());
+                if (expectedValue.isArray()) {
+                    assertArrayEquals(column, (Object[]) expectedValue.toPropertyValue(), (Object[]) actualValue.toPropertyValue());
+                } else {
+                    assertEquals(column, expectedValue.toPropertyValue(), actualValue.toPropertyValue());
+                }
+            }
+        }
+    }
+
     private static XSSFRow createRow(XSSFSheet sheet, String... values) {
         int rowNum = sheet.getPhysicalNumberOfRows();
         XSSFRow row = sheet.createRow(rowNum);
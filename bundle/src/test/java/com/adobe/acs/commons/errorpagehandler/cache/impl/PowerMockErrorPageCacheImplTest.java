@@ -21,6 +21,8 @@
 package com.adobe.acs.commons.errorpagehandler.cache.impl;
 
 import com.adobe.acs.commons.util.ResourceDataUtil;
+import junitx.util.PrivateAccessor;
+import org.apache.commons.lang.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
 import org.junit.Before;
@@ -29,7 +31,20 @@ import org.junit.runner.RunWith;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
@@ -116,4 +131,156 @@ public class PowerMockErrorPageCacheImplTest {
 
         assertEquals("", data);
     }
+
+    @Test
+    public void testGet_EvictsLeastRecentlyUsed() throws Exception {
+        mockStatic(ResourceDataUtil.class);
+        errorPageCache = new ErrorPageCacheImpl(60, false, 2, 0, 0);
+
+        SlingHttpServletRequest request = mock(SlingHttpServletRequest.class);
+        SlingHttpServletResponse response = mock(SlingHttpServletResponse.class);
+
+        when(ResourceDataUtil.getIncludeAsString(anyString(), eq(request), eq(response))).thenReturn("error page");
+
+        errorPageCache.get("/content/a", request, response);
+        errorPageCache.get("/content/b", request, response);
+        Thread.sleep(5);
+        // HIT, so /content/b is the least recently used
+        errorPageCache.get("/content/a", request, response);
+        errorPageCache.get("/content/c", request, response);
+
+        assertEquals(2, errorPageCache.getCacheEntriesCount());
+        assertEquals("error page", errorPageCache.getCacheData("/content/a"));
+        assertEquals("", errorPageCache.getCacheData("/content/b"));
+        assertEquals("error page", errorPageCache.getCacheData("/content/c"));
+    }
+
+    @Test
+    public void testGet_StaleWhileRevalidate() throws Exception {
+        mockStatic(ResourceDataUtil.class);
+        errorPageCache = new ErrorPageCacheImpl(1, false, 10, 0, 60);
+
+        SlingHttpServletRequest request = mock(SlingHttpServletRequest.class);
+        SlingHttpServletResponse response = mock(SlingHttpServletResponse.class);
+
+        when(ResourceDataUtil.getIncludeAsString("/content/world", request,
+                response)).thenReturn("hello world");
+        errorPageCache.get("/content/world", request, response);
+
+        when(ResourceDataUtil.getIncludeAsString("/content/world", request,
+                response)).thenReturn("hello new world");
+        Thread.sleep(1001);
+
+        // Another request is refreshing the expired entry, so the stale one is served
+        @SuppressWarnings("unchecked")
+        Map<String, CacheEntry> cache = (Map<String, CacheEntry>) PrivateAccessor.getField(errorPageCache, "cache");
+        CacheEntry entry = cache.get("/content/world");
+        entry.startRefresh();
+        assertEquals("hello world", errorPageCache.get("/content/world", request, response));
+
+        entry.endRefresh();
+        assertEquals("hello new world", errorPageCache.get("/content/world", request, response));
+    }
+
+    @Test
+    public void testGet_ConcurrentMissesRenderOnce() throws Exception {
+        mockStatic(ResourceDataUtil.class);
+
+        final SlingHttpServletRequest request = mock(SlingHttpServletRequest.class);
+        final SlingHttpServletResponse response = mock(SlingHttpServletResponse.class);
+
+        final AtomicInteger renders = new AtomicInteger();
+        final CountDownLatch rendering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(ResourceDataUtil.getIncludeAsString("/content/world", request, response)).thenAnswer(invocation -> {
+            renders.incrementAndGet();
+            rendering.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "hello world";
+        });
+
+        // Signals when a request finds the render in flight and joins it
+        final CountDownLatch joined = new CountDownLatch(1);
+        PrivateAccessor.setField(errorPageCache, "renders", new ConcurrentHashMap<String, CompletableFuture<String>>() {
+            @Override
+            public CompletableFuture<String> putIfAbsent(String key, CompletableFuture<String> value) {
+                final CompletableFuture<String> inFlight = super.putIfAbsent(key, value);
+                if (inFlight != null) {
+                    joined.countDown();
+                }
+                return inFlight;
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> errorPageCache.get("/content/world", request, response));
+            assertTrue(rendering.await(5, TimeUnit.SECONDS));
+            Future<String> second = executor.submit(() -> errorPageCache.get("/content/world", request, response));
+            assertTrue(joined.await(5, TimeUnit.SECONDS));
+            release.countDown();
+
+            assertEquals("hello world", first.get(5, TimeUnit.SECONDS));
+            assertEquals("hello world", second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, renders.get());
+        assertEquals(1, errorPageCache.getTotalMisses());
+        assertEquals(1, errorPageCache.getTotalHits());
+    }
+
+    @Test
+    public void testGet_SharedRenderTimesOut() throws Exception {
+        mockStatic(ResourceDataUtil.class);
+        errorPageCache = new ErrorPageCacheImpl(60, false, 10, 0, 0, 50);
+
+        final SlingHttpServletRequest request = mock(SlingHttpServletRequest.class);
+        final SlingHttpServletResponse response = mock(SlingHttpServletResponse.class);
+
+        final AtomicInteger renders = new AtomicInteger();
+        final CountDownLatch rendering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(ResourceDataUtil.getIncludeAsString("/content/world", request, response)).thenAnswer(invocation -> {
+            if (renders.incrementAndGet() == 1) {
+                rendering.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return "hello world";
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            Future<String> first = executor.submit(() -> errorPageCache.get("/content/world", request, response));
+            assertTrue(rendering.await(5, TimeUnit.SECONDS));
+
+            // The first render hangs, so this request renders the error page itself once the timeout elapses.
+            assertEquals("hello world", errorPageCache.get("/content/world", request, response));
+            assertEquals(2, renders.get());
+
+            release.countDown();
+            assertEquals("hello world", first.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGetCacheSizeInKB_TracksStoresAndClear() throws Exception {
+        mockStatic(ResourceDataUtil.class);
+
+        SlingHttpServletRequest request = mock(SlingHttpServletRequest.class);
+        SlingHttpServletResponse response = mock(SlingHttpServletResponse.class);
+
+        when(ResourceDataUtil.getIncludeAsString(anyString(), eq(request), eq(response)))
+                .thenReturn(StringUtils.repeat("x", 3000));
+
+        errorPageCache.get("/content/a", request, response);
+        errorPageCache.get("/content/b", request, response);
+        assertEquals(6, errorPageCache.getCacheSizeInKB());
+
+        errorPageCache.clearCache();
+        assertEquals(0, errorPageCache.getCacheSizeInKB());
+    }
 }
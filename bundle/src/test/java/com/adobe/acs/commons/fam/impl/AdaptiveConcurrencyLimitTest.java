@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.fam.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    @Test
+    public void testStartsAtCeiling() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 4);
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    public void testOverloadDecreasesDownToFloor() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 8);
+
+        limit.onCompletion(System.currentTimeMillis(), 10, true, true);
+        assertEquals(6, limit.getLimit());
+
+        // Tasks started before the decrease do not decrease the limit again
+        limit.onCompletion(0, 10, true, true);
+        assertEquals(6, limit.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            limit.onCompletion(System.currentTimeMillis() + 1000, 10, true, true);
+        }
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    public void testIsAtFloor() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 3);
+        assertFalse(limit.isAtFloor());
+
+        limit.onCompletion(System.currentTimeMillis(), 10, true, true);
+        assertTrue(limit.isAtFloor());
+    }
+
+    @Test
+    public void testLatencyIncreaseDecreasesLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 8);
+        for (int i = 0; i < 50; i++) {
+            limit.onCompletion(0, 100, false, false);
+        }
+        assertEquals(8, limit.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            limit.onCompletion(System.currentTimeMillis() + 1000, 1000, false, false);
+        }
+        assertTrue(limit.getLimit() < 8);
+    }
+
+    @Test
+    public void testIncreasesWhileQueueingAndSaturated() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 4);
+        limit.onCompletion(System.currentTimeMillis(), 10, true, true);
+        assertEquals(3, limit.getLimit());
+
+        for (int i = 0; i < 3; i++) {
+            limit.acquire();
+        }
+        // Roughly one step per "limit" completions
+        for (int i = 0; i < 4; i++) {
+            limit.onCompletion(System.currentTimeMillis(), 10, true, false);
+        }
+        assertEquals(4, limit.getLimit());
+
+        // Never above the ceiling
+        limit.acquire();
+        for (int i = 0; i < 20; i++) {
+            limit.onCompletion(System.currentTimeMillis(), 10, true, false);
+        }
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    public void testAcquireWaitsForPermit() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1);
+        limit.acquire();
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                limit.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        limit.release();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        waiter.join();
+    }
+}
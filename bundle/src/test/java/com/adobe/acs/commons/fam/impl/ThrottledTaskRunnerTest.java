@@ -21,9 +21,17 @@
 package com.adobe.acs.commons.fam.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.management.NotCompliantMBeanException;
 
@@ -35,6 +43,7 @@ import org.slf4j.LoggerFactory;
 
 import com.adobe.acs.commons.fam.ThrottledTaskRunner;
 import java.util.Collections;
+import junitx.util.PrivateAccessor;
 
 public class ThrottledTaskRunnerTest {
 
@@ -88,6 +97,49 @@ public class ThrottledTaskRunnerTest {
 
     }
 
+    @Test
+    public void testBusyOnlyCoolsDownAtMinimumConcurrency() throws Exception {
+        // Above the floor the adaptive limit absorbs the overload, so the caller is not held back
+        assertCoolsDown(false, "adaptive.concurrency", true, "min.threads", 1, "max.threads", 4);
+        // At the floor, or without adaptive concurrency, only waiting reduces the load
+        assertCoolsDown(true, "adaptive.concurrency", true, "min.threads", 4, "max.threads", 4);
+        assertCoolsDown(true, "adaptive.concurrency", false, "max.threads", 4);
+    }
+
+    private void assertCoolsDown(boolean expected, Object... properties) throws Exception {
+        Map<String, Object> config = new HashMap<>();
+        for (int i = 0; i < properties.length; i += 2) {
+            config.put((String) properties[i], properties[i + 1]);
+        }
+        config.put("cooldown.wait.time", 60000);
+        ThrottledTaskRunnerImpl ttr = osgiContext.registerInjectActivateService(new ThrottledTaskRunnerImpl(), config);
+
+        // Report the system as busy until the next check, a cooldown period from now
+        PrivateAccessor.setField(ttr, "wasRecentlyBusy", true);
+        PrivateAccessor.setField(ttr, "lastCheck", System.currentTimeMillis());
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> wait = caller.submit(() -> {
+                ttr.waitForLowCpuAndLowMemory();
+                return null;
+            });
+            try {
+                wait.get(1, TimeUnit.SECONDS);
+                if (expected) {
+                    fail("Expected the caller to cool down");
+                }
+            } catch (TimeoutException ex) {
+                if (!expected) {
+                    fail("Expected the caller not to cool down");
+                }
+                wait.cancel(true);
+            }
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
     @Test
     public void testExecutionOrder() throws NotCompliantMBeanException, InterruptedException {
         ThrottledTaskRunner ttr = osgiContext.registerInjectActivateService(new ThrottledTaskRunnerImpl());
@@ -0,0 +1,118 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.httpcache.engine.impl;
+
+import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
+import com.adobe.acs.commons.httpcache.engine.CacheContent;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import com.adobe.acs.commons.httpcache.store.HttpCacheStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CacheWriteBehindQueueTest {
+
+    @Mock
+    HttpCacheStore store;
+
+    CacheWriteBehindQueue systemUnderTest;
+
+    @Before
+    public void init() {
+        systemUnderTest = new CacheWriteBehindQueue(1, 1);
+    }
+
+    @After
+    public void tearDown() {
+        systemUnderTest.shutdown();
+    }
+
+    @Test
+    public void test_write_is_persisted_in_background() throws Exception {
+        CacheKey key = mock(CacheKey.class);
+        CacheContent content = content("rendered-html");
+
+        assertTrue(systemUnderTest.offer(store, key, content));
+
+        verify(store, timeout(5000)).put(key, content, null);
+    }
+
+    @Test
+    public void test_coalesce_and_drop_when_full() throws Exception {
+        final CountDownLatch writerStarted = new CountDownLatch(1);
+        final CountDownLatch releaseWriter = new CountDownLatch(1);
+        CacheKey blockingKey = mock(CacheKey.class);
+        doAnswer(invocation -> {
+            writerStarted.countDown();
+            releaseWriter.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(store).put(eq(blockingKey), any(CacheContent.class), any(HttpCacheConfig.class));
+
+        // Occupy the single writer thread.
+        systemUnderTest.offer(store, blockingKey, content("blocking"));
+        assertTrue(writerStarted.await(5, TimeUnit.SECONDS));
+
+        CacheKey key = mock(CacheKey.class);
+        CacheKey otherKey = mock(CacheKey.class);
+        CacheContent first = content("first");
+        CacheContent second = content("second");
+
+        assertTrue(systemUnderTest.offer(store, key, first));
+        assertTrue(systemUnderTest.offer(store, key, second));
+        assertFalse(systemUnderTest.offer(store, otherKey, content("other")));
+
+        assertEquals(1, systemUnderTest.getQueueDepth());
+        assertEquals(1, systemUnderTest.getCoalescedCount());
+        assertEquals(1, systemUnderTest.getDroppedCount());
+
+        releaseWriter.countDown();
+
+        verify(store, timeout(5000)).put(same(key), same(second), any(HttpCacheConfig.class));
+        verify(store, never()).put(same(key), same(first), any(HttpCacheConfig.class));
+        verify(store, never()).put(same(otherKey), any(CacheContent.class), any(HttpCacheConfig.class));
+    }
+
+    private CacheContent content(String body) {
+        return new CacheContent("utf-8", "text/html", new HashMap<>(),
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
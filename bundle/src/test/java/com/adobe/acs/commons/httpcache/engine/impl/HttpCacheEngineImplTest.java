@@ -27,8 +27,11 @@ import com.adobe.acs.commons.httpcache.exception.HttpCacheDataStreamException;
 import com.adobe.acs.commons.httpcache.exception.HttpCacheKeyCreationException;
 import com.adobe.acs.commons.httpcache.exception.HttpCachePersistenceException;
 import com.adobe.acs.commons.httpcache.exception.HttpCacheRepositoryAccessException;
+import com.adobe.acs.commons.httpcache.keys.AbstractCacheKey;
 import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import com.adobe.acs.commons.httpcache.rule.HttpCacheHandlingRule;
 import com.adobe.acs.commons.httpcache.store.HttpCacheStore;
+import com.adobe.acs.commons.httpcache.store.disk.impl.DiskHttpCacheStoreImpl;
 import com.adobe.acs.commons.httpcache.store.mem.impl.MemTempSinkImpl;
 import com.day.cq.commons.feed.StringResponseWrapper;
 import org.apache.commons.io.IOUtils;
@@ -38,7 +41,9 @@ import org.apache.sling.commons.testing.sling.MockSlingHttpServletRequest;
 import org.apache.sling.commons.testing.sling.MockSlingHttpServletResponse;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -47,27 +52,47 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import javax.management.NotCompliantMBeanException;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static com.adobe.acs.commons.httpcache.store.HttpCacheStore.VALUE_DISK_CACHE_STORE_TYPE;
 import static com.adobe.acs.commons.httpcache.store.HttpCacheStore.VALUE_JCR_CACHE_STORE_TYPE;
 import static com.adobe.acs.commons.httpcache.store.HttpCacheStore.VALUE_MEM_CACHE_STORE_TYPE;
 import static java.util.Collections.emptyMap;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class HttpCacheEngineImplTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     HttpCacheEngineImpl systemUnderTest;
 
     @Mock
@@ -237,7 +262,7 @@ public class HttpCacheEngineImplTest {
 
         systemUnderTest.cacheResponse(request, wrappedResponse, jcrCacheConfig);
 
-        verify(jcrCacheStore,atLeastOnce()).put(eq(mockedCacheKey), cacheContentCaptor.capture());
+        verify(jcrCacheStore,atLeastOnce()).put(eq(mockedCacheKey), cacheContentCaptor.capture(), eq(jcrCacheConfig));
 
         assertEquals("utf-8",cacheContentCaptor.getValue().getCharEncoding());
         assertEquals("text/html",cacheContentCaptor.getValue().getContentType());
@@ -248,4 +273,238 @@ public class HttpCacheEngineImplTest {
         assertEquals("rendered-html", cachedHTML);
     }
 
+    @Test
+    public void test_single_flight_waits_for_concurrent_render() throws Exception {
+        when(config.httpcache_engine_singleflight_enabled()).thenReturn(true);
+        when(config.httpcache_engine_singleflight_timeout()).thenReturn(5000L);
+        systemUnderTest.activate(config);
+
+        SlingHttpServletRequest request = new MockSlingHttpServletRequest("/content/acs-commons/home", "my-selector", "html", "", "");
+        CacheKey mockedCacheKey = mock(CacheKey.class);
+        when(memCacheConfig.buildCacheKey(request)).thenReturn(mockedCacheKey);
+
+        // This thread renders the response.
+        assertFalse(systemUnderTest.joinInFlightRender(request, memCacheConfig));
+        assertEquals(1, systemUnderTest.getSingleFlightInFlightCount());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> waiter = executor.submit(() -> systemUnderTest.joinInFlightRender(request, memCacheConfig));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (systemUnderTest.getSingleFlightWaitCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse(waiter.isDone());
+
+            systemUnderTest.completeInFlightRender(request, memCacheConfig);
+
+            assertTrue(waiter.get(5, TimeUnit.SECONDS));
+            assertEquals(0, systemUnderTest.getSingleFlightInFlightCount());
+            assertEquals(0, systemUnderTest.getSingleFlightTimeoutCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_bulk_invalidation() throws Exception {
+        final HttpCacheHandlingRule rule = mock(HttpCacheHandlingRule.class);
+        final Map<String, Object> ruleProps = Collections.singletonMap("service.pid", "bulk-rule");
+        when(rule.onCacheInvalidate(anyString())).thenReturn(true);
+        when(memCacheConfig.acceptsRule("bulk-rule")).thenReturn(true);
+        when(memCacheConfig.canInvalidate(anyString())).thenReturn(true);
+        when(memCacheConfig.buildCacheKey(anyString())).thenAnswer(
+                invocation -> new PathCacheKey((String) invocation.getArguments()[0], memCacheConfig));
+        systemUnderTest.bindHttpCacheHandlingRule(rule, ruleProps);
+
+        try {
+            systemUnderTest.invalidateCache(Arrays.asList(
+                    "/content/site/page/jcr:content/par/a",
+                    "/content/site/page/jcr:content/par/b",
+                    "/content/site/other/jcr:content"));
+
+            // changes within the same page collapse, and the store is invalidated once for the batch
+            ArgumentCaptor<Collection> keys = ArgumentCaptor.forClass(Collection.class);
+            verify(memCacheStore, times(1)).invalidate(keys.capture());
+            assertEquals(2, keys.getValue().size());
+            verify(jcrCacheStore, never()).invalidate(any(Collection.class));
+        } finally {
+            systemUnderTest.unbindHttpCacheHandlingRule(rule, ruleProps);
+        }
+    }
+
+    @Test
+    public void test_bulk_invalidation_of_exact_match_store() throws Exception {
+        final HttpCacheHandlingRule rule = mock(HttpCacheHandlingRule.class);
+        final Map<String, Object> ruleProps = Collections.singletonMap("service.pid", "bulk-rule");
+        when(rule.onCacheInvalidate(anyString())).thenReturn(true);
+        when(jcrCacheConfig.acceptsRule("bulk-rule")).thenReturn(true);
+        when(jcrCacheConfig.canInvalidate(anyString())).thenReturn(true);
+        when(jcrCacheConfig.buildCacheKey(anyString())).thenAnswer(
+                invocation -> new PathCacheKey((String) invocation.getArguments()[0], jcrCacheConfig));
+        systemUnderTest.bindHttpCacheHandlingRule(rule, ruleProps);
+
+        try {
+            systemUnderTest.invalidateCache(Arrays.asList(
+                    "/content/site/page/jcr:content/par/a",
+                    "/content/site/page/jcr:content/par/b",
+                    "/content/site/other/jcr:content"));
+
+            // the JCR store only removes equal keys, so no key is collapsed
+            ArgumentCaptor<Collection> keys = ArgumentCaptor.forClass(Collection.class);
+            verify(jcrCacheStore, times(1)).invalidate(keys.capture());
+            assertEquals(3, keys.getValue().size());
+            verify(memCacheStore, never()).invalidate(any(Collection.class));
+        } finally {
+            systemUnderTest.unbindHttpCacheHandlingRule(rule, ruleProps);
+        }
+    }
+
+    @Test
+    public void test_async_disk_put_stores_the_entry() throws Exception {
+        when(config.httpcache_engine_asyncwrite_enabled()).thenReturn(true);
+        when(config.httpcache_engine_asyncwrite_threads()).thenReturn(1);
+        when(config.httpcache_engine_asyncwrite_queuesize()).thenReturn(10);
+        systemUnderTest.activate(config);
+
+        HttpCacheConfig diskCacheConfig = mock(HttpCacheConfig.class);
+        Map<String, Object> diskConfigProps =
+                Collections.singletonMap(HttpCacheStore.KEY_CACHE_STORE_TYPE, VALUE_DISK_CACHE_STORE_TYPE);
+        when(diskCacheConfig.getCacheStoreName()).thenReturn(VALUE_DISK_CACHE_STORE_TYPE);
+        when(diskCacheConfig.getAuthenticationRequirement()).thenReturn("anonymous");
+        ActivatedDiskCacheStore diskCacheStore = new ActivatedDiskCacheStore(folder.newFolder("disk"));
+        systemUnderTest.bindHttpCacheStore(diskCacheStore, diskConfigProps);
+
+        try {
+            SlingHttpServletRequest request = new MockSlingHttpServletRequest("/content/acs-commons/home", "my-selector", "html", "", "");
+            SlingHttpServletResponse response = mock(SlingHttpServletResponse.class);
+            when(response.getStatus()).thenReturn(200);
+            when(response.getCharacterEncoding()).thenReturn("utf-8");
+            when(response.getContentType()).thenReturn("text/html");
+            when(response.getWriter()).thenReturn(new PrintWriter(new ByteArrayOutputStream()));
+            CacheKey key = new PathCacheKey("/content/acs-commons/home.my-selector.html", diskCacheConfig);
+            when(diskCacheConfig.buildCacheKey(request)).thenReturn(key);
+
+            HttpCacheServletResponseWrapper wrappedResponse = systemUnderTest.wrapResponse(request, response, diskCacheConfig);
+            wrappedResponse.getWriter().write("rendered-html");
+            wrappedResponse.getWriter().flush();
+
+            systemUnderTest.cacheResponse(request, wrappedResponse, diskCacheConfig);
+            // Shutting down the write-behind queue waits for the queued write.
+            systemUnderTest.deactivate(emptyMap());
+
+            CacheContent cached = diskCacheStore.getIfPresent(key);
+            assertNotNull(cached);
+            assertEquals("rendered-html", IOUtils.toString(cached.getInputDataStream(), StandardCharsets.UTF_8));
+            // The queue released the temp sink once the store took the response over.
+            assertEquals(0, new File(folder.getRoot(), "disk/tmp").list().length);
+        } finally {
+            systemUnderTest.unbindHttpCacheStore(diskCacheStore, diskConfigProps);
+            diskCacheStore.close();
+        }
+    }
+
+    @Test
+    public void test_invalidation_cancels_queued_write() throws Exception {
+        when(config.httpcache_engine_asyncwrite_enabled()).thenReturn(true);
+        when(config.httpcache_engine_asyncwrite_threads()).thenReturn(1);
+        when(config.httpcache_engine_asyncwrite_queuesize()).thenReturn(10);
+        systemUnderTest.activate(config);
+
+        final HttpCacheHandlingRule rule = mock(HttpCacheHandlingRule.class);
+        final Map<String, Object> ruleProps = Collections.singletonMap("service.pid", "invalidation-rule");
+        when(rule.onCacheInvalidate(anyString())).thenReturn(true);
+        when(memCacheConfig.acceptsRule("invalidation-rule")).thenReturn(true);
+        when(memCacheConfig.canInvalidate(anyString())).thenReturn(true);
+        when(memCacheConfig.buildCacheKey(anyString())).thenAnswer(
+                invocation -> new PathCacheKey((String) invocation.getArguments()[0], memCacheConfig));
+        when(memCacheStore.createTempSink()).thenAnswer(invocation -> new MemTempSinkImpl());
+        systemUnderTest.bindHttpCacheHandlingRule(rule, ruleProps);
+
+        SlingHttpServletRequest blockingRequest = new MockSlingHttpServletRequest("/content/site/blocking", "", "html", "", "");
+        SlingHttpServletRequest pageRequest = new MockSlingHttpServletRequest("/content/site/page", "", "html", "", "");
+        CacheKey blockingKey = new PathCacheKey("/content/site/blocking.html", memCacheConfig);
+        CacheKey pageKey = new PathCacheKey("/content/site/page.html", memCacheConfig);
+        when(memCacheConfig.buildCacheKey(blockingRequest)).thenReturn(blockingKey);
+        when(memCacheConfig.buildCacheKey(pageRequest)).thenReturn(pageKey);
+
+        final CountDownLatch writerStarted = new CountDownLatch(1);
+        final CountDownLatch releaseWriter = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writerStarted.countDown();
+            releaseWriter.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(memCacheStore).put(eq(blockingKey), any(CacheContent.class), eq(memCacheConfig));
+
+        try {
+            // Occupy the single writer thread, so the page response stays queued.
+            cacheRenderedResponse(blockingRequest, memCacheConfig);
+            assertTrue(writerStarted.await(5, TimeUnit.SECONDS));
+            cacheRenderedResponse(pageRequest, memCacheConfig);
+            assertEquals(1, systemUnderTest.getAsyncWriteQueueDepth());
+
+            systemUnderTest.invalidateCache("/content/site/page/jcr:content");
+            assertEquals(0, systemUnderTest.getAsyncWriteQueueDepth());
+
+            // Shutting down the write-behind queue drains it.
+            releaseWriter.countDown();
+            systemUnderTest.deactivate(emptyMap());
+
+            verify(memCacheStore).invalidate(any(CacheKey.class));
+            verify(memCacheStore).put(eq(blockingKey), any(CacheContent.class), eq(memCacheConfig));
+            verify(memCacheStore, never()).put(eq(pageKey), any(CacheContent.class), any(HttpCacheConfig.class));
+        } finally {
+            releaseWriter.countDown();
+            systemUnderTest.unbindHttpCacheHandlingRule(rule, ruleProps);
+        }
+    }
+
+    private void cacheRenderedResponse(SlingHttpServletRequest request, HttpCacheConfig cacheConfig) throws Exception {
+        SlingHttpServletResponse response = mock(SlingHttpServletResponse.class);
+        when(response.getStatus()).thenReturn(200);
+        when(response.getCharacterEncoding()).thenReturn("utf-8");
+        when(response.getContentType()).thenReturn("text/html");
+        when(response.getWriter()).thenReturn(new PrintWriter(new ByteArrayOutputStream()));
+
+        HttpCacheServletResponseWrapper wrappedResponse = systemUnderTest.wrapResponse(request, response, cacheConfig);
+        wrappedResponse.getWriter().write("rendered-html");
+        wrappedResponse.getWriter().flush();
+        systemUnderTest.cacheResponse(request, wrappedResponse, cacheConfig);
+    }
+
+    static class ActivatedDiskCacheStore extends DiskHttpCacheStoreImpl {
+        ActivatedDiskCacheStore(File directory) throws IOException {
+            DiskHttpCacheStoreImpl.Config diskConfig = mock(DiskHttpCacheStoreImpl.Config.class);
+            when(diskConfig.httpcache_cachestore_diskcache_path()).thenReturn(directory.getAbsolutePath());
+            when(diskConfig.httpcache_cachestore_diskcache_ttl()).thenReturn(-1L);
+            when(diskConfig.httpcache_cachestore_diskcache_maxsize()).thenReturn(10L);
+            activate(null, diskConfig);
+        }
+
+        void close() {
+            deactivate();
+        }
+    }
+
+    static class PathCacheKey extends AbstractCacheKey implements CacheKey {
+        PathCacheKey(String uri, HttpCacheConfig cacheConfig) {
+            super(uri, cacheConfig);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return super.equals(o) && getUri().equals(((PathCacheKey) o).getUri());
+        }
+
+        @Override
+        public int hashCode() {
+            return super.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return getUri();
+        }
+    }
 }
@@ -74,6 +74,11 @@ public class CaffeineMemHttpCacheStoreImplTest {
             public long httpcache_cachestore_caffeinecache_maxsize() {
                 return maxSizeInMb;
             }
+
+            @Override
+            public boolean httpcache_cachestore_caffeinecache_offheap() {
+                return false;
+            }
         });
     }
 
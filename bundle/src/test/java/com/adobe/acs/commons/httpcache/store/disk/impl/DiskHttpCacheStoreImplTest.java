@@ -0,0 +1,313 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.httpcache.store.disk.impl;
+
+import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
+import com.adobe.acs.commons.httpcache.engine.CacheContent;
+import com.adobe.acs.commons.httpcache.engine.HttpCacheServletResponseWrapper;
+import com.adobe.acs.commons.httpcache.keys.AbstractCacheKey;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import com.adobe.acs.commons.httpcache.store.TempSink;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DiskHttpCacheStoreImplTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    DiskHttpCacheStoreImpl systemUnderTest;
+
+    HttpCacheConfig cacheConfig;
+
+    private long maxSizeInMb = 10L;
+
+    @Before
+    public void init() throws IOException {
+        cacheConfig = mock(HttpCacheConfig.class);
+        when(cacheConfig.getAuthenticationRequirement()).thenReturn("anonymous");
+        systemUnderTest = activateStore();
+    }
+
+    @After
+    public void tearDown() {
+        systemUnderTest.deactivate();
+    }
+
+    @Test
+    public void test_put_and_get() throws Exception {
+        CacheKey key = new PathCacheKey("/content/site/page.html", cacheConfig);
+        systemUnderTest.put(key, content("<html>page</html>"));
+
+        assertTrue(systemUnderTest.contains(key));
+        assertEquals(1, systemUnderTest.size());
+
+        CacheContent cached = systemUnderTest.getIfPresent(key);
+        assertNotNull(cached);
+        assertEquals(200, cached.getStatus());
+        assertEquals("text/html", cached.getContentType());
+        assertEquals(Collections.singletonList("value"), cached.getHeaders().get("X-Test"));
+        assertEquals("<html>page</html>", read(cached));
+    }
+
+    @Test
+    public void test_identical_bodies_are_stored_once() throws Exception {
+        systemUnderTest.put(new PathCacheKey("/content/site/a.html", cacheConfig), content("same body"));
+        systemUnderTest.put(new PathCacheKey("/content/site/b.html", cacheConfig), content("same body"));
+
+        assertEquals(2, systemUnderTest.size());
+        assertEquals("same body".length(), systemUnderTest.getTotalBytes());
+        assertEquals(1, countBodyFiles());
+    }
+
+    @Test
+    public void test_invalidate_by_key() throws Exception {
+        CacheKey page = new PathCacheKey("/content/site/page.html", cacheConfig);
+        CacheKey other = new PathCacheKey("/content/site/other.html", cacheConfig);
+        systemUnderTest.put(page, content("page"));
+        systemUnderTest.put(other, content("other"));
+
+        systemUnderTest.invalidate(new PathCacheKey("/content/site/page/jcr:content", cacheConfig));
+
+        assertFalse(systemUnderTest.contains(page));
+        assertTrue(systemUnderTest.contains(other));
+        assertEquals("other".length(), systemUnderTest.getTotalBytes());
+        assertEquals(1, countBodyFiles());
+    }
+
+    @Test
+    public void test_invalidate_all() throws Exception {
+        systemUnderTest.put(new PathCacheKey("/content/site/a.html", cacheConfig), content("a"));
+        systemUnderTest.put(new PathCacheKey("/content/site/b.html", cacheConfig), content("b"));
+
+        systemUnderTest.invalidateAll();
+
+        assertEquals(0, systemUnderTest.size());
+        assertEquals(0, systemUnderTest.getTotalBytes());
+        assertEquals(0, countBodyFiles());
+    }
+
+    @Test
+    public void test_recovers_entries_after_restart() throws Exception {
+        CacheKey key = new PathCacheKey("/content/site/page.html", cacheConfig);
+        systemUnderTest.put(key, content("old"));
+        systemUnderTest.put(key, content("<html>page</html>"));
+        systemUnderTest.deactivate();
+
+        // Leftovers of a crash: an orphaned body and a partially written temp file.
+        File orphan = new File(folder.getRoot(), "bodies/ab/abcdef");
+        assertTrue(orphan.getParentFile().mkdirs());
+        assertTrue(orphan.createNewFile());
+        File temp = new File(folder.getRoot(), "tmp/partial.tmp");
+        assertTrue(temp.createNewFile());
+
+        systemUnderTest = activateStore();
+
+        assertEquals(1, systemUnderTest.size());
+        assertEquals("<html>page</html>", read(systemUnderTest.getIfPresent(
+                new PathCacheKey("/content/site/page.html", cacheConfig))));
+        assertFalse(orphan.exists());
+        assertFalse(temp.exists());
+        assertEquals(1, countBodyFiles());
+    }
+
+    @Test
+    public void test_least_recently_used_entries_are_evicted() throws Exception {
+        maxSizeInMb = 1L;
+        systemUnderTest.deactivate();
+        systemUnderTest = activateStore();
+
+        CacheKey first = new PathCacheKey("/content/site/first.html", cacheConfig);
+        CacheKey second = new PathCacheKey("/content/site/second.html", cacheConfig);
+        CacheKey third = new PathCacheKey("/content/site/third.html", cacheConfig);
+        systemUnderTest.put(first, content(body('a', 400 * 1024)));
+        systemUnderTest.put(second, content(body('b', 400 * 1024)));
+        Thread.sleep(5);
+        IOUtils.closeQuietly(systemUnderTest.getIfPresent(first).getInputDataStream());
+
+        systemUnderTest.put(third, content(body('c', 400 * 1024)));
+
+        assertTrue(systemUnderTest.contains(first));
+        assertFalse(systemUnderTest.contains(second));
+        assertTrue(systemUnderTest.contains(third));
+        assertTrue(systemUnderTest.getTotalBytes() <= 1024 * 1024);
+    }
+
+    @Test
+    public void test_temp_sink_is_hashed_while_written() throws Exception {
+        TempSink sink = systemUnderTest.createTempSink();
+        try (OutputStream out = sink.createOutputStream()) {
+            out.write("spooled".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(-1, sink.length());
+
+        try (InputStream in = sink.createInputStream()) {
+            assertArrayEquals("spooled".getBytes(StandardCharsets.UTF_8), IOUtils.toByteArray(in));
+        }
+        assertEquals("spooled".length(), sink.length());
+        assertNotNull(((DiskTempSinkImpl) sink).getContentHash());
+    }
+
+    @Test
+    public void test_released_temp_sink_is_deleted_unless_cached() throws Exception {
+        CacheContent cached = content("cached");
+        CacheContent notCached = content("not cached");
+        File cachedFile = ((DiskTempSinkImpl) cached.getTempSink()).getFile();
+        File notCachedFile = ((DiskTempSinkImpl) notCached.getTempSink()).getFile();
+        PathCacheKey key = new PathCacheKey("/content/site/cached.html", cacheConfig);
+        systemUnderTest.put(key, cached);
+
+        cached.getTempSink().release();
+        notCached.getTempSink().release();
+
+        assertFalse(cachedFile.exists());
+        assertFalse(notCachedFile.exists());
+        assertEquals("cached", read(systemUnderTest.getIfPresent(key)));
+    }
+
+    @Test
+    public void test_missing_entry() {
+        assertNull(systemUnderTest.getIfPresent(new PathCacheKey("/content/site/missing.html", cacheConfig)));
+    }
+
+    private DiskHttpCacheStoreImpl activateStore() throws IOException {
+        DiskHttpCacheStoreImpl store = new DiskHttpCacheStoreImpl();
+        final String path = folder.getRoot().getAbsolutePath();
+        final long maxSize = maxSizeInMb;
+        store.activate(null, new DiskHttpCacheStoreImpl.Config() {
+            @Override
+            public Class<? extends Annotation> annotationType() {
+                return null;
+            }
+
+            @Override
+            public String httpcache_cachestore_diskcache_path() {
+                return path;
+            }
+
+            @Override
+            public long httpcache_cachestore_diskcache_ttl() {
+                return -1L;
+            }
+
+            @Override
+            public long httpcache_cachestore_diskcache_maxsize() {
+                return maxSize;
+            }
+
+            @Override
+            public String scheduler_expression() {
+                return DEFAULT_CRON_EXPRESSION;
+            }
+        });
+        return store;
+    }
+
+    private CacheContent content(String body) throws IOException {
+        TempSink sink = systemUnderTest.createTempSink();
+        try (OutputStream out = sink.createOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        Map<String, List<String>> headers = new HashMap<>();
+        headers.put("X-Test", Collections.singletonList("value"));
+        // Mirrors CacheContent.build(..), which keeps the temp sink the response was spooled into.
+        CacheContent content = mock(CacheContent.class);
+        when(content.getStatus()).thenReturn(200);
+        when(content.getCharEncoding()).thenReturn("UTF-8");
+        when(content.getContentType()).thenReturn("text/html");
+        when(content.getHeaders()).thenReturn(headers);
+        when(content.getWriteMethod()).thenReturn(HttpCacheServletResponseWrapper.ResponseWriteMethod.PRINTWRITER);
+        when(content.getInputDataStream()).thenReturn(sink.createInputStream());
+        when(content.getTempSink()).thenReturn(sink);
+        return content;
+    }
+
+    private static String body(char c, int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static String read(CacheContent content) throws IOException {
+        try (InputStream in = content.getInputDataStream()) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    private int countBodyFiles() {
+        int count = 0;
+        File[] dirs = new File(folder.getRoot(), "bodies").listFiles();
+        if (dirs != null) {
+            for (File dir : dirs) {
+                File[] files = dir.listFiles();
+                count += files == null ? 0 : files.length;
+            }
+        }
+        return count;
+    }
+
+    static class PathCacheKey extends AbstractCacheKey implements CacheKey {
+        private static final long serialVersionUID = 1L;
+
+        PathCacheKey(String uri, HttpCacheConfig cacheConfig) {
+            super(uri, cacheConfig);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return super.equals(o) && getUri().equals(((PathCacheKey) o).getUri());
+        }
+
+        @Override
+        public int hashCode() {
+            return super.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return getUri();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.httpcache.store.mem.impl;
+
+import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class CacheKeyOwnerIndexTest {
+
+    CacheKeyOwnerIndex systemUnderTest;
+
+    HttpCacheConfig cacheConfig;
+
+    HttpCacheConfig otherCacheConfig;
+
+    @Before
+    public void init() {
+        systemUnderTest = new CacheKeyOwnerIndex();
+        cacheConfig = mock(HttpCacheConfig.class);
+        otherCacheConfig = mock(HttpCacheConfig.class);
+    }
+
+    @Test
+    public void test_keys_grouped_by_owner() {
+        CacheKey page = mock(CacheKey.class);
+        CacheKey other = mock(CacheKey.class);
+        CacheKey unowned = mock(CacheKey.class);
+        systemUnderTest.add(page, cacheConfig);
+        systemUnderTest.add(other, otherCacheConfig);
+        systemUnderTest.add(unowned, null);
+
+        assertEquals(1, systemUnderTest.getKeys(cacheConfig).size());
+        assertTrue(systemUnderTest.getKeys(cacheConfig).contains(page));
+        assertTrue(systemUnderTest.getKeys(otherCacheConfig).contains(other));
+        assertEquals(1, systemUnderTest.getUnownedKeys().size());
+        assertTrue(systemUnderTest.getUnownedKeys().contains(unowned));
+        assertEquals(3, systemUnderTest.size());
+    }
+
+    @Test
+    public void test_re_put_moves_key_to_new_owner() {
+        CacheKey page = mock(CacheKey.class);
+        systemUnderTest.add(page, cacheConfig);
+        systemUnderTest.add(page, otherCacheConfig);
+
+        assertTrue(systemUnderTest.getKeys(cacheConfig).isEmpty());
+        assertTrue(systemUnderTest.getKeys(otherCacheConfig).contains(page));
+        assertEquals(1, systemUnderTest.size());
+    }
+
+    @Test
+    public void test_remove_respects_cache() {
+        CacheKey page = mock(CacheKey.class);
+        systemUnderTest.add(page, cacheConfig);
+
+        // Still cached, e.g. re-put after eviction, so it must stay indexed.
+        systemUnderTest.remove(page, key -> true);
+        assertTrue(systemUnderTest.getKeys(cacheConfig).contains(page));
+
+        systemUnderTest.remove(page, key -> false);
+        assertTrue(systemUnderTest.getKeys(cacheConfig).isEmpty());
+        assertEquals(0, systemUnderTest.size());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.httpcache.store.mem.impl;
+
+import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
+import com.adobe.acs.commons.httpcache.keys.AbstractCacheKey;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CacheKeyPathIndexTest {
+
+    CacheKeyPathIndex systemUnderTest;
+
+    HttpCacheConfig cacheConfig;
+
+    @Before
+    public void init() {
+        systemUnderTest = new CacheKeyPathIndex();
+        cacheConfig = mock(HttpCacheConfig.class);
+        when(cacheConfig.getAuthenticationRequirement()).thenReturn("anonymous");
+    }
+
+    @Test
+    public void test_invalidation_candidates_share_the_path() {
+        CacheKey page = new PathCacheKey("/content/site/page.html", cacheConfig);
+        CacheKey pageSelector = new PathCacheKey("/content/site/page.mobile.html", cacheConfig);
+        CacheKey child = new PathCacheKey("/content/site/page/child.html", cacheConfig);
+        CacheKey other = new PathCacheKey("/content/other.html", cacheConfig);
+        systemUnderTest.add(page);
+        systemUnderTest.add(pageSelector);
+        systemUnderTest.add(child);
+        systemUnderTest.add(other);
+
+        Collection<CacheKey> candidates = systemUnderTest.getInvalidationCandidates(
+                new PathCacheKey("/content/site/page/jcr:content", cacheConfig));
+
+        assertEquals(2, candidates.size());
+        assertTrue(candidates.contains(page));
+        assertTrue(candidates.contains(pageSelector));
+        assertEquals(4, systemUnderTest.size());
+    }
+
+    @Test
+    public void test_keys_at_or_below() {
+        systemUnderTest.add(new PathCacheKey("/content/site/page.html", cacheConfig));
+        systemUnderTest.add(new PathCacheKey("/content/site/page/child.html", cacheConfig));
+        systemUnderTest.add(new PathCacheKey("/content/other.html", cacheConfig));
+
+        assertEquals(2, systemUnderTest.getKeysAtOrBelow("/content/site").size());
+        assertEquals(3, systemUnderTest.getKeysAtOrBelow("/content").size());
+        assertTrue(systemUnderTest.getKeysAtOrBelow("/content/missing").isEmpty());
+    }
+
+    @Test
+    public void test_remove_prunes_and_respects_cache() {
+        CacheKey page = new PathCacheKey("/content/site/page.html", cacheConfig);
+        systemUnderTest.add(page);
+
+        // Still cached, e.g. re-put after eviction, so it must stay indexed.
+        systemUnderTest.remove(page, key -> true);
+        assertEquals(1, systemUnderTest.getKeysAtOrBelow("/content").size());
+
+        systemUnderTest.remove(page, key -> false);
+        assertEquals(0, systemUnderTest.size());
+        assertTrue(systemUnderTest.getKeysAtOrBelow("/content").isEmpty());
+    }
+
+    @Test
+    public void test_custom_keys_are_always_candidates() {
+        CacheKey custom = mock(CacheKey.class);
+        when(custom.getHierarchyResourcePath()).thenReturn("/content/site/page");
+        systemUnderTest.add(custom);
+
+        assertFalse(CacheKeyPathIndex.isPathIndexable(custom));
+        assertTrue(systemUnderTest.getInvalidationCandidates(
+                new PathCacheKey("/content/other.html", cacheConfig)).contains(custom));
+    }
+
+    static class PathCacheKey extends AbstractCacheKey implements CacheKey {
+        PathCacheKey(String uri, HttpCacheConfig cacheConfig) {
+            super(uri, cacheConfig);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return super.equals(o) && getUri().equals(((PathCacheKey) o).getUri());
+        }
+
+        @Override
+        public int hashCode() {
+            return super.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return getUri();
+        }
+    }
+}
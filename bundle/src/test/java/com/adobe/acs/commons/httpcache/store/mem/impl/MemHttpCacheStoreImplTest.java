@@ -39,14 +39,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -56,9 +60,14 @@ public class MemHttpCacheStoreImplTest {
     private Map<String, Object> properties = new HashMap<>();
     private long valueTtl = 30L;
     private long valueMaxSize = 20L;
+    private boolean valueOffHeap = false;
 
     @Before
     public void init() throws NotCompliantMBeanException {
+        activate();
+    }
+
+    private void activate() throws NotCompliantMBeanException {
         systemUnderTest = new MemHttpCacheStoreImpl();
         systemUnderTest.activate(new MemHttpCacheStoreImpl.Config(){
 
@@ -76,6 +85,11 @@ public class MemHttpCacheStoreImplTest {
             public long httpcache_cachestore_memcache_maxsize() {
                 return valueMaxSize;
             }
+
+            @Override
+            public boolean httpcache_cachestore_memcache_offheap() {
+                return valueOffHeap;
+            }
         });
     }
 
@@ -99,6 +113,28 @@ public class MemHttpCacheStoreImplTest {
     }
 
 
+    @Test
+    public void test_put_off_heap() throws NotCompliantMBeanException, HttpCacheDataStreamException, IOException {
+        valueOffHeap = true;
+        activate();
+
+        CacheKey key = mock(CacheKey.class);
+        CacheContent content = mock(CacheContent.class);
+        Map<String, List<String>> headers = new HashMap<>();
+        headers.put("Cache-Control", Arrays.asList("max-age=60", "public"));
+        when(content.getHeaders()).thenReturn(headers);
+        when(content.getInputDataStream()).thenReturn(getClass().getResourceAsStream("cachecontent.html"));
+        systemUnderTest.put(key, content);
+
+        CacheContent retrievedContent = systemUnderTest.getIfPresent(key);
+        String expectedContentString = IOUtils.toString(getClass().getResourceAsStream("cachecontent.html"), StandardCharsets.UTF_8);
+        assertEquals(expectedContentString, IOUtils.toString(retrievedContent.getInputDataStream(), StandardCharsets.UTF_8));
+        assertEquals(2, retrievedContent.getHeaders().get("Cache-Control").size());
+        assertTrue(retrievedContent.getHeaders().get("Cache-Control").contains("public"));
+        assertEquals("65 bytes", systemUnderTest.getCacheSize());
+        assertFalse("0 bytes".equals(systemUnderTest.getOffHeapSize()));
+    }
+
     @Test
     public void test_remove() throws HttpCacheDataStreamException {
         CacheKey key = mock(CacheKey.class);
@@ -134,6 +170,34 @@ public class MemHttpCacheStoreImplTest {
         assertFalse("doesn't contain entry we just removed",systemUnderTest.contains(key));
     }
 
+    @Test
+    public void test_remove_by_owning_cacheconfig() throws HttpCacheDataStreamException, HttpCacheKeyCreationException {
+        HttpCacheConfig config = mock(HttpCacheConfig.class);
+        HttpCacheConfig otherConfig = mock(HttpCacheConfig.class);
+        CacheKey owned = mock(CacheKey.class);
+        CacheKey ownedByOther = mock(CacheKey.class);
+        CacheKey unowned = mock(CacheKey.class);
+        systemUnderTest.put(owned, content(), config);
+        systemUnderTest.put(ownedByOther, content(), otherConfig);
+        systemUnderTest.put(unowned, content());
+        when(config.knows(unowned)).thenReturn(true);
+
+        systemUnderTest.invalidate(config);
+
+        assertFalse(systemUnderTest.contains(owned));
+        assertTrue(systemUnderTest.contains(ownedByOther));
+        assertFalse(systemUnderTest.contains(unowned));
+        // Only the entries cached without a config are matched against it.
+        verify(config, never()).knows(owned);
+        verify(config, never()).knows(ownedByOther);
+    }
+
+    private CacheContent content() {
+        CacheContent content = mock(CacheContent.class);
+        when(content.getInputDataStream()).thenReturn(getClass().getResourceAsStream("cachecontent.html"));
+        return content;
+    }
+
     @Test
     public void test_get_cache_entry_type() throws OpenDataException {
         CompositeType compositeType = systemUnderTest.getCacheEntryType();
@@ -0,0 +1,199 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.httpcache.store.tiered.impl;
+
+import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
+import com.adobe.acs.commons.httpcache.engine.CacheContent;
+import com.adobe.acs.commons.httpcache.engine.HttpCacheServletResponseWrapper;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import com.adobe.acs.commons.httpcache.store.HttpCacheStore;
+import junitx.util.PrivateAccessor;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TieredHttpCacheStoreImplTest {
+
+    TieredHttpCacheStoreImpl systemUnderTest;
+
+    HttpCacheStore l2Store;
+
+    @Before
+    public void setUp() throws Exception {
+        l2Store = mock(HttpCacheStore.class);
+        systemUnderTest = new TieredHttpCacheStoreImpl();
+        PrivateAccessor.setField(systemUnderTest, "l2Store", l2Store);
+        systemUnderTest.activate(new TieredHttpCacheStoreImpl.Config() {
+            @Override
+            public Class<? extends Annotation> annotationType() {
+                return null;
+            }
+
+            @Override
+            public long httpcache_cachestore_tiered_ttl() {
+                return DEFAULT_TTL;
+            }
+
+            @Override
+            public long httpcache_cachestore_tiered_maxsize() {
+                return DEFAULT_MAX_SIZE_IN_MB;
+            }
+
+            @Override
+            public int httpcache_cachestore_tiered_writequeuesize() {
+                return DEFAULT_WRITE_QUEUE_SIZE;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        systemUnderTest.deactivate();
+    }
+
+    @Test
+    public void test_put_writes_through() throws Exception {
+        CacheKey key = mock(CacheKey.class);
+        systemUnderTest.put(key, content("<html>page</html>"));
+
+        assertTrue(systemUnderTest.contains(key));
+        assertEquals("<html>page</html>", read(systemUnderTest.getIfPresent(key)));
+        verify(l2Store, timeout(5000)).put(same(key), any(CacheContent.class));
+        verify(l2Store, never()).getIfPresent(key);
+    }
+
+    @Test
+    public void test_l2_hit_is_promoted() throws Exception {
+        CacheKey key = mock(CacheKey.class);
+        when(l2Store.getIfPresent(key)).thenReturn(content("<html>from jcr</html>"));
+
+        assertEquals("<html>from jcr</html>", read(systemUnderTest.getIfPresent(key)));
+        assertEquals("<html>from jcr</html>", read(systemUnderTest.getIfPresent(key)));
+
+        verify(l2Store, times(1)).getIfPresent(key);
+        // Promotion must not write the entry back to the JCR store.
+        verify(l2Store, never()).put(same(key), any(CacheContent.class));
+    }
+
+    @Test
+    public void test_l2_hit_is_not_promoted_past_a_concurrent_invalidation() throws Exception {
+        CacheKey key = mock(CacheKey.class);
+        when(key.isInvalidatedBy(key)).thenReturn(true);
+        when(l2Store.getIfPresent(key)).thenAnswer(invocation -> {
+            // The invalidation runs while the entry is read from the JCR store.
+            systemUnderTest.invalidate(key);
+            return content("<html>stale</html>");
+        });
+
+        assertEquals("<html>stale</html>", read(systemUnderTest.getIfPresent(key)));
+
+        when(l2Store.getIfPresent(key)).thenReturn(null);
+        assertNull(systemUnderTest.getIfPresent(key));
+    }
+
+    @Test
+    public void test_miss() {
+        CacheKey key = mock(CacheKey.class);
+
+        assertNull(systemUnderTest.getIfPresent(key));
+        assertFalse(systemUnderTest.contains(key));
+    }
+
+    @Test
+    public void test_invalidate_applies_to_both_tiers() throws Exception {
+        CacheKey key = mock(CacheKey.class);
+        CacheKey invalidationKey = mock(CacheKey.class);
+        when(key.isInvalidatedBy(invalidationKey)).thenReturn(true);
+        systemUnderTest.put(key, content("<html>page</html>"));
+
+        systemUnderTest.invalidate(invalidationKey);
+
+        assertFalse(systemUnderTest.contains(key));
+        verify(l2Store).invalidate(invalidationKey);
+    }
+
+    @Test
+    public void test_invalidate_by_path_removes_the_l2_entry() throws Exception {
+        CacheKey key = mock(CacheKey.class);
+        CacheKey invalidationKey = mock(CacheKey.class);
+        when(key.isInvalidatedBy(invalidationKey)).thenReturn(true);
+        // The JCR store only removes entries whose key equals one of the invalidated keys.
+        final AtomicBoolean removedFromL2 = new AtomicBoolean();
+        when(l2Store.getIfPresent(key)).thenAnswer(
+                invocation -> removedFromL2.get() ? null : content("<html>page</html>"));
+        doAnswer(invocation -> {
+            removedFromL2.compareAndSet(false, ((Collection<?>) invocation.getArguments()[0]).contains(key));
+            return null;
+        }).when(l2Store).invalidate(any(Collection.class));
+
+        systemUnderTest.put(key, content("<html>page</html>"));
+        verify(l2Store, timeout(5000)).put(same(key), any(CacheContent.class));
+
+        systemUnderTest.invalidate(invalidationKey);
+
+        assertNull(systemUnderTest.getIfPresent(key));
+    }
+
+    @Test
+    public void test_invalidate_by_config_applies_to_both_tiers() throws Exception {
+        HttpCacheConfig cacheConfig = mock(HttpCacheConfig.class);
+        CacheKey key = mock(CacheKey.class);
+        when(cacheConfig.knows(key)).thenReturn(true);
+        systemUnderTest.put(key, content("<html>page</html>"));
+
+        systemUnderTest.invalidate(cacheConfig);
+
+        assertFalse(systemUnderTest.contains(key));
+        assertEquals(0, systemUnderTest.getPendingWriteCount());
+        verify(l2Store).invalidate(cacheConfig);
+    }
+
+    private static CacheContent content(String body) {
+        return new CacheContent(200, "UTF-8", "text/html", Collections.emptyMap(),
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                HttpCacheServletResponseWrapper.ResponseWriteMethod.PRINTWRITER);
+    }
+
+    private static String read(CacheContent content) throws Exception {
+        return IOUtils.toString(content.getInputDataStream(), StandardCharsets.UTF_8);
+    }
+}
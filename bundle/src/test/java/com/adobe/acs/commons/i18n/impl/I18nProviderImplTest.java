@@ -25,6 +25,7 @@ import com.day.cq.wcm.api.Page;
 import io.wcm.testing.mock.aem.junit.AemContext;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.observation.ResourceChange;
 import org.apache.sling.i18n.ResourceBundleProvider;
 import org.junit.After;
 import org.junit.Before;
@@ -53,6 +54,7 @@ import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.internal.verification.VerificationModeFactory.noMoreInteractions;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 import static org.powermock.api.mockito.PowerMockito.when;
@@ -115,10 +117,12 @@ public class I18nProviderImplTest {
 
         PowerMockito.mockStatic(InjectorUtils.class);
         when(InjectorUtils.getResourcePage(resource)).thenReturn(resourcePage);
+        when(resourcePage.getPath()).thenReturn("/content/page");
         when(resourcePage.getLanguage(false)).thenReturn(Locale.US);
 
         when(config.getTtl()).thenReturn(10L);
         when(config.maxSizeCount()).thenReturn(10L);
+        when(config.maxPageCount()).thenReturn(10L);
 
         i18nProvider.activate(config);
     }
@@ -247,4 +251,83 @@ public class I18nProviderImplTest {
         assertSame(actual, cached);
     }
 
+    @Test
+    public void test_i18n_cached_by_locale_and_page() throws Exception {
+        I18n mocked = mock(I18n.class);
+
+        PowerMockito.whenNew(I18n.class)
+                .withParameterTypes(ResourceBundle.class)
+                .withArguments(resourceBundle)
+                .thenReturn(mocked);
+
+        Resource otherResource = mock(Resource.class);
+        when(InjectorUtils.getResourcePage(otherResource)).thenReturn(resourcePage);
+
+        assertSame(mocked, i18nProvider.i18n(resource));
+        assertSame(mocked, i18nProvider.i18n(otherResource));
+        assertSame(mocked, i18nProvider.i18n(Locale.US));
+
+        // one I18n per locale and one locale resolution per page
+        PowerMockito.verifyNew(I18n.class, times(1)).withArguments(resourceBundle);
+        verify(resourcePage, times(1)).getLanguage(false);
+    }
+
+    @Test
+    public void test_invalidation_on_change() throws Exception {
+        I18n first = mock(I18n.class);
+        I18n second = mock(I18n.class);
+
+        PowerMockito.whenNew(I18n.class)
+                .withParameterTypes(ResourceBundle.class)
+                .withArguments(resourceBundle)
+                .thenReturn(first, second);
+
+        assertSame(first, i18nProvider.i18n(resource));
+
+        // changes of page content below jcr:content keep the cached I18n and page locale
+        i18nProvider.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.CHANGED,
+                "/content/page/jcr:content/par/text", false, null, Collections.singleton("text"), null)));
+        assertSame(first, i18nProvider.i18n(resource));
+        verify(resourcePage, times(1)).getLanguage(false);
+
+        // any change of jcr:content may change the page language, changed property names are not reported reliably
+        i18nProvider.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.CHANGED,
+                "/content/page/jcr:content", false, null, null, null)));
+        assertSame(first, i18nProvider.i18n(resource));
+        verify(resourcePage, times(2)).getLanguage(false);
+
+        i18nProvider.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.CHANGED,
+                "/apps/site/i18n/en/hello", false, null, Collections.singleton("sling:message"), null)));
+        assertSame(second, i18nProvider.i18n(resource));
+    }
+
+    @Test
+    public void test_dictionary_change_without_property_names() throws Exception {
+        I18n first = mock(I18n.class);
+        I18n second = mock(I18n.class);
+        I18n third = mock(I18n.class);
+
+        PowerMockito.whenNew(I18n.class)
+                .withParameterTypes(ResourceBundle.class)
+                .withArguments(resourceBundle)
+                .thenReturn(first, second, third);
+
+        assertSame(first, i18nProvider.i18n(resource));
+
+        // external changes report no property names
+        i18nProvider.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.CHANGED,
+                "/apps/site/i18n/en/hello", true, null, null, null)));
+        assertSame(second, i18nProvider.i18n(resource));
+
+        // removing an ancestor of an i18n folder removes its dictionaries
+        i18nProvider.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.REMOVED,
+                "/apps/site", false, null, null, null)));
+        assertSame(third, i18nProvider.i18n(resource));
+
+        // content removals keep the cached I18n
+        i18nProvider.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.REMOVED,
+                "/content/page/child", false, null, null, null)));
+        assertSame(third, i18nProvider.i18n(resource));
+    }
+
 }
@@ -19,12 +19,17 @@
  */
 package com.adobe.acs.commons.json;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import org.apache.jackrabbit.JcrConstants;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.jackrabbit.commons.JcrUtils;
 import org.apache.sling.testing.mock.jcr.MockJcr;
 import org.junit.Before;
@@ -71,6 +76,74 @@ public class JcrJsonAdapterTest {
         assertEquals(3L, getInteger(jsonObject.get("l2").getAsJsonObject().get("l3").getAsJsonObject(), "level").longValue());
     }
 
+    @Test
+    public void testWriteWithDepthAndFilter() throws RepositoryException {
+        Node root = JcrUtils.getOrCreateByPath("/test/level1", JcrConstants.NT_UNSTRUCTURED, session);
+        root.setProperty("level", 1);
+        root.setProperty("secret", "hidden");
+        root.setProperty("tags", new String[]{"a", "b"});
+        Node l2 = JcrUtils.getOrCreateByPath("/test/level1/l2", JcrConstants.NT_UNSTRUCTURED, session);
+        l2.setProperty("level", 2);
+        JcrUtils.getOrCreateByPath("/test/level1/l2/l3", JcrConstants.NT_UNSTRUCTURED, session).setProperty("level", 3);
+
+        JcrJsonAdapter adapter = new JcrJsonAdapter()
+                .withMaxDepth(2)
+                .withPropertyFilter(name -> !"secret".equals(name) && !JcrConstants.JCR_PRIMARYTYPE.equals(name));
+        JsonObject jsonObject = toJsonTree(adapter, root);
+
+        assertEquals(1L, getInteger(jsonObject, "level").longValue());
+        assertFalse(jsonObject.has("secret"));
+        assertEquals(2, jsonObject.getAsJsonArray("tags").size());
+        JsonObject jsonL2 = jsonObject.getAsJsonObject("l2");
+        assertEquals(2L, getInteger(jsonL2, "level").longValue());
+        // Nodes at the maximum depth are written as empty objects
+        assertTrue(jsonL2.has("l3"));
+        assertEquals(0, jsonL2.getAsJsonObject("l3").entrySet().size());
+
+        JsonObject pruned = toJsonObject(root, 1);
+        assertTrue(pruned.has("level"));
+        assertEquals(0, pruned.getAsJsonObject("l2").entrySet().size());
+    }
+
+    @Test
+    public void testDepthLimitMatchesPruning() throws RepositoryException {
+        Node root = JcrUtils.getOrCreateByPath("/test/level1", JcrConstants.NT_UNSTRUCTURED, session);
+        root.setProperty("level", 1);
+        root.setProperty("tags", new String[]{"a", "b"});
+        Node l2 = JcrUtils.getOrCreateByPath("/test/level1/l2", JcrConstants.NT_UNSTRUCTURED, session);
+        l2.setProperty("level", 2);
+        JcrUtils.getOrCreateByPath("/test/level1/l2/l3", JcrConstants.NT_UNSTRUCTURED, session).setProperty("level", 3);
+        JcrUtils.getOrCreateByPath("/test/level1/other", JcrConstants.NT_UNSTRUCTURED, session);
+
+        for (int depth = 0; depth <= 2; depth++) {
+            JsonObject pruned = toJsonObject(root);
+            pruneToDepth(pruned, depth);
+            assertEquals("depth " + depth, pruned, toJsonObject(root, depth));
+        }
+
+        // At the boundary the child is kept, as an empty object
+        JsonObject depthOne = toJsonObject(root, 1);
+        assertTrue(depthOne.has("l2"));
+        assertEquals(0, depthOne.getAsJsonObject("l2").entrySet().size());
+        assertEquals(0, toJsonObject(root, 0).entrySet().size());
+    }
+
+    @Test
+    public void testWriteBinaryHash() throws RepositoryException {
+        byte[] data = "binary data".getBytes(StandardCharsets.UTF_8);
+        Node root = JcrUtils.getOrCreateByPath("/test/binary", JcrConstants.NT_UNSTRUCTURED, session);
+        root.setProperty("data", session.getValueFactory().createBinary(new ByteArrayInputStream(data)));
+
+        assertEquals("(binary value)", getString(toJsonTree(new JcrJsonAdapter(), root), "data"));
+        assertEquals(DigestUtils.sha1Hex(data), getString(toJsonTree(
+                new JcrJsonAdapter().withBinaryMode(JcrJsonAdapter.BinaryMode.HASH), root), "data"));
+    }
+
+    private static JsonObject toJsonTree(JcrJsonAdapter adapter, Node node) {
+        Gson gson = new GsonBuilder().registerTypeHierarchyAdapter(Node.class, adapter).create();
+        return gson.toJsonTree(node).getAsJsonObject();
+    }
+
     /**
      * Test of read method, of class JcrJsonAdapter, which is not supported
      * @throws java.io.IOException
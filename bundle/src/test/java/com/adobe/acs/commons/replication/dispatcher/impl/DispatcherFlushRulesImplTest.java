@@ -259,18 +259,11 @@ public class DispatcherFlushRulesImplTest {
 
         dispatcherFlushRules.preprocess(replicationAction, replicationOptions);
 
+        // All paths of the rule are flushed with a single request
         verify(dispatcherFlusher, times(1)).flush(any(ResourceResolver.class), eq(ReplicationActionType.ACTIVATE),
                 eq(false),
                 agentFilterCaptor.capture(),
-                eq("/content/target"));
-
-        assertEquals(DispatcherFlushFilter.FlushType.Hierarchical, agentFilterCaptor.getValue().getFlushType());
-        // Private impl class; no access to test for instanceof
-        assertEquals("DispatcherFlushRulesFilter", agentFilterCaptor.getValue().getClass().getSimpleName());
-
-        verify(dispatcherFlusher, times(1)).flush(any(ResourceResolver.class), eq(ReplicationActionType.ACTIVATE),
-                eq(false),
-                agentFilterCaptor.capture(),
+                eq("/content/target"),
                 eq("/content/target2"));
 
         assertEquals(DispatcherFlushFilter.FlushType.Hierarchical, agentFilterCaptor.getValue().getFlushType());
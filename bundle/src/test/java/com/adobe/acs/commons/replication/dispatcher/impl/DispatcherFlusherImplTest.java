@@ -20,12 +20,16 @@
 
 package com.adobe.acs.commons.replication.dispatcher.impl;
 
+import com.adobe.acs.commons.replication.dispatcher.DispatcherFlushFilter;
 import com.adobe.acs.commons.replication.dispatcher.DispatcherFlusher;
 import com.day.cq.replication.Agent;
 import com.day.cq.replication.AgentConfig;
 import com.day.cq.replication.AgentManager;
+import com.day.cq.replication.AgentFilter;
+import com.day.cq.replication.ReplicationAction;
 import com.day.cq.replication.ReplicationActionType;
 import com.day.cq.replication.ReplicationOptions;
+import com.day.cq.replication.ReplicationResult;
 import com.day.cq.replication.Replicator;
 
 import org.apache.sling.api.resource.ResourceResolver;
@@ -39,14 +43,21 @@ import org.mockito.MockitoAnnotations;
 
 import javax.jcr.Session;
 
+import java.lang.annotation.Annotation;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
@@ -168,4 +179,88 @@ public class DispatcherFlusherImplTest {
 
         assertEquals("Agent 1", actual[0].getId());
     }
+
+    @Test
+    public void testGetFlushPaths() throws Exception {
+        final String[] paths = new String[]{"/content/foo/bar", "/content/foo", "/content/foo", "/content/foobar",
+                "/content/foo/baz/qux", "/content/other"};
+
+        // The dispatcher invalidates everything below a hierarchically flushed path
+        assertArrayEquals(new String[]{"/content/foo", "/content/foobar", "/content/other"},
+                DispatcherFlusherImpl.getFlushPaths(DispatcherFlushFilter.HIERARCHICAL, paths));
+
+        // ResourceOnly flushes only invalidate the resource itself, so only duplicates are dropped
+        assertArrayEquals(new String[]{"/content/foo/bar", "/content/foo", "/content/foobar", "/content/foo/baz/qux",
+                        "/content/other"},
+                DispatcherFlusherImpl.getFlushPaths(DispatcherFlushFilter.RESOURCE_ONLY, paths));
+    }
+
+    @Test
+    public void testFlush_parallelAgents() throws Exception {
+        final ResourceResolver resourceResolver = mock(ResourceResolver.class);
+        final ResourceResolver agentResourceResolver = mock(ResourceResolver.class);
+        final Session session = mock(Session.class);
+        when(resourceResolver.clone(null)).thenReturn(agentResourceResolver);
+        when(agentResourceResolver.adaptTo(Session.class)).thenReturn(session);
+
+        final Agent agent1 = mock(Agent.class);
+        final Agent agent2 = mock(Agent.class);
+        when(agent1.getId()).thenReturn("Agent 1");
+        when(agent2.getId()).thenReturn("Agent 2");
+        final Map<String, Agent> agents = new HashMap<String, Agent>();
+        agents.put("Agent 1", agent1);
+        agents.put("Agent 2", agent2);
+        when(agentManager.getAgents()).thenReturn(agents);
+
+        final Set<String> flushed = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            final String path = (String) invocation.getArguments()[2];
+            final ReplicationOptions options = (ReplicationOptions) invocation.getArguments()[3];
+            for (final Agent agent : agents.values()) {
+                if (options.getFilter().isIncluded(agent)) {
+                    flushed.add(agent.getId() + ":" + path);
+                    options.getListener().onStart(agent, mock(ReplicationAction.class));
+                    options.getListener().onEnd(agent, mock(ReplicationAction.class), ReplicationResult.OK);
+                }
+            }
+            return null;
+        }).when(replicator).replicate(eq(session), eq(ReplicationActionType.ACTIVATE), anyString(),
+                any(ReplicationOptions.class));
+
+        final DispatcherFlusherImpl flusher = (DispatcherFlusherImpl) dispatcherFlusher;
+        flusher.activate(config(2));
+        try {
+            final AgentFilter allAgents = agent -> true;
+            final Map<Agent, ReplicationResult> results = flusher.flush(resourceResolver,
+                    ReplicationActionType.ACTIVATE, true, allAgents, "/content/foo", "/content/bar", "/content/foo");
+
+            assertEquals(2, results.size());
+            assertEquals(4, flushed.size());
+            assertTrue(flushed.contains("Agent 1:/content/foo"));
+            assertTrue(flushed.contains("Agent 2:/content/bar"));
+
+            // One request per agent and unique path
+            verify(replicator, times(4)).replicate(eq(session), eq(ReplicationActionType.ACTIVATE), anyString(),
+                    any(ReplicationOptions.class));
+            // Each agent uses its own resolver, closed when the agent is done
+            verify(resourceResolver, times(2)).clone(null);
+            verify(agentResourceResolver, times(2)).close();
+        } finally {
+            flusher.deactivate();
+        }
+    }
+
+    private static DispatcherFlusherImpl.Config config(final int maxParallelAgents) {
+        return new DispatcherFlusherImpl.Config() {
+            @Override
+            public Class<? extends Annotation> annotationType() {
+                return DispatcherFlusherImpl.Config.class;
+            }
+
+            @Override
+            public int max_parallel_agents() {
+                return maxParallelAgents;
+            }
+        };
+    }
 }
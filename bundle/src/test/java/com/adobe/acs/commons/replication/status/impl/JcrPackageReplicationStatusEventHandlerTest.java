@@ -19,18 +19,21 @@
  */
 package com.adobe.acs.commons.replication.status.impl;
 
+import com.adobe.acs.commons.fam.ThrottledTaskRunner;
 import com.adobe.acs.commons.packaging.PackageHelper;
 import com.adobe.acs.commons.replication.status.ReplicationStatusManager;
 import com.adobe.acs.commons.util.ParameterUtil;
 import com.day.cq.replication.ReplicationAction;
 import com.day.cq.replication.ReplicationActionType;
 import com.day.cq.replication.ReplicationEvent;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.jackrabbit.JcrConstants;
 import org.apache.jackrabbit.vault.packaging.*;
 import org.apache.sling.api.resource.*;
 import org.apache.sling.api.wrappers.ValueMapDecorator;
 import org.apache.sling.event.jobs.Job;
 import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.consumer.JobConsumer;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -77,6 +80,9 @@ public class JcrPackageReplicationStatusEventHandlerTest {
     @Mock
     JobManager jobManager;
 
+    @Mock
+    ThrottledTaskRunner throttledTaskRunner;
+
     @Mock
     Job job;
 
@@ -181,6 +187,59 @@ public class JcrPackageReplicationStatusEventHandlerTest {
                 eq(contentResource1), eq(contentResource2), eq(contentResource3));
     }
 
+    @Test
+    public void testProcessResumesBatchesFromCheckpoint() throws Exception {
+        final Map<String, String> config = new HashMap<>();
+        config.put(JcrPackageReplicationStatusEventHandler.PROP_REPLICATED_BY_OVERRIDE, "Package Replication");
+        config.put(JcrPackageReplicationStatusEventHandler.PROP_BATCH_SIZE, "1");
+
+        // a previous attempt of the job completed the second batch
+        final String checkpointPath = ReplicationStatusCheckpoint.ROOT_PATH + "/" + DigestUtils.sha1Hex("job-1");
+        final Resource checkpoint = mock(Resource.class);
+        final Resource completedBatch = mock(Resource.class);
+        when(job.getId()).thenReturn("job-1");
+        when(resourceResolver.getResource(checkpointPath)).thenReturn(checkpoint);
+        when(checkpoint.getValueMap()).thenReturn(new ValueMapDecorator(Collections.singletonMap("batchSize", (Object) 1)));
+        when(checkpoint.getChildren()).thenReturn(Collections.singletonList(completedBatch));
+        when(completedBatch.getName()).thenReturn("batch-1");
+
+        eventHandler.activate(config);
+        assertEquals(JobConsumer.JobResult.OK, eventHandler.process(job));
+
+        verify(replicationStatusManager).setReplicationStatus(eq(resourceResolver), eq("Package Replication"), eq(calendar),
+                eq(ReplicationStatusManager.Status.ACTIVATED), eq(contentResource1));
+        verify(replicationStatusManager).setReplicationStatus(eq(resourceResolver), eq("Package Replication"), eq(calendar),
+                eq(ReplicationStatusManager.Status.ACTIVATED), eq(contentResource3));
+        verifyNoMoreInteractions(replicationStatusManager);
+        verify(resourceResolver).create(eq(checkpoint), eq("batch-0"), anyMap());
+        verify(resourceResolver).create(eq(checkpoint), eq("batch-2"), anyMap());
+        verify(resourceResolver).delete(checkpoint);
+    }
+
+    @Test
+    public void testProcessFailsWhenBatchesTimeOut() throws Exception {
+        final Map<String, String> config = new HashMap<>();
+        config.put(JcrPackageReplicationStatusEventHandler.PROP_BATCH_SIZE, "1");
+        config.put(JcrPackageReplicationStatusEventHandler.PROP_BATCH_TIMEOUT, "1");
+
+        final String checkpointPath = ReplicationStatusCheckpoint.ROOT_PATH + "/" + DigestUtils.sha1Hex("job-1");
+        final Resource checkpoint = mock(Resource.class);
+        when(job.getId()).thenReturn("job-1");
+        when(job.getNumberOfRetries()).thenReturn(3);
+        when(resourceResolver.getResource(checkpointPath)).thenReturn(checkpoint);
+        when(checkpoint.getValueMap()).thenReturn(new ValueMapDecorator(Collections.singletonMap("batchSize", (Object) 1)));
+        when(checkpoint.getChildren()).thenReturn(Collections.<Resource>emptyList());
+        // the runner accepts the batches, but never runs them, e.g. because it is paused
+        when(throttledTaskRunner.isRunning()).thenReturn(true);
+
+        eventHandler.activate(config);
+        assertEquals(JobConsumer.JobResult.FAILED, eventHandler.process(job));
+
+        verifyNoMoreInteractions(replicationStatusManager);
+        // the checkpoint is kept for the retry
+        verify(resourceResolver, never()).delete(checkpoint);
+    }
+
     @Test
     public void testHandleEvent() throws LoginException {
         final Map<String, Object> eventParams  = new HashMap<>();
@@ -0,0 +1,149 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.reports.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Workspace;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryManager;
+import javax.jcr.query.QueryResult;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class QueryReportExecutorTest {
+
+  private static final String QUERY = "SELECT * FROM [nt:unstructured]";
+
+  @Mock
+  private SlingHttpServletRequest request;
+
+  @Mock
+  private ResourceResolver resolver;
+
+  @Mock
+  private Session session;
+
+  @Mock
+  private Workspace workspace;
+
+  @Mock
+  private QueryManager queryManager;
+
+  @Mock
+  private Query query;
+
+  @Mock
+  private QueryResult queryResult;
+
+  @Mock
+  private NodeIterator nodes;
+
+  @Mock
+  private Node first;
+
+  @Mock
+  private Node second;
+
+  @Mock
+  private Resource firstResource;
+
+  @Mock
+  private Resource configResource;
+
+  @Mock
+  private QueryReportConfig config;
+
+  private QueryReportExecutor executor;
+
+  @Before
+  public void init() throws RepositoryException {
+    MockitoAnnotations.initMocks(this);
+    when(request.getResourceResolver()).thenReturn(resolver);
+    when(request.getParameterNames()).thenReturn(Collections.<String>emptyEnumeration());
+    when(resolver.adaptTo(Session.class)).thenReturn(session);
+    when(session.getWorkspace()).thenReturn(workspace);
+    when(workspace.getQueryManager()).thenReturn(queryManager);
+    when(queryManager.createQuery(QUERY, Query.JCR_SQL2)).thenReturn(query);
+    when(query.execute()).thenReturn(queryResult);
+    when(queryResult.getNodes()).thenReturn(nodes);
+
+    when(configResource.adaptTo(QueryReportConfig.class)).thenReturn(config);
+    when(config.getQuery()).thenReturn(QUERY);
+    when(config.getQueryLanguage()).thenReturn(Query.JCR_SQL2);
+    when(config.getPageSize()).thenReturn(50);
+
+    executor = new QueryReportExecutor(request);
+    executor.setConfiguration(configResource);
+  }
+
+  @Test
+  public void testAllResultsIteratorResolvesLazily() throws Exception {
+    when(nodes.hasNext()).thenReturn(true, true, false);
+    when(nodes.nextNode()).thenReturn(first, second);
+    when(first.getPath()).thenReturn("/content/first");
+    when(second.getPath()).thenReturn("/content/second");
+    when(resolver.getResource("/content/first")).thenReturn(firstResource);
+
+    Iterator<Object> results = executor.getAllResultsIterator();
+    verify(resolver, never()).getResource("/content/first");
+
+    assertTrue(results.hasNext());
+    assertSame(firstResource, results.next());
+    verify(resolver, never()).getResource("/content/second");
+
+    assertTrue(results.hasNext());
+    assertNull(results.next());
+    assertFalse(results.hasNext());
+
+    verify(query, never()).setLimit(anyLong());
+  }
+
+  @Test
+  public void testAllResults() throws Exception {
+    when(nodes.hasNext()).thenReturn(true, false);
+    when(nodes.nextNode()).thenReturn(first);
+    when(first.getPath()).thenReturn("/content/first");
+    when(resolver.getResource("/content/first")).thenReturn(firstResource);
+
+    assertEquals(Collections.singletonList(firstResource), executor.getAllResults().getResults());
+  }
+}
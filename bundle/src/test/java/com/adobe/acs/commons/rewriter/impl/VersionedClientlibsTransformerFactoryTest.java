@@ -63,6 +63,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.Map;
 
 @RunWith(MockitoJUnitRunner.class)
 public class VersionedClientlibsTransformerFactoryTest {
@@ -153,6 +154,7 @@ public class VersionedClientlibsTransformerFactoryTest {
 
     @After
     public void tearDown() throws Exception {
+        factory.deactivate();
         reset(htmlLibraryManager, htmlLibrary, handler);
         transformer = null;
     }
@@ -695,6 +697,162 @@ public class VersionedClientlibsTransformerFactoryTest {
         verify404();
     }
 
+    @Test
+    public void testPrewarmedManifest() throws Exception {
+        ClientLibrary clientLibrary = mock(ClientLibrary.class);
+        when(clientLibrary.getTypes()).thenReturn(Collections.singleton(LibraryType.JS));
+        when(htmlLibraryManager.getLibraries()).thenReturn(Collections.singletonMap(PATH, clientLibrary));
+        when(htmlLibraryManager.getLibrary(eq(LibraryType.JS), eq(PATH))).thenReturn(htmlLibrary);
+        when(htmlLibrary.getType()).thenReturn(LibraryType.JS);
+
+        activatePrewarm();
+        awaitManifest(1);
+
+        final AttributesImpl in = new AttributesImpl();
+        in.addAttribute("", "src", "", "CDATA", PATH + ".js");
+        in.addAttribute("", "type", "", "CDATA", "text/javascript");
+
+        transformer.startElement(null, "script", null, in);
+
+        ArgumentCaptor<Attributes> attributesCaptor = ArgumentCaptor.forClass(Attributes.class);
+        verify(handler, only()).startElement(isNull(String.class), eq("script"), isNull(String.class),
+                attributesCaptor.capture());
+        assertEquals(PATH + "." + FAKE_STREAM_CHECKSUM + ".js", attributesCaptor.getValue().getValue(0));
+
+        // hashed once by the pre-warm job, the transformer reads the manifest
+        verify(htmlLibrary, times(1)).getInputStream(false);
+        assertEquals(0, factory.getCache().size());
+    }
+
+    @Test
+    public void testNotPrewarmedIsQueuedAndLeftUnversioned() throws Exception {
+        when(htmlLibraryManager.getLibraries()).thenReturn(Collections.<String, ClientLibrary>emptyMap());
+        activatePrewarm();
+        awaitManifest(0);
+
+        ClientLibrary clientLibrary = mock(ClientLibrary.class);
+        when(clientLibrary.getTypes()).thenReturn(Collections.singleton(LibraryType.JS));
+        when(htmlLibraryManager.getLibraries()).thenReturn(Collections.singletonMap(PATH, clientLibrary));
+        when(htmlLibraryManager.getLibrary(eq(LibraryType.JS), eq(PATH))).thenReturn(htmlLibrary);
+        when(htmlLibrary.getType()).thenReturn(LibraryType.JS);
+
+        final AttributesImpl in = new AttributesImpl();
+        in.addAttribute("", "src", "", "CDATA", PATH + ".js");
+        in.addAttribute("", "type", "", "CDATA", "text/javascript");
+
+        transformer.startElement(null, "script", null, in);
+
+        // served unversioned, the pre-warm job hashes the library in the background
+        ArgumentCaptor<Attributes> attributesCaptor = ArgumentCaptor.forClass(Attributes.class);
+        verify(handler).startElement(isNull(String.class), eq("script"), isNull(String.class),
+                attributesCaptor.capture());
+        assertEquals(PATH + ".js", attributesCaptor.getValue().getValue(0));
+
+        awaitManifest(1);
+        transformer.startElement(null, "script", null, in);
+
+        verify(handler, times(2)).startElement(isNull(String.class), eq("script"), isNull(String.class),
+                attributesCaptor.capture());
+        assertEquals(PATH + "." + FAKE_STREAM_CHECKSUM + ".js", attributesCaptor.getValue().getValue(0));
+        verify(htmlLibrary, times(1)).getInputStream(false);
+        assertEquals(0, factory.getCache().size());
+    }
+
+    @Test
+    public void testPrewarmedManifestIsRefreshedOnInvalidation() throws Exception {
+        ClientLibrary clientLibrary = mock(ClientLibrary.class);
+        when(clientLibrary.getTypes()).thenReturn(Collections.singleton(LibraryType.JS));
+        when(htmlLibraryManager.getLibraries()).thenReturn(Collections.singletonMap(PATH, clientLibrary));
+        when(htmlLibraryManager.getLibrary(eq(LibraryType.JS), eq(PATH))).thenReturn(htmlLibrary);
+
+        activatePrewarm();
+        awaitManifest(1);
+
+        when(htmlLibrary.getInputStream(false)).thenReturn(new ByteArrayInputStream(BYTES));
+        factory.handleEvent(new Event("com/adobe/granite/ui/librarymanager/INVALIDATED",
+                Collections.singletonMap(SlingConstants.PROPERTY_PATH, PATH)));
+
+        final VersionedClientLibraryMd5CacheKey key = new VersionedClientLibraryMd5CacheKey(PATH, LibraryType.JS);
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!INPUTSTREAM_MD5.equals(getManifest().get(key)) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertEquals(INPUTSTREAM_MD5, getManifest().get(key));
+    }
+
+    @Test
+    public void doFilter_notPrewarmed_hashesOnce() throws Exception {
+        when(htmlLibraryManager.getLibraries()).thenReturn(Collections.<String, ClientLibrary>emptyMap());
+        activatePrewarm();
+        awaitManifest(0);
+
+        when(slingRequest.getRequestURI()).thenReturn("/etc/clientlibs/some.min.ACSHASHfoobar.js");
+        HtmlLibrary library = mock(HtmlLibrary.class);
+        when(library.getLibraryPath()).thenReturn("/etc/clientlibs/some");
+        when(library.getInputStream(false)).thenReturn(new ByteArrayInputStream(BYTES));
+        when(htmlLibraryManager.getLibrary(LibraryType.JS, "/etc/clientlibs/some")).thenReturn(library);
+
+        filter.doFilter(slingRequest, slingResponse, filterChain);
+        filter.doFilter(slingRequest, slingResponse, filterChain);
+
+        verify(slingResponse, times(2)).sendError(HttpServletResponse.SC_NOT_FOUND);
+        verify(filterChain, never()).doFilter(slingRequest, slingResponse);
+        verify(library, times(1)).getInputStream(false);
+    }
+
+    @Test
+    public void testClearCacheClearsManifest() throws Exception {
+        ClientLibrary clientLibrary = mock(ClientLibrary.class);
+        when(clientLibrary.getTypes()).thenReturn(Collections.singleton(LibraryType.JS));
+        when(htmlLibraryManager.getLibraries()).thenReturn(Collections.singletonMap(PATH, clientLibrary));
+        when(htmlLibraryManager.getLibrary(eq(LibraryType.JS), eq(PATH))).thenReturn(htmlLibrary);
+
+        activatePrewarm();
+        awaitManifest(1);
+
+        when(htmlLibraryManager.getLibraries()).thenReturn(Collections.<String, ClientLibrary>emptyMap());
+        factory.clearCache();
+
+        assertEquals(0, getManifest().size());
+    }
+
+    @Test
+    public void testPrewarmedManifestIsClearedOnInvalidationWithoutPath() throws Exception {
+        ClientLibrary clientLibrary = mock(ClientLibrary.class);
+        when(clientLibrary.getTypes()).thenReturn(Collections.singleton(LibraryType.JS));
+        when(htmlLibraryManager.getLibraries()).thenReturn(Collections.singletonMap(PATH, clientLibrary));
+        when(htmlLibraryManager.getLibrary(eq(LibraryType.JS), eq(PATH))).thenReturn(htmlLibrary);
+
+        activatePrewarm();
+        awaitManifest(1);
+
+        when(htmlLibraryManager.getLibraries()).thenReturn(Collections.<String, ClientLibrary>emptyMap());
+        factory.handleEvent(new Event("com/adobe/granite/ui/librarymanager/INVALIDATED",
+                Collections.<String, Object>emptyMap()));
+
+        assertEquals(0, getManifest().size());
+    }
+
+    @Test
+    public void doFilter_prewarmed_md5MisMatch() throws Exception {
+        HtmlLibrary library = mock(HtmlLibrary.class);
+        when(library.getInputStream(false)).thenReturn(new ByteArrayInputStream(BYTES));
+        when(library.getLibraryPath()).thenReturn("/etc/clientlibs/some");
+        when(htmlLibraryManager.getLibrary(LibraryType.JS, "/etc/clientlibs/some")).thenReturn(library);
+        ClientLibrary clientLibrary = mock(ClientLibrary.class);
+        when(clientLibrary.getTypes()).thenReturn(Collections.singleton(LibraryType.JS));
+        when(htmlLibraryManager.getLibraries()).thenReturn(Collections.singletonMap("/etc/clientlibs/some", clientLibrary));
+
+        activatePrewarm();
+        awaitManifest(1);
+
+        when(slingRequest.getRequestURI()).thenReturn("/etc/clientlibs/some.min.ACSHASHfoobar.js");
+        filter.doFilter(slingRequest, slingResponse, filterChain);
+
+        verify404();
+        verify(library, times(1)).getInputStream(false);
+    }
+
     @Test
     public void doFilter_noMd5() throws Exception {
         when(slingRequest.getRequestURI()).thenReturn("/etc/clientlibs/some.min.js");
@@ -703,6 +861,27 @@ public class VersionedClientlibsTransformerFactoryTest {
         verifyNo404();
     }
 
+    private void activatePrewarm() {
+        Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put("md5prewarm.enabled", Boolean.TRUE);
+        when(componentContext.getProperties()).thenReturn(props);
+        factory.deactivate();
+        factory.activate(componentContext);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<VersionedClientLibraryMd5CacheKey, String> getManifest() throws NoSuchFieldException {
+        return (Map<VersionedClientLibraryMd5CacheKey, String>) PrivateAccessor.getField(factory, "md5Manifest");
+    }
+
+    private void awaitManifest(int size) throws Exception {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (getManifest().size() < size && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, getManifest().size());
+    }
+
     private void verifyNothingHappened() throws IOException, ServletException {
         verifyZeroInteractions(htmlLibraryManager);
         verifyNo404();
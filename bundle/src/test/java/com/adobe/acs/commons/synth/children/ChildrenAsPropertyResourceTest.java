@@ -268,4 +268,65 @@ public class ChildrenAsPropertyResourceTest {
             Assert.assertEquals(expected.get(i).getName(), actual.get(i).getName());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPersist_OnlyModifiedChildrenChange() throws Exception {
+        valueMap.put("animals", sortedJSON.toString());
+
+        childrenAsPropertyResource =
+                new ChildrenAsPropertyResource(resource, "animals");
+
+        childrenAsPropertyResource.getChild("entry-2").adaptTo(ModifiableValueMap.class).put("sound", "purr");
+        childrenAsPropertyResource.persist();
+
+        JSONObject actual = new JSONObject(resource.getValueMap().get("animals", String.class));
+        Assert.assertEquals("purr", actual.getJSONObject("entry-2").getString("sound"));
+        Assert.assertEquals("woof", actual.getJSONObject("entry-1").getString("sound"));
+        Assert.assertEquals("...", actual.getJSONObject("entry-3").getString("sound"));
+
+        childrenAsPropertyResource.getChild("entry-3").adaptTo(ModifiableValueMap.class).put("sound", "blub");
+        childrenAsPropertyResource.persist();
+
+        actual = new JSONObject(resource.getValueMap().get("animals", String.class));
+        Assert.assertEquals("purr", actual.getJSONObject("entry-2").getString("sound"));
+        Assert.assertEquals("blub", actual.getJSONObject("entry-3").getString("sound"));
+
+        // Re-reading the persisted data yields the same children
+        childrenAsPropertyResource =
+                new ChildrenAsPropertyResource(resource, "animals");
+        Assert.assertEquals("purr", childrenAsPropertyResource.getChild("entry-2").getValueMap().get("sound", String.class));
+        Assert.assertEquals(3, IteratorUtils.toList(childrenAsPropertyResource.listChildren()).size());
+    }
+
+    @Test(expected = InvalidDataFormatException.class)
+    public void testInvalidData() throws Exception {
+        valueMap.put("animals", "{\"entry-1\": {\"name\": ");
+
+        new ChildrenAsPropertyResource(resource, "animals");
+    }
+
+    @Test
+    public void testGet_SingleValueArray() throws Exception {
+        valueMap.put("animals", "{\"entry-1\": {\"name\": [\"dog\"], \"legs\": [4]}}");
+
+        childrenAsPropertyResource = new ChildrenAsPropertyResource(resource, "animals");
+
+        ValueMap properties = childrenAsPropertyResource.getChild("entry-1").getValueMap();
+        Assert.assertEquals("dog", properties.get("name", String.class));
+        Assert.assertEquals("4", properties.get("legs", String.class));
+    }
+
+    @Test(expected = InvalidDataFormatException.class)
+    public void testInvalidData_MultiValueArray() throws Exception {
+        valueMap.put("animals", "{\"entry-1\": {\"name\": [\"dog\", \"cat\"]}}");
+
+        new ChildrenAsPropertyResource(resource, "animals");
+    }
+
+    @Test(expected = InvalidDataFormatException.class)
+    public void testInvalidData_TrailingData() throws Exception {
+        valueMap.put("animals", "{\"entry-1\": {\"name\": \"dog\"}} {\"entry-2\": {}}");
+
+        new ChildrenAsPropertyResource(resource, "animals");
+    }
+}
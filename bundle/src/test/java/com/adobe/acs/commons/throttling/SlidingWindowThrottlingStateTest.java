@@ -0,0 +1,195 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.throttling;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class SlidingWindowThrottlingStateTest {
+
+    private static final int CONSTANT_LOAD_SIZE = 10;
+
+    Clock clock;
+
+    @Before
+    public void setup() {
+        clock = Mockito.mock(Clock.class);
+    }
+
+    @Test
+    public void simpleThrottlingTestWithConstantLoad() {
+        Instant startTime = Instant.now();
+        Mockito.when(clock.instant()).thenReturn(startTime);
+        SlidingWindowThrottlingState s = new SlidingWindowThrottlingState(clock, () -> CONSTANT_LOAD_SIZE);
+        for (int i = 0; i < CONSTANT_LOAD_SIZE; i++) {
+            assertEquals(ThrottlingDecision.State.NOTHROTTLE, s.evaluateThrottling().getState());
+        }
+        ThrottlingDecision decision = s.evaluateThrottling();
+        assertEquals(ThrottlingDecision.State.THROTTLE, decision.getState());
+        assertEquals(60 * 1000, decision.getDelay());
+
+        // when the time iterates by 59 seconds throttling should still be active
+        Instant delay1 = startTime.plusSeconds(59);
+        Mockito.when(clock.instant()).thenReturn(delay1);
+        decision = s.evaluateThrottling();
+        assertEquals(ThrottlingDecision.State.THROTTLE, decision.getState());
+        assertEquals(1000, decision.getDelay());
+
+        // when another 2 seconds pass, 10 new requests should run un-throttled
+        Mockito.when(clock.instant()).thenReturn(delay1.plusSeconds(2));
+        for (int i = 0; i < CONSTANT_LOAD_SIZE; i++) {
+            assertEquals(ThrottlingDecision.State.NOTHROTTLE, s.evaluateThrottling().getState());
+        }
+        assertEquals(ThrottlingDecision.State.THROTTLE, s.evaluateThrottling().getState());
+    }
+
+    @Test
+    public void throttlingWith1Slot() {
+        Instant startTime = Instant.now();
+        Mockito.when(clock.instant()).thenReturn(startTime);
+        SlidingWindowThrottlingState s = new SlidingWindowThrottlingState(clock, () -> 1);
+
+        assertEquals(ThrottlingDecision.State.NOTHROTTLE, s.evaluateThrottling().getState());
+        assertEquals(ThrottlingDecision.State.THROTTLE, s.evaluateThrottling().getState());
+
+        Mockito.when(clock.instant()).thenReturn(startTime.plusSeconds(61));
+        assertEquals(ThrottlingDecision.State.NOTHROTTLE, s.evaluateThrottling().getState());
+    }
+
+    @Test
+    public void throttlingWithoutPermittedRequests() {
+        Mockito.when(clock.instant()).thenReturn(Instant.now());
+        SlidingWindowThrottlingState s = new SlidingWindowThrottlingState(clock, () -> 0);
+
+        assertEquals(ThrottlingDecision.State.THROTTLE, s.evaluateThrottling().getState());
+    }
+
+    @Test
+    public void limitIsOnlySampledOnRefresh() {
+        Mockito.when(clock.instant()).thenReturn(Instant.now());
+        AtomicInteger samples = new AtomicInteger();
+        SlidingWindowThrottlingState s = new SlidingWindowThrottlingState(clock, () -> {
+            samples.incrementAndGet();
+            return CONSTANT_LOAD_SIZE;
+        });
+        for (int i = 0; i < 100; i++) {
+            s.evaluateThrottling();
+        }
+        assertEquals(1, samples.get());
+
+        assertEquals(CONSTANT_LOAD_SIZE, s.refreshLimit());
+        assertEquals(2, samples.get());
+    }
+
+    @Test
+    public void testResize_DecreaseSizeKeepsMostRecentAdmissions() {
+        Instant startTime = Instant.now();
+        Mockito.when(clock.instant()).thenReturn(startTime);
+        SlidingWindowThrottlingState s = new SlidingWindowThrottlingState(clock, () -> CONSTANT_LOAD_SIZE);
+        for (int i = 0; i < 5; i++) {
+            s.evaluateThrottling();
+        }
+        Instant time2 = startTime.plusSeconds(2);
+        Mockito.when(clock.instant()).thenReturn(time2);
+        for (int i = 5; i < CONSTANT_LOAD_SIZE; i++) {
+            s.evaluateThrottling();
+        }
+
+        s.resize(8);
+        assertEquals(8, s.getLimit());
+
+        // the oldest kept admission is one of the first five
+        Mockito.when(clock.instant()).thenReturn(startTime.plusSeconds(30));
+        ThrottlingDecision decision = s.evaluateThrottling();
+        assertEquals(ThrottlingDecision.State.THROTTLE, decision.getState());
+        assertEquals(30 * 1000, decision.getDelay());
+
+        // once the first five expired, the 3 of them that were kept free up their slots
+        Mockito.when(clock.instant()).thenReturn(startTime.plusSeconds(61));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ThrottlingDecision.State.NOTHROTTLE, s.evaluateThrottling().getState());
+        }
+        assertEquals(ThrottlingDecision.State.THROTTLE, s.evaluateThrottling().getState());
+    }
+
+    @Test
+    public void testResize_IncreaseSizeAddsFreeSlots() {
+        Instant startTime = Instant.now();
+        Mockito.when(clock.instant()).thenReturn(startTime);
+        SlidingWindowThrottlingState s = new SlidingWindowThrottlingState(clock, () -> CONSTANT_LOAD_SIZE);
+        for (int i = 0; i < CONSTANT_LOAD_SIZE; i++) {
+            s.evaluateThrottling();
+        }
+        assertEquals(ThrottlingDecision.State.THROTTLE, s.evaluateThrottling().getState());
+
+        s.resize(12);
+
+        assertEquals(ThrottlingDecision.State.NOTHROTTLE, s.evaluateThrottling().getState());
+        assertEquals(ThrottlingDecision.State.NOTHROTTLE, s.evaluateThrottling().getState());
+        assertEquals(ThrottlingDecision.State.THROTTLE, s.evaluateThrottling().getState());
+    }
+
+    @Test
+    public void concurrentRequestsNeverExceedTheLimit() throws Exception {
+        Mockito.when(clock.instant()).thenReturn(Instant.now());
+        final int limit = 100;
+        final int threads = 8;
+        SlidingWindowThrottlingState s = new SlidingWindowThrottlingState(clock, () -> limit);
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    for (int i = 0; i < 1000; i++) {
+                        if (s.evaluateThrottling().getState() == ThrottlingDecision.State.NOTHROTTLE) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(limit, admitted.get());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InjectingResponseTest {
+
+    @Mock
+    private HttpServletResponse wrappedResponse;
+
+    private StringWriter output;
+
+    @Before
+    public void setUp() throws IOException {
+        output = new StringWriter();
+        when(wrappedResponse.getWriter()).thenReturn(new PrintWriter(output));
+        when(wrappedResponse.getContentType()).thenReturn("text/html;charset=utf-8");
+    }
+
+    @Test
+    public void testInjectsBeforeMarker() throws IOException {
+        InjectingResponse response = new InjectingResponse(wrappedResponse, "</body>", w -> w.write("[injected]"));
+        response.getWriter().write("<html><body>content</body></html>");
+        response.finish();
+
+        assertTrue(response.isInjected());
+        assertEquals("<html><body>content[injected]</body></html>", output.toString());
+    }
+
+    @Test
+    public void testMarkerSplitAcrossWrites() throws IOException {
+        InjectingResponse response = new InjectingResponse(wrappedResponse, "</body>", w -> w.write("[injected]"));
+        PrintWriter writer = response.getWriter();
+        writer.write("<html><body>content</b");
+        writer.flush();
+        // Only the possible start of the marker is held back
+        assertEquals("<html><body>content", output.toString());
+
+        writer.write("ody>");
+        writer.write('<');
+        writer.write("/html>");
+        response.finish();
+
+        assertEquals("<html><body>content[injected]</body></html>", output.toString());
+    }
+
+    @Test
+    public void testOverlappingPartialMatches() throws IOException {
+        InjectingResponse response = new InjectingResponse(wrappedResponse, "</body>", w -> w.write("[injected]"));
+        PrintWriter writer = response.getWriter();
+        for (char c : "<p></b</</body></body>".toCharArray()) {
+            writer.write(c);
+        }
+        response.finish();
+
+        assertEquals("<p></b</[injected]</body></body>", output.toString());
+    }
+
+    @Test
+    public void testNoMarker() throws IOException {
+        InjectingResponse response = new InjectingResponse(wrappedResponse, "</body>", w -> w.write("[injected]"));
+        response.getWriter().write("<html><body>content</bo");
+        response.finish();
+
+        assertFalse(response.isInjected());
+        assertEquals("<html><body>content</bo", output.toString());
+    }
+
+    @Test
+    public void testNonHtmlIsPassedThrough() throws IOException {
+        when(wrappedResponse.getContentType()).thenReturn("application/json");
+        InjectingResponse response = new InjectingResponse(wrappedResponse, "</body>", w -> w.write("[injected]"));
+        response.getWriter().write("{\"html\":\"</body>\"}");
+        response.finish();
+
+        assertFalse(response.isInjected());
+        assertEquals("{\"html\":\"</body>\"}", output.toString());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.util.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class QueryHelperImplTest {
+
+    @Rule
+    public final SlingContext context = new SlingContext(ResourceResolverType.RESOURCERESOLVER_MOCK);
+
+    private QueryHelperImpl queryHelper;
+
+    @Before
+    public void setUp() {
+        queryHelper = new QueryHelperImpl();
+        context.create().resource("/content/one");
+        context.create().resource("/content/one/jcr:content");
+        context.create().resource("/content/two");
+    }
+
+    @Test
+    public void testFindResourcesFromList() throws Exception {
+        List<Resource> resources = queryHelper.findResources(context.resourceResolver(), "list",
+                "/content/one\n\n/content/missing\n/content/two", "jcr:content");
+
+        assertEquals(2, resources.size());
+        assertEquals("/content/one/jcr:content", resources.get(0).getPath());
+        assertEquals("/content/two", resources.get(1).getPath());
+    }
+
+    @Test
+    public void testFindResourcesIteratorFromList() throws Exception {
+        Iterator<Resource> resources = queryHelper.findResourcesIterator(context.resourceResolver(), "list",
+                "/content/missing\n/content/one", null);
+
+        assertTrue(resources.hasNext());
+        assertEquals("/content/one", resources.next().getPath());
+        assertFalse(resources.hasNext());
+    }
+
+    @Test
+    public void testFindResourcesIteratorWithoutStatement() throws Exception {
+        assertFalse(queryHelper.findResourcesIterator(context.resourceResolver(), "list", "", null).hasNext());
+    }
+}
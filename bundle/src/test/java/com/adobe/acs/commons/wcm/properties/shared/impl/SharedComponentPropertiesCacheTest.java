@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.wcm.properties.shared.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class SharedComponentPropertiesCacheTest {
+    private static final String SITE_ROOT = "/content/acs-commons";
+    private static final String RESOURCE_TYPE = "acs-commons/components/content/generic-text";
+
+    @Rule
+    public final SlingContext context = new SlingContext(ResourceResolverType.RESOURCERESOLVER_MOCK);
+
+    private ResourceResolver resourceResolver;
+
+    @Before
+    public void setUp() {
+        resourceResolver = context.resourceResolver();
+        context.create().resource(SITE_ROOT + "/jcr:content/global-component-properties",
+                ImmutableMap.<String, Object>of("global", "global", "title", "global"));
+        context.create().resource(SITE_ROOT + "/jcr:content/shared-component-properties/" + RESOURCE_TYPE,
+                ImmutableMap.<String, Object>of("shared", "shared", "title", "shared"));
+    }
+
+    @Test
+    public void testMergedProperties() {
+        ValueMap merged = SharedComponentPropertiesCache.get(resourceResolver).getMergedProperties(SITE_ROOT,
+                RESOURCE_TYPE, new ValueMapDecorator(
+                        Collections.<String, Object>singletonMap("title", "instance")));
+
+        assertEquals("global", merged.get("global", String.class));
+        assertEquals("shared", merged.get("shared", String.class));
+        assertEquals("instance", merged.get("title", String.class));
+    }
+
+    @Test
+    public void testMissingProperties() {
+        SharedComponentPropertiesCache cache = SharedComponentPropertiesCache.get(resourceResolver);
+
+        assertNull(cache.getSharedPropertiesResource(SITE_ROOT, "acs-commons/components/content/other"));
+        assertEquals(0, cache.getSharedProperties(SITE_ROOT, "acs-commons/components/content/other").size());
+        assertEquals(0, cache.getGlobalProperties("/content/other").size());
+    }
+
+    @Test
+    public void testCachedPerResourceResolverUntilInvalidated() throws Exception {
+        SharedComponentPropertiesCache cache = SharedComponentPropertiesCache.get(resourceResolver);
+        assertEquals("shared", cache.getSharedProperties(SITE_ROOT, RESOURCE_TYPE).get("title", String.class));
+        assertSame(cache, SharedComponentPropertiesCache.get(resourceResolver));
+
+        resourceResolver.getResource(SITE_ROOT + "/jcr:content/global-component-properties")
+                .adaptTo(ModifiableValueMap.class).put("global", "changed");
+        resourceResolver.commit();
+
+        // unrelated changes keep the cache
+        new SharedComponentPropertiesChangeListener().onChange(Collections.singletonList(
+                new ResourceChange(ResourceChange.ChangeType.CHANGED, SITE_ROOT + "/page/jcr:content", false, null, null, null)));
+        assertSame(cache, SharedComponentPropertiesCache.get(resourceResolver));
+
+        new SharedComponentPropertiesChangeListener().onChange(Collections.singletonList(
+                new ResourceChange(ResourceChange.ChangeType.CHANGED, SITE_ROOT + "/jcr:content/global-component-properties",
+                        false, null, null, null)));
+        SharedComponentPropertiesCache invalidated = SharedComponentPropertiesCache.get(resourceResolver);
+        assertNotSame(cache, invalidated);
+        assertEquals("changed", invalidated.getGlobalProperties(SITE_ROOT).get("global", String.class));
+    }
+}
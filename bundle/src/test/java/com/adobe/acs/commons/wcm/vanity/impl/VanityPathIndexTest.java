@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.wcm.vanity.impl;
+
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.jcr.query.Query;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class VanityPathIndexTest {
+
+    @Rule
+    public final AemContext context = new AemContext(ResourceResolverType.RESOURCERESOLVER_MOCK);
+
+    VanityPathIndex index;
+
+    @Before
+    public void setUp() {
+        context.build().resource("/content/site/page/jcr:content", "sling:vanityPath", new String[]{"/promo", "sale"});
+        context.build().resource("/content/site/other/jcr:content", "sling:vanityPath", "/promo");
+
+        List<Resource> results = Arrays.asList(
+                context.resourceResolver().getResource("/content/site/page/jcr:content"),
+                context.resourceResolver().getResource("/content/site/other/jcr:content"));
+        ResourceResolver queryResolver = mock(ResourceResolver.class);
+        when(queryResolver.findResources(anyString(), eq(Query.JCR_SQL2))).thenReturn(results.iterator());
+
+        index = VanityPathIndex.build(queryResolver);
+    }
+
+    @Test
+    public void testBuild() {
+        assertEquals(2, index.size());
+        assertEquals(new HashSet<>(Arrays.asList("/content/site/page/jcr:content", "/content/site/other/jcr:content")),
+                index.getResources("/promo"));
+        // Vanity paths are matched with and without the leading slash
+        assertEquals(Collections.singleton("/content/site/page/jcr:content"), index.getResources("/sale"));
+        assertEquals(Collections.singleton("/content/site/page/jcr:content"), index.getResources("sale"));
+        assertTrue(index.getResources("/missing").isEmpty());
+    }
+
+    @Test
+    public void testUpdateAddedAndChanged() {
+        context.build().resource("/content/site/new/jcr:content", "sling:vanityPath", "/new");
+        context.resourceResolver().getResource("/content/site/page/jcr:content").adaptTo(ModifiableValueMap.class)
+                .put("sling:vanityPath", "/changed");
+
+        VanityPathIndex updated = index.update(context.resourceResolver(), Arrays.asList(
+                change(ResourceChange.ChangeType.ADDED, "/content/site/new/jcr:content"),
+                change(ResourceChange.ChangeType.CHANGED, "/content/site/page/jcr:content")));
+
+        assertEquals(Collections.singleton("/content/site/new/jcr:content"), updated.getResources("/new"));
+        assertEquals(Collections.singleton("/content/site/page/jcr:content"), updated.getResources("/changed"));
+        assertEquals(Collections.singleton("/content/site/other/jcr:content"), updated.getResources("/promo"));
+        assertTrue(updated.getResources("/sale").isEmpty());
+
+        // The original index is left untouched
+        assertEquals(2, index.getResources("/promo").size());
+        assertTrue(index.getResources("/new").isEmpty());
+    }
+
+    @Test
+    public void testUpdateAddedTree() {
+        // A moved page is reported as a single change of the subtree root
+        context.build().resource("/content/site/moved/jcr:content", "sling:vanityPath", "/moved");
+        context.build().resource("/content/site/moved/child/jcr:content", "sling:vanityPath", "/moved-child");
+
+        VanityPathIndex updated = index.update(context.resourceResolver(), Arrays.asList(
+                change(ResourceChange.ChangeType.REMOVED, "/content/site/page"),
+                change(ResourceChange.ChangeType.ADDED, "/content/site/moved")));
+
+        assertEquals(Collections.singleton("/content/site/moved/jcr:content"), updated.getResources("/moved"));
+        assertEquals(Collections.singleton("/content/site/moved/child/jcr:content"),
+                updated.getResources("/moved-child"));
+        assertTrue(updated.getResources("/sale").isEmpty());
+    }
+
+    @Test
+    public void testUpdateRemovedTree() {
+        VanityPathIndex updated = index.update(context.resourceResolver(), Arrays.asList(
+                change(ResourceChange.ChangeType.REMOVED, "/content/site/page"),
+                change(ResourceChange.ChangeType.REMOVED, "/etc/ignored")));
+
+        assertEquals(1, updated.size());
+        assertEquals(Collections.singleton("/content/site/other/jcr:content"), updated.getResources("/promo"));
+    }
+
+    private static ResourceChange change(ResourceChange.ChangeType type, String path) {
+        ResourceChange change = mock(ResourceChange.class);
+        when(change.getType()).thenReturn(type);
+        when(change.getPath()).thenReturn(path);
+        return change;
+    }
+}
@@ -20,6 +20,12 @@
 package com.adobe.acs.commons.wcm.vanity.impl;
 
 import io.wcm.testing.mock.aem.junit.AemContext;
+import junitx.util.PrivateAccessor;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.commons.scheduler.ScheduleOptions;
+import org.apache.sling.commons.scheduler.Scheduler;
 import org.apache.sling.testing.mock.sling.ResourceResolverType;
 import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
 import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
@@ -31,14 +37,21 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import javax.jcr.query.Query;
 import javax.servlet.RequestDispatcher;
+import java.util.Collections;
+import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @SuppressWarnings("checkstyle:abbreviationaswordinname")
 @RunWith(MockitoJUnitRunner.class)
@@ -53,6 +66,12 @@ public class VanityURLServiceImplTest {
     @Mock
     RequestDispatcher requestDispatcher;
 
+    @Mock
+    ResourceResolverFactory resourceResolverFactory;
+
+    @Mock
+    Scheduler scheduler;
+
     @InjectMocks
     VanityURLServiceImpl vanityURLService = new VanityURLServiceImpl();
 
@@ -109,4 +128,53 @@ public class VanityURLServiceImplTest {
 
         assertFalse(vanityURLService.isVanityPath("/content", "/foo", request));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void isVanityPath_Indexed() throws Exception {
+        useIndex();
+        // Resource resolution stands in for the vanity path mapping of the real resource resolver
+        context.build().resource("/my-vanity",
+                "jcr:primaryType", "sling:redirect",
+                "sling:target", "/content/sample/vanity");
+        context.build().resource("/not-a-vanity",
+                "jcr:primaryType", "sling:redirect",
+                "sling:target", "/content/sample/vanity");
+
+        // Hits are still confirmed by resolving them
+        assertTrue(vanityURLService.isVanityPath("/content", "/my-vanity", request));
+        assertFalse(vanityURLService.isVanityPath("/content/other", "/my-vanity", request));
+        // Misses are rejected by the index alone
+        assertFalse(vanityURLService.isVanityPath("/content", "/not-a-vanity", request));
+        assertEquals(1, vanityURLService.getIndexSize());
+    }
+
+    @Test
+    public void getVanityPathResources_Indexed() throws Exception {
+        useIndex();
+
+        assertEquals(Collections.singletonList("/content/sample/vanity"),
+                vanityURLService.getVanityPathResources(context.resourceResolver(), "/my-vanity"));
+        assertTrue(vanityURLService.getVanityPathResources(context.resourceResolver(), "/not-a-vanity").isEmpty());
+    }
+
+    @Test
+    public void updateIndex_FailureSchedulesRebuild() throws Exception {
+        useIndex();
+        when(resourceResolverFactory.getServiceResourceResolver(any())).thenThrow(new LoginException());
+        when(scheduler.NOW()).thenReturn(mock(ScheduleOptions.class));
+        when(scheduler.schedule(any(), any(ScheduleOptions.class))).thenReturn(true);
+
+        PrivateAccessor.invoke(vanityURLService, "updateIndex", new Class[]{List.class},
+                new Object[]{Collections.emptyList()});
+
+        assertEquals(-1, vanityURLService.getIndexSize());
+        verify(scheduler).schedule(any(), any(ScheduleOptions.class));
+    }
+
+    private void useIndex() throws Exception {
+        ResourceResolver queryResolver = mock(ResourceResolver.class);
+        when(queryResolver.findResources(anyString(), eq(Query.JCR_SQL2))).thenReturn(
+                Collections.singletonList(context.resourceResolver().getResource("/content/sample/vanity")).iterator());
+        PrivateAccessor.setField(vanityURLService, "vanityPathIndex", VanityPathIndex.build(queryResolver));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2018 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.workflow.bulk.removal.impl;
+
+import com.adobe.acs.commons.fam.ActionManager;
+import com.adobe.acs.commons.fam.ActionManagerFactory;
+import com.adobe.acs.commons.functions.CheckedConsumer;
+import com.adobe.acs.commons.workflow.bulk.removal.WorkflowRemovalStatus;
+import junitx.util.PrivateAccessor;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WorkflowInstanceRemoverImplTest {
+    private static final String INSTANCES = "/etc/workflow/instances/server0";
+
+    @Rule
+    public final SlingContext context = new SlingContext(ResourceResolverType.JCR_MOCK);
+
+    private WorkflowInstanceRemoverImpl remover;
+
+    private ActionManagerFactory actionManagerFactory;
+
+    private ActionManager actionManager;
+
+    @Before
+    public void setUp() throws Exception {
+        remover = new WorkflowInstanceRemoverImpl();
+
+        actionManager = mock(ActionManager.class);
+        when(actionManager.isComplete()).thenReturn(true);
+        doAnswer(invocation -> {
+            ((CheckedConsumer<ResourceResolver>) invocation.getArguments()[0]).accept(context.resourceResolver());
+            return null;
+        }).when(actionManager).deferredWithResolver(any(CheckedConsumer.class));
+
+        actionManagerFactory = mock(ActionManagerFactory.class);
+        when(actionManagerFactory.createTaskManager(anyString(), any(ResourceResolver.class), anyInt())).thenReturn(actionManager);
+
+        addInstance("2018-01-01", "wf-1", "COMPLETED");
+        addInstance("2018-01-01", "wf-2", "COMPLETED");
+        addInstance("2018-01-02", "wf-3", "COMPLETED");
+        addInstance("2018-01-02", "wf-4", "RUNNING");
+        context.resourceResolver().commit();
+    }
+
+    @Test
+    public void testParallelRemoval() throws Exception {
+        PrivateAccessor.setField(remover, "actionManagerFactory", actionManagerFactory);
+
+        int count = remover.removeWorkflowInstances(context.resourceResolver(), null,
+                Collections.singletonList("COMPLETED"), null, null, 1000, -1, true);
+
+        assertEquals(3, count);
+        // The first folder only held matching instances so it was removed as a whole
+        assertNull(context.resourceResolver().getResource(INSTANCES + "/2018-01-01"));
+        assertNull(context.resourceResolver().getResource(INSTANCES + "/2018-01-02/wf-3"));
+        assertNotNull(context.resourceResolver().getResource(INSTANCES + "/2018-01-02/wf-4"));
+
+        WorkflowRemovalStatus status = remover.getStatus();
+        assertFalse(status.isRunning());
+        assertEquals(4, status.getChecked());
+        assertEquals(3, status.getRemoved());
+        verify(actionManagerFactory).purge(actionManager);
+    }
+
+    @Test
+    public void testParallelRemovalInBatches() throws Exception {
+        PrivateAccessor.setField(remover, "actionManagerFactory", actionManagerFactory);
+
+        int count = remover.removeWorkflowInstances(context.resourceResolver(), null,
+                Arrays.asList("COMPLETED", "RUNNING"), null, null, 1, -1, true);
+
+        assertEquals(4, count);
+        assertNull(context.resourceResolver().getResource(INSTANCES + "/2018-01-01"));
+        assertNull(context.resourceResolver().getResource(INSTANCES + "/2018-01-02"));
+        assertEquals(4, remover.getStatus().getRemoved());
+    }
+
+    @Test
+    public void testParallelFallsBackToSequential() throws Exception {
+        remover.removeWorkflowInstances(context.resourceResolver(), null,
+                Collections.singletonList("COMPLETED"), null, null, 1000, -1, true);
+
+        assertNull(context.resourceResolver().getResource(INSTANCES + "/2018-01-01/wf-1"));
+        assertNull(context.resourceResolver().getResource(INSTANCES + "/2018-01-02/wf-3"));
+        assertNotNull(context.resourceResolver().getResource(INSTANCES + "/2018-01-02/wf-4"));
+        assertEquals(3, remover.getStatus().getRemoved());
+    }
+
+    private void addInstance(String folderName, String name, String status) throws RepositoryException {
+        Session session = context.resourceResolver().adaptTo(Session.class);
+        Node folder = getOrAddNode(getOrAddNode(session.getRootNode(), "etc/workflow/instances/server0", "sling:Folder"),
+                folderName, "sling:Folder");
+
+        Node instance = folder.addNode(name, "cq:Workflow");
+        instance.setProperty("modelId", "/var/workflow/models/test");
+        instance.setProperty("status", status);
+        instance.addNode("data", "nt:unstructured").addNode("payload", "nt:unstructured").setProperty("path", "/content/test");
+    }
+
+    private Node getOrAddNode(Node parent, String relPath, String primaryType) throws RepositoryException {
+        Node node = parent;
+        for (String name : relPath.split("/")) {
+            node = node.hasNode(name) ? node.getNode(name) : node.addNode(name, primaryType);
+        }
+        return node;
+    }
+}
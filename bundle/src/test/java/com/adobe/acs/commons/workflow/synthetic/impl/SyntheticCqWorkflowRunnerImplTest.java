@@ -20,8 +20,14 @@
 
 package com.adobe.acs.commons.workflow.synthetic.impl;
 
+import com.adobe.acs.commons.fam.ActionManager;
+import com.adobe.acs.commons.fam.ThrottledTaskRunner;
+import com.adobe.acs.commons.fam.actions.Actions;
+import com.adobe.acs.commons.workflow.synthetic.SyntheticWorkflowBatchResult;
+import com.adobe.acs.commons.workflow.synthetic.SyntheticWorkflowModel;
 import com.adobe.acs.commons.workflow.synthetic.SyntheticWorkflowRunner;
 import com.adobe.acs.commons.workflow.synthetic.SyntheticWorkflowStep;
+import com.adobe.acs.commons.workflow.synthetic.impl.cqtestprocesses.FailingPayloadWorkflowProcess;
 import com.adobe.acs.commons.workflow.synthetic.impl.cqtestprocesses.NoNextWorkflowProcess;
 import com.adobe.acs.commons.workflow.synthetic.impl.cqtestprocesses.ReadDataWorkflowProcess;
 import com.adobe.acs.commons.workflow.synthetic.impl.cqtestprocesses.RestartWorkflowProcess;
@@ -33,6 +39,7 @@ import com.adobe.acs.commons.workflow.synthetic.impl.cqtestprocesses.WfDataWorkf
 import com.day.cq.workflow.WorkflowSession;
 import com.day.cq.workflow.exec.WorkItem;
 import com.day.cq.workflow.metadata.MetaDataMap;
+import junitx.util.PrivateAccessor;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.junit.Before;
 import org.junit.Test;
@@ -42,11 +49,17 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import javax.jcr.Session;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -264,4 +277,119 @@ public class SyntheticCqWorkflowRunnerImplTest {
                 false,
                 false);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testExecute_Batch() throws Exception {
+        when(resourceResolver.clone(null)).thenReturn(resourceResolver);
+        when(resourceResolver.hasChanges()).thenReturn(true);
+
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put("process.label", "fail");
+        swr.bindCqWorkflowProcesses(new FailingPayloadWorkflowProcess("/content/test/3"), map);
+
+        String processName = FailingPayloadWorkflowProcess.class.getCanonicalName();
+        SyntheticWorkflowModel model = mock(SyntheticWorkflowModel.class);
+        when(model.getWorkflowProcessNames()).thenReturn(new String[]{processName});
+        when(model.getSyntheticWorkflowModelData()).thenReturn(
+                Collections.<String, Map<String, Object>>singletonMap(processName, new HashMap<String, Object>()));
+
+        SyntheticWorkflowBatchResult result = swr.execute(resourceResolver,
+                Arrays.asList("/content/test/1", "/content/test/2", "/content/test/3", "/content/test/4", "/content/test/5"),
+                model, 2, 10);
+
+        assertEquals(4, result.getSuccessCount());
+        assertEquals(1, result.getFailureCount());
+        assertTrue(result.getFailures().containsKey("/content/test/3"));
+        // One cloned resolver and one commit per partition
+        verify(resourceResolver, times(3)).clone(null);
+        verify(resourceResolver, times(3)).commit();
+        verify(resourceResolver, times(3)).close();
+    }
+
+    @Test
+    public void testExecute_BatchFailureRollsBackUncommittedPayloads() throws Exception {
+        when(resourceResolver.clone(null)).thenReturn(resourceResolver);
+        when(resourceResolver.hasChanges()).thenReturn(true);
+
+        SyntheticWorkflowModel model = failingModel("/content/test/3");
+
+        SyntheticWorkflowBatchResult result = swr.execute(resourceResolver,
+                Arrays.asList("/content/test/1", "/content/test/2", "/content/test/3", "/content/test/4"),
+                model, 4, 10);
+
+        // The uncommitted changes of 1 and 2 are rolled back with those of 3
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(3, result.getFailureCount());
+        assertTrue(result.getFailures().keySet().containsAll(
+                Arrays.asList("/content/test/1", "/content/test/2", "/content/test/3")));
+        verify(resourceResolver).revert();
+        verify(resourceResolver, times(1)).commit();
+    }
+
+    @Test
+    public void testExecute_BatchTimesOut() throws Exception {
+        when(resourceResolver.clone(null)).thenReturn(resourceResolver);
+
+        // A busy runner that never gets to the scheduled partitions
+        ThrottledTaskRunner taskRunner = mock(ThrottledTaskRunner.class);
+        when(taskRunner.isRunning()).thenReturn(true);
+        PrivateAccessor.setField(swr, "throttledTaskRunner", taskRunner);
+        PrivateAccessor.setField(swr, "batchTimeout", 1);
+
+        SyntheticWorkflowBatchResult result = swr.execute(resourceResolver,
+                Arrays.asList("/content/test/1", "/content/test/2", "/content/test/3"), failingModel("/content/test/3"),
+                2, 10);
+
+        assertEquals(0, result.getSuccessCount());
+        assertEquals(3, result.getFailureCount());
+        // The cancelled partitions release their resolvers
+        verify(resourceResolver, times(2)).close();
+        verify(resourceResolver, never()).commit();
+    }
+
+    @Test
+    public void testExecute_BatchFromActionManagerRunsInline() throws Exception {
+        when(resourceResolver.clone(null)).thenReturn(resourceResolver);
+
+        // A busy runner that never gets to the scheduled partitions
+        ThrottledTaskRunner taskRunner = mock(ThrottledTaskRunner.class);
+        when(taskRunner.isRunning()).thenReturn(true);
+        PrivateAccessor.setField(swr, "throttledTaskRunner", taskRunner);
+
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put("process.label", "fail");
+        swr.bindCqWorkflowProcesses(new FailingPayloadWorkflowProcess("/content/test/3"), map);
+
+        String processName = FailingPayloadWorkflowProcess.class.getCanonicalName();
+        SyntheticWorkflowModel model = mock(SyntheticWorkflowModel.class);
+        when(model.getWorkflowProcessNames()).thenReturn(new String[]{processName});
+        when(model.getSyntheticWorkflowModelData()).thenReturn(
+                Collections.<String, Map<String, Object>>singletonMap(processName, new HashMap<String, Object>()));
+
+        Actions.setCurrentActionManager(mock(ActionManager.class));
+        SyntheticWorkflowBatchResult result;
+        try {
+            result = swr.execute(resourceResolver,
+                    Arrays.asList("/content/test/1", "/content/test/2", "/content/test/3"), model, 2, 10);
+        } finally {
+            Actions.setCurrentActionManager(null);
+        }
+
+        assertEquals(2, result.getSuccessCount());
+        assertEquals(1, result.getFailureCount());
+        verify(taskRunner, never()).scheduleWork(any(Runnable.class));
+    }
+
+    private SyntheticWorkflowModel failingModel(String failingPayloadPath) {
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put("process.label", "fail");
+        swr.bindCqWorkflowProcesses(new FailingPayloadWorkflowProcess(failingPayloadPath), map);
+
+        String processName = FailingPayloadWorkflowProcess.class.getCanonicalName();
+        SyntheticWorkflowModel model = mock(SyntheticWorkflowModel.class);
+        when(model.getWorkflowProcessNames()).thenReturn(new String[]{processName});
+        when(model.getSyntheticWorkflowModelData()).thenReturn(
+                Collections.<String, Map<String, Object>>singletonMap(processName, new HashMap<String, Object>()));
+        return model;
+    }
+}